@@ -32,6 +32,13 @@ public interface Actor extends Comparable<Actor> {
 	 */
 	public void setX(int x);
 
+	/**
+	 * Return a copy of the actor, independent of the original.
+	 *
+	 * @return A new actor of the same class with the same properties.
+	 */
+	public Actor copy();
+
 	/**
 	 * Compare an actor to another actor. The comparison is based on the
 	 * actor's absolute X position. It is useful to be able to sort actors
@@ -30,4 +30,12 @@ public final class PageSkip implements Actor {
 
 	/** The value to which to set the page counter. */
 	private int target;
+
+	@Override
+	public PageSkip copy() {
+		var skip = new PageSkip();
+		skip.setX(this.x);
+		skip.setTarget(this.target);
+		return skip;
+	}
 }
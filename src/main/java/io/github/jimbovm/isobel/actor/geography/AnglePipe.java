@@ -71,4 +71,9 @@ public final class AnglePipe extends GeographyActor implements YPlaceable {
 	public byte[] unparse(final boolean newPage) {
 		return FTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public AnglePipe copy() {
+		return AnglePipe.create(this.x, this.y);
+	}
 }
@@ -58,4 +58,9 @@ public final class BackgroundModifier extends GeographyActor {
 	public byte[] unparse(final boolean newPage) {
 		return ETypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public BackgroundModifier copy() {
+		return BackgroundModifier.create(this.x, this.background);
+	}
 }
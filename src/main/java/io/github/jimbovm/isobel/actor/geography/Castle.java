@@ -84,4 +84,9 @@ public final class Castle extends GeographyActor {
 	public byte[] unparse(final boolean newPage) {
 		return FTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public Castle copy() {
+		return Castle.create(this.x, this.size);
+	}
 }
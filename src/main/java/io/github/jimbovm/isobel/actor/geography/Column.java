@@ -94,4 +94,9 @@ public final class Column extends GeographyActor implements YPlaceable, Extensib
 	public byte[] unparse(boolean newPage) {
 		return NormalCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public Column copy() {
+		return Column.create(this.x, this.y, this.type, this.extent);
+	}
 }
@@ -75,4 +75,9 @@ public final class ExtensiblePlatform extends GeographyActor implements YPlaceab
 	public byte[] unparse(final boolean newPage) {
 		return NormalCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public ExtensiblePlatform copy() {
+		return ExtensiblePlatform.create(this.x, this.y, this.extent);
+	}
 }
@@ -65,4 +65,9 @@ public final class FillSceneryModifier extends GeographyActor {
 	public byte[] unparse(final boolean newPage) {
 		return ETypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public FillSceneryModifier copy() {
+		return FillSceneryModifier.create(this.x, this.fill, this.scenery);
+	}
 }
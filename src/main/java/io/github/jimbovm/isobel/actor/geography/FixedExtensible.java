@@ -132,4 +132,9 @@ public final class FixedExtensible extends GeographyActor implements Extensible
 	public byte[] unparse(final boolean newPage) {
 		return CTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public FixedExtensible copy() {
+		return FixedExtensible.create(this.x, this.type, this.extent);
+	}
 }
@@ -269,4 +269,9 @@ public final class FixedStatic extends GeographyActor {
 	public byte[] unparse(boolean newPage) {
 		return DTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public FixedStatic copy() {
+		return FixedStatic.create(this.x, this.type);
+	}
 }
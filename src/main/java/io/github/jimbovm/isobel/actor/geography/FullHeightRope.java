@@ -46,4 +46,9 @@ public final class FullHeightRope extends GeographyActor {
 	public byte[] unparse(final boolean newPage) {
 		return FTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public FullHeightRope copy() {
+		return FullHeightRope.create(this.x);
+	}
 }
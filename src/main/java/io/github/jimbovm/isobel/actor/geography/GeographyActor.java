@@ -40,4 +40,7 @@ public abstract class GeographyActor implements Actor {
 	 */
 	public abstract byte[] unparse(final boolean newPage);
 
+	@Override
+	public abstract GeographyActor copy();
+
 }
@@ -94,4 +94,9 @@ public final class Row extends GeographyActor implements YPlaceable, Extensible
 	public byte[] unparse(final boolean newPage) {
 		return NormalCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public Row copy() {
+		return Row.create(this.x, this.y, this.type, this.extent);
+	}
 }
@@ -48,4 +48,12 @@ public final class ScaleRopeVertical extends GeographyActor implements Extensibl
 	public byte[] unparse(final boolean newPage) {
 		return FTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public ScaleRopeVertical copy() {
+		var rope = new ScaleRopeVertical();
+		rope.setX(this.x);
+		rope.setExtent(this.extent);
+		return rope;
+	}
 }
@@ -130,4 +130,9 @@ public final class SingletonObject extends GeographyActor implements YPlaceable
 	public byte[] unparse(final boolean newPage) {
 		return NormalCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public SingletonObject copy() {
+		return SingletonObject.create(this.x, this.y, this.type);
+	}
 }
@@ -69,4 +69,9 @@ public final class Staircase extends GeographyActor implements Extensible {
 	public byte[] unparse(final boolean newPage) {
 		return FTypeCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public Staircase copy() {
+		return Staircase.create(this.x, this.extent);
+	}
 }
@@ -79,4 +79,9 @@ public final class UprightPipe extends GeographyActor implements YPlaceable, Ext
 	public byte[] unparse(final boolean newPage) {
 		return NormalCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public UprightPipe copy() {
+		return UprightPipe.create(this.x, this.y, this.extent, this.enterable);
+	}
 }
@@ -278,4 +278,9 @@ public final class Character extends PopulationActor implements YPlaceable {
 	public byte[] unparse(final boolean newPage, final Atlas atlas) {
 		return PopulationCommand.unparse(this, newPage);
 	}
+
+	@Override
+	public Character copy() {
+		return Character.create(this.x, this.y, this.type, this.hardModeOnly);
+	}
 }
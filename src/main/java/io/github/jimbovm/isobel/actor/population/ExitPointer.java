@@ -95,4 +95,9 @@ public final class ExitPointer extends PopulationActor {
 	public byte[] unparse(final boolean newPage, final Atlas atlas) {
 		return PopulationCommand.unparse(this, newPage, atlas);
 	}
+
+	@Override
+	public ExitPointer copy() {
+		return ExitPointer.create(this.x, this.destination, this.startPage, this.activeFromWorld);
+	}
 }
@@ -43,4 +43,7 @@ public abstract class PopulationActor implements Actor {
 	 * @return         A byte array containing area population bytecode.
 	 */
 	public abstract byte[] unparse(final boolean newPage, final Atlas atlas);
+
+	@Override
+	public abstract PopulationActor copy();
 }
@@ -0,0 +1,77 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.actor.population;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.adapters.HexBinaryAdapter;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.bytecode.common.CommandUtils;
+import io.github.jimbovm.isobel.common.Atlas;
+
+/**
+ * This bean holds a population command which could not be decoded, as it was
+ * read, so that it is written back unchanged. Only its X position and new
+ * page flag are encoded afresh, as for any other actor.
+ *
+ * @see io.github.jimbovm.isobel.bytecode.common.ParseReport
+ */
+@Getter
+@Setter
+@ToString
+@XmlAccessorType(XmlAccessType.NONE)
+@XmlRootElement(name = "rawPopulationCommand")
+public final class RawPopulationCommand extends PopulationActor {
+
+	/** The two or three bytes of the command. */
+	@XmlAttribute(name = "bytes")
+	@XmlJavaTypeAdapter(HexBinaryAdapter.class)
+	@NotNull
+	@Size(min = 2, max = 3)
+	private byte[] command;
+
+	/**
+	 * Create a new raw population command bean.
+	 *
+	 * @param  x       The absolute X position of the command.
+	 * @param  command The two or three bytes of the command, which are copied.
+	 *
+	 * @return         A new raw population command bean with the supplied
+	 *                 parameters.
+	 */
+	public static RawPopulationCommand create(final int x, final byte[] command) {
+		var raw = new RawPopulationCommand();
+		raw.setX(x);
+		raw.setCommand(command.clone());
+		return raw;
+	}
+
+	/**
+	 * Unparse the bean to its in-game bytecode equivalent.
+	 *
+	 * @param newPage Whether to set the new page flag in the generated bytecode.
+	 * @param atlas   Not used, as the command names no area.
+	 */
+	@Override
+	public byte[] unparse(final boolean newPage, final Atlas atlas) {
+		return CommandUtils.encodeRaw(this.command, this.x, newPage);
+	}
+
+	@Override
+	public RawPopulationCommand copy() {
+		return RawPopulationCommand.create(this.x, this.command);
+	}
+}
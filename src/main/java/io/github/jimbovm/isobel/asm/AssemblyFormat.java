@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.github.jimbovm.isobel.bytecode.population.LinkTable;
 import io.github.jimbovm.isobel.common.Area;
 import io.github.jimbovm.isobel.common.Area.Environment;
 import io.github.jimbovm.isobel.common.Atlas;
@@ -152,10 +153,14 @@ public final class AssemblyFormat {
 	/**
 	 * Return a map to a game's raw area data formatted as assembly.
 	 * 
-	 * @param  atlas An atlas containing a game's complete area data
+	 * @param  atlas                 An atlas containing a game's complete area
+	 *                               data
 	 * 
-	 * @return       A {@link Map} of Strings to Strings holding the generated
-	 *               assembly
+	 * @return                       A {@link Map} of Strings to Strings holding
+	 *                               the generated assembly
+	 * 
+	 * @throws IllegalStateException If any exit pointer names an area not in
+	 *                               the atlas.
 	 */
 	public static Map<String, String> toAssembly(Atlas atlas) {
 
@@ -166,8 +171,9 @@ public final class AssemblyFormat {
 			geographyBuilder.append(formatAsAssembly(area.unparseGeography(), "G_" + area.getId()));
 		}
 
+		final LinkTable links = LinkTable.link(atlas).check();
 		for (Area area : atlas.getAreas()) {
-			populationBuilder.append(formatAsAssembly(area.unparsePopulation(atlas), "P_" + area.getId()));
+			populationBuilder.append(formatAsAssembly(area.unparsePopulation(links), "P_" + area.getId()));
 		}
 
 		HashMap<String, String> output = new HashMap<>();
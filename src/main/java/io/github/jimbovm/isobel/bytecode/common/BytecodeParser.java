@@ -8,6 +8,7 @@ package io.github.jimbovm.isobel.bytecode.common;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -18,6 +19,8 @@ import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
 import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Layer;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Outcome;
 
 /**
  * This generalised parser class factors out common, reusable
@@ -44,6 +47,24 @@ public abstract class BytecodeParser<T extends Actor> {
 	/** The number of bytes read so far. */
 	protected int bytesRead;
 
+	/** The offset in the stream of the next byte to be read. */
+	protected int offset;
+
+	/**
+	 * The report to which problems are added, or <code>null</code> to stop
+	 * at the first problem.
+	 */
+	protected ParseReport report;
+
+	/** The ID of the area whose data is being parsed, if known, for reporting. */
+	protected String area;
+
+	/**
+	 * The index of the pages of the last stream read in full, or
+	 * <code>null</code> if none has been.
+	 */
+	protected PageIndex pageIndex;
+
 	/**
 	 * Test whether the new page flag is set on a byte.
 	 * 
@@ -106,6 +127,23 @@ public abstract class BytecodeParser<T extends Actor> {
 	 */
 	protected abstract T handleTwoByte(final int lowByte, final int highByte);
 
+	/**
+	 * Keep a command which could not be decoded as it was read.
+	 *
+	 * @param  x       The absolute X position of the command.
+	 * @param  command The bytes of the command, with the new page flag clear.
+	 *
+	 * @return         An object which writes back the same command.
+	 */
+	protected abstract T handleUnknown(final int x, final byte[] command);
+
+	/**
+	 * Return the kind of stream which the parser reads.
+	 *
+	 * @return The layer named in diagnostics.
+	 */
+	protected abstract Layer getLayer();
+
 	/**
 	 * Read bytes from an {@link InputStream}, two or three per iteration,
 	 * deducing whether they are part of two- or three-byte commands (or the
@@ -113,28 +151,101 @@ public abstract class BytecodeParser<T extends Actor> {
 	 * handling accordingly. Three-byte detection may be achieved via
 	 * dependency injection.
 	 *
+	 * If the parser has a {@link ParseReport}, problems are added to it
+	 * rather than thrown: a command which cannot be decoded is kept with
+	 * {@link #handleUnknown(int, byte[])}, a command containing the end
+	 * marker is decoded as the game would decode it, and data ending without
+	 * the end marker yields the commands read up to that point.
+	 *
+	 * An index of the pages in the stream is recorded as it is read, and
+	 * kept as the parser's page index.
+	 *
 	 * @param  endMarker   The single-byte sentinel indicating end of data.
 	 * 
-	 * @throws IOException in the event of an issue with the input stream.
+	 * @throws IOException in the event of an issue with the input stream, or
+	 *                     of malformed data if the parser has no report.
 	 *
 	 * @return             A {@link List} of objects representative of the bytes in
 	 *                     the
 	 *                     input stream.
 	 */
 	protected List<@NotNull T> parse(final int endMarker) throws IOException {
+		return this.parse(endMarker, true, Integer.MAX_VALUE, true);
+	}
+
+	/**
+	 * Read a stream as {@link #parse(int)} does, recording where each page
+	 * begins without decoding any commands.
+	 *
+	 * @param  endMarker   The single-byte sentinel indicating end of data.
+	 *
+	 * @return             An index of the pages in the stream, which is also
+	 *                     kept as the parser's page index.
+	 *
+	 * @throws IOException in the event of an issue with the input stream, or
+	 *                     of malformed data if the parser has no report.
+	 */
+	protected PageIndex scan(final int endMarker) throws IOException {
+		this.parse(endMarker, false, Integer.MAX_VALUE, true);
+		return this.pageIndex;
+	}
+
+	/**
+	 * Read only the commands on a range of pages, seeking directly to the
+	 * first of them. The input stream is reset to its start, and must be
+	 * positioned there by a reset, as a {@link java.io.ByteArrayInputStream}
+	 * is.
+	 *
+	 * @param  endMarker                The single-byte sentinel indicating end
+	 *                                  of data.
+	 * @param  index                    An index of the pages in the stream.
+	 * @param  from                     The first page to read.
+	 * @param  to                       The page after the last page to read.
+	 *
+	 * @return                          A {@link List} of objects representative
+	 *                                  of the commands on the pages.
+	 *
+	 * @throws IOException              in the event of an issue with the input
+	 *                                  stream, or of malformed data if the
+	 *                                  parser has no report.
+	 * @throws IllegalArgumentException If the range is invalid.
+	 */
+	protected List<@NotNull T> parse(final int endMarker, final PageIndex index, final int from, final int to)
+		throws IOException {
+
+		if (from < 0 || to < from) {
+			throw new IllegalArgumentException(String.format("Invalid page range [%d, %d)", from, to));
+		}
+
+		this.source.reset();
+		this.source.skipNBytes(index.getOffset(from));
+		this.offset = index.getOffset(from);
+		this.page = index.getCounter(from);
+
+		return this.parse(endMarker, true, to, false);
+	}
+
+	private List<T> parse(final int endMarker, final boolean decode, final int limit, final boolean indexing)
+		throws IOException {
 
 		List<T> actors = new LinkedList<>();
+		PageIndex.Builder pages = new PageIndex.Builder(this.offset, this.page);
 
 		int lowByte;
-		int midByte;
-		int highByte;
+		int[] command;
 
 		boolean endOfData = false;
 		boolean endOfStream = false;
 
+		int end;
+
 		for (;;) {
 
-			lowByte = source.read();
+			final int start = this.offset;
+			final int counter = this.page;
+			end = start;
+
+			lowByte = this.read();
 			bytesRead++;
 
 			endOfData = (lowByte == endMarker);
@@ -149,9 +260,10 @@ public abstract class BytecodeParser<T extends Actor> {
 
 			if (endOfStream) {
 				// This shouldn't happen; we should always read the end marker
-				throw new IOException(String
+				this.fail(start, new int[0], Outcome.TRUNCATED, String
 					.format("Malformed data at byte %d; byte array must end with end marker (0x%x).",
 						bytesRead, endMarker));
+				break;
 			}
 
 			/*
@@ -160,54 +272,144 @@ public abstract class BytecodeParser<T extends Actor> {
 			 */
 			if (this.isThreeByte(lowByte) == true) {
 				// Yes, it's three bytes
-				midByte = this.source.read();
-				highByte = this.source.read();
+				command = new int[] { lowByte, this.read(), this.read() };
 				bytesRead += 2;
+			}
+			else {
+				// No, it's two bytes
+				command = new int[] { lowByte, this.read() };
+				bytesRead++;
+			}
 
-				if ((midByte == endMarker) || (highByte == endMarker)) {
-					// Premature end of data
-					throw new IOException(String
-						.format("Malformed data at byte %d; read end marker (0x%x) while reading three-byte command",
-							bytesRead, endMarker));
-				}
+			if (this.truncated(start, command)) {
+				break;
+			}
 
-				if (this.newPageFlagSet(midByte)) {
-					this.page++;
+			for (int i = 1; i < command.length; i++) {
+				if (command[i] == endMarker) {
+					// Premature end of data
+					this.fail(start, command, Outcome.DECODED, String
+						.format("Malformed data at byte %d; read end marker (0x%x) while reading %s command",
+							start + i, endMarker, (command.length == 3) ? "three-byte" : "two-byte"));
+					break;
 				}
+			}
 
-				T threeByteActor = handleThreeByte(lowByte, midByte, highByte);
-				actors.add(threeByteActor);
+			// The flag is in the second byte of every command
+			if (this.newPageFlagSet(command[1])) {
+				this.page++;
+			}
 
+			/*
+			 * Do we have a page skip? If so, set the page, and
+			 * continue the loop without adding an actor.
+			 */
+			final boolean pageSkip = (command.length == 2) && isPageSkip(command[0], command[1]);
+			if (pageSkip) {
+				final int newPage = (command[1] & 0b00111111);
+				this.setPage(newPage);
 			}
-			else {
-				// No, it's two bytes
-				highByte = this.source.read();
-				bytesRead++;
-				if (highByte == endMarker) {
-					throw new IOException(String
-						.format("Malformed data at byte %d; read end marker (0x%x) while reading two-byte command",
-							bytesRead, endMarker));
-				}
 
-				if (this.newPageFlagSet(highByte)) {
-					this.page++;
+			if (this.page != counter) {
+				pages.add(this.page, start, counter);
+				if (this.page >= limit) {
+					break;
 				}
+			}
 
-				/*
-				 * Do we have a page skip? If so, set the page, and
-				 * continue the loop without adding an actor.
-				 */
-				if (isPageSkip(lowByte, highByte)) {
-					final int newPage = (highByte & 0b00111111);
-					this.setPage(newPage);
-				}
-				else {
-					T twoByteActor = handleTwoByte(lowByte, highByte);
-					actors.add(twoByteActor);
-				}
+			if (pageSkip == false && decode) {
+				actors.add(this.decode(start, command));
 			}
 		}
 
+		if (indexing) {
+			this.pageIndex = pages.build(end, this.page);
+		}
+
 		return actors;
 	}
+
+	private int read() throws IOException {
+
+		final int read = this.source.read();
+
+		if (read != this.END_OF_STREAM) {
+			this.offset++;
+		}
+
+		return read;
+	}
+
+	/** Report a command cut short by the end of the stream, returning whether it was. */
+	private boolean truncated(final int start, final int[] command) throws IOException {
+
+		int length = 0;
+		while (length < command.length && command[length] != this.END_OF_STREAM) {
+			length++;
+		}
+
+		if (length == command.length) {
+			return false;
+		}
+
+		this.fail(start, Arrays.copyOf(command, length), Outcome.TRUNCATED, String
+			.format("Malformed data at byte %d; end of stream while reading %d-byte command", start + length,
+				command.length));
+		return true;
+	}
+
+	/** Decode a command, keeping it as read if it cannot be decoded. */
+	private T decode(final int start, final int[] command) throws IOException {
+
+		T actor;
+		String problem = null;
+
+		try {
+			actor = (command.length == 3) ? this.handleThreeByte(command[0], command[1], command[2])
+				: this.handleTwoByte(command[0], command[1]);
+			if (actor == null) {
+				problem = "unknown command";
+			}
+		}
+		catch (RuntimeException e) {
+			actor = null;
+			problem = String.valueOf(e.getMessage());
+		}
+
+		if (problem == null) {
+			return actor;
+		}
+
+		this.fail(start, command, Outcome.PRESERVED,
+			String.format("Malformed data at byte %d; could not decode command: %s", start, problem));
+
+		// The new page flag is encoded afresh when the command is written
+		byte[] raw = bytes(command);
+		raw[1] &= 0b01111111;
+
+		final int x = ((command[0] & 0xF0) >>> 4) + this.page * 16;
+		return this.handleUnknown(x, raw);
+	}
+
+	/** Throw a problem if there is no report to add it to. */
+	private void fail(final int start, final int[] command, final Outcome outcome, final String message)
+		throws IOException {
+
+		if (this.report == null) {
+			throw new IOException(message);
+		}
+
+		log.warn(message);
+		this.report.add(this.area, this.getLayer(), start, this.page, bytes(command), outcome, message);
+	}
+
+	private static byte[] bytes(final int[] command) {
+
+		byte[] bytes = new byte[command.length];
+		for (int i = 0; i < command.length; i++) {
+			bytes[i] = (byte) command[i];
+		}
+
+		return bytes;
+	}
 }
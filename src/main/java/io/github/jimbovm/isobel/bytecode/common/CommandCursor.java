@@ -0,0 +1,492 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import java.util.Arrays;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.PageSkip;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
+import io.github.jimbovm.isobel.bytecode.geography.GeographyUnparser;
+import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
+import io.github.jimbovm.isobel.bytecode.population.PopulationUnparser;
+import io.github.jimbovm.isobel.common.Atlas;
+
+/**
+ * A cursor over the commands of a stream of geography or population bytecode
+ * held in a buffer, such as a whole binary image, which edits the commands
+ * where they lie.
+ *
+ * Editing this way touches only the bytes of the commands changed, so it is
+ * much cheaper than parsing and unparsing a whole area, and leaves every other
+ * command exactly as it was. A command may be rewritten in place if it stays
+ * the same size and on the same page. Commands may also be inserted before
+ * the current command and the current command deleted, moving the rest of the
+ * stream within the space given to it. The new page flags of neighbouring
+ * commands are fixed up so that every other command stays on its page; a page
+ * skip is written where a flag cannot do this. Page skips themselves cannot be
+ * rewritten or deleted.
+ *
+ * @param <T> The type of actor spawned by the commands.
+ */
+public final class CommandCursor<T extends Actor> {
+
+	/** The number of columns in a page. */
+	private static final int PAGE_WIDTH = 16;
+
+	/** The command rules and decoder of the layer. */
+	private final BytecodeParser<T> parser;
+
+	/** The encoder of the layer. */
+	private final BytecodeUnparser<T> unparser;
+
+	private final int endMarker;
+
+	private final byte[] buffer;
+
+	/** The offset in the buffer after the last byte the stream may occupy. */
+	private final int limit;
+
+	/** The offset of the end marker. */
+	private int end;
+
+	/** The offset of the current command. */
+	private int offset;
+
+	/** The length of the current command, or zero if there is none. */
+	private int length = 0;
+
+	/** The offset of the command to which {@link #next()} moves. */
+	private int following;
+
+	/** The value of the page counter before the current command. */
+	private int before = 0;
+
+	/** The value of the page counter after the current command. */
+	private int page = 0;
+
+	private CommandCursor(
+		BytecodeParser<T> parser, BytecodeUnparser<T> unparser, int endMarker, byte[] buffer, int first,
+		int limit) {
+
+		if (first < 0 || limit > buffer.length || first >= limit) {
+			throw new IllegalArgumentException(String.format("Invalid range [%d, %d)", first, limit));
+		}
+
+		this.parser = parser;
+		this.unparser = unparser;
+		this.endMarker = endMarker;
+		this.buffer = buffer;
+		this.limit = limit;
+		this.offset = first;
+		this.following = first;
+
+		// The end marker may also appear within commands, so walk them
+		int at = first;
+		while (at < limit && (this.buffer[at] & 0xFF) != endMarker) {
+			at += this.parser.isThreeByte(this.buffer[at] & 0xFF) ? 3 : 2;
+		}
+
+		if (at >= limit) {
+			throw new IllegalArgumentException(
+				String.format("No end marker (0x%x) in range [%d, %d)", endMarker, first, limit));
+		}
+
+		this.end = at;
+	}
+
+	/**
+	 * Create a cursor over geography bytecode.
+	 *
+	 * @param  buffer                   The buffer holding the bytecode.
+	 * @param  start                    The offset of the area header.
+	 * @param  limit                    The offset after the last byte the
+	 *                                  stream may occupy as commands are
+	 *                                  inserted.
+	 *
+	 * @return                          A cursor before the first command.
+	 *
+	 * @throws IllegalArgumentException If the range holds no whole stream.
+	 */
+	public static CommandCursor<GeographyActor> geography(byte[] buffer, int start, int limit) {
+		// Only page skips are encoded without an actor, and they have no header
+		return new CommandCursor<>(new GeographyParser(null), new GeographyUnparser(null),
+			GeographyParser.END_OF_FILE, buffer, start + 2, limit);
+	}
+
+	/**
+	 * Create a cursor over population bytecode.
+	 *
+	 * @param  buffer                   The buffer holding the bytecode.
+	 * @param  start                    The offset of the first command.
+	 * @param  limit                    The offset after the last byte the
+	 *                                  stream may occupy as commands are
+	 *                                  inserted.
+	 * @param  atlas                    The atlas from which to look up the
+	 *                                  index numbers of the destinations of exit
+	 *                                  pointers written.
+	 *
+	 * @return                          A cursor before the first command.
+	 *
+	 * @throws IllegalArgumentException If the range holds no whole stream.
+	 */
+	public static CommandCursor<PopulationActor> population(byte[] buffer, int start, int limit, Atlas atlas) {
+		return new CommandCursor<>(new PopulationParser(null), new PopulationUnparser(atlas),
+			PopulationParser.END_OF_FILE, buffer, start, limit);
+	}
+
+	/**
+	 * Move to the next command. After a deletion, this is the command which
+	 * took the place of the one deleted.
+	 *
+	 * @return <code>true</code> if there is a command, <code>false</code> at
+	 *         the end marker.
+	 */
+	public boolean next() {
+
+		if (this.length > 0) {
+			this.before = this.page;
+		}
+
+		this.offset = this.following;
+
+		if (this.offset == this.end) {
+			this.length = 0;
+			return false;
+		}
+
+		final int low = this.buffer[this.offset] & 0xFF;
+		final int high = this.buffer[this.offset + 1] & 0xFF;
+
+		this.length = this.parser.isThreeByte(low) ? 3 : 2;
+		this.following = this.offset + this.length;
+		this.page = this.enter(this.before, low, high);
+
+		return true;
+	}
+
+	/**
+	 * Return the value of the page counter after a command is read.
+	 */
+	private int enter(int counter, int low, int high) {
+
+		int entered = this.parser.newPageFlagSet(high) ? counter + 1 : counter;
+
+		if (this.isPageSkip(low, high)) {
+			entered = high & 0b00111111;
+		}
+
+		return entered;
+	}
+
+	private boolean isPageSkip(int low, int high) {
+		return this.parser.isThreeByte(low) == false && this.parser.isPageSkip(low, high);
+	}
+
+	private void checkCurrent() {
+		if (this.length == 0) {
+			throw new IllegalStateException("No current command");
+		}
+	}
+
+	/**
+	 * Return the offset of the end marker, which moves as commands are
+	 * inserted and deleted.
+	 *
+	 * @return The offset in the buffer.
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Return the offset of the current command.
+	 *
+	 * @return The offset in the buffer.
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * Return the length of the current command.
+	 *
+	 * @return Two or three, or zero if there is no current command.
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Return the page on which the current command lies.
+	 *
+	 * @return The value of the page counter after the command.
+	 */
+	public int getPage() {
+		this.checkCurrent();
+		return this.page;
+	}
+
+	/**
+	 * Return the absolute X position of the current command.
+	 *
+	 * @return The X position, counting from the start of the area.
+	 */
+	public int getX() {
+		this.checkCurrent();
+		return ((this.buffer[this.offset] & 0xF0) >>> 4) + this.page * PAGE_WIDTH;
+	}
+
+	/**
+	 * Return whether the current command has the new page flag set.
+	 *
+	 * @return <code>true</code> if the flag is set.
+	 */
+	public boolean isNewPage() {
+		this.checkCurrent();
+		return this.parser.newPageFlagSet(this.buffer[this.offset + 1] & 0xFF);
+	}
+
+	/**
+	 * Return whether the current command is a page skip, which spawns no
+	 * actor.
+	 *
+	 * @return <code>true</code> if the command is a page skip.
+	 */
+	public boolean isPageSkip() {
+		this.checkCurrent();
+		return this.isPageSkip(this.buffer[this.offset] & 0xFF, this.buffer[this.offset + 1] & 0xFF);
+	}
+
+	/**
+	 * Return the bytes of the current command.
+	 *
+	 * @return A copy of the command.
+	 */
+	public byte[] getCommand() {
+		this.checkCurrent();
+		return Arrays.copyOfRange(this.buffer, this.offset, this.offset + this.length);
+	}
+
+	/**
+	 * Decode the current command.
+	 *
+	 * @return                       The actor it spawns, or a raw command if it
+	 *                               cannot be decoded.
+	 *
+	 * @throws IllegalStateException If there is no current command, or it is a
+	 *                               page skip.
+	 */
+	public T decode() {
+
+		if (this.isPageSkip()) {
+			throw new IllegalStateException(String.format("Page skip at %d spawns no actor", this.offset));
+		}
+
+		final int low = this.buffer[this.offset] & 0xFF;
+		final int mid = this.buffer[this.offset + 1] & 0xFF;
+
+		this.parser.page = this.page;
+
+		T actor;
+
+		try {
+			actor = (this.length == 3) ? this.parser.handleThreeByte(low, mid, this.buffer[this.offset + 2] & 0xFF)
+				: this.parser.handleTwoByte(low, mid);
+		}
+		catch (RuntimeException e) {
+			actor = null;
+		}
+
+		if (actor == null) {
+			byte[] raw = this.getCommand();
+			raw[1] &= 0b01111111;
+			actor = this.parser.handleUnknown(this.getX(), raw);
+		}
+
+		return actor;
+	}
+
+	/**
+	 * Rewrite the current command in place.
+	 *
+	 * @param  actor                    The actor which the command is to spawn.
+	 *
+	 * @throws IllegalStateException    If there is no current command, or it is
+	 *                                  a page skip.
+	 * @throws IllegalArgumentException If the actor is not on the same page, or
+	 *                                  its command is not the same size.
+	 */
+	public void set(T actor) {
+
+		if (this.isPageSkip()) {
+			throw new IllegalStateException(String.format("Cannot rewrite page skip at %d", this.offset));
+		}
+
+		if (actor.getX() / PAGE_WIDTH != this.page) {
+			throw new IllegalArgumentException(
+				String.format("Actor at %d is not on page %d of the command at %d", actor.getX(), this.page,
+					this.offset));
+		}
+
+		final byte[] command = this.encode(actor, this.isNewPage());
+
+		if (command.length != this.length) {
+			throw new IllegalArgumentException(String
+				.format("Command for actor at %d is %d bytes, not %d", actor.getX(), command.length,
+					this.length));
+		}
+
+		System.arraycopy(command, 0, this.buffer, this.offset, command.length);
+	}
+
+	/**
+	 * Insert a command before the current command, preceded by a page skip if
+	 * the actor is more than a page ahead. The cursor stays on the current
+	 * command. If there is none, the command is inserted before the one to
+	 * which {@link #next()} moves, or the end marker.
+	 *
+	 * @param  actor                    The actor which the command is to spawn.
+	 *
+	 * @throws IllegalArgumentException If the actor does not lie between the
+	 *                                  pages of the commands on either side.
+	 * @throws IllegalStateException    If there is not enough room for the
+	 *                                  command in the range.
+	 */
+	public void insert(T actor) {
+
+		final int target = actor.getX() / PAGE_WIDTH;
+		final int counter = (this.length > 0) ? this.before : this.page;
+
+		if (target < counter) {
+			throw new IllegalArgumentException(
+				String.format("Actor at %d is before page %d at offset %d", actor.getX(), counter, this.offset));
+		}
+
+		// The command before which to insert, which may follow a deleted command
+		final boolean last = this.offset == this.end;
+		final int low = last ? 0 : this.buffer[this.offset] & 0xFF;
+		final int high = last ? 0 : this.buffer[this.offset + 1] & 0xFF;
+		final boolean skipNext = last == false && this.isPageSkip(low, high);
+		final int nextPage = last ? target : this.enter(counter, low, high);
+
+		if (last == false && skipNext == false && (nextPage < target || nextPage > target + 1)) {
+			throw new IllegalArgumentException(String
+				.format("Actor at %d is not on or before page %d at offset %d", actor.getX(), nextPage, this.offset));
+		}
+		else if (skipNext && nextPage < target) {
+			throw new IllegalArgumentException(String
+				.format("Actor at %d is after page skip to %d at offset %d", actor.getX(), nextPage, this.offset));
+		}
+
+		byte[] skip = new byte[0];
+
+		if (target > counter + 1) {
+			PageSkip pageSkip = new PageSkip();
+			pageSkip.setX(actor.getX());
+			pageSkip.setTarget(target);
+			skip = this.unparser.unparsePageSkip(pageSkip, false);
+		}
+
+		final byte[] command = this.encode(actor, skip.length == 0 && target == counter + 1);
+
+		if (command.length != (this.parser.isThreeByte(command[0] & 0xFF) ? 3 : 2)
+			|| this.isPageSkip(command[0] & 0xFF, command[1] & 0xFF)) {
+			throw new IllegalArgumentException(String.format("Actor at %d is not encoded as a command", actor.getX()));
+		}
+
+		final int inserted = skip.length + command.length;
+		this.open(this.offset, inserted);
+		System.arraycopy(skip, 0, this.buffer, this.offset, skip.length);
+		System.arraycopy(command, 0, this.buffer, this.offset + skip.length, command.length);
+
+		this.offset += inserted;
+		this.following += inserted;
+
+		if (last == false && skipNext == false) {
+			this.setNewPage(this.offset, nextPage > target);
+		}
+
+		if (this.length == 0) {
+			this.page = target;
+		}
+		this.before = target;
+	}
+
+	/**
+	 * Delete the current command. If it was alone on its page, and the next
+	 * command has the new page flag set, it is replaced by a page skip to keep
+	 * the next command on its page. The next call to {@link #next()} moves to
+	 * that page skip, or else to the command which followed the one deleted.
+	 *
+	 * @throws IllegalStateException If there is no current command, or it is a
+	 *                               page skip.
+	 */
+	public void delete() {
+
+		if (this.isPageSkip()) {
+			throw new IllegalStateException(String.format("Cannot delete page skip at %d", this.offset));
+		}
+
+		final boolean entered = this.page != this.before;
+		final int next = this.offset + this.length;
+		final boolean nextIsCommand =
+			next != this.end && this.isPageSkip(this.buffer[next] & 0xFF, this.buffer[next + 1] & 0xFF) == false;
+		final boolean nextEnters = nextIsCommand && this.parser.newPageFlagSet(this.buffer[next + 1] & 0xFF);
+
+		if (entered && nextEnters) {
+			// The page must still be entered, so skip to it in the command's place
+			PageSkip pageSkip = new PageSkip();
+			pageSkip.setX(this.getX());
+			pageSkip.setTarget(this.page);
+			final byte[] skip = this.unparser.unparsePageSkip(pageSkip, false);
+
+			this.close(this.offset, this.length - skip.length);
+			System.arraycopy(skip, 0, this.buffer, this.offset, skip.length);
+		}
+		else {
+			this.close(this.offset, this.length);
+			if (entered && nextIsCommand) {
+				// The next command now enters the page
+				this.setNewPage(this.offset, true);
+			}
+		}
+
+		this.following = this.offset;
+		this.page = this.before;
+		this.length = 0;
+	}
+
+	private byte[] encode(T actor, boolean newPage) {
+		return this.unparser.unparse(actor, newPage);
+	}
+
+	private void setNewPage(int at, boolean newPage) {
+		this.buffer[at + 1] = CommandUtils.encodeNewPage((byte) (this.buffer[at + 1] & 0b01111111), newPage);
+	}
+
+	/** Move the rest of the stream forward to open a gap. */
+	private void open(int at, int size) {
+
+		if (this.end + size >= this.limit) {
+			throw new IllegalStateException(
+				String.format("No room for %d more bytes before offset %d", size, this.limit));
+		}
+
+		System.arraycopy(this.buffer, at, this.buffer, at + size, this.end + 1 - at);
+		this.end += size;
+	}
+
+	/** Move the rest of the stream back to close a gap, filling the bytes freed with end markers. */
+	private void close(int at, int size) {
+		System.arraycopy(this.buffer, at + size, this.buffer, at, this.end + 1 - (at + size));
+		Arrays.fill(this.buffer, this.end + 1 - size, this.end + 1, (byte) this.endMarker);
+		this.end -= size;
+	}
+}
@@ -75,4 +75,22 @@ public final class CommandUtils {
 	public static byte encodeHardMode(final byte theByte, final boolean hardModeOnly) {
 		return (byte) (theByte | (hardModeOnly ? 0b01000000 : 0));
 	}
+
+	/**
+	 * Return a copy of a command kept as read, with the passed absolute X
+	 * coordinate encoded in the low byte as relative (mod 16), and the new
+	 * page flag of the second byte set or cleared.
+	 *
+	 * @param  command The command, of two or three bytes.
+	 * @param  x       The absolute X coordinate.
+	 * @param  newPage Value of the new page flag.
+	 *
+	 * @return         A new array holding the command to write.
+	 */
+	public static byte[] encodeRaw(final byte[] command, final int x, final boolean newPage) {
+		byte[] encoded = command.clone();
+		encoded[0] = encodeCoordinates((byte) (encoded[0] & 0x0F), x);
+		encoded[1] = encodeNewPage((byte) (encoded[1] & 0b01111111), newPage);
+		return encoded;
+	}
 }
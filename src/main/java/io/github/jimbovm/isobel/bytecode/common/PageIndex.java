@@ -0,0 +1,189 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import java.util.Arrays;
+
+/**
+ * The position in a stream of geography or population bytecode at which each
+ * page begins, and the value of the page counter from which to read it.
+ *
+ * The page on which a command lies depends on every new page flag and page
+ * skip before it, so finding a page otherwise means reading the stream from
+ * the start. The index holds one entry per page, up to the last page on which
+ * a command lies, so seeking to a page takes constant time. A page is entered
+ * by the command which sets the new page flag or skips to or past it: reading
+ * from that command with the counter recorded for the page puts every later
+ * command on its proper page. A page without commands shares the entry of the
+ * next page with commands. Pages after the last command are entered at the
+ * end marker.
+ *
+ * An index is built by a parser as it reads a whole stream, or by a quicker
+ * scan which does not decode the commands.
+ */
+public final class PageIndex {
+
+	/** For each page, the offset in the stream of the command which enters it. */
+	private final int[] offsets;
+
+	/** For each page, the value of the page counter before reading that command. */
+	private final int[] counters;
+
+	/** The offset in the stream of the end marker. */
+	private final int end;
+
+	/** The value of the page counter at the end marker. */
+	private final int endCounter;
+
+	private PageIndex(int[] offsets, int[] counters, int end, int endCounter) {
+		this.offsets = offsets;
+		this.counters = counters;
+		this.end = end;
+		this.endCounter = endCounter;
+	}
+
+	/**
+	 * Return the number of pages indexed, which is one more than the last
+	 * page on which a command lies.
+	 *
+	 * @return The number of pages.
+	 */
+	public int getPages() {
+		return this.offsets.length;
+	}
+
+	/**
+	 * Return the offset in the stream of the end marker.
+	 *
+	 * @return The offset.
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Return the offset in the stream from which to read the commands on a
+	 * page.
+	 *
+	 * @param  page                     The page.
+	 *
+	 * @return                          The offset of the command which enters
+	 *                                  the page, or of the end marker if there
+	 *                                  are no commands on or after the page.
+	 *
+	 * @throws IllegalArgumentException If the page is negative.
+	 */
+	public int getOffset(int page) {
+		return (checkPage(page) < this.offsets.length) ? this.offsets[page] : this.end;
+	}
+
+	/**
+	 * Return the value to which to set the page counter before reading from
+	 * {@link #getOffset(int)}.
+	 *
+	 * @param  page                     The page.
+	 *
+	 * @return                          The value of the page counter.
+	 *
+	 * @throws IllegalArgumentException If the page is negative.
+	 */
+	public int getCounter(int page) {
+		return (checkPage(page) < this.counters.length) ? this.counters[page] : this.endCounter;
+	}
+
+	/**
+	 * Return the number of bytes of the commands on a range of pages.
+	 *
+	 * @param  from                     The first page.
+	 * @param  to                       The page after the last page.
+	 *
+	 * @return                          The number of bytes between the
+	 *                                  commands entering each page.
+	 *
+	 * @throws IllegalArgumentException If the range is invalid.
+	 */
+	public int getSize(int from, int to) {
+
+		if (to < from) {
+			throw new IllegalArgumentException(String.format("Invalid page range [%d, %d)", from, to));
+		}
+
+		return this.getOffset(to) - this.getOffset(from);
+	}
+
+	private static int checkPage(int page) {
+
+		if (page < 0) {
+			throw new IllegalArgumentException(String.format("Invalid page %d", page));
+		}
+
+		return page;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PageIndex(offsets=%s, counters=%s, end=%d)", Arrays.toString(this.offsets),
+			Arrays.toString(this.counters), this.end);
+	}
+
+	/** Collects the entries of an index as a stream is read. */
+	static final class Builder {
+
+		private int[] offsets = new int[8];
+
+		private int[] counters = new int[8];
+
+		private int pages = 0;
+
+		/**
+		 * Start an index whose first page is entered at an offset.
+		 *
+		 * @param offset  The offset of the first command.
+		 * @param counter The value of the page counter at that command.
+		 */
+		Builder(int offset, int counter) {
+			this.add(counter, offset, counter);
+		}
+
+		/**
+		 * Record that a command entered a page. Pages skipped over share the
+		 * entry. A command returning to an earlier page, which only
+		 * malformed data holds, is not recorded.
+		 *
+		 * @param page    The page entered.
+		 * @param offset  The offset of the command.
+		 * @param counter The value of the page counter before the command.
+		 */
+		void add(int page, int offset, int counter) {
+
+			if (page >= this.offsets.length) {
+				final int length = Math.max(this.offsets.length * 2, page + 1);
+				this.offsets = Arrays.copyOf(this.offsets, length);
+				this.counters = Arrays.copyOf(this.counters, length);
+			}
+
+			while (this.pages <= page) {
+				this.offsets[this.pages] = offset;
+				this.counters[this.pages] = counter;
+				this.pages++;
+			}
+		}
+
+		/**
+		 * Finish the index.
+		 *
+		 * @param  end     The offset of the end marker.
+		 * @param  counter The value of the page counter at the end marker.
+		 *
+		 * @return         A new index.
+		 */
+		PageIndex build(int end, int counter) {
+			return new PageIndex(Arrays.copyOf(this.offsets, this.pages), Arrays.copyOf(this.counters, this.pages),
+				end, counter);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A problem found in a stream of geography or population bytecode by a
+ * parser reading it tolerantly.
+ *
+ * @see ParseReport
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ParseDiagnostic {
+
+	/** The kinds of bytecode stream. */
+	public enum Layer {
+		/** Geography data, including its two-byte header. */
+		GEOGRAPHY,
+		/** Population data. */
+		POPULATION
+	}
+
+	/** What became of the data at which a problem was found. */
+	public enum Outcome {
+		/** The command was kept as a raw command, to be written back unchanged. */
+		PRESERVED,
+		/** The command was decoded as the game would decode it, despite the problem. */
+		DECODED,
+		/** Parsing stopped, keeping the commands already decoded. */
+		TRUNCATED
+	}
+
+	/** The ID of the area whose data was being parsed, or <code>null</code> if not known. */
+	private final String area;
+
+	/** The kind of stream being parsed. */
+	private final Layer layer;
+
+	/** The offset in the stream of the first byte of the command. */
+	private final int offset;
+
+	/** The page counter when the command was read. */
+	private final int page;
+
+	/** The bytes of the command read, which may be fewer than a whole command. */
+	private final byte[] command;
+
+	/** What became of the command. */
+	private final Outcome outcome;
+
+	/** A description of the problem. */
+	private final String message;
+
+	/**
+	 * Return the diagnostic as a single line of text.
+	 *
+	 * @return A line naming the area, layer and offset of the problem.
+	 */
+	public String describe() {
+
+		StringBuilder bytes = new StringBuilder();
+		for (byte b : this.command) {
+			bytes.append(String.format(" %02X", b & 0xFF));
+		}
+
+		return String.format("Area %s, %s offset %d (page %d,%s): %s; %s", this.area, this.layer, this.offset,
+			this.page, (bytes.length() == 0) ? " no bytes" : bytes, this.message, this.outcome);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Layer;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Outcome;
+
+/**
+ * The problems found while parsing bytecode tolerantly.
+ *
+ * A parser given a report does not stop at the first malformed command.
+ * Commands which cannot be decoded are kept as raw commands, which are
+ * written back exactly as they were read, and each problem is added to the
+ * report, so that every problem in an image is found in a single pass. A
+ * report may be shared by the parsers of every area in an image, but not by
+ * parsers running on several threads at once.
+ */
+@ToString
+public final class ParseReport {
+
+	private final List<ParseDiagnostic> diagnostics = new ArrayList<>();
+
+	/**
+	 * Record a problem.
+	 *
+	 * @param area    The ID of the area whose data was being parsed, or
+	 *                <code>null</code> if not known.
+	 * @param layer   The kind of stream being parsed.
+	 * @param offset  The offset in the stream of the first byte of the command.
+	 * @param page    The page counter when the command was read.
+	 * @param command The bytes of the command read.
+	 * @param outcome What became of the command.
+	 * @param message A description of the problem.
+	 */
+	void add(String area, Layer layer, int offset, int page, byte[] command, Outcome outcome, String message) {
+		this.diagnostics.add(new ParseDiagnostic(area, layer, offset, page, command, outcome, message));
+	}
+
+	/**
+	 * Return every problem found, in the order found.
+	 *
+	 * @return An unmodifiable view of the diagnostics.
+	 */
+	public List<ParseDiagnostic> getDiagnostics() {
+		return Collections.unmodifiableList(this.diagnostics);
+	}
+
+	/**
+	 * Return the problems found in the data of an area.
+	 *
+	 * @param  area The ID of the area.
+	 *
+	 * @return      The diagnostics, in the order found.
+	 */
+	public List<ParseDiagnostic> getDiagnostics(String area) {
+
+		List<ParseDiagnostic> found = new ArrayList<>();
+
+		for (ParseDiagnostic diagnostic : this.diagnostics) {
+			if (area.equals(diagnostic.getArea())) {
+				found.add(diagnostic);
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Return whether no problems were found.
+	 *
+	 * @return <code>true</code> if the report is empty.
+	 */
+	public boolean isClean() {
+		return this.diagnostics.isEmpty();
+	}
+
+	/**
+	 * Return the number of problems after which parsing went on as normal,
+	 * having either kept a raw command or decoded the command anyway.
+	 *
+	 * @return The number of diagnostics not ending parsing of their stream.
+	 */
+	public int getRecovered() {
+
+		int recovered = 0;
+
+		for (ParseDiagnostic diagnostic : this.diagnostics) {
+			if (diagnostic.getOutcome() != Outcome.TRUNCATED) {
+				recovered++;
+			}
+		}
+
+		return recovered;
+	}
+}
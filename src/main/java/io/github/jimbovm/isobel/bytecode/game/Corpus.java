@@ -0,0 +1,179 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.game;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * Functionality for parsing collections of binary images held in zip
+ * archives, reading each image directly out of the archive rather than
+ * extracting it to a temporary file first.
+ *
+ * Images are parsed in parallel using the common fork/join pool, and are
+ * looked up in the default {@link io.github.jimbovm.isobel.store.GameCache}
+ * in the same way as {@link Game#parse(Path)}.
+ */
+@Log4j2
+public final class Corpus {
+
+	/** File extensions, in lower case, of archive entries treated as images. */
+	public static final Set<String> IMAGE_EXTENSIONS = Set.of("nes", "bin", "rom");
+
+	// non-instantiable
+	private Corpus() {}
+
+	/**
+	 * Test whether an archive entry should be treated as a binary image,
+	 * based on its file extension.
+	 *
+	 * @param  entry The path of the entry.
+	 *
+	 * @return       True if the entry's extension is one of
+	 *               {@link #IMAGE_EXTENSIONS}, false otherwise.
+	 */
+	public static boolean isImage(Path entry) {
+
+		final Path fileName = entry.getFileName();
+
+		if (fileName == null) {
+			return false;
+		}
+
+		final String name = fileName.toString();
+		final int dot = name.lastIndexOf('.');
+
+		return dot >= 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Parse every image in a zip archive in parallel, passing each game to a
+	 * consumer as soon as it has been parsed. An image which cannot be parsed
+	 * is passed to an error handler and does not stop the others being
+	 * parsed. Both callbacks may be invoked concurrently from several threads.
+	 *
+	 * @param  archive     The path of the zip archive.
+	 * @param  consumer    Receives the name of each entry and the game parsed
+	 *                     from it.
+	 * @param  onError     Receives the name of each entry which could not be
+	 *                     parsed and the reason why.
+	 *
+	 * @throws IOException In the event of a problem opening or listing the
+	 *                     archive.
+	 */
+	public static void parseArchive(
+		Path archive, BiConsumer<String, Game> consumer, BiConsumer<String, Exception> onError)
+		throws IOException {
+
+		try (FileSystem fileSystem = FileSystems.newFileSystem(archive)) {
+
+			List<Path> images = images(fileSystem);
+
+			log.info(String.format("Parsing %d images from %s", images.size(), archive));
+
+			images.parallelStream().forEach((image) -> {
+				try {
+					consumer.accept(image.toString(), Game.parse(image));
+				}
+				catch (IOException | RuntimeException e) {
+					// Malformed images can fail in all sorts of ways
+					onError.accept(image.toString(), e);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Parse every image in a zip archive in parallel, tolerating malformed
+	 * area data. Commands which cannot be decoded are kept as raw commands and
+	 * reported, so that every problem in every image is found in a single
+	 * pass. An image which cannot be parsed at all, such as one whose pointer
+	 * tables are damaged, is passed to an error handler. All callbacks may be
+	 * invoked concurrently from several threads.
+	 *
+	 * @param  archive       The path of the zip archive.
+	 * @param  consumer      Receives the name of each entry and the game parsed
+	 *                       from it.
+	 * @param  onDiagnostics Receives the name of each entry in whose area data
+	 *                       problems were found, and the problems, after the
+	 *                       game is passed to the consumer.
+	 * @param  onError       Receives the name of each entry which could not be
+	 *                       parsed and the reason why.
+	 *
+	 * @throws IOException   In the event of a problem opening or listing the
+	 *                       archive.
+	 */
+	public static void scanArchive(
+		Path archive, BiConsumer<String, Game> consumer, BiConsumer<String, ParseReport> onDiagnostics,
+		BiConsumer<String, Exception> onError) throws IOException {
+
+		try (FileSystem fileSystem = FileSystems.newFileSystem(archive)) {
+
+			List<Path> images = images(fileSystem);
+
+			log.info(String.format("Scanning %d images from %s", images.size(), archive));
+
+			images.parallelStream().forEach((image) -> {
+				ParseReport report = new ParseReport();
+				try {
+					consumer.accept(image.toString(), Game.parse(Files.readAllBytes(image), report));
+				}
+				catch (IOException | RuntimeException e) {
+					onError.accept(image.toString(), e);
+					return;
+				}
+				if (report.isClean() == false) {
+					onDiagnostics.accept(image.toString(), report);
+				}
+			});
+		}
+	}
+
+	private static List<Path> images(FileSystem fileSystem) throws IOException {
+		try (Stream<Path> entries = Files.walk(fileSystem.getPath("/"))) {
+			return entries.filter(Files::isRegularFile).filter(Corpus::isImage).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Parse every image in a zip archive in parallel. Images which cannot be
+	 * parsed are logged and omitted from the result.
+	 *
+	 * @param  archive     The path of the zip archive.
+	 *
+	 * @return             A map of entry names to the games parsed from them.
+	 *
+	 * @throws IOException In the event of a problem opening or listing the
+	 *                     archive.
+	 */
+	public static Map<String, Game> parseArchive(Path archive) throws IOException {
+
+		Map<String, Game> games = new ConcurrentHashMap<>();
+
+		parseArchive(archive, games::put, (entry, e) -> {
+			log.error(String.format("Could not parse %s in %s: %s", entry, archive, e));
+		});
+
+		return games;
+	}
+}
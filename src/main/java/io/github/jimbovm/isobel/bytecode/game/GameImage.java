@@ -0,0 +1,164 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.game;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+/**
+ * Read-only random access to the bytes of a binary game image, which need
+ * not be held in a single array. This allows, for instance, an image to be
+ * read through a patch without the patch being applied to a copy of it.
+ */
+public interface GameImage {
+
+	/**
+	 * Return the size of the image.
+	 *
+	 * @return The number of bytes in the image.
+	 */
+	int length();
+
+	/**
+	 * Return a single byte of the image.
+	 *
+	 * @param  offset                    The offset of the byte.
+	 *
+	 * @return                           The byte at the offset.
+	 *
+	 * @throws IndexOutOfBoundsException If the offset lies outside the image.
+	 */
+	byte get(int offset);
+
+	/**
+	 * Return a range of bytes from the image. Like
+	 * {@link ArrayUtils#subarray(byte[], int, int)}, the range is clamped to
+	 * the bounds of the image, and an empty array is returned if it is empty.
+	 *
+	 * @param  start The offset of the first byte, inclusive.
+	 * @param  end   The offset of the last byte, exclusive.
+	 *
+	 * @return       A new array of the bytes in the range.
+	 */
+	default byte[] read(int start, int end) {
+
+		start = Math.max(start, 0);
+		end = Math.min(end, this.length());
+
+		if (end <= start) {
+			return ArrayUtils.EMPTY_BYTE_ARRAY;
+		}
+
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.get(start + i);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Find the first occurrence of a value in the image at or after an
+	 * offset.
+	 *
+	 * @param  value The value to find.
+	 * @param  from  The offset from which to start searching.
+	 *
+	 * @return       The offset of the value, or -1 if it does not occur.
+	 */
+	default int indexOf(byte value, int from) {
+
+		for (int i = Math.max(from, 0); i < this.length(); i++) {
+			if (this.get(i) == value) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Return a view of the image without its first bytes, such as a header.
+	 * Ranges are read and searched through the image itself, so the view is
+	 * as fast as the image.
+	 *
+	 * @param  count The number of bytes to skip.
+	 *
+	 * @return       A view of the rest of the image, or the image itself if
+	 *               no bytes are skipped.
+	 */
+	default GameImage skip(int count) {
+
+		if (count <= 0) {
+			return this;
+		}
+
+		final GameImage image = this;
+		final int skipped = Math.min(count, this.length());
+
+		return new GameImage() {
+
+			@Override
+			public int length() {
+				return image.length() - skipped;
+			}
+
+			@Override
+			public byte get(int offset) {
+				if (offset < 0 || offset >= this.length()) {
+					throw new IndexOutOfBoundsException(offset);
+				}
+				return image.get(skipped + offset);
+			}
+
+			@Override
+			public byte[] read(int start, int end) {
+				// Clamp here, so the range cannot reach back into the bytes skipped
+				return image.read(skipped + Math.max(start, 0), skipped + Math.min(end, this.length()));
+			}
+
+			@Override
+			public int indexOf(byte value, int from) {
+				final int found = image.indexOf(value, skipped + Math.min(Math.max(from, 0), this.length()));
+				return (found < 0) ? -1 : found - skipped;
+			}
+		};
+	}
+
+	/**
+	 * Return an image backed by an array. The array is not copied and must
+	 * not be modified while the image is in use.
+	 *
+	 * @param  data The bytes of the image.
+	 *
+	 * @return      An image of the array.
+	 */
+	static GameImage wrap(byte[] data) {
+
+		return new GameImage() {
+
+			@Override
+			public int length() {
+				return data.length;
+			}
+
+			@Override
+			public byte get(int offset) {
+				return data[offset];
+			}
+
+			@Override
+			public byte[] read(int start, int end) {
+				return ArrayUtils.subarray(data, start, end);
+			}
+
+			@Override
+			public int indexOf(byte value, int from) {
+				return ArrayUtils.indexOf(data, value, from);
+			}
+		};
+	}
+}
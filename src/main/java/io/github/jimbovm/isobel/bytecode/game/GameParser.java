@@ -8,27 +8,32 @@ package io.github.jimbovm.isobel.bytecode.game;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
-import org.apache.commons.lang3.ArrayUtils;
-
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
 import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
+import io.github.jimbovm.isobel.bytecode.population.LinkTable;
 import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
 import io.github.jimbovm.isobel.common.Area;
 import io.github.jimbovm.isobel.common.Atlas;
 import io.github.jimbovm.isobel.common.Level;
 import io.github.jimbovm.isobel.common.Scenario;
 import io.github.jimbovm.isobel.common.World;
+import io.github.jimbovm.isobel.patch.PatchedImage;
 
 /**
  * Encapsulates functionality for extracting data from a binary game
@@ -49,30 +54,58 @@ import io.github.jimbovm.isobel.common.World;
 @Log4j2
 public final class GameParser {
 
+	@Getter(AccessLevel.PACKAGE)
 	private int checkpointsStart = 0x11BD;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int checkpointsEnd = 0x11CC;
 
+	@Getter(AccessLevel.PACKAGE)
+	private int worldOffsetsStart = 0x1CB4;
+
+	@Getter(AccessLevel.PACKAGE)
+	private int levelsStart = 0x1CBC;
+
+	@Getter(AccessLevel.PACKAGE)
 	private int populationEnvironmentTypeStart = 0x1CE0;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int geographyEnvironmentTypeStart = 0x1D28;
 
-	private byte[] gameData;
+	@Getter(AccessLevel.PACKAGE)
+	private int hidden1upPricesStart = 0x32C2;
+
+	@Getter(AccessLevel.PACKAGE)
+	private GameImage gameData;
+
+	/** The size of the header prefixed to images in iNES format. */
+	private static final int INES_HEADER_SIZE = 16;
+
+	/** The size of the optional trainer following an iNES header. */
+	private static final int INES_TRAINER_SIZE = 512;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int populationLsbStart = 0x1CE4;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int populationLsbEnd = 0x1D05;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int populationMsbStart = 0x1D06;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int populationMsbEnd = 0x1D27;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int geographyLsbStart = 0x1D2C;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int geographyLsbEnd = 0x1D4D;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int geographyMsbStart = 0x1D4E;
 
+	@Getter(AccessLevel.PACKAGE)
 	private int geographyMsbEnd = 0x1D6F;
 
 	private int underwaterAreas = 3;
@@ -83,10 +116,14 @@ public final class GameParser {
 
 	private int castleAreas = 6;
 
+	@Getter(AccessLevel.PACKAGE)
 	private Map<Integer, Integer> levelsPerWorld;
 
 	private Atlas atlas;
 
+	/** The report to which problems in area data are added, if parsing tolerantly. */
+	private ParseReport report;
+
 	{
 		this.levelsPerWorld = new HashMap<>();
 		this.atlas = new Atlas();
@@ -103,19 +140,150 @@ public final class GameParser {
 	 * @throws IOException In the event of a problem with the filepath.
 	 */
 	public static GameParser create(String filepath) throws IOException {
-		return new GameParser(filepath);
+		return new GameParser(GameImage.wrap(readImage(filepath)));
 	}
 
-	private GameParser(String filepath) throws IOException {
-		this.setDefaultAreasPerWorld();
+	/**
+	 * Create a new parser instance to read from a binary image already held
+	 * in memory. The array is not copied and must not be modified while the
+	 * parser is in use.
+	 * 
+	 * @param  gameData The binary image to read from.
+	 * 
+	 * @return          A new <code>GameParser</code> instance.
+	 */
+	public static GameParser create(byte[] gameData) {
+		return create(GameImage.wrap(gameData));
+	}
+
+	/**
+	 * Create a new parser instance to read from a binary image with random
+	 * access, such as one read through a patch. An iNES header, if present,
+	 * is skipped.
+	 * 
+	 * @param  gameData The binary image to read from.
+	 * 
+	 * @return          A new <code>GameParser</code> instance.
+	 */
+	public static GameParser create(GameImage gameData) {
+		return new GameParser(gameData.skip(headerSize(gameData)));
+	}
+
+	/**
+	 * Create a new parser instance to read from a base image as modified by
+	 * an IPS or BPS patch. The patch is not applied to a copy of the image;
+	 * instead, data is read through the patch from the base image, so many
+	 * patches can be read against a single base image held in memory.
+	 * Neither array is copied, and neither may be modified while the parser
+	 * is in use.
+	 * 
+	 * @param  base        The image to which the patch applies, with or
+	 *                     without an iNES header as the patch expects.
+	 * @param  patch       The contents of an IPS or BPS patch file.
+	 * 
+	 * @return             A new <code>GameParser</code> instance.
+	 * 
+	 * @throws IOException If the patch is malformed or does not apply to the
+	 *                     base image.
+	 */
+	public static GameParser create(byte[] base, byte[] patch) throws IOException {
+		return create(PatchedImage.of(base, patch));
+	}
+
+	/**
+	 * Create a new parser instance to read an image from a stream, such as an
+	 * entry being read from an archive. The stream is read to its end but not
+	 * closed.
+	 * 
+	 * @param  source      The stream from which to read the image.
+	 * 
+	 * @return             A new <code>GameParser</code> instance.
+	 * 
+	 * @throws IOException In the event of a problem reading from the stream.
+	 */
+	public static GameParser create(InputStream source) throws IOException {
+		return create(source.readAllBytes());
+	}
+
+	/**
+	 * Create a new parser instance to read from a file at the supplied path.
+	 * The path may belong to any file system, including a zip file system
+	 * opened with {@link java.nio.file.FileSystems#newFileSystem(Path)}, so
+	 * that images can be read from archives without extracting them.
+	 * 
+	 * @param  path        The path of the file to read from.
+	 * 
+	 * @return             A new <code>GameParser</code> instance.
+	 * 
+	 * @throws IOException In the event of a problem reading from the file.
+	 */
+	public static GameParser create(Path path) throws IOException {
+		return create(Files.readAllBytes(path));
+	}
+
+	/**
+	 * Remove the iNES header (and trainer, if present) from an image, as
+	 * found on images distributed in <code>.nes</code> files. Images without
+	 * a header are returned unchanged.
+	 * 
+	 * @param  image A binary image, with or without an iNES header.
+	 * 
+	 * @return       The image without an iNES header.
+	 */
+	public static byte[] stripHeader(byte[] image) {
+
+		final int start = headerSize(GameImage.wrap(image));
+
+		if (start == 0) {
+			return image;
+		}
+
+		return Arrays.copyOfRange(image, Math.min(start, image.length), image.length);
+	}
+
+	/**
+	 * Return the size of the iNES header (and trainer, if present) at the
+	 * start of an image.
+	 * 
+	 * @param  image A binary image, with or without an iNES header.
+	 * 
+	 * @return       The number of bytes preceding the game data, or zero if
+	 *               the image has no header.
+	 */
+	public static int headerSize(GameImage image) {
+
+		final boolean hasHeader =
+			image.length() >= INES_HEADER_SIZE && image.get(0) == 'N' && image.get(1) == 'E'
+				&& image.get(2) == 'S' && image.get(3) == 0x1A;
+
+		if (hasHeader == false) {
+			return 0;
+		}
+
+		final boolean hasTrainer = (image.get(6) & 0b00000100) != 0;
+
+		return INES_HEADER_SIZE + (hasTrainer ? INES_TRAINER_SIZE : 0);
+	}
+
+	/**
+	 * Read a binary image from a file at the supplied location.
+	 * 
+	 * @param  filepath    The location of the file to read from.
+	 * 
+	 * @return             The contents of the file.
+	 * 
+	 * @throws IOException In the event of a problem with the filepath.
+	 */
+	public static byte[] readImage(String filepath) throws IOException {
 		File file = new File(filepath);
 
 		try {
 			Path path = Path.of(URLDecoder.decode(file.toPath().toString(), "UTF-8"));
-			this.gameData = Files.readAllBytes(path);
+			return Files.readAllBytes(path);
 		}
 		catch (UnsupportedEncodingException e) {
 			log.fatal("UTF-8 is not a supported encoding. This should never occur.");
+			throw e;
 		}
 		catch (IOException e) {
 			// Don't allow construction if path is invalid
@@ -124,6 +292,11 @@ public final class GameParser {
 		}
 	}
 
+	private GameParser(GameImage gameData) {
+		this.setDefaultAreasPerWorld();
+		this.gameData = gameData;
+	}
+
 	private void setDefaultAreasPerWorld() {
 		this.levelsPerWorld.put(0, 5);
 		this.levelsPerWorld.put(1, 5);
@@ -144,10 +317,40 @@ public final class GameParser {
 	 */
 	public void setLevelsPerWorld(Map<Integer, Integer> levelsPerWorld) { this.levelsPerWorld = levelsPerWorld; }
 
+	/**
+	 * Set a report to which to add problems found in area data, so that
+	 * malformed commands are kept as raw commands rather than stopping the
+	 * parse. By default there is no report, and the first problem is thrown.
+	 * 
+	 * @param report The report, or <code>null</code> to stop at the first
+	 *               problem.
+	 */
+	public void setReport(ParseReport report) { this.report = report; }
+
 	private int areaIndexFromComponents(int environmentType, int subindex) {
 		return ((environmentType << 5) | subindex);
 	}
 
+	/**
+	 * Return the number of areas of an environment type in the image.
+	 *
+	 * @param  environment The environment type.
+	 *
+	 * @return             The number of areas with that environment.
+	 */
+	int getAreaCount(Area.Environment environment) {
+		switch (environment) {
+			case UNDERWATER:
+				return this.underwaterAreas;
+			case OVERWORLD:
+				return this.overworldAreas;
+			case UNDERGROUND:
+				return this.undergroundAreas;
+			default:
+				return this.castleAreas;
+		}
+	}
+
 	/**
 	 * Return the total number of levels in the game.
 	 * 
@@ -155,8 +358,8 @@ public final class GameParser {
 	 */
 	public int getLevelTotal() { return levelsPerWorld.values().stream().reduce(0, Integer::sum); }
 
-	private byte[] getCheckpoints() {
-		return ArrayUtils.subarray(this.gameData, checkpointsStart, checkpointsEnd + 1);
+	byte[] getCheckpoints() {
+		return this.gameData.read(checkpointsStart, checkpointsEnd + 1);
 	}
 
 	private List<Byte> getCleanCheckpoints() {
@@ -175,19 +378,19 @@ public final class GameParser {
 	}
 
 	private byte[] getPopulationLsbs() {
-		return ArrayUtils.subarray(this.gameData, this.populationLsbStart, this.populationLsbEnd + 1);
+		return this.gameData.read(this.populationLsbStart, this.populationLsbEnd + 1);
 	}
 
 	private byte[] getPopulationMsbs() {
-		return ArrayUtils.subarray(this.gameData, this.populationMsbStart, this.populationMsbEnd + 1);
+		return this.gameData.read(this.populationMsbStart, this.populationMsbEnd + 1);
 	}
 
 	private byte[] getGeographyLsbs() {
-		return ArrayUtils.subarray(this.gameData, this.geographyLsbStart, this.geographyLsbEnd + 1);
+		return this.gameData.read(this.geographyLsbStart, this.geographyLsbEnd + 1);
 	}
 
 	private byte[] getGeographyMsbs() {
-		return ArrayUtils.subarray(this.gameData, geographyMsbStart, geographyMsbEnd + 1);
+		return this.gameData.read(geographyMsbStart, geographyMsbEnd + 1);
 	}
 
 	private int[] getAddresses(byte[] msbs, byte[] lsbs) {
@@ -205,14 +408,14 @@ public final class GameParser {
 		return addresses;
 	}
 
-	private int[] getPopulationAddresses() {
+	int[] getPopulationAddresses() {
 		byte[] msbs = this.getPopulationMsbs();
 		byte[] lsbs = this.getPopulationLsbs();
 
 		return this.getAddresses(msbs, lsbs);
 	}
 
-	private int[] getGeographyAddresses() {
+	int[] getGeographyAddresses() {
 		byte[] msbs = this.getGeographyMsbs();
 		byte[] lsbs = this.getGeographyLsbs();
 
@@ -220,14 +423,14 @@ public final class GameParser {
 	}
 
 	private byte[] getEnvironmentTypeArray(int offset) {
-		return ArrayUtils.subarray(this.gameData, offset, offset + 4);
+		return this.gameData.read(offset, offset + 4);
 	}
 
-	private byte[] getGeographyEnvironmentTypeArray() {
+	byte[] getGeographyEnvironmentTypeArray() {
 		return this.getEnvironmentTypeArray(this.geographyEnvironmentTypeStart);
 	}
 
-	private byte[] getPopulationEnvironmentTypeArray() {
+	byte[] getPopulationEnvironmentTypeArray() {
 		return this.getEnvironmentTypeArray(this.populationEnvironmentTypeStart);
 	}
 
@@ -243,8 +446,8 @@ public final class GameParser {
 	 *                   inclusive.
 	 */
 	public byte[] getFile(int offset, int endOfFile) {
-		final int indexOfEof = ArrayUtils.indexOf(this.gameData, (byte) endOfFile, offset);
-		return ArrayUtils.subarray(this.gameData, offset, indexOfEof + 1);
+		final int indexOfEof = this.gameData.indexOf((byte) endOfFile, offset);
+		return this.gameData.read(offset, indexOfEof + 1);
 	}
 
 	private byte[] getGeographyFile(int offset) {
@@ -264,7 +467,7 @@ public final class GameParser {
 	 * @return An array of 8 bytes.
 	 */
 	public byte[] parseHidden1upPrices() {
-		return ArrayUtils.subarray(this.gameData, 0x32C2, 0x32C9 + 1);
+		return this.gameData.read(this.hidden1upPricesStart, this.hidden1upPricesStart + 8);
 	}
 
 	/**
@@ -276,7 +479,9 @@ public final class GameParser {
 	public Scenario parseScenario() {
 
 		var worlds = new ArrayList<World>();
-		final byte[] worldOffsets = ArrayUtils.subarray(this.gameData, 0x1CB4, 0x1CBB + 1);
+		final byte[] worldOffsets =
+			this.gameData.read(this.worldOffsetsStart, this.worldOffsetsStart + 8);
+		final byte[] hidden1upPrices = this.parseHidden1upPrices();
 
 		// Keep track of the checkpoint offset relative to the level being considered
 		int checkpointPointer = 0;
@@ -284,12 +489,16 @@ public final class GameParser {
 		for (int worldIndex = 0; worldIndex < 8; worldIndex++) {
 
 			var world = new World();
+			// Each price applies to the world after the one it is stored against
+			if (worldIndex > 0) {
+				world.setHidden1upCost(hidden1upPrices[worldIndex - 1]);
+			}
 			final int numberOfLevels = this.levelsPerWorld.get(worldIndex);
 
 			for (int levelIndex = 0; levelIndex < numberOfLevels; levelIndex++) {
 
-				final byte areaIndex = this.gameData[0x1CBC + worldOffsets[worldIndex] + levelIndex];
-				Area startArea = atlas.get(String.format("Area_%02X", ((int) areaIndex) & 0b01111111));
+				final byte areaIndex = this.gameData.get(this.levelsStart + worldOffsets[worldIndex] + levelIndex);
+				Area startArea = atlas.get(LinkTable.areaName(((int) areaIndex) & 0b01111111));
 
 				byte checkpoint;
 				// Skip reading the checkpoints array for autowalk areas
@@ -337,12 +546,12 @@ public final class GameParser {
 		 * Form the area's immutable name; code that parses
 		 * exit pointers forms the name similarly.
 		 */
-		final String immutableAreaName = String.format("Area_%02X", backFormedAreaIndex);
+		final String immutableAreaName = LinkTable.areaName(backFormedAreaIndex);
 
 		// Grab the data based on the addresses and parse into an area object
 		byte[] geographyFile = this.getGeographyFile(geographyAddress);
 		byte[] populationFile = this.getPopulationFile(populationAddress);
-		Area area = Area.parse(environment, geographyFile, populationFile, immutableAreaName);
+		Area area = Area.parse(environment, geographyFile, populationFile, immutableAreaName, this.report);
 
 		// Done; add it to the area atlas keyed to its immutable name
 		this.atlas.add(area);
@@ -0,0 +1,485 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
+import io.github.jimbovm.isobel.bytecode.population.LinkTable;
+import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * Encapsulates functionality for writing a {@link Game} back into the layout
+ * of the binary image it was originally parsed from.
+ *
+ * Rather than building a complete new image, the unparser returns only the
+ * runs of bytes which need to be written over the original: the area data
+ * tables, the scenario tables and the bytecode of any area which no longer
+ * matches the original image. Bytecode which still matches the original is
+ * left where it is. Other bytecode is placed back in the slot its area
+ * originally occupied where it fits, and otherwise in the first free space in
+ * the region of the image originally occupied by area data. If there is not
+ * enough contiguous free space, all area data is repacked in its original
+ * order, which makes for a larger patch.
+ *
+ * The bytecode of each area is remembered between calls to
+ * {@link #unparse(Game)}, so that after a small edit only the areas which
+ * have been changed need to be unparsed again. Callers must report changed
+ * areas with {@link #invalidate(Area)}. Population bytecode is unparsed again
+ * automatically whenever the index numbers of areas in the atlas change, as
+ * exit pointers refer to their destinations by index.
+ */
+@Log4j2
+public final class GameUnparser {
+
+	/** The base address at which the image is mapped into CPU memory. */
+	private static final int CPU_BASE_ADDRESS = 0x8000;
+
+	private static final int WORLDS = 8;
+
+	private final GameParser layout;
+
+	private final GameImage original;
+
+	/** Original addresses of geography data, keyed by area ID. */
+	private final Map<String, Integer> originalGeography = new HashMap<>();
+
+	/** Original addresses of population data, keyed by area ID. */
+	private final Map<String, Integer> originalPopulation = new HashMap<>();
+
+	/** Original bytecode, keyed by address. */
+	private final Map<Integer, byte[]> originalData = new HashMap<>();
+
+	/** The region of the image originally occupied by area data. */
+	private final FreeSpace dataRegion = new FreeSpace();
+
+	private final Map<Area, byte[]> geographyCache = new HashMap<>();
+
+	private final Map<Area, byte[]> populationCache = new HashMap<>();
+
+	private Map<Area, Integer> cachedIndices = Map.of();
+
+	/**
+	 * Create a new unparser to write games into the layout of the supplied
+	 * binary image.
+	 *
+	 * @param image The original binary image, with or without an iNES header.
+	 *              The array is not modified.
+	 */
+	public GameUnparser(byte[] image) {
+		this(GameImage.wrap(image));
+	}
+
+	/**
+	 * Create a new unparser to write games into the layout of the supplied
+	 * binary image, which may be read through a patch.
+	 *
+	 * @param image The original binary image, with or without an iNES header.
+	 */
+	public GameUnparser(GameImage image) {
+
+		this.layout = GameParser.create(image);
+		this.original = this.layout.getGameData();
+
+		final byte[] geographyOffsets = this.layout.getGeographyEnvironmentTypeArray();
+		final byte[] populationOffsets = this.layout.getPopulationEnvironmentTypeArray();
+		final int[] geographyAddresses = this.layout.getGeographyAddresses();
+		final int[] populationAddresses = this.layout.getPopulationAddresses();
+
+		for (Area.Environment environment : Area.Environment.values()) {
+			for (int i = 0; i < this.layout.getAreaCount(environment); i++) {
+				final String id = LinkTable.areaName((environment.getId() << 5) | i);
+				final int geographyAddress = geographyAddresses[geographyOffsets[environment.getId()] + i];
+				final int populationAddress = populationAddresses[populationOffsets[environment.getId()] + i];
+				this.addOriginal(this.originalGeography, id, geographyAddress, GeographyParser.END_OF_FILE);
+				this.addOriginal(this.originalPopulation, id, populationAddress, PopulationParser.END_OF_FILE);
+			}
+		}
+	}
+
+	private void addOriginal(Map<String, Integer> addresses, String id, int address, int endOfFile) {
+
+		final byte[] data = this.layout.getFile(address, endOfFile);
+
+		// An unterminated file can't be safely reused or overwritten
+		if (data.length == 0) {
+			log.warn(String.format("No data found for %s at %04X", id, address));
+			return;
+		}
+
+		addresses.put(id, address);
+		this.originalData.put(address, data);
+		this.dataRegion.free(address, address + data.length);
+	}
+
+	/**
+	 * Mark an area as changed, so that its bytecode is unparsed again.
+	 *
+	 * @param area The area which has changed.
+	 */
+	public void invalidate(Area area) {
+		this.geographyCache.remove(area);
+		this.populationCache.remove(area);
+	}
+
+	/** Mark every area as changed. */
+	public void invalidateAll() {
+		this.geographyCache.clear();
+		this.populationCache.clear();
+	}
+
+	/**
+	 * Unparse a game into the layout of the original image.
+	 *
+	 * @param  game                  The game to unparse.
+	 *
+	 * @return                       A map of offsets within the image,
+	 *                               excluding any iNES header, to the bytes
+	 *                               to be written there. Runs never overlap,
+	 *                               and may include bytes equal to those
+	 *                               already in the image.
+	 *
+	 * @throws IllegalStateException If the game does not fit in the layout of
+	 *                               the original image, or any exit pointer
+	 *                               names an area not in the atlas.
+	 */
+	public SortedMap<Integer, byte[]> unparse(Game game) {
+
+		final Atlas atlas = game.getAtlas();
+		final List<Area> areas = atlas.getAreas();
+		final int capacity = this.layout.getGeographyLsbEnd() - this.layout.getGeographyLsbStart() + 1;
+
+		if (areas.size() > capacity) {
+			throw new IllegalStateException(
+				String.format("Game has %d areas, but the image has room for %d", areas.size(), capacity));
+		}
+
+		// Report every pointer without a destination before encoding anything
+		final LinkTable links = LinkTable.link(atlas).check();
+
+		if (this.cachedIndices.equals(atlas.getIndexByArea()) == false) {
+			this.populationCache.clear();
+			this.cachedIndices = new HashMap<>(atlas.getIndexByArea());
+		}
+
+		SortedMap<Integer, byte[]> writes = new TreeMap<>();
+		Map<Area, Integer> geographyAddresses = new HashMap<>();
+		Map<Area, Integer> populationAddresses = new HashMap<>();
+		List<Stream> streams = new ArrayList<>();
+
+		for (Area area : areas) {
+			byte[] geography = this.geographyCache.computeIfAbsent(area, Area::unparseGeography);
+			byte[] population = this.populationCache.computeIfAbsent(area, (a) -> a.unparsePopulation(links));
+			streams.add(new Stream(area, geography, this.originalGeography.get(area.getId()), geographyAddresses));
+			streams.add(new Stream(area, population, this.originalPopulation.get(area.getId()), populationAddresses));
+		}
+
+		if (this.placeAroundUnchanged(streams, writes) == false) {
+			// Changed data doesn't fit in the gaps, so move everything
+			log.info("Repacking area data to make room for changes");
+			geographyAddresses.clear();
+			populationAddresses.clear();
+			writes.clear();
+			if (this.repack(streams, writes) == false) {
+				throw new IllegalStateException("Not enough room in image for area data");
+			}
+		}
+
+		this.unparseAreaTables(atlas, geographyAddresses, populationAddresses, writes);
+		this.unparseScenario(game, atlas, writes);
+
+		return writes;
+	}
+
+	private boolean placeAroundUnchanged(List<Stream> streams, SortedMap<Integer, byte[]> writes) {
+
+		FreeSpace freeSpace = this.dataRegion.copy();
+
+		// Bytecode matching the original stays put, so reserve it first
+		for (Stream stream : streams) {
+			if (stream.original >= 0 && Arrays.equals(stream.data, this.originalData.get(stream.original))) {
+				stream.addresses.put(stream.area, stream.original);
+				freeSpace.reserve(stream.original, stream.original + stream.data.length);
+			}
+		}
+
+		for (Stream stream : streams) {
+
+			if (stream.addresses.containsKey(stream.area)) {
+				continue;
+			}
+
+			final int address = freeSpace.allocate(stream.data.length, stream.original);
+			if (address < 0) {
+				return false;
+			}
+
+			stream.addresses.put(stream.area, address);
+			writes.put(address, stream.data);
+		}
+
+		return true;
+	}
+
+	private boolean repack(List<Stream> streams, SortedMap<Integer, byte[]> writes) {
+
+		FreeSpace freeSpace = this.dataRegion.copy();
+		List<Stream> ordered = new ArrayList<>(streams);
+
+		// Keep data in its original order, so that as much as possible stays put
+		ordered
+			.sort(Comparator.comparingInt((stream) -> (stream.original < 0) ? Integer.MAX_VALUE : stream.original));
+
+		for (Stream stream : ordered) {
+
+			final int address = freeSpace.allocate(stream.data.length, -1);
+			if (address < 0) {
+				return false;
+			}
+
+			stream.addresses.put(stream.area, address);
+			writes.put(address, stream.data);
+		}
+
+		return true;
+	}
+
+	private byte[] unparseEnvironmentOffsets(byte[] originalOffsets, Atlas atlas) {
+
+		// Keep the environment types in the order the original image uses
+		Integer[] order = { 0, 1, 2, 3 };
+		Arrays.sort(order, Comparator.comparingInt((environment) -> originalOffsets[environment]));
+
+		byte[] offsets = new byte[order.length];
+		int offset = 0;
+
+		for (int environment : order) {
+			offsets[environment] = (byte) offset;
+			offset += atlas.getAreaCounts().getOrDefault(Area.Environment.values()[environment], 0);
+		}
+
+		return offsets;
+	}
+
+	private void unparsePointers(
+		byte[] environmentOffsets, Map<Area, Integer> addresses, Atlas atlas, int lsbStart, int msbStart,
+		SortedMap<Integer, byte[]> writes) {
+
+		final int length = msbStart - lsbStart;
+		byte[] lsbs = this.original.read(lsbStart, lsbStart + length);
+		byte[] msbs = this.original.read(msbStart, msbStart + length);
+
+		for (Map.Entry<Area, Integer> entry : addresses.entrySet()) {
+			final int index = atlas.getIndex(entry.getKey());
+			final int position = environmentOffsets[index >> 5] + (index & 0b00011111);
+			final int address = CPU_BASE_ADDRESS | entry.getValue();
+			lsbs[position] = (byte) address;
+			msbs[position] = (byte) (address >> 8);
+		}
+
+		writes.put(lsbStart, lsbs);
+		writes.put(msbStart, msbs);
+	}
+
+	private void unparseAreaTables(
+		Atlas atlas, Map<Area, Integer> geographyAddresses, Map<Area, Integer> populationAddresses,
+		SortedMap<Integer, byte[]> writes) {
+
+		final byte[] geographyOffsets =
+			this.unparseEnvironmentOffsets(this.layout.getGeographyEnvironmentTypeArray(), atlas);
+		final byte[] populationOffsets =
+			this.unparseEnvironmentOffsets(this.layout.getPopulationEnvironmentTypeArray(), atlas);
+
+		writes.put(this.layout.getGeographyEnvironmentTypeStart(), geographyOffsets);
+		writes.put(this.layout.getPopulationEnvironmentTypeStart(), populationOffsets);
+
+		this
+			.unparsePointers(geographyOffsets, geographyAddresses, atlas, this.layout.getGeographyLsbStart(),
+				this.layout.getGeographyMsbStart(), writes);
+		this
+			.unparsePointers(populationOffsets, populationAddresses, atlas, this.layout.getPopulationLsbStart(),
+				this.layout.getPopulationMsbStart(), writes);
+	}
+
+	private void unparseScenario(Game game, Atlas atlas, SortedMap<Integer, byte[]> writes) {
+
+		final List<World> worlds = game.getScenario().getWorlds();
+
+		if (worlds.size() > WORLDS) {
+			throw new IllegalStateException(
+				String.format("Game has %d worlds, but the image has room for %d", worlds.size(), WORLDS));
+		}
+
+		final int levelsStart = this.layout.getLevelsStart();
+		final int levelCapacity = this.layout.getPopulationEnvironmentTypeStart() - levelsStart;
+		final int checkpointsStart = this.layout.getCheckpointsStart();
+		final int checkpointCapacity = 2 * (this.layout.getCheckpointsEnd() - checkpointsStart + 1);
+		final int pricesStart = this.layout.getHidden1upPricesStart();
+
+		byte[] worldOffsets = this.original.read(this.layout.getWorldOffsetsStart(), levelsStart);
+		byte[] levels = this.original.read(levelsStart, levelsStart + levelCapacity);
+		byte[] checkpoints = this.layout.getCheckpoints();
+		byte[] prices = this.layout.parseHidden1upPrices();
+
+		int levelPointer = 0;
+		int checkpointPointer = 0;
+
+		for (int worldIndex = 0; worldIndex < worlds.size(); worldIndex++) {
+
+			final World world = worlds.get(worldIndex);
+			worldOffsets[worldIndex] = (byte) levelPointer;
+
+			// Each price applies to the world after the one it is stored against
+			if (worldIndex > 0) {
+				prices[worldIndex - 1] = world.getHidden1upCost();
+			}
+
+			for (Level level : world.getLevels()) {
+
+				if (levelPointer >= levelCapacity) {
+					throw new IllegalStateException(
+						String.format("Game has more levels than the image has room for (%d)", levelCapacity));
+				}
+
+				final Area startArea = level.getStartArea();
+
+				if (startArea != null) {
+					// Preserve the unused high bit
+					levels[levelPointer] = (byte) ((levels[levelPointer] & 0x80) | atlas.getIndex(startArea));
+
+					// Autowalk areas have no checkpoint, as in the parser
+					if (startArea.getHeader().isAutowalk() == false) {
+						if (checkpointPointer >= checkpointCapacity) {
+							throw new IllegalStateException(
+								String
+									.format("Game has more checkpoints than the image has room for (%d)",
+										checkpointCapacity));
+						}
+						final int shift = (checkpointPointer % 2 == 0) ? 4 : 0;
+						final int i = checkpointPointer / 2;
+						checkpoints[i] =
+							(byte) ((checkpoints[i] & ~(0x0F << shift)) | ((level.getCheckpoint() & 0x0F) << shift));
+						checkpointPointer++;
+					}
+				}
+
+				levelPointer++;
+			}
+		}
+
+		writes.put(this.layout.getWorldOffsetsStart(), worldOffsets);
+		writes.put(levelsStart, levels);
+		writes.put(checkpointsStart, checkpoints);
+		writes.put(pricesStart, prices);
+	}
+
+	/** The bytecode of one kind for one area, and where it came from. */
+	private static final class Stream {
+
+		private final Area area;
+
+		private final byte[] data;
+
+		/** The original address of the area's data, or -1 if it has none. */
+		private final int original;
+
+		/** The map in which to record the address chosen for the data. */
+		private final Map<Area, Integer> addresses;
+
+		Stream(Area area, byte[] data, Integer original, Map<Area, Integer> addresses) {
+			this.area = area;
+			this.data = data;
+			this.original = (original == null) ? -1 : original;
+			this.addresses = addresses;
+		}
+	}
+
+	/**
+	 * A set of free ranges of addresses, held as a map of the start of each
+	 * range to its (exclusive) end.
+	 */
+	private static final class FreeSpace {
+
+		private final TreeMap<Integer, Integer> ranges = new TreeMap<>();
+
+		FreeSpace copy() {
+			FreeSpace copy = new FreeSpace();
+			copy.ranges.putAll(this.ranges);
+			return copy;
+		}
+
+		void free(int start, int end) {
+
+			// Merge with any ranges which overlap or touch the new one
+			Map.Entry<Integer, Integer> before = this.ranges.floorEntry(start);
+			if (before != null && before.getValue() >= start) {
+				start = before.getKey();
+				end = Math.max(end, before.getValue());
+			}
+
+			Map.Entry<Integer, Integer> after = this.ranges.ceilingEntry(start);
+			while (after != null && after.getKey() <= end) {
+				end = Math.max(end, after.getValue());
+				this.ranges.remove(after.getKey());
+				after = this.ranges.ceilingEntry(start);
+			}
+
+			this.ranges.put(start, end);
+		}
+
+		void reserve(int start, int end) {
+
+			Map.Entry<Integer, Integer> range = this.ranges.lowerEntry(end);
+
+			while (range != null && range.getValue() > start) {
+				this.ranges.remove(range.getKey());
+				if (range.getKey() < start) {
+					this.ranges.put(range.getKey(), start);
+				}
+				if (range.getValue() > end) {
+					this.ranges.put(end, range.getValue());
+				}
+				range = this.ranges.lowerEntry(range.getKey());
+			}
+		}
+
+		int allocate(int length, int preferred) {
+
+			if (preferred >= 0) {
+				Map.Entry<Integer, Integer> range = this.ranges.floorEntry(preferred);
+				if (range != null && range.getValue() >= preferred + length) {
+					this.reserve(preferred, preferred + length);
+					return preferred;
+				}
+			}
+
+			for (Map.Entry<Integer, Integer> range : this.ranges.entrySet()) {
+				if (range.getValue() - range.getKey() >= length) {
+					final int start = range.getKey();
+					this.reserve(start, start + length);
+					return start;
+				}
+			}
+
+			return -1;
+		}
+	}
+}
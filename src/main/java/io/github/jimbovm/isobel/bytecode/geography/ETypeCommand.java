@@ -66,7 +66,8 @@ public final class ETypeCommand {
 	 * 
 	 * @return          A
 	 *                  {@link io.github.jimbovm.isobel.actor.geography.GeographyActor}
-	 *                  parsed from the input.
+	 *                  parsed from the input, or <code>null</code> if the
+	 *                  command names no known actor.
 	 */
 	public static GeographyActor parse(final int lowByte, final int highByte, final int page) {
 
@@ -74,10 +75,12 @@ public final class ETypeCommand {
 
 		final int x = ((lowByte & 0xF0) >>> 4) + page * 16;
 		if (isBackgroundModifier) {
-			return parseBackgroundModifier(x, highByte);
+			BackgroundModifier modifier = parseBackgroundModifier(x, highByte);
+			return (modifier.getBackground() == null) ? null : modifier;
 		}
 		// If we're here, it's a fill/scenery modifier
-		return parseFillSceneryModifier(x, highByte);
+		FillSceneryModifier modifier = parseFillSceneryModifier(x, highByte);
+		return (modifier.getFill() == null || modifier.getScenery() == null) ? null : modifier;
 	}
 
 	/**
@@ -148,7 +148,8 @@ public final class FTypeCommand {
 	 * 
 	 * @return          A
 	 *                  {@link io.github.jimbovm.isobel.actor.geography.GeographyActor}
-	 *                  parsed from the input.
+	 *                  parsed from the input, or <code>null</code> if the
+	 *                  command names no known actor.
 	 */
 	public static GeographyActor parse(final int lowByte, final int highByte, final int page) {
 
@@ -161,6 +162,10 @@ public final class FTypeCommand {
 		// Various F-type commands encode their parameters in weird ways.
 		final ActorId actor = ActorId.from((actorId & Mask.ACTOR.getMask()) >>> 4);
 
+		if (actor == null) {
+			return null;
+		}
+
 		log.info(String.format("Parsed %s at x=%d", actor.toString(), x));
 
 		switch (actor) {
@@ -15,7 +15,10 @@ import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang3.StringUtils;
 
 import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.RawGeographyCommand;
 import io.github.jimbovm.isobel.bytecode.common.BytecodeParser;
+import io.github.jimbovm.isobel.bytecode.common.PageIndex;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Layer;
 import io.github.jimbovm.isobel.common.AreaHeader;
 
 /**
@@ -125,11 +128,63 @@ public final class GeographyParser extends BytecodeParser<GeographyActor> {
 	public List<GeographyActor> parse() throws IOException {
 		// skip over the header bytes
 		this.source.skip(2);
+		this.offset = 2;
 		List<GeographyActor> parsed = super.parse(END_OF_FILE);
 		this.source.reset();
 		return parsed;
 	}
 
+	@Override
+	protected GeographyActor handleUnknown(final int x, final byte[] command) {
+		return RawGeographyCommand.create(x, command);
+	}
+
+	@Override
+	protected Layer getLayer() {
+		return Layer.GEOGRAPHY;
+	}
+
+	/**
+	 * Index the pages of the parser's input stream without decoding the
+	 * commands, which is quicker than parsing it.
+	 * 
+	 * @return             An index of the pages in the stream, with offsets
+	 *                     counted from the start of the header.
+	 * 
+	 * @throws IOException In the event of a problem with the input stream.
+	 */
+	public PageIndex index() throws IOException {
+		this.source.skip(2);
+		this.offset = 2;
+		this.page = 0;
+		PageIndex index = super.scan(END_OF_FILE);
+		this.source.reset();
+		return index;
+	}
+
+	/**
+	 * Parse only the geography actors on a range of pages, seeking directly
+	 * to the first of them.
+	 * 
+	 * @param  index                    An index of the pages in the stream,
+	 *                                  from {@link #index()} or
+	 *                                  {@link #getPageIndex()}.
+	 * @param  from                     The first page to parse.
+	 * @param  to                       The page after the last page to parse.
+	 * 
+	 * @return                          A list of the geography actors on the
+	 *                                  pages.
+	 * 
+	 * @throws IOException              In the event of a problem with the input
+	 *                                  stream.
+	 * @throws IllegalArgumentException If the range is invalid.
+	 */
+	public List<GeographyActor> parse(PageIndex index, int from, int to) throws IOException {
+		List<GeographyActor> parsed = super.parse(END_OF_FILE, index, from, to);
+		this.source.reset();
+		return parsed;
+	}
+
 	/** Always returns false. There are no 3-byte geography commands. */
 	@Override
 	protected boolean isThreeByte(int lowByte) {
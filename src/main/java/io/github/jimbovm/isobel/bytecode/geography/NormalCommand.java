@@ -272,6 +272,10 @@ public final class NormalCommand {
 
 		final AltActorId altActor = AltActorId.from((highByte & TYPE_MASK) >>> 4);
 
+		if (altActor == null) {
+			return null;
+		}
+
 		GeographyActor parsed;
 
 		switch (altActor) {
@@ -308,7 +312,8 @@ public final class NormalCommand {
 	 * 
 	 * @return          A
 	 *                  {@link io.github.jimbovm.isobel.actor.geography.GeographyActor}
-	 *                  parsed from the input.
+	 *                  parsed from the input, or <code>null</code> if the
+	 *                  command names no known actor.
 	 */
 	public static GeographyActor parse(final int lowByte, final int highByte, final int page) {
 
@@ -318,7 +323,8 @@ public final class NormalCommand {
 		final boolean isSingletonObject = ((highByte & TYPE_MASK) >>> 4) == 0;
 
 		if (isSingletonObject) {
-			return parseSingletonObject(x, y, highByte);
+			SingletonObject singleton = parseSingletonObject(x, y, highByte);
+			return (singleton.getType() == null) ? null : singleton;
 		}
 		return parseAltActor(x, y, highByte);
 	}
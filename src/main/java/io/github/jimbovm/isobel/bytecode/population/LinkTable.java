@@ -0,0 +1,176 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.population;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+
+/**
+ * The destinations of every exit pointer in an atlas, resolved to the index
+ * numbers of the areas they name.
+ *
+ * Exit pointers name their destinations by area ID, but are encoded with
+ * index numbers. Linking resolves every pointer once, up front, so that
+ * encoding each pointer is a single lookup by identity, and so that every
+ * pointer naming an area not in the atlas is found and reported together
+ * before anything is encoded. The table describes the atlas as it was when
+ * linked: after actors or areas change, link again.
+ */
+public final class LinkTable {
+
+	/** The number of distinct area index numbers. */
+	private static final int INDICES = 0x80;
+
+	/** Names given to parsed areas, by index number. */
+	private static final String[] AREA_NAMES = new String[INDICES];
+
+	static {
+		for (int index = 0; index < INDICES; index++) {
+			AREA_NAMES[index] = String.format("Area_%02X", index);
+		}
+	}
+
+	/** Each linked pointer, mapped to its destination's index number. */
+	private final Map<ExitPointer, Integer> handles;
+
+	/** Pointers whose destinations are not in the atlas, in atlas order. */
+	@Getter
+	private final List<DanglingPointer> dangling;
+
+	private LinkTable(Map<ExitPointer, Integer> handles, List<DanglingPointer> dangling) {
+		this.handles = handles;
+		this.dangling = dangling;
+	}
+
+	/** An exit pointer naming an area which is not in the atlas. */
+	@Getter
+	@ToString
+	@AllArgsConstructor(access = AccessLevel.PACKAGE)
+	public static final class DanglingPointer {
+
+		/** The area holding the pointer. */
+		private final Area area;
+
+		/** The pointer. */
+		private final ExitPointer pointer;
+	}
+
+	/**
+	 * Return the ID given to an area parsed from an image, which exit pointers
+	 * parsed from the image name.
+	 *
+	 * @param  index The area's index number.
+	 *
+	 * @return       The ID, of the form <code>Area_XX</code>.
+	 */
+	public static String areaName(int index) {
+		return AREA_NAMES[index & (INDICES - 1)];
+	}
+
+	/**
+	 * Resolve the destinations of every exit pointer in an atlas.
+	 *
+	 * @param  atlas The atlas.
+	 *
+	 * @return       A new table, listing any pointers that could not be
+	 *               resolved.
+	 */
+	public static LinkTable link(Atlas atlas) {
+
+		Map<String, Integer> indices = new HashMap<>();
+		for (Map.Entry<Area, Integer> entry : atlas.getIndexByArea().entrySet()) {
+			indices.put(entry.getKey().getId(), entry.getValue());
+		}
+
+		Map<ExitPointer, Integer> handles = new IdentityHashMap<>();
+		List<DanglingPointer> dangling = new ArrayList<>();
+
+		for (Area area : atlas.getAreas()) {
+			for (PopulationActor actor : area.getPopulation()) {
+				if (actor instanceof ExitPointer pointer) {
+					final Integer index = indices.get(pointer.getDestination());
+					if (index == null) {
+						dangling.add(new DanglingPointer(area, pointer));
+					}
+					else {
+						handles.put(pointer, index);
+					}
+				}
+			}
+		}
+
+		return new LinkTable(handles, Collections.unmodifiableList(dangling));
+	}
+
+	/**
+	 * Return whether every pointer was resolved.
+	 *
+	 * @return <code>true</code> if no pointer names an area not in the atlas.
+	 */
+	public boolean isComplete() {
+		return this.dangling.isEmpty();
+	}
+
+	/**
+	 * Throw if any pointer was not resolved, naming every such pointer.
+	 *
+	 * @return                       This table.
+	 *
+	 * @throws IllegalStateException If any pointer names an area not in the
+	 *                               atlas.
+	 */
+	public LinkTable check() {
+
+		if (this.isComplete()) {
+			return this;
+		}
+
+		List<String> errors = new ArrayList<>(this.dangling.size());
+		for (DanglingPointer entry : this.dangling) {
+			errors.add(String.format("Area %s: exit pointer at %d to unknown area %s", entry.area.getId(),
+				entry.pointer.getX(), entry.pointer.getDestination()));
+		}
+
+		throw new IllegalStateException(String.join("; ", errors));
+	}
+
+	/**
+	 * Return the index number of the area to which a pointer leads.
+	 *
+	 * @param  pointer               A pointer in the atlas linked.
+	 *
+	 * @return                       The destination's index number.
+	 *
+	 * @throws IllegalStateException If the pointer was not linked or could not
+	 *                               be resolved.
+	 */
+	public int resolve(ExitPointer pointer) {
+
+		final Integer index = this.handles.get(pointer);
+
+		if (index == null) {
+			throw new IllegalStateException(
+				String.format("Exit pointer at %d to %s is not linked", pointer.getX(), pointer.getDestination()));
+		}
+
+		return index;
+	}
+}
@@ -152,23 +152,53 @@ public interface PopulationCommand {
 	/**
 	 * Unparse an ExitPointer to game bytecode.
 	 *
+	 * @param  exitPointer           The ExitPointer to unparse.
+	 * @param  newPage               Whether to set the new page flag in the
+	 *                               output.
+	 * @param  atlas                 The Atlas to use to determine area index
+	 *                               data.
+	 *
+	 * @return                       The bytecode to spawn the exit pointer
+	 *                               represented by the first argument.
+	 *
+	 * @throws IllegalStateException If the destination is not in the atlas.
+	 */
+	public static byte[] unparse(ExitPointer exitPointer, final boolean newPage, final Atlas atlas) {
+
+		final Area destination = atlas.get(exitPointer.getDestination());
+
+		if (destination == null) {
+			throw new IllegalStateException(String.format("Exit pointer at %d to unknown area %s",
+				exitPointer.getX(), exitPointer.getDestination()));
+		}
+
+		return unparse(exitPointer, newPage, atlas.getIndex(destination));
+	}
+
+	/**
+	 * Unparse an ExitPointer to game bytecode, using a destination already
+	 * resolved.
+	 *
 	 * @param  exitPointer The ExitPointer to unparse.
 	 * @param  newPage     Whether to set the new page flag in the output.
-	 * @param  atlas       The Atlas to use to determine area index data.
+	 * @param  links       The resolved destinations of the exit pointers in the
+	 *                     atlas.
 	 *
 	 * @return             The bytecode to spawn the exit pointer represented by the
 	 *                     first argument.
 	 */
-	public static byte[] unparse(ExitPointer exitPointer, final boolean newPage, final Atlas atlas) {
+	public static byte[] unparse(ExitPointer exitPointer, final boolean newPage, final LinkTable links) {
+		return unparse(exitPointer, newPage, links.resolve(exitPointer));
+	}
+
+	private static byte[] unparse(ExitPointer exitPointer, final boolean newPage, final int destination) {
 
 		byte[] bytecode = new byte[3];
 		bytecode[0] = encodeCoordinates(bytecode[0], exitPointer.getX());
 		bytecode[0] |= 0b1110;
 		bytecode[1] = encodeNewPage(bytecode[1], newPage);
 
-		final Area destination = atlas.get(exitPointer.getDestination());
-
-		bytecode[1] |= atlas.getIndex(destination);
+		bytecode[1] |= destination;
 
 		bytecode[2] |= exitPointer.getStartPage() | (exitPointer.getActiveFromWorld() << 5);
 		bytecode[2] &= 0xFF;
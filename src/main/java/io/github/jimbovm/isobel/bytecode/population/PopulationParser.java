@@ -13,7 +13,10 @@ import java.util.List;
 import io.github.jimbovm.isobel.actor.population.Character;
 import io.github.jimbovm.isobel.actor.population.ExitPointer;
 import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.actor.population.RawPopulationCommand;
 import io.github.jimbovm.isobel.bytecode.common.BytecodeParser;
+import io.github.jimbovm.isobel.bytecode.common.PageIndex;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Layer;
 
 /**
  * Parses an input stream of bytes, interpreting them as population commands and
@@ -52,7 +55,7 @@ public final class PopulationParser extends BytecodeParser<PopulationActor> {
 		exit.setX(x + blockOffset);
 		exit.setActiveFromWorld(worldActive);
 		exit.setStartPage(startOnPage);
-		exit.setDestination(String.format("Area_%02X", areaIndex));
+		exit.setDestination(LinkTable.areaName(areaIndex));
 
 		return exit;
 	}
@@ -60,8 +63,11 @@ public final class PopulationParser extends BytecodeParser<PopulationActor> {
 	/**
 	 * Parse a character command.
 	 * 
-	 * @param lowByte  The first byte of the command.
-	 * @param highByte The second byte of the command.
+	 * @param  lowByte  The first byte of the command.
+	 * @param  highByte The second byte of the command.
+	 *
+	 * @return          The character, or <code>null</code> if the opcode names
+	 *                  no character.
 	 */
 	@Override
 	protected PopulationActor handleTwoByte(int lowByte, int highByte) {
@@ -74,14 +80,30 @@ public final class PopulationParser extends BytecodeParser<PopulationActor> {
 
 		final int blockOffset = this.page * 16;
 
+		final Character.Type type = Character.Type.from(opcode);
+
+		if (type == null) {
+			return null;
+		}
+
 		Character character = new Character();
 		character.setX(x + blockOffset);
 		character.setY(y);
 		character.setHardModeOnly(hardModeOnly);
-		character.setType(Character.Type.from(opcode));
+		character.setType(type);
 		return character;
 	}
 
+	@Override
+	protected PopulationActor handleUnknown(final int x, final byte[] command) {
+		return RawPopulationCommand.create(x, command);
+	}
+
+	@Override
+	protected Layer getLayer() {
+		return Layer.POPULATION;
+	}
+
 	/**
 	 * Create a new <code>PopulationParser</code>.
 	 * 
@@ -103,6 +125,42 @@ public final class PopulationParser extends BytecodeParser<PopulationActor> {
 		return super.parse(END_OF_FILE);
 	}
 
+	/**
+	 * Index the pages of the parser's input stream without decoding the
+	 * commands, which is quicker than parsing it.
+	 * 
+	 * @return             An index of the pages in the stream.
+	 * 
+	 * @throws IOException In the event of a problem with the input stream.
+	 */
+	public PageIndex index() throws IOException {
+		this.offset = 0;
+		this.page = 0;
+		return super.scan(END_OF_FILE);
+	}
+
+	/**
+	 * Parse only the population actors on a range of pages, seeking directly
+	 * to the first of them. The input stream must support being reset to its
+	 * start.
+	 * 
+	 * @param  index                    An index of the pages in the stream,
+	 *                                  from {@link #index()} or
+	 *                                  {@link #getPageIndex()}.
+	 * @param  from                     The first page to parse.
+	 * @param  to                       The page after the last page to parse.
+	 * 
+	 * @return                          A list of the population actors on the
+	 *                                  pages.
+	 * 
+	 * @throws IOException              In the event of a problem with the input
+	 *                                  stream.
+	 * @throws IllegalArgumentException If the range is invalid.
+	 */
+	public List<PopulationActor> parse(PageIndex index, int from, int to) throws IOException {
+		return super.parse(END_OF_FILE, index, from, to);
+	}
+
 	/**
 	 * Return whether the command is a three-byte command.
 	 * 
@@ -7,6 +7,7 @@
 package io.github.jimbovm.isobel.bytecode.population;
 
 import io.github.jimbovm.isobel.actor.PageSkip;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
 import io.github.jimbovm.isobel.actor.population.PopulationActor;
 import io.github.jimbovm.isobel.bytecode.common.BytecodeUnparser;
 import io.github.jimbovm.isobel.common.Atlas;
@@ -19,6 +20,8 @@ public final class PopulationUnparser extends BytecodeUnparser<PopulationActor>
 
 	private Atlas atlas;
 
+	private LinkTable links;
+
 	/**
 	 * Create a new <code>PopulationUnparser</code> instance.
 	 * 
@@ -29,6 +32,17 @@ public final class PopulationUnparser extends BytecodeUnparser<PopulationActor>
 		this.atlas = atlas;
 	}
 
+	/**
+	 * Create a new <code>PopulationUnparser</code> instance which encodes exit
+	 * pointers with destinations already resolved.
+	 * 
+	 * @param links The resolved destinations of the exit pointers in the atlas.
+	 */
+	public PopulationUnparser(LinkTable links) {
+		super(PopulationParser.END_OF_FILE);
+		this.links = links;
+	}
+
 	@Override
 	protected byte[] unparsePageSkip(PageSkip skip, boolean newPage) {
 		return PopulationCommand.unparse(skip, newPage);
@@ -36,6 +50,9 @@ public final class PopulationUnparser extends BytecodeUnparser<PopulationActor>
 
 	@Override
 	protected byte[] unparse(PopulationActor actor, boolean newPage) {
+		if (this.links != null && actor instanceof ExitPointer pointer) {
+			return PopulationCommand.unparse(pointer, newPage, this.links);
+		}
 		return actor.unparse(newPage, this.atlas);
 	}
 
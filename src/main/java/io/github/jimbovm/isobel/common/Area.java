@@ -41,6 +41,7 @@ import io.github.jimbovm.isobel.actor.geography.FixedExtensible;
 import io.github.jimbovm.isobel.actor.geography.FixedStatic;
 import io.github.jimbovm.isobel.actor.geography.FullHeightRope;
 import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.RawGeographyCommand;
 import io.github.jimbovm.isobel.actor.geography.Row;
 import io.github.jimbovm.isobel.actor.geography.ScaleRopeVertical;
 import io.github.jimbovm.isobel.actor.geography.SingletonObject;
@@ -49,8 +50,11 @@ import io.github.jimbovm.isobel.actor.geography.UprightPipe;
 import io.github.jimbovm.isobel.actor.population.Character;
 import io.github.jimbovm.isobel.actor.population.ExitPointer;
 import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.actor.population.RawPopulationCommand;
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
 import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
 import io.github.jimbovm.isobel.bytecode.geography.GeographyUnparser;
+import io.github.jimbovm.isobel.bytecode.population.LinkTable;
 import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
 import io.github.jimbovm.isobel.bytecode.population.PopulationUnparser;
 import io.github.jimbovm.isobel.common.AreaHeader.Background;
@@ -123,6 +127,7 @@ public final class Area implements Comparable<Area> {
 		@XmlElement(name = "fixedExtensible", type = FixedExtensible.class),
 		@XmlElement(name = "fixedStatic", type = FixedStatic.class),
 		@XmlElement(name = "fullHeightRope", type = FullHeightRope.class),
+		@XmlElement(name = "rawGeographyCommand", type = RawGeographyCommand.class),
 		@XmlElement(name = "row", type = Row.class),
 		@XmlElement(name = "scaleRopeVertical", type = ScaleRopeVertical.class),
 		@XmlElement(name = "singletonObject", type = SingletonObject.class),
@@ -134,7 +139,8 @@ public final class Area implements Comparable<Area> {
 	@XmlElementWrapper(name = "population")
 	@XmlElements({
 		@XmlElement(name = "character", type = Character.class),
-		@XmlElement(name = "exitPointer", type = ExitPointer.class) })
+		@XmlElement(name = "exitPointer", type = ExitPointer.class),
+		@XmlElement(name = "rawPopulationCommand", type = RawPopulationCommand.class) })
 	private List<PopulationActor> population;
 
 	/** The immutable internal name of the area. */
@@ -186,14 +192,46 @@ public final class Area implements Comparable<Area> {
 	/**
 	 * Parse a new Area object from bytecode.
 	 * 
-	 * @param  environment   The environment type of the area returned.
-	 * @param  geography     An array of geograpy bytecode.
-	 * @param  population    An array of population bytecode.
-	 * @param  immutableName The immutable name to give the area returned.
+	 * @param  environment              The environment type of the area
+	 *                                  returned.
+	 * @param  geography                An array of geograpy bytecode.
+	 * @param  population               An array of population bytecode.
+	 * @param  immutableName            The immutable name to give the area
+	 *                                  returned.
 	 * 
-	 * @return               An area constructed from the supplied bytecode.
+	 * @return                          An area constructed from the supplied
+	 *                                  bytecode.
+	 *
+	 * @throws IllegalArgumentException If either array holds malformed
+	 *                                  bytecode.
 	 */
 	public static Area parse(Environment environment, byte[] geography, byte[] population, String immutableName) {
+		return parse(environment, geography, population, immutableName, null);
+	}
+
+	/**
+	 * Parse a new Area object from bytecode, adding any problems found in it
+	 * to a report rather than stopping at the first. Commands which cannot be
+	 * decoded are kept as {@link RawGeographyCommand} or
+	 * {@link RawPopulationCommand} actors, which are written back unchanged.
+	 * 
+	 * @param  environment              The environment type of the area
+	 *                                  returned.
+	 * @param  geography                An array of geograpy bytecode.
+	 * @param  population               An array of population bytecode.
+	 * @param  immutableName            The immutable name to give the area
+	 *                                  returned.
+	 * @param  report                   The report to which to add problems, or
+	 *                                  <code>null</code> to throw on the first.
+	 * 
+	 * @return                          An area constructed from the supplied
+	 *                                  bytecode.
+	 *
+	 * @throws IllegalArgumentException If either array holds malformed
+	 *                                  bytecode and there is no report.
+	 */
+	public static Area parse(
+		Environment environment, byte[] geography, byte[] population, String immutableName, ParseReport report) {
 		Area area = new Area();
 		area.setId(immutableName);
 		area.setFamiliarName(immutableName);
@@ -205,14 +243,18 @@ public final class Area implements Comparable<Area> {
 
 		GeographyParser geographyParser = new GeographyParser(new ByteArrayInputStream(geography));
 		PopulationParser populationParser = new PopulationParser(new ByteArrayInputStream(population));
+		geographyParser.setReport(report);
+		geographyParser.setArea(immutableName);
+		populationParser.setReport(report);
+		populationParser.setArea(immutableName);
 
 		try {
 			area.setGeography(geographyParser.parse());
 			area.setPopulation(populationParser.parse());
 		}
 		catch (IOException e) {
-			// This is deeply unlikely given the type of stream we are reading
-			e.printStackTrace();
+			// Reading from memory can't fail, so the data is malformed
+			throw new IllegalArgumentException(String.format("Area %s: %s", immutableName, e.getMessage()), e);
 		}
 
 		return area;
@@ -241,6 +283,217 @@ public final class Area implements Comparable<Area> {
 		return populationUnparser.unparse(this.getPopulation());
 	}
 
+	/**
+	 * Unparse the area's list of population beans to bytecode, encoding exit
+	 * pointers with destinations already resolved.
+	 * 
+	 * @param  links The resolved destinations of the exit pointers in the
+	 *               atlas holding the area.
+	 * 
+	 * @return       An array of population bytecode.
+	 */
+	public byte[] unparsePopulation(LinkTable links) {
+		PopulationUnparser populationUnparser = new PopulationUnparser(links);
+		return populationUnparser.unparse(this.getPopulation());
+	}
+
+	/**
+	 * Hold the area's geography and population as {@link PersistentList}s
+	 * sharing one history, so that changes made to them from now on can be
+	 * undone and redone. Changes to actors already in the lists cannot be
+	 * undone unless the actors are replaced with changed copies. Replacing
+	 * either list with a setter ends persistence for that list.
+	 */
+	public void makePersistent() {
+
+		if (this.isPersistent()) {
+			return;
+		}
+
+		PersistentList.History history = new PersistentList.History();
+		this.geography = new PersistentList<>(this.geography, history);
+		this.population = new PersistentList<>(this.population, history);
+	}
+
+	/**
+	 * Return whether the area's actors are held persistently.
+	 * 
+	 * @return <code>true</code> if {@link #makePersistent()} has been called
+	 *         and both lists are still persistent.
+	 */
+	public boolean isPersistent() {
+		return this.geography instanceof PersistentList<GeographyActor> persistentGeography
+			&& this.population instanceof PersistentList<PopulationActor> persistentPopulation
+			&& persistentGeography.getHistory() == persistentPopulation.getHistory();
+	}
+
+	/**
+	 * Return the history of changes to the area's actors.
+	 * 
+	 * @return The history shared by the geography and population.
+	 * 
+	 * @throws IllegalStateException If the area's actors are not held
+	 *                               persistently.
+	 */
+	public PersistentList.History getHistory() {
+
+		if (this.isPersistent() == false) {
+			throw new IllegalStateException(String.format("Area %s is not persistent", this.id));
+		}
+
+		return ((PersistentList<GeographyActor>) this.geography).getHistory();
+	}
+
+	/**
+	 * Undo the most recent change to the area's geography or population.
+	 * 
+	 * @return <code>false</code> if there was no change to undo.
+	 * 
+	 * @throws IllegalStateException If the area's actors are not held
+	 *                               persistently.
+	 */
+	public boolean undo() {
+		return this.getHistory().undo();
+	}
+
+	/**
+	 * Redo the most recently undone change to the area's geography or
+	 * population.
+	 * 
+	 * @return <code>false</code> if there was no change to redo.
+	 * 
+	 * @throws IllegalStateException If the area's actors are not held
+	 *                               persistently.
+	 */
+	public boolean redo() {
+		return this.getHistory().redo();
+	}
+
+	/**
+	 * Replace the contents of the area's geography, population or both. If
+	 * the area's actors are held persistently, the replacement is recorded as
+	 * a single step in its history, so that it is undone all at once.
+	 * 
+	 * @param geography  The new geography, or <code>null</code> to leave it
+	 *                   unchanged.
+	 * @param population The new population, or <code>null</code> to leave it
+	 *                   unchanged.
+	 */
+	public void replaceActors(List<? extends GeographyActor> geography, List<? extends PopulationActor> population) {
+
+		if (this.isPersistent()) {
+			this.getHistory().group(() -> {
+				if (geography != null) {
+					((PersistentList<GeographyActor>) this.geography).setAll(geography);
+				}
+				if (population != null) {
+					((PersistentList<PopulationActor>) this.population).setAll(population);
+				}
+			});
+			return;
+		}
+
+		if (geography != null) {
+			this.geography.clear();
+			this.geography.addAll(geography);
+		}
+		if (population != null) {
+			this.population.clear();
+			this.population.addAll(population);
+		}
+	}
+
+	/**
+	 * Copy the pages in a range to a fragment which can be inserted into this
+	 * or another area, leaving the area unchanged. A page is 16 columns wide,
+	 * and an actor belongs to the page on which its X position lies.
+	 *
+	 * @param  from                     The first page to copy.
+	 * @param  to                       The page after the last page to copy.
+	 *
+	 * @return                          A fragment holding copies of the actors on the pages.
+	 *
+	 * @throws IllegalArgumentException If the range is negative or reversed.
+	 */
+	public PageFragment copyPages(int from, int to) {
+		return PageFragment.copy(this, from, to);
+	}
+
+	/**
+	 * Copy the pages in a range to a fragment and delete them from the area.
+	 *
+	 * @param  from                     The first page to cut.
+	 * @param  to                       The page after the last page to cut.
+	 *
+	 * @return                          A fragment holding copies of the actors on the pages.
+	 *
+	 * @throws IllegalArgumentException If the range is negative or reversed.
+	 *
+	 * @see                             #copyPages(int, int)
+	 * @see                             #deletePages(int, int)
+	 */
+	public PageFragment cutPages(int from, int to) {
+		PageFragment fragment = PageFragment.copy(this, from, to);
+		PageFragment.delete(this, from, to);
+		return fragment;
+	}
+
+	/**
+	 * Delete the pages in a range, moving the actors on later pages back to
+	 * close the gap. Where a background or fill/scenery modifier or an exit
+	 * pointer on a deleted page was still in force after the range, a copy is
+	 * placed at the start of the range, so later pages look and lead where
+	 * they did before.
+	 *
+	 * @param  from                     The first page to delete.
+	 * @param  to                       The page after the last page to delete.
+	 *
+	 * @throws IllegalArgumentException If the range is negative or reversed.
+	 */
+	public void deletePages(int from, int to) {
+		PageFragment.delete(this, from, to);
+	}
+
+	/**
+	 * Insert copies of the pages in a fragment, moving the actors on and after
+	 * the page at which they are inserted forward to make room. Modifiers and
+	 * exit pointers are added where needed at each end of the inserted pages,
+	 * so that they look and lead as they did where they were copied from, and
+	 * the pages after them as they did before. The fragment may be inserted
+	 * again.
+	 *
+	 * @param  page                     The page at which to insert the fragment.
+	 * @param  fragment                 The fragment.
+	 *
+	 * @throws IllegalArgumentException If the page is negative.
+	 */
+	public void insertPages(int page, PageFragment fragment) {
+		PageFragment.insert(this, page, fragment);
+	}
+
+	/**
+	 * Return a deep copy of the area, with the same ID and familiar name and
+	 * copies of its header and actors. Exit pointers in the copy refer to the
+	 * same destination IDs as in the original.
+	 * 
+	 * @return A new area independent of the original.
+	 */
+	public Area copy() {
+
+		List<GeographyActor> geography = new ArrayList<>(this.geography.size());
+		for (GeographyActor actor : this.geography) {
+			geography.add(actor.copy());
+		}
+
+		List<PopulationActor> population = new ArrayList<>(this.population.size());
+		for (PopulationActor actor : this.population) {
+			population.add(actor.copy());
+		}
+
+		return new Area(this.environment, geography, population, this.id, this.familiarName,
+			(this.header == null) ? null : this.header.copy());
+	}
+
 	/**
 	 * Compare an area to another area for ordering purposes, based on how area is
 	 * ordered in the original game, that is, by environment type.
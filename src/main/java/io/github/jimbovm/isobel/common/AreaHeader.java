@@ -490,6 +490,16 @@ public final class AreaHeader {
 		return headerBytes;
 	}
 
+	/**
+	 * Return a copy of the header, independent of the original.
+	 * 
+	 * @return A new header with the same settings.
+	 */
+	public AreaHeader copy() {
+		return new AreaHeader(this.fill, this.autowalk, this.ticks, this.startPosition, this.background, this.scenery,
+			this.platform);
+	}
+
 	/**
 	 * Creates a new AreaHeader object with default values of 400 timer
 	 * ticks, autowalk off, no background, tree platforms, hills and clouds
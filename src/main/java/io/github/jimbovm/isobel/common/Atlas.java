@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -159,6 +160,23 @@ public final class Atlas {
 		this.areaCounts.put(area.getEnvironment(), currentCount - 1);
 	}
 
+	/**
+	 * Remove a collection of areas from the atlas, regenerating index numbers
+	 * once rather than after each area.
+	 * 
+	 * @param areas The areas to be removed.
+	 */
+	public void removeAll(Collection<Area> areas) {
+		for (Area area : areas) {
+			if (this.areas.remove(area)) {
+				this.areasById.remove(area.getId());
+				int currentCount = this.areaCounts.get(area.getEnvironment());
+				this.areaCounts.put(area.getEnvironment(), currentCount - 1);
+			}
+		}
+		this.regenerateIndexByArea();
+	}
+
 	/**
 	 * Get an area from the atlas.
 	 * 
@@ -181,6 +199,49 @@ public final class Atlas {
 		return this.indexByArea.get(area);
 	}
 
+	/**
+	 * Return a deep copy of the atlas, holding copies of its areas in the same
+	 * order and with the same index numbers.
+	 * 
+	 * @return A new atlas independent of the original.
+	 */
+	public Atlas copy() {
+		return this.copy(new IdentityHashMap<>());
+	}
+
+	/**
+	 * Return a deep copy of the atlas, recording the copy made of each area so
+	 * that references to areas held elsewhere, such as the starting areas of
+	 * levels, can be remapped to the copies.
+	 * 
+	 * @param  copies A map to which each area is added, mapped to its copy.
+	 * 
+	 * @return        A new atlas independent of the original.
+	 * 
+	 * @see           Scenario#copy(Map)
+	 */
+	public Atlas copy(Map<Area, Area> copies) {
+
+		// The copy's state is derived directly rather than regenerated, since
+		// the order and index numbers of the areas are unchanged
+		Atlas copy = new Atlas();
+
+		for (Area area : this.areas) {
+			Area areaCopy = area.copy();
+			copies.put(area, areaCopy);
+			copy.areas.add(areaCopy);
+			copy.areasById.put(areaCopy.getId(), areaCopy);
+		}
+
+		for (Map.Entry<Area, Integer> entry : this.indexByArea.entrySet()) {
+			copy.indexByArea.put(copies.get(entry.getKey()), entry.getValue());
+		}
+
+		copy.areaCounts.putAll(this.areaCounts);
+
+		return copy;
+	}
+
 	/**
 	 * Executed by JAXB following unmarshalling. Regenerates atlas state
 	 * not explicitly serialized.
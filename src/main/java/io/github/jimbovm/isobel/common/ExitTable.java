@@ -0,0 +1,219 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+
+/**
+ * An index of the {@link ExitPointer} in force at each column of an area in
+ * each world, which determines where a pipe, vine or other exit at that
+ * column leads.
+ *
+ * A pointer is in force from its own X position onwards, in worlds from its
+ * <code>activeFromWorld</code> onwards, until the next pointer in force in
+ * the same world. Where two pointers are at the same X position, the later in
+ * the population list takes effect, as it does once the list is sorted for
+ * unparsing. The index keeps the pointers in force in each world separately,
+ * so lookups take logarithmic time in the number of pointers. Like
+ * {@link HeaderTimeline}, the table does not watch the area: when a pointer
+ * is added, moved or removed, or the world from which it is active changes,
+ * it must be told through {@link #add(PopulationActor)},
+ * {@link #update(PopulationActor)} or {@link #remove(PopulationActor)}.
+ * Changes to the destination or start page of a pointer need no update.
+ */
+public final class ExitTable {
+
+	/** The number of worlds in a scenario. */
+	public static final int WORLDS = 8;
+
+	private final Area area;
+
+	/** For each world, the pointers in force by X position, in list order at each position. */
+	private final List<TreeMap<Integer, List<ExitPointer>>> worlds = new ArrayList<>(WORLDS);
+
+	/**
+	 * Each pointer, mapped to the X position and world from which it is
+	 * indexed.
+	 */
+	private final Map<ExitPointer, int[]> positions = new IdentityHashMap<>();
+
+	/**
+	 * Index the exit pointers of an area.
+	 *
+	 * @param area The area.
+	 */
+	public ExitTable(Area area) {
+
+		this.area = area;
+
+		for (int world = 0; world < WORLDS; world++) {
+			this.worlds.add(new TreeMap<>());
+		}
+
+		this.rebuild();
+	}
+
+	/** Index the area's exit pointers afresh, as after replacing its population. */
+	public void rebuild() {
+
+		for (TreeMap<Integer, List<ExitPointer>> pointers : this.worlds) {
+			pointers.clear();
+		}
+		this.positions.clear();
+
+		for (PopulationActor actor : this.area.getPopulation()) {
+			this.add(actor);
+		}
+	}
+
+	/**
+	 * Index a pointer added to the area. It is taken to follow any pointer
+	 * already at its X position.
+	 *
+	 * @param  actor The actor added.
+	 *
+	 * @return       <code>true</code> if the actor is an exit pointer not
+	 *               already indexed.
+	 */
+	public boolean add(PopulationActor actor) {
+
+		if (actor instanceof ExitPointer pointer && this.positions.containsKey(pointer) == false) {
+
+			final int x = pointer.getX();
+			final int from = Math.max(pointer.getActiveFromWorld(), 0);
+
+			for (int world = from; world < WORLDS; world++) {
+				this.worlds.get(world).computeIfAbsent(x, (key) -> new ArrayList<>(1)).add(pointer);
+			}
+
+			this.positions.put(pointer, new int[] { x, from });
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Remove a pointer removed from the area from the index.
+	 *
+	 * @param  actor The actor removed.
+	 *
+	 * @return       <code>true</code> if the actor was an indexed exit pointer.
+	 */
+	public boolean remove(PopulationActor actor) {
+
+		int[] position = this.positions.remove(actor);
+
+		if (position == null) {
+			return false;
+		}
+
+		for (int world = position[1]; world < WORLDS; world++) {
+			TreeMap<Integer, List<ExitPointer>> pointers = this.worlds.get(world);
+			List<ExitPointer> atX = pointers.get(position[0]);
+			atX.removeIf((pointer) -> pointer == actor);
+			if (atX.isEmpty()) {
+				pointers.remove(position[0]);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Re-index a pointer whose X position or first active world has changed.
+	 * It is taken to follow any pointer already at its new X position.
+	 *
+	 * @param  actor The actor changed.
+	 *
+	 * @return       <code>true</code> if the actor is an indexed exit pointer.
+	 */
+	public boolean update(PopulationActor actor) {
+
+		int[] position = this.positions.get(actor);
+
+		if (position == null) {
+			return false;
+		}
+		else if (position[0] == actor.getX()
+			&& position[1] == Math.max(((ExitPointer) actor).getActiveFromWorld(), 0)) {
+			return true;
+		}
+
+		this.remove(actor);
+		return this.add(actor);
+	}
+
+	/**
+	 * Return the pointer in force at a column in a world.
+	 *
+	 * @param  x                        The X position of the column.
+	 * @param  world                    The zero-based index of the world.
+	 *
+	 * @return                          The pointer giving the destination area
+	 *                                  and start page of an exit at the column,
+	 *                                  or <code>null</code> if there is none.
+	 *
+	 * @throws IllegalArgumentException If there is no such world.
+	 */
+	public ExitPointer resolve(int x, int world) {
+
+		if (world < 0 || world >= WORLDS) {
+			throw new IllegalArgumentException(String.format("No world %d", world + 1));
+		}
+
+		Map.Entry<Integer, List<ExitPointer>> entry = this.worlds.get(world).floorEntry(x);
+
+		if (entry == null) {
+			return null;
+		}
+
+		List<ExitPointer> pointers = entry.getValue();
+		return pointers.get(pointers.size() - 1);
+	}
+
+	/**
+	 * Return the area to which an exit at a column leads in a world.
+	 *
+	 * @param  x     The X position of the column.
+	 * @param  world The zero-based index of the world.
+	 * @param  atlas The atlas in which to look up the destination.
+	 *
+	 * @return       The destination area, or <code>null</code> if no pointer is
+	 *               in force or its destination is not in the atlas.
+	 */
+	public Area resolve(int x, int world, Atlas atlas) {
+
+		ExitPointer pointer = this.resolve(x, world);
+
+		return (pointer == null) ? null : atlas.get(pointer.getDestination());
+	}
+
+	/**
+	 * Return every pointer active in at least one world.
+	 *
+	 * @return The pointers, in order of X position and then list order.
+	 */
+	public List<ExitPointer> getPointers() {
+
+		List<ExitPointer> pointers = new ArrayList<>(this.positions.size());
+
+		// A pointer active in any world is indexed for the last
+		for (List<ExitPointer> atX : this.worlds.get(WORLDS - 1).values()) {
+			pointers.addAll(atX);
+		}
+
+		return pointers;
+	}
+}
@@ -7,6 +7,11 @@
 package io.github.jimbovm.isobel.common;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
@@ -21,7 +26,9 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
 import io.github.jimbovm.isobel.bytecode.game.GameParser;
+import io.github.jimbovm.isobel.store.GameCache;
 
 /**
  * Encapsulates the complete mutable data of a SMB game in high-level form.
@@ -63,6 +70,9 @@ public final class Game {
 	 * exact binary image of the two game ROM chips, concatenated,
 	 * with no header.
 	 * 
+	 * Images which have been parsed before are looked up in the default
+	 * {@link GameCache} rather than being decoded again.
+	 * 
 	 * @param  path        A filename from which to read.
 	 * 
 	 * @return             A <code>Game</code> parsed from the supplied file.
@@ -70,10 +80,146 @@ public final class Game {
 	 * @throws IOException In the event of a problem reading from the file.
 	 */
 	public static Game parse(String path) throws IOException {
+		return parse(GameParser.readImage(path));
+	}
 
-		Game game = new Game();
+	/**
+	 * Parse a <code>Game</code> from a file at the supplied path, which may
+	 * belong to any file system, including a zip file system.
+	 * 
+	 * @param  path        The path of the file to read from.
+	 * 
+	 * @return             A <code>Game</code> parsed from the supplied file.
+	 * 
+	 * @throws IOException In the event of a problem reading from the file.
+	 * 
+	 * @see                #parse(String)
+	 */
+	public static Game parse(Path path) throws IOException {
+		return parse(Files.readAllBytes(path));
+	}
 
-		GameParser parser = GameParser.create(path);
+	/**
+	 * Parse a <code>Game</code> from a stream, which is read to its end but
+	 * not closed.
+	 * 
+	 * @param  source      The stream from which to read the image.
+	 * 
+	 * @return             A <code>Game</code> parsed from the stream.
+	 * 
+	 * @throws IOException In the event of a problem reading from the stream.
+	 * 
+	 * @see                #parse(String)
+	 */
+	public static Game parse(InputStream source) throws IOException {
+		return parse(source.readAllBytes());
+	}
+
+	/**
+	 * Parse a <code>Game</code> from a binary image held in memory, with or
+	 * without an iNES header.
+	 * 
+	 * @param  image The binary image to parse.
+	 * 
+	 * @return       A <code>Game</code> parsed from the supplied image.
+	 * 
+	 * @see          #parse(String)
+	 */
+	public static Game parse(byte[] image) {
+		return parse(GameParser.stripHeader(image), GameCache.getDefault());
+	}
+
+	/**
+	 * Parse a <code>Game</code> from a binary image held in memory, with or
+	 * without an iNES header, adding problems found in its area data to a
+	 * report rather than stopping at the first. Commands which cannot be
+	 * decoded are kept as raw commands, which are written back unchanged.
+	 * Games parsed this way are not cached.
+	 * 
+	 * @param  image  The binary image to parse.
+	 * @param  report The report to which to add problems.
+	 * 
+	 * @return        A <code>Game</code> parsed from the supplied image.
+	 * 
+	 * @see           io.github.jimbovm.isobel.bytecode.common.ParseReport
+	 */
+	public static Game parse(byte[] image, ParseReport report) {
+
+		GameParser parser = GameParser.create(GameParser.stripHeader(image));
+		parser.setReport(report);
+
+		return parse(parser);
+	}
+
+	/**
+	 * Parse a <code>Game</code> from a binary image, consulting a cache of
+	 * previously parsed images first.
+	 * 
+	 * @param  image The binary image to parse.
+	 * @param  cache The cache to consult and populate, or <code>null</code> to
+	 *               always parse.
+	 * 
+	 * @return       A <code>Game</code> parsed from the supplied image.
+	 */
+	private static Game parse(byte[] image, GameCache cache) {
+
+		if (cache == null) {
+			return parse(GameParser.create(image));
+		}
+
+		final long key = GameCache.key(image);
+		Game game = cache.get(key);
+
+		if (game == null) {
+			game = parse(GameParser.create(image));
+			cache.put(key, game);
+		}
+
+		return game;
+	}
+
+	/**
+	 * Parse a <code>Game</code> from a base image as modified by an IPS or
+	 * BPS patch, reading through the patch rather than applying it to a copy
+	 * of the image. Games parsed this way are not cached.
+	 *
+	 * @param  base        The image to which the patch applies.
+	 * @param  patch       The contents of an IPS or BPS patch file.
+	 *
+	 * @return             A <code>Game</code> parsed from the patched image.
+	 *
+	 * @throws IOException If the patch is malformed or does not apply to the
+	 *                     base image.
+	 *
+	 * @see                GameParser#create(byte[], byte[])
+	 */
+	public static Game parse(byte[] base, byte[] patch) throws IOException {
+		return parse(GameParser.create(base, patch));
+	}
+
+	/**
+	 * Return a deep copy of the game, whose levels start in the copies of
+	 * their starting areas. This is much faster than marshalling the game to
+	 * XML and back, or encoding it with
+	 * {@link io.github.jimbovm.isobel.store.GameCodec}.
+	 * 
+	 * @return A new game independent of the original.
+	 */
+	public Game copy() {
+
+		Map<Area, Area> copies = new IdentityHashMap<>();
+		Game copy = new Game();
+
+		copy.id = this.id;
+		copy.atlas = this.atlas.copy(copies);
+		copy.scenario = this.scenario.copy(copies);
+
+		return copy;
+	}
+
+	private static Game parse(GameParser parser) {
+
+		Game game = new Game();
 
 		game.atlas = parser.parseAtlas();
 		game.scenario = parser.parseScenario();
@@ -0,0 +1,235 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.common.AreaHeader.Background;
+import io.github.jimbovm.isobel.common.AreaHeader.Fill;
+import io.github.jimbovm.isobel.common.AreaHeader.Scenery;
+
+/**
+ * An index of the background, fill and scenery in force at each column of an
+ * area, as set by its header and then by the {@link BackgroundModifier} and
+ * {@link FillSceneryModifier} actors in its geography.
+ *
+ * A modifier takes effect from its own X position onwards, until the next
+ * modifier of the same kind, and where two are at the same X position the
+ * later in the geography list takes effect, as it does once the list is
+ * sorted for unparsing. Lookups take logarithmic time in the number of
+ * modifiers. The timeline does not watch the area: when a modifier is added,
+ * moved or removed, it must be told through {@link #add(GeographyActor)},
+ * {@link #update(GeographyActor)} or {@link #remove(GeographyActor)}, each of
+ * which also takes logarithmic time. Changes to the values a modifier sets,
+ * or to the area's header, need no update, as they are read on lookup.
+ */
+public final class HeaderTimeline {
+
+	private final Area area;
+
+	/** Background modifiers by X position, in list order at each position. */
+	private final TreeMap<Integer, List<BackgroundModifier>> backgrounds = new TreeMap<>();
+
+	/** Fill/scenery modifiers by X position, in list order at each position. */
+	private final TreeMap<Integer, List<FillSceneryModifier>> fillScenery = new TreeMap<>();
+
+	/** Each modifier, mapped to the X position at which it is indexed. */
+	private final Map<GeographyActor, Integer> positions = new IdentityHashMap<>();
+
+	/**
+	 * Index the modifiers of an area.
+	 *
+	 * @param area The area.
+	 */
+	public HeaderTimeline(Area area) {
+		this.area = area;
+		this.rebuild();
+	}
+
+	/** Index the area's modifiers afresh, as after replacing its geography. */
+	public void rebuild() {
+
+		this.backgrounds.clear();
+		this.fillScenery.clear();
+		this.positions.clear();
+
+		for (GeographyActor actor : this.area.getGeography()) {
+			this.add(actor);
+		}
+	}
+
+	/**
+	 * Index a modifier added to the area. It is taken to follow any modifier of
+	 * the same kind already at its X position.
+	 *
+	 * @param  actor The actor added.
+	 *
+	 * @return       <code>true</code> if the actor is a modifier not already
+	 *               indexed.
+	 */
+	public boolean add(GeographyActor actor) {
+
+		if (this.positions.containsKey(actor)) {
+			return false;
+		}
+
+		if (actor instanceof BackgroundModifier modifier) {
+			this.backgrounds.computeIfAbsent(modifier.getX(), (x) -> new ArrayList<>(1)).add(modifier);
+		}
+		else if (actor instanceof FillSceneryModifier modifier) {
+			this.fillScenery.computeIfAbsent(modifier.getX(), (x) -> new ArrayList<>(1)).add(modifier);
+		}
+		else {
+			return false;
+		}
+
+		this.positions.put(actor, actor.getX());
+		return true;
+	}
+
+	/**
+	 * Remove a modifier removed from the area from the index.
+	 *
+	 * @param  actor The actor removed.
+	 *
+	 * @return       <code>true</code> if the actor was an indexed modifier.
+	 */
+	public boolean remove(GeographyActor actor) {
+
+		Integer x = this.positions.remove(actor);
+
+		if (x == null) {
+			return false;
+		}
+
+		TreeMap<Integer, ? extends List<? extends GeographyActor>> modifiers =
+			(actor instanceof BackgroundModifier) ? this.backgrounds : this.fillScenery;
+
+		List<? extends GeographyActor> atX = modifiers.get(x);
+		atX.removeIf((modifier) -> modifier == actor);
+		if (atX.isEmpty()) {
+			modifiers.remove(x);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Re-index a modifier whose X position has changed. It is taken to follow
+	 * any modifier of the same kind already at its new X position.
+	 *
+	 * @param  actor The actor moved.
+	 *
+	 * @return       <code>true</code> if the actor is an indexed modifier.
+	 */
+	public boolean update(GeographyActor actor) {
+
+		Integer x = this.positions.get(actor);
+
+		if (x == null) {
+			return false;
+		}
+		else if (x == actor.getX()) {
+			return true;
+		}
+
+		this.remove(actor);
+		return this.add(actor);
+	}
+
+	/**
+	 * Return the background in force at a column.
+	 *
+	 * @param  x The X position of the column.
+	 *
+	 * @return   The background set by the last background modifier at or
+	 *           before the column, or by the header if there is none.
+	 */
+	public Background getBackground(int x) {
+
+		Map.Entry<Integer, List<BackgroundModifier>> entry = this.backgrounds.floorEntry(x);
+
+		if (entry == null) {
+			return (this.area.getHeader() == null) ? Background.NONE : this.area.getHeader().getBackground();
+		}
+
+		return last(entry.getValue()).getBackground();
+	}
+
+	/**
+	 * Return the terrain fill in force at a column.
+	 *
+	 * @param  x The X position of the column.
+	 *
+	 * @return   The fill set by the last fill/scenery modifier at or before the
+	 *           column, or by the header if there is none.
+	 */
+	public Fill getFill(int x) {
+
+		Map.Entry<Integer, List<FillSceneryModifier>> entry = this.fillScenery.floorEntry(x);
+
+		if (entry == null) {
+			return (this.area.getHeader() == null) ? Fill.FILL_2BF_0BC : this.area.getHeader().getFill();
+		}
+
+		return last(entry.getValue()).getFill();
+	}
+
+	/**
+	 * Return the scenery in force at a column.
+	 *
+	 * @param  x The X position of the column.
+	 *
+	 * @return   The scenery set by the last fill/scenery modifier at or before
+	 *           the column, or by the header if there is none.
+	 */
+	public Scenery getScenery(int x) {
+
+		Map.Entry<Integer, List<FillSceneryModifier>> entry = this.fillScenery.floorEntry(x);
+
+		if (entry == null) {
+			return (this.area.getHeader() == null) ? Scenery.NONE : this.area.getHeader().getScenery();
+		}
+
+		return last(entry.getValue()).getScenery();
+	}
+
+	/**
+	 * Return the X position of the next modifier after a column, at which the
+	 * background, fill or scenery may change.
+	 *
+	 * @param  x The X position of the column.
+	 *
+	 * @return   The X position of the next modifier of either kind, or -1 if
+	 *           there is none.
+	 */
+	public int nextChange(int x) {
+
+		Integer background = this.backgrounds.higherKey(x);
+		Integer fillScenery = this.fillScenery.higherKey(x);
+
+		if (background == null) {
+			return (fillScenery == null) ? -1 : fillScenery;
+		}
+		else if (fillScenery == null) {
+			return background;
+		}
+
+		return Math.min(background, fillScenery);
+	}
+
+	private static <T> T last(List<T> modifiers) {
+		return modifiers.get(modifiers.size() - 1);
+	}
+}
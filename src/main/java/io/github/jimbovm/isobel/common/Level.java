@@ -6,6 +6,8 @@
 
 package io.github.jimbovm.isobel.common;
 
+import java.util.Map;
+
 import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
@@ -44,4 +46,17 @@ public final class Level {
 	@XmlAttribute(name = "checkpoint")
 	@PositiveOrZero
 	byte checkpoint;
+
+	/**
+	 * Return a copy of the level, with its starting area remapped to a copy.
+	 * 
+	 * @param  copies Areas mapped to their copies. A starting area not in the
+	 *                map is copied and added to it.
+	 * 
+	 * @return        A new level independent of the original.
+	 */
+	public Level copy(Map<Area, Area> copies) {
+		return new Level((this.startArea == null) ? null : copies.computeIfAbsent(this.startArea, Area::copy),
+			this.checkpoint);
+	}
 }
@@ -0,0 +1,372 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.AreaHeader.Background;
+import io.github.jimbovm.isobel.common.AreaHeader.Fill;
+import io.github.jimbovm.isobel.common.AreaHeader.Scenery;
+
+/**
+ * A run of whole pages copied out of an area, ready to be inserted into the
+ * same or another area by {@link Area#insertPages(int, PageFragment)}.
+ *
+ * Actors belong to the page on which their X position lies, and are held
+ * with X positions relative to the start of the fragment. As the look of a
+ * page depends on the background, fill and scenery set by modifiers on
+ * earlier pages, and the destination of its pipes and vines on exit pointers
+ * on earlier pages, the fragment also records the state in force where it
+ * starts, so that it looks and leads the same wherever it is inserted.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PageFragment {
+
+	/** The number of columns in a page. */
+	private static final int PAGE_WIDTH = 16;
+
+	/** The number of pages in the fragment. */
+	private final int pages;
+
+	/** Copies of the geography actors on the pages, in area order. */
+	private final List<GeographyActor> geography;
+
+	/** Copies of the population actors on the pages, in area order. */
+	private final List<PopulationActor> population;
+
+	/** The background in force at the start of the fragment. */
+	private final Background background;
+
+	/** The terrain fill in force at the start of the fragment. */
+	private final Fill fill;
+
+	/** The scenery in force at the start of the fragment. */
+	private final Scenery scenery;
+
+	/**
+	 * Copies of the exit pointers in force at the start of the fragment, in
+	 * order of the world from which each is active, at X position 0.
+	 */
+	private final List<ExitPointer> exits;
+
+	/**
+	 * Copy the pages in a range out of an area.
+	 *
+	 * @param  area The area.
+	 * @param  from The first page to copy.
+	 * @param  to   The page after the last page to copy.
+	 *
+	 * @return      A new fragment.
+	 */
+	static PageFragment copy(Area area, int from, int to) {
+
+		checkRange(from, to);
+
+		final int start = from * PAGE_WIDTH;
+		final int end = to * PAGE_WIDTH;
+
+		List<GeographyActor> geography = new ArrayList<>();
+		for (GeographyActor actor : area.getGeography()) {
+			if (actor.getX() >= start && actor.getX() < end) {
+				GeographyActor copy = actor.copy();
+				copy.setX(actor.getX() - start);
+				geography.add(copy);
+			}
+		}
+
+		List<PopulationActor> population = new ArrayList<>();
+		for (PopulationActor actor : area.getPopulation()) {
+			if (actor.getX() >= start && actor.getX() < end) {
+				PopulationActor copy = actor.copy();
+				copy.setX(actor.getX() - start);
+				population.add(copy);
+			}
+		}
+
+		State state = State.of(area.getHeader()).advance(area.getGeography(), start);
+
+		return new PageFragment(to - from, Collections.unmodifiableList(geography),
+			Collections.unmodifiableList(population), state.background, state.fill, state.scenery,
+			Collections.unmodifiableList(copies(coverage(area.getPopulation(), start), 0)));
+	}
+
+	/**
+	 * Delete the pages in a range from an area, moving later actors back to
+	 * close the gap. Modifiers and exit pointers are added at the cut where
+	 * needed so that later pages keep the state they had.
+	 *
+	 * @param area The area.
+	 * @param from The first page to delete.
+	 * @param to   The page after the last page to delete.
+	 */
+	static void delete(Area area, int from, int to) {
+
+		checkRange(from, to);
+
+		final int start = from * PAGE_WIDTH;
+		final int end = to * PAGE_WIDTH;
+
+		State before = State.of(area.getHeader()).advance(area.getGeography(), start);
+		State after = State.of(area.getHeader()).advance(area.getGeography(), end);
+
+		List<GeographyActor> geography = new ArrayList<>(area.getGeography().size());
+		List<GeographyActor> later = new ArrayList<>();
+		for (GeographyActor actor : area.getGeography()) {
+			if (actor.getX() < start) {
+				geography.add(actor);
+			}
+			else if (actor.getX() >= end) {
+				GeographyActor moved = actor.copy();
+				moved.setX(actor.getX() - (end - start));
+				later.add(moved);
+			}
+		}
+		geography.addAll(after.restore(before, start));
+		geography.addAll(later);
+
+		// Pointers deleted may still have been in force beyond the cut
+		List<ExitPointer> exits = new ArrayList<>();
+		for (ExitPointer pointer : coverage(area.getPopulation(), end)) {
+			if (pointer.getX() >= start) {
+				exits.add(pointer);
+			}
+		}
+
+		List<PopulationActor> population = new ArrayList<>(area.getPopulation().size());
+		List<PopulationActor> laterPopulation = new ArrayList<>();
+		for (PopulationActor actor : area.getPopulation()) {
+			if (actor.getX() < start) {
+				population.add(actor);
+			}
+			else if (actor.getX() >= end) {
+				PopulationActor moved = actor.copy();
+				moved.setX(actor.getX() - (end - start));
+				laterPopulation.add(moved);
+			}
+		}
+		population.addAll(copies(exits, start));
+		population.addAll(laterPopulation);
+
+		area.replaceActors(geography, population);
+	}
+
+	/**
+	 * Insert a fragment into an area, moving the actors on and after the
+	 * page at which it is inserted forward to make room.
+	 *
+	 * @param area     The area.
+	 * @param page     The page at which to insert the fragment.
+	 * @param fragment The fragment.
+	 */
+	static void insert(Area area, int page, PageFragment fragment) {
+
+		checkRange(page, page);
+
+		final int start = page * PAGE_WIDTH;
+		final int width = fragment.pages * PAGE_WIDTH;
+
+		State target = State.of(area.getHeader()).advance(area.getGeography(), start);
+		State entry = new State(fragment.background, fragment.fill, fragment.scenery);
+		State exit = new State(fragment.background, fragment.fill, fragment.scenery)
+			.advance(fragment.geography, width);
+
+		List<GeographyActor> geography = new ArrayList<>(area.getGeography().size() + fragment.geography.size());
+		List<GeographyActor> later = new ArrayList<>();
+		for (GeographyActor actor : area.getGeography()) {
+			if (actor.getX() < start) {
+				geography.add(actor);
+			}
+			else {
+				GeographyActor moved = actor.copy();
+				moved.setX(actor.getX() + width);
+				later.add(moved);
+			}
+		}
+		geography.addAll(entry.restore(target, start));
+		for (GeographyActor actor : fragment.geography) {
+			GeographyActor copy = actor.copy();
+			copy.setX(actor.getX() + start);
+			geography.add(copy);
+		}
+		geography.addAll(target.restore(exit, start + width));
+		geography.addAll(later);
+
+		List<ExitPointer> targetExits = coverage(area.getPopulation(), start);
+		List<PopulationActor> fragmentExits = new ArrayList<>(fragment.exits);
+		fragmentExits.addAll(fragment.population);
+
+		List<PopulationActor> population = new ArrayList<>(area.getPopulation().size() + fragmentExits.size());
+		List<PopulationActor> laterPopulation = new ArrayList<>();
+		for (PopulationActor actor : area.getPopulation()) {
+			if (actor.getX() < start) {
+				population.add(actor);
+			}
+			else {
+				PopulationActor moved = actor.copy();
+				moved.setX(actor.getX() + width);
+				laterPopulation.add(moved);
+			}
+		}
+		if (equivalent(fragment.exits, targetExits) == false) {
+			population.addAll(copies(fragment.exits, start));
+		}
+		for (PopulationActor actor : fragment.population) {
+			PopulationActor copy = actor.copy();
+			copy.setX(actor.getX() + start);
+			population.add(copy);
+		}
+		if (equivalent(coverage(fragmentExits, width), targetExits) == false) {
+			population.addAll(copies(targetExits, start + width));
+		}
+		population.addAll(laterPopulation);
+
+		area.replaceActors(geography, population);
+	}
+
+	private static void checkRange(int from, int to) {
+		if (from < 0 || to < from) {
+			throw new IllegalArgumentException(String.format("Invalid page range [%d, %d)", from, to));
+		}
+	}
+
+	/**
+	 * Return the exit pointers in force at a column, for at least one world.
+	 *
+	 * @return The pointers, in order of the world from which each is active,
+	 *         which is also the order in which they must be placed at the same
+	 *         X position to have the same effect.
+	 */
+	private static List<ExitPointer> coverage(List<? extends PopulationActor> population, int limit) {
+
+		ExitPointer[] inForce = new ExitPointer[ExitTable.WORLDS];
+
+		for (PopulationActor actor : population) {
+			if (actor instanceof ExitPointer pointer && pointer.getX() < limit) {
+				for (int world = Math.max(pointer.getActiveFromWorld(), 0); world < ExitTable.WORLDS; world++) {
+					// Later pointers override earlier ones, as after a stable sort
+					if (inForce[world] == null || pointer.getX() >= inForce[world].getX()) {
+						inForce[world] = pointer;
+					}
+				}
+			}
+		}
+
+		List<ExitPointer> coverage = new ArrayList<>();
+		for (ExitPointer pointer : inForce) {
+			if (pointer != null && coverage.contains(pointer) == false) {
+				coverage.add(pointer);
+			}
+		}
+
+		return coverage;
+	}
+
+	private static boolean equivalent(List<ExitPointer> first, List<ExitPointer> second) {
+
+		if (first.size() != second.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < first.size(); i++) {
+			ExitPointer a = first.get(i);
+			ExitPointer b = second.get(i);
+			if (Objects.equals(a.getDestination(), b.getDestination()) == false || a.getStartPage() != b.getStartPage()
+				|| a.getActiveFromWorld() != b.getActiveFromWorld()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static List<ExitPointer> copies(List<ExitPointer> pointers, int x) {
+
+		List<ExitPointer> copies = new ArrayList<>(pointers.size());
+
+		for (ExitPointer pointer : pointers) {
+			ExitPointer copy = pointer.copy();
+			copy.setX(x);
+			copies.add(copy);
+		}
+
+		return copies;
+	}
+
+	/** The background, fill and scenery in force at a column. */
+	@AllArgsConstructor
+	private static final class State {
+
+		private Background background;
+
+		private Fill fill;
+
+		private Scenery scenery;
+
+		static State of(AreaHeader header) {
+
+			if (header == null) {
+				return new State(Background.NONE, Fill.FILL_2BF_0BC, Scenery.NONE);
+			}
+
+			return new State(header.getBackground(), header.getFill(), header.getScenery());
+		}
+
+		/** Apply the modifiers before a column, the last at each X taking effect. */
+		State advance(List<? extends GeographyActor> geography, int limit) {
+
+			int backgroundX = -1;
+			int fillSceneryX = -1;
+
+			for (GeographyActor actor : geography) {
+				if (actor.getX() >= limit) {
+					continue;
+				}
+				if (actor instanceof BackgroundModifier modifier && modifier.getX() >= backgroundX) {
+					backgroundX = modifier.getX();
+					this.background = modifier.getBackground();
+				}
+				else if (actor instanceof FillSceneryModifier modifier && modifier.getX() >= fillSceneryX) {
+					fillSceneryX = modifier.getX();
+					this.fill = modifier.getFill();
+					this.scenery = modifier.getScenery();
+				}
+			}
+
+			return this;
+		}
+
+		/** Return the modifiers needed at a column to change from another state to this one. */
+		List<GeographyActor> restore(State from, int x) {
+
+			List<GeographyActor> modifiers = new ArrayList<>(2);
+
+			if (this.background != from.background) {
+				modifiers.add(BackgroundModifier.create(x, this.background));
+			}
+			if (this.fill != from.fill || this.scenery != from.scenery) {
+				modifiers.add(FillSceneryModifier.create(x, this.fill, this.scenery));
+			}
+
+			return modifiers;
+		}
+	}
+}
@@ -0,0 +1,631 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A list held as a persistent balanced tree, so that every change copies
+ * only the path from the root to the changed position and leaves earlier
+ * versions of the list intact. Getting, setting, inserting and removing an
+ * element at any index all take time logarithmic in the size of the list.
+ *
+ * Each change to the list is recorded as a step in a {@link History}, which
+ * may be shared between several lists, by keeping the root of the version
+ * before the change. Undoing or redoing a step switches the list back to that
+ * version in constant time, and each step holds on to no more memory than
+ * the nodes copied to make it. Bulk operations such as {@link #sort},
+ * {@link #clear} and {@link #setAll(Collection)} are recorded as a single
+ * step, and changes to several lists sharing a history may be grouped into
+ * one step with {@link History#group(Runnable)}. Appending and replacing
+ * elements in bulk copy nodes only for the elements added and the paths to
+ * them, but sorting builds a new tree of the whole list.
+ *
+ * Iterating over the list takes linear time, but the list does not
+ * implement {@link RandomAccess}, so algorithms which would otherwise loop
+ * over it by index use its iterator instead.
+ *
+ * Only the list itself is persistent; the elements are shared between
+ * versions. To make a change to an element which can be undone, replace it
+ * with a changed copy using {@link #set(int, Object)}.
+ *
+ * @param <E> The type of element held in the list.
+ */
+public final class PersistentList<E> extends AbstractList<E> {
+
+	/** The history in which changes to the list are recorded. */
+	@Getter
+	private final History history;
+
+	private Node<E> root;
+
+	/**
+	 * Create a persistent list with a history of its own.
+	 *
+	 * @param elements The initial elements of the list.
+	 */
+	public PersistentList(Collection<? extends E> elements) {
+		this(elements, new History());
+	}
+
+	/**
+	 * Create a persistent list recording its changes in a history which may
+	 * be shared with other lists.
+	 *
+	 * @param elements The initial elements of the list.
+	 * @param history  The history in which to record changes.
+	 */
+	@SuppressWarnings("unchecked")
+	public PersistentList(Collection<? extends E> elements, History history) {
+		this.history = history;
+		this.root = build((E[]) elements.toArray(), 0, elements.size());
+	}
+
+	@Override
+	public E get(int index) {
+
+		this.checkIndex(index, this.size());
+
+		Node<E> node = this.root;
+
+		while (true) {
+			final int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			}
+			else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+			else {
+				return node.value;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size(this.root);
+	}
+
+	@Override
+	public E set(int index, E element) {
+
+		final E previous = this.get(index);
+		this.change(set(this.root, index, element));
+
+		return previous;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		this.checkIndex(index, this.size() + 1);
+		this.change(insert(this.root, index, element));
+	}
+
+	@Override
+	public E remove(int index) {
+
+		final E previous = this.get(index);
+		this.change(remove(this.root, index));
+
+		return previous;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean addAll(Collection<? extends E> elements) {
+
+		if (elements.isEmpty()) {
+			return false;
+		}
+
+		this.change(concat(this.root, build((E[]) elements.toArray(), 0, elements.size())));
+
+		return true;
+	}
+
+	/**
+	 * Replace every element of the list, as a single step. Elements which
+	 * are the same objects at the start and end of both the list and the
+	 * replacement are kept, along with the nodes holding them, so the step
+	 * holds on only to nodes for the elements which differ and the paths to
+	 * them. A replacement which changes nothing is not recorded.
+	 *
+	 * @param elements The new elements of the list.
+	 */
+	@SuppressWarnings("unchecked")
+	public void setAll(Collection<? extends E> elements) {
+
+		final E[] all = (E[]) elements.toArray();
+		final Object[] current = this.toArray();
+		final int shorter = Math.min(all.length, current.length);
+
+		int kept = 0;
+		while (kept < shorter && all[kept] == current[kept]) {
+			kept += 1;
+		}
+
+		int keptAtEnd = 0;
+		while (keptAtEnd < shorter - kept
+			&& all[all.length - keptAtEnd - 1] == current[current.length - keptAtEnd - 1]) {
+			keptAtEnd += 1;
+		}
+
+		if (kept == all.length && kept == current.length) {
+			return;
+		}
+
+		final Node<E> middle = build(all, kept, all.length - keptAtEnd);
+		this.change(concat(concat(head(this.root, kept), middle), tail(this.root, current.length - keptAtEnd)));
+	}
+
+	@Override
+	public void clear() {
+		if (this.root != null) {
+			this.change(null);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void sort(Comparator<? super E> comparator) {
+
+		E[] all = (E[]) this.toArray();
+		Arrays.sort(all, (Comparator<Object>) comparator);
+		this.change(build(all, 0, all.length));
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		return new Iterator<>() {
+
+			/** The nodes left to visit, walking the version of the list when iteration began. */
+			private final Deque<Node<E>> path = new ArrayDeque<>();
+
+			/** The index in the list of the element after the one last returned. */
+			private int index = 0;
+
+			private boolean removable = false;
+
+			private int expectedModCount = PersistentList.this.modCount;
+
+			{
+				this.descend(PersistentList.this.root);
+			}
+
+			private void descend(Node<E> node) {
+				while (node != null) {
+					this.path.push(node);
+					node = node.left;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.path.isEmpty() == false;
+			}
+
+			@Override
+			public E next() {
+
+				this.checkModCount();
+
+				if (this.path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+
+				final Node<E> node = this.path.pop();
+				this.descend(node.right);
+				this.index += 1;
+				this.removable = true;
+
+				return node.value;
+			}
+
+			@Override
+			public void remove() {
+
+				if (this.removable == false) {
+					throw new IllegalStateException("No element to remove");
+				}
+
+				this.checkModCount();
+
+				// The version being walked is unchanged, so iteration carries on past the element removed
+				PersistentList.this.remove(this.index - 1);
+				this.index -= 1;
+				this.removable = false;
+				this.expectedModCount = PersistentList.this.modCount;
+			}
+
+			private void checkModCount() {
+				if (PersistentList.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		};
+	}
+
+	@Override
+	public Object[] toArray() {
+
+		Object[] array = new Object[this.size()];
+		fill(this.root, array, 0);
+
+		return array;
+	}
+
+	private void change(Node<E> root) {
+		this.history.record(this, this.root);
+		this.restore(root);
+	}
+
+	private void restore(Node<E> root) {
+		this.root = root;
+		this.modCount += 1;
+	}
+
+	private void checkIndex(int index, int bound) {
+		if (index < 0 || index >= bound) {
+			throw new IndexOutOfBoundsException(
+				String.format("Index %d out of bounds for size %d", index, this.size()));
+		}
+	}
+
+	/** A node of the tree, which is never changed once created. */
+	@AllArgsConstructor
+	private static final class Node<E> {
+
+		private final Node<E> left;
+
+		private final E value;
+
+		private final Node<E> right;
+
+		private final int height;
+
+		private final int size;
+	}
+
+	private static int size(Node<?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	private static int height(Node<?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static <E> Node<E> node(Node<E> left, E value, Node<E> right) {
+		return new Node<>(left, value, right, 1 + Math.max(height(left), height(right)), size(left) + size(right) + 1);
+	}
+
+	/** Create a node, rotating it if its subtrees differ in height by two. */
+	private static <E> Node<E> balance(Node<E> left, E value, Node<E> right) {
+
+		if (height(left) > height(right) + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return node(left.left, left.value, node(left.right, value, right));
+			}
+			return node(node(left.left, left.value, left.right.left), left.right.value,
+				node(left.right.right, value, right));
+		}
+		else if (height(right) > height(left) + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return node(node(left, value, right.left), right.value, right.right);
+			}
+			return node(node(left, value, right.left.left), right.left.value,
+				node(right.left.right, right.value, right.right));
+		}
+
+		return node(left, value, right);
+	}
+
+	/**
+	 * Create a tree of two trees and a value between them, whatever their
+	 * heights, copying nodes only along the edge of the taller tree.
+	 */
+	private static <E> Node<E> join(Node<E> left, E value, Node<E> right) {
+
+		if (height(left) > height(right) + 1) {
+			return balance(left.left, left.value, join(left.right, value, right));
+		}
+		else if (height(right) > height(left) + 1) {
+			return balance(join(left, value, right.left), right.value, right.right);
+		}
+
+		return node(left, value, right);
+	}
+
+	/** Create a tree of the elements of one tree followed by those of another. */
+	private static <E> Node<E> concat(Node<E> left, Node<E> right) {
+
+		if (left == null) {
+			return right;
+		}
+		else if (right == null) {
+			return left;
+		}
+
+		Node<E> first = right;
+		while (first.left != null) {
+			first = first.left;
+		}
+
+		return join(left, first.value, remove(right, 0));
+	}
+
+	/** Return a tree of the first elements of a tree. */
+	private static <E> Node<E> head(Node<E> node, int count) {
+
+		if (node == null || count <= 0) {
+			return null;
+		}
+		else if (count >= node.size) {
+			return node;
+		}
+
+		final int leftSize = size(node.left);
+
+		if (count <= leftSize) {
+			return head(node.left, count);
+		}
+
+		return join(node.left, node.value, head(node.right, count - leftSize - 1));
+	}
+
+	/** Return a tree of the elements of a tree from an index onwards. */
+	private static <E> Node<E> tail(Node<E> node, int from) {
+
+		if (node == null || from >= node.size) {
+			return null;
+		}
+		else if (from <= 0) {
+			return node;
+		}
+
+		final int leftSize = size(node.left);
+
+		if (from > leftSize) {
+			return tail(node.right, from - leftSize - 1);
+		}
+
+		return join(tail(node.left, from), node.value, node.right);
+	}
+
+	private static <E> Node<E> build(E[] elements, int from, int to) {
+
+		if (from >= to) {
+			return null;
+		}
+
+		final int middle = (from + to) >>> 1;
+
+		return node(build(elements, from, middle), elements[middle], build(elements, middle + 1, to));
+	}
+
+	private static <E> Node<E> set(Node<E> node, int index, E element) {
+
+		final int leftSize = size(node.left);
+
+		if (index < leftSize) {
+			return new Node<>(set(node.left, index, element), node.value, node.right, node.height, node.size);
+		}
+		else if (index > leftSize) {
+			return new Node<>(node.left, node.value, set(node.right, index - leftSize - 1, element), node.height,
+				node.size);
+		}
+
+		return new Node<>(node.left, element, node.right, node.height, node.size);
+	}
+
+	private static <E> Node<E> insert(Node<E> node, int index, E element) {
+
+		if (node == null) {
+			return node(null, element, null);
+		}
+
+		final int leftSize = size(node.left);
+
+		if (index <= leftSize) {
+			return balance(insert(node.left, index, element), node.value, node.right);
+		}
+
+		return balance(node.left, node.value, insert(node.right, index - leftSize - 1, element));
+	}
+
+	private static <E> Node<E> remove(Node<E> node, int index) {
+
+		final int leftSize = size(node.left);
+
+		if (index < leftSize) {
+			return balance(remove(node.left, index), node.value, node.right);
+		}
+		else if (index > leftSize) {
+			return balance(node.left, node.value, remove(node.right, index - leftSize - 1));
+		}
+		else if (node.left == null) {
+			return node.right;
+		}
+		else if (node.right == null) {
+			return node.left;
+		}
+
+		// Replace the removed value with the first value of the right subtree
+		Node<E> first = node.right;
+		while (first.left != null) {
+			first = first.left;
+		}
+
+		return balance(node.left, first.value, remove(node.right, 0));
+	}
+
+	private static int fill(Node<?> node, Object[] array, int offset) {
+
+		if (node == null) {
+			return offset;
+		}
+
+		offset = fill(node.left, array, offset);
+		array[offset] = node.value;
+
+		return fill(node.right, array, offset + 1);
+	}
+
+	/**
+	 * A record of changes to one or more persistent lists which can be undone
+	 * and redone in order. Making a new change discards any changes which
+	 * have been undone.
+	 */
+	public static final class History {
+
+		private final Deque<Step> undo = new ArrayDeque<>();
+
+		private final Deque<Step> redo = new ArrayDeque<>();
+
+		/** The changes made so far within {@link #group(Runnable)}, or <code>null</code> outside it. */
+		private List<Change> grouped = null;
+
+		/**
+		 * Return whether there is a change to undo.
+		 *
+		 * @return <code>true</code> if {@link #undo()} would change a list.
+		 */
+		public boolean canUndo() {
+			return this.undo.isEmpty() == false;
+		}
+
+		/**
+		 * Return whether there is an undone change to redo.
+		 *
+		 * @return <code>true</code> if {@link #redo()} would change a list.
+		 */
+		public boolean canRedo() {
+			return this.redo.isEmpty() == false;
+		}
+
+		/**
+		 * Undo the most recent change.
+		 *
+		 * @return <code>false</code> if there was no change to undo.
+		 */
+		public boolean undo() {
+			return move(this.undo, this.redo);
+		}
+
+		/**
+		 * Redo the most recently undone change.
+		 *
+		 * @return <code>false</code> if there was no change to redo.
+		 */
+		public boolean redo() {
+			return move(this.redo, this.undo);
+		}
+
+		/** Forget all changes, so that none can be undone or redone. */
+		public void clear() {
+			this.undo.clear();
+			this.redo.clear();
+		}
+
+		/**
+		 * Make changes to lists sharing this history which are undone and
+		 * redone together as a single step. Groups may be nested, in which
+		 * case the outermost group is the step.
+		 *
+		 * @param changes The changes to make.
+		 */
+		public void group(Runnable changes) {
+
+			if (this.grouped != null) {
+				changes.run();
+				return;
+			}
+
+			this.grouped = new ArrayList<>();
+
+			try {
+				changes.run();
+			}
+			finally {
+				final List<Change> made = this.grouped;
+				this.grouped = null;
+				if (made.isEmpty() == false) {
+					this.undo.push(new Step(made));
+					this.redo.clear();
+				}
+			}
+		}
+
+		private void record(PersistentList<?> list, Node<?> root) {
+
+			if (this.grouped != null) {
+				this.grouped.add(new Change(list, root));
+				return;
+			}
+
+			this.undo.push(new Step(List.of(new Change(list, root))));
+			this.redo.clear();
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static boolean move(Deque<Step> from, Deque<Step> to) {
+
+			final Step step = from.poll();
+
+			if (step == null) {
+				return false;
+			}
+
+			// Restore the lists in reverse order, so that a list changed more than once ends up as it first was
+			List<Change> reverse = new ArrayList<>(step.changes.size());
+
+			for (int i = step.changes.size() - 1; i >= 0; i--) {
+				final Change change = step.changes.get(i);
+				reverse.add(new Change(change.list, change.list.root));
+				((PersistentList) change.list).restore(change.root);
+			}
+
+			to.push(new Step(reverse));
+
+			return true;
+		}
+
+		/** One or more changes undone and redone together. */
+		@AllArgsConstructor
+		private static final class Step {
+
+			/** The changes, in the order in which they were made. */
+			private final List<Change> changes;
+		}
+
+		@AllArgsConstructor
+		private static final class Change {
+
+			/** The list changed. */
+			private final PersistentList<?> list;
+
+			/** The root of the list before the change. */
+			private final Node<?> root;
+		}
+	}
+}
@@ -8,6 +8,7 @@ package io.github.jimbovm.isobel.common;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
@@ -38,4 +39,24 @@ public final class Scenario {
 	/** The 8 worlds that make up the overall scenario. */
 	@XmlElement(name = "world")
 	private List<World> worlds;
+
+	/**
+	 * Return a copy of the scenario, with the starting areas of its levels
+	 * remapped to copies.
+	 * 
+	 * @param  copies Areas mapped to their copies, as filled in by
+	 *                {@link Atlas#copy(Map)}. A starting area not in the map is
+	 *                copied and added to it.
+	 * 
+	 * @return        A new scenario independent of the original.
+	 */
+	public Scenario copy(Map<Area, Area> copies) {
+
+		Scenario copy = new Scenario();
+		for (World world : this.worlds) {
+			copy.worlds.add(world.copy(copies));
+		}
+
+		return copy;
+	}
 }
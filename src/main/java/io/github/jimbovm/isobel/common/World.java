@@ -8,6 +8,7 @@ package io.github.jimbovm.isobel.common;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.xml.bind.annotation.XmlAccessType;
@@ -57,4 +58,23 @@ public final class World {
 		this.levels = new ArrayList<Level>();
 		this.hidden1upCost = 0;
 	}
+
+	/**
+	 * Return a copy of the world, with the starting areas of its levels
+	 * remapped to copies.
+	 * 
+	 * @param  copies Areas mapped to their copies, as for
+	 *                {@link Level#copy(Map)}.
+	 * 
+	 * @return        A new world independent of the original.
+	 */
+	public World copy(Map<Area, Area> copies) {
+
+		List<Level> levels = new ArrayList<>(this.levels.size());
+		for (Level level : this.levels) {
+			levels.add(level.copy(copies));
+		}
+
+		return new World(levels, this.hidden1upCost);
+	}
 }
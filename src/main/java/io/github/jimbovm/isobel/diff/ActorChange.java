@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.edit.Layer;
+
+/** A difference in a single actor between two versions of an area. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ActorChange {
+
+	/** The ways in which an actor can differ. */
+	public enum Type {
+
+		/** The actor is present only in the newer area. */
+		INSERTED,
+
+		/** The actor is present only in the older area. */
+		DELETED,
+
+		/** The actor has a different position but is otherwise the same. */
+		MOVED,
+
+		/** The actor has the same position but different properties. */
+		CHANGED;
+	}
+
+	/** The way in which the actor differs. */
+	private final Type type;
+
+	/** The list holding the actor. */
+	private final Layer layer;
+
+	/** The actor's index in the older area, or -1 if it was inserted. */
+	private final int oldIndex;
+
+	/** The actor's index in the newer area, or -1 if it was deleted. */
+	private final int newIndex;
+
+	/** The actor as it is in the older area, or <code>null</code>. */
+	private final Actor oldActor;
+
+	/** The actor as it is in the newer area, or <code>null</code>. */
+	private final Actor newActor;
+}
@@ -0,0 +1,54 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+
+/** The differences between two versions of an area with the same ID. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class AreaDiff {
+
+	/** The ID of the area. */
+	private final String areaId;
+
+	/** The older version of the area. */
+	private final Area oldArea;
+
+	/** The newer version of the area. */
+	private final Area newArea;
+
+	/** Whether the familiar name differs. */
+	private final boolean familiarNameChanged;
+
+	/** Whether the environment differs. */
+	private final boolean environmentChanged;
+
+	/** Whether any property of the header differs. */
+	private final boolean headerChanged;
+
+	/** The differences in geography and population actors. */
+	private final List<ActorChange> actorChanges;
+
+	/**
+	 * Test whether the two versions are identical.
+	 *
+	 * @return True if there are no differences, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return this.familiarNameChanged == false && this.environmentChanged == false && this.headerChanged == false
+			&& this.actorChanges.isEmpty();
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.YPlaceable;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.store.AreaFingerprint;
+import io.github.jimbovm.isobel.store.Fingerprint;
+import io.github.jimbovm.isobel.store.GameCodec;
+
+/**
+ * Compares games and areas structurally.
+ *
+ * Areas are matched by ID. Areas whose encodings are equal byte for byte
+ * are identical, and are skipped without their actors being matched. Both
+ * areas of every pair are still encoded, which takes time linear in their
+ * size, but this is much cheaper than matching their actors. Where the
+ * fingerprints of areas are already known, such as from an
+ * {@link AreaFingerprint} kept up to date as an area is edited, areas whose
+ * fingerprints differ are known to have changed without being encoded.
+ *
+ * Actors are matched in three passes over each of an area's geography and
+ * population lists. Actors identical in every property are matched first,
+ * regardless of their order in the list. Of those left, actors of the same
+ * type at the same position are matched and reported as changed. Finally,
+ * actors of the same type identical in every property but position are
+ * matched and reported as moved. Any actors still unmatched are reported as
+ * deleted or inserted.
+ */
+public final class Differ {
+
+	// non-instantiable
+	private Differ() {}
+
+	/**
+	 * Compare two versions of a game.
+	 *
+	 * @param  older The older version.
+	 * @param  newer The newer version.
+	 *
+	 * @return       The differences between the two.
+	 */
+	public static GameDiff diff(Game older, Game newer) {
+		return diff(older, newer, null);
+	}
+
+	/**
+	 * Compare two versions of a game, using fingerprints already known for
+	 * their areas. An area whose fingerprint differs from that of its older
+	 * version has changed, so its actors are matched without the two
+	 * versions being encoded first. Areas whose fingerprints are equal are
+	 * still compared exactly, so that a collision cannot hide a change.
+	 *
+	 * @param  older        The older version.
+	 * @param  newer        The newer version.
+	 * @param  fingerprints Returns the fingerprint of an area of either
+	 *                      version, made in the same way for both, or
+	 *                      <code>null</code> if none is known. May itself be
+	 *                      <code>null</code> if no fingerprints are known.
+	 *
+	 * @return              The differences between the two.
+	 */
+	public static GameDiff diff(Game older, Game newer, Function<? super Area, Fingerprint> fingerprints) {
+
+		List<String> addedAreas = new ArrayList<>();
+		List<String> removedAreas = new ArrayList<>();
+		List<AreaDiff> changedAreas = new ArrayList<>();
+
+		for (Area oldArea : older.getAtlas().getAreas()) {
+			Area newArea = newer.getAtlas().get(oldArea.getId());
+			if (newArea == null) {
+				removedAreas.add(oldArea.getId());
+			}
+			else if (differ(oldArea, newArea, fingerprints) || same(oldArea, newArea) == false) {
+				AreaDiff areaDiff = diff(oldArea, newArea);
+				if (areaDiff.isEmpty() == false) {
+					changedAreas.add(areaDiff);
+				}
+			}
+		}
+
+		for (Area newArea : newer.getAtlas().getAreas()) {
+			if (older.getAtlas().get(newArea.getId()) == null) {
+				addedAreas.add(newArea.getId());
+			}
+		}
+
+		return new GameDiff(Objects.equals(older.getId(), newer.getId()) == false,
+			Collections.unmodifiableList(addedAreas), Collections.unmodifiableList(removedAreas),
+			Collections.unmodifiableList(changedAreas),
+			diffScenario(older.getScenario().getWorlds(), newer.getScenario().getWorlds()));
+	}
+
+	/**
+	 * Compare two versions of an area. The areas are compared as they are,
+	 * whether or not their IDs match.
+	 *
+	 * @param  older The older version.
+	 * @param  newer The newer version.
+	 *
+	 * @return       The differences between the two.
+	 */
+	public static AreaDiff diff(Area older, Area newer) {
+
+		List<ActorChange> actorChanges = new ArrayList<>();
+		actorChanges.addAll(diff(Layer.GEOGRAPHY, older.getGeography(), newer.getGeography()));
+		actorChanges.addAll(diff(Layer.POPULATION, older.getPopulation(), newer.getPopulation()));
+
+		final boolean headerChanged =
+			Arrays.equals(GameCodec.encode(older.getHeader()), GameCodec.encode(newer.getHeader())) == false;
+
+		return new AreaDiff(newer.getId(), older, newer,
+			Objects.equals(older.getFamiliarName(), newer.getFamiliarName()) == false,
+			older.getEnvironment() != newer.getEnvironment(), headerChanged,
+			Collections.unmodifiableList(actorChanges));
+	}
+
+	/**
+	 * Compare two versions of a list of actors.
+	 *
+	 * @param  layer The list being compared, which is recorded in each change.
+	 * @param  older The older version of the list.
+	 * @param  newer The newer version of the list.
+	 *
+	 * @return       The differences between the two, deletions, changes and
+	 *               moves in order of the older list followed by insertions in
+	 *               order of the newer list.
+	 */
+	public static List<ActorChange> diff(Layer layer, List<? extends Actor> older, List<? extends Actor> newer) {
+
+		Matching matching = match(older, newer);
+		List<ActorChange> changes = new ArrayList<>();
+
+		for (int i = 0; i < older.size(); i++) {
+			final int j = matching.matches[i];
+			if (j < 0) {
+				changes.add(new ActorChange(ActorChange.Type.DELETED, layer, i, -1, older.get(i), null));
+			}
+			else if (matching.types[i] != null) {
+				changes.add(new ActorChange(matching.types[i], layer, i, j, older.get(i), newer.get(j)));
+			}
+		}
+
+		for (int j = 0; j < newer.size(); j++) {
+			if (matching.matched[j] == false) {
+				changes.add(new ActorChange(ActorChange.Type.INSERTED, layer, -1, j, null, newer.get(j)));
+			}
+		}
+
+		return changes;
+	}
+
+	/**
+	 * Match the actors of two versions of a list of actors.
+	 *
+	 * @param  older The older version of the list.
+	 * @param  newer The newer version of the list.
+	 *
+	 * @return       The matching between the two.
+	 */
+	static Matching match(List<? extends Actor> older, List<? extends Actor> newer) {
+
+		Matching matching = new Matching(older.size(), newer.size());
+
+		// Identical actors, wherever they are in the list
+		match(older, newer, matching, null, Differ::content);
+
+		// Actors of the same type at the same position
+		match(older, newer, matching, ActorChange.Type.CHANGED, Differ::position);
+
+		// Actors of the same type differing only in position
+		match(older, newer, matching, ActorChange.Type.MOVED, Differ::shape);
+
+		return matching;
+	}
+
+	/**
+	 * Match each unmatched actor in the older list with the first unmatched
+	 * actor in the newer list having the same key.
+	 */
+	private static void match(
+		List<? extends Actor> older, List<? extends Actor> newer, Matching matching, ActorChange.Type type,
+		Function<Actor, Object> key) {
+
+		Map<Object, ArrayDeque<Integer>> candidates = new HashMap<>();
+
+		for (int j = 0; j < newer.size(); j++) {
+			if (matching.matched[j] == false) {
+				candidates.computeIfAbsent(key.apply(newer.get(j)), (k) -> new ArrayDeque<>()).add(j);
+			}
+		}
+
+		if (candidates.isEmpty()) {
+			return;
+		}
+
+		for (int i = 0; i < older.size(); i++) {
+			if (matching.matches[i] < 0) {
+				ArrayDeque<Integer> queue = candidates.get(key.apply(older.get(i)));
+				if (queue != null && queue.isEmpty() == false) {
+					final int j = queue.poll();
+					matching.matches[i] = j;
+					matching.types[i] = type;
+					matching.matched[j] = true;
+				}
+			}
+		}
+	}
+
+	static Object content(Actor actor) {
+		return ByteBuffer.wrap(GameCodec.encode(actor));
+	}
+
+	private static Object position(Actor actor) {
+		final int y = (actor instanceof YPlaceable placeable) ? placeable.getY() : 0;
+		return List.of(actor.getClass(), actor.getX(), y);
+	}
+
+	private static Object shape(Actor actor) {
+
+		// Compare a copy moved to the origin
+		Actor copy = actor.copy();
+		copy.setX(0);
+		if (copy instanceof YPlaceable placeable) {
+			placeable.setY(0);
+		}
+
+		return ByteBuffer.wrap(GameCodec.encode(copy));
+	}
+
+	/**
+	 * Return whether two areas are known to differ by their fingerprints.
+	 */
+	private static boolean differ(Area first, Area second, Function<? super Area, Fingerprint> fingerprints) {
+
+		if (fingerprints == null) {
+			return false;
+		}
+
+		final Fingerprint firstFingerprint = fingerprints.apply(first);
+		final Fingerprint secondFingerprint = fingerprints.apply(second);
+
+		return firstFingerprint != null && secondFingerprint != null
+			&& firstFingerprint.equals(secondFingerprint) == false;
+	}
+
+	/**
+	 * Return whether two areas are identical, by comparing their encodings
+	 * exactly, so that no change can be mistaken for none.
+	 *
+	 * @param  first  An area.
+	 * @param  second Another area.
+	 *
+	 * @return        <code>true</code> if the areas encode identically.
+	 */
+	static boolean same(Area first, Area second) {
+		return first == second || Arrays.equals(GameCodec.encode(first), GameCodec.encode(second));
+	}
+
+	/**
+	 * Return whether two areas are identical, by comparing their encodings
+	 * exactly, reusing encodings made for earlier comparisons.
+	 *
+	 * @param  first     An area.
+	 * @param  second    Another area.
+	 * @param  encodings Encodings of areas already made, to which any made
+	 *                   here are added.
+	 *
+	 * @return           <code>true</code> if the areas encode identically.
+	 */
+	static boolean same(Area first, Area second, Map<Area, byte[]> encodings) {
+		return first == second || Arrays.equals(encodings.computeIfAbsent(first, GameCodec::encode),
+			encodings.computeIfAbsent(second, GameCodec::encode));
+	}
+
+	private static List<ScenarioChange> diffScenario(List<World> older, List<World> newer) {
+
+		List<ScenarioChange> changes = new ArrayList<>();
+
+		for (int w = 0; w < Math.max(older.size(), newer.size()); w++) {
+
+			if (w >= newer.size()) {
+				changes.add(new ScenarioChange(ScenarioChange.Type.WORLD_REMOVED, w, -1, null, null));
+				continue;
+			}
+			if (w >= older.size()) {
+				changes.add(new ScenarioChange(ScenarioChange.Type.WORLD_ADDED, w, -1, null, null));
+				continue;
+			}
+
+			World oldWorld = older.get(w);
+			World newWorld = newer.get(w);
+
+			if (oldWorld.getHidden1upCost() != newWorld.getHidden1upCost()) {
+				changes.add(new ScenarioChange(ScenarioChange.Type.HIDDEN_1UP_COST, w, -1,
+					Integer.toString(oldWorld.getHidden1upCost()), Integer.toString(newWorld.getHidden1upCost())));
+			}
+
+			List<Level> oldLevels = oldWorld.getLevels();
+			List<Level> newLevels = newWorld.getLevels();
+
+			for (int l = 0; l < Math.max(oldLevels.size(), newLevels.size()); l++) {
+
+				if (l >= newLevels.size()) {
+					changes.add(new ScenarioChange(ScenarioChange.Type.LEVEL_REMOVED, w, l, null, null));
+					continue;
+				}
+				if (l >= oldLevels.size()) {
+					changes.add(new ScenarioChange(ScenarioChange.Type.LEVEL_ADDED, w, l, null, null));
+					continue;
+				}
+
+				final String oldStart = startAreaId(oldLevels.get(l));
+				final String newStart = startAreaId(newLevels.get(l));
+
+				if (Objects.equals(oldStart, newStart) == false) {
+					changes.add(new ScenarioChange(ScenarioChange.Type.START_AREA, w, l, oldStart, newStart));
+				}
+
+				final byte oldCheckpoint = oldLevels.get(l).getCheckpoint();
+				final byte newCheckpoint = newLevels.get(l).getCheckpoint();
+
+				if (oldCheckpoint != newCheckpoint) {
+					changes.add(new ScenarioChange(ScenarioChange.Type.CHECKPOINT, w, l,
+						Integer.toString(oldCheckpoint), Integer.toString(newCheckpoint)));
+				}
+			}
+		}
+
+		return Collections.unmodifiableList(changes);
+	}
+
+	private static String startAreaId(Level level) {
+		return (level.getStartArea() == null) ? null : level.getStartArea().getId();
+	}
+
+	/** A matching between the actors of two versions of a list. */
+	static final class Matching {
+
+		/** For each older actor, the index of the newer actor matched, or -1. */
+		final int[] matches;
+
+		/** For each older actor, how it differs from its match, if at all. */
+		final ActorChange.Type[] types;
+
+		/** For each newer actor, whether it has been matched. */
+		final boolean[] matched;
+
+		Matching(int olderSize, int newerSize) {
+			this.matches = new int[olderSize];
+			this.types = new ActorChange.Type[olderSize];
+			this.matched = new boolean[newerSize];
+			Arrays.fill(this.matches, -1);
+		}
+	}
+}
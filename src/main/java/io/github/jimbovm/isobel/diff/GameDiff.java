@@ -0,0 +1,46 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/** The differences between two versions of a game. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class GameDiff {
+
+	/** Whether the game ID differs. */
+	private final boolean idChanged;
+
+	/** The IDs of areas present only in the newer atlas. */
+	private final List<String> addedAreas;
+
+	/** The IDs of areas present only in the older atlas. */
+	private final List<String> removedAreas;
+
+	/** The differences in areas present in both atlases which differ. */
+	private final List<AreaDiff> changedAreas;
+
+	/** The differences in the scenario. */
+	private final List<ScenarioChange> scenarioChanges;
+
+	/**
+	 * Test whether the two versions are identical.
+	 *
+	 * @return True if there are no differences, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return this.idChanged == false && this.addedAreas.isEmpty() && this.removedAreas.isEmpty()
+			&& this.changedAreas.isEmpty() && this.scenarioChanges.isEmpty();
+	}
+}
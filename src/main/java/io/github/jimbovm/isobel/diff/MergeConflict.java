@@ -0,0 +1,83 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.edit.Layer;
+
+/**
+ * A change made on both sides of a merge which could not be reconciled. In
+ * each case the merged game keeps our side of the change.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class MergeConflict {
+
+	/** The parts of a game in which a conflict can arise. */
+	public enum Type {
+
+		/** Both sides changed the game ID differently. */
+		GAME_ID,
+
+		/** One side removed an area which the other changed, or both added different areas with the same ID. */
+		AREA,
+
+		/** Both sides changed an area's familiar name, environment or header differently. */
+		AREA_PROPERTIES,
+
+		/** Both sides changed, moved or deleted the same actor differently. */
+		ACTOR,
+
+		/** Both sides changed the scenario in ways which could not be combined. */
+		SCENARIO;
+	}
+
+	/** The part of the game in conflict. */
+	private final Type type;
+
+	/** The ID of the area in conflict, or <code>null</code>. */
+	private final String areaId;
+
+	/** The list holding the actor in conflict, or <code>null</code>. */
+	private final Layer layer;
+
+	/** The index of the actor in conflict in the base area, or -1. */
+	private final int baseIndex;
+
+	/** The actor as it is in the base area, or <code>null</code>. */
+	private final Actor baseActor;
+
+	/** The actor as it is on our side, or <code>null</code> if we deleted it. */
+	private final Actor ourActor;
+
+	/** The actor as it is on their side, or <code>null</code> if they deleted it. */
+	private final Actor theirActor;
+
+	/** The zero-based index of the world in conflict, or -1. */
+	private final int world;
+
+	/** The zero-based index of the level in conflict, or -1. */
+	private final int level;
+
+	static MergeConflict of(Type type, String areaId) {
+		return new MergeConflict(type, areaId, null, -1, null, null, null, -1, -1);
+	}
+
+	static MergeConflict ofActor(String areaId, Layer layer, int baseIndex, Actor base, Actor ours, Actor theirs) {
+		return new MergeConflict(Type.ACTOR, areaId, layer, baseIndex, base, ours, theirs, -1, -1);
+	}
+
+	static MergeConflict ofScenario(int world, int level) {
+		return new MergeConflict(Type.SCENARIO, null, null, -1, null, null, null, world, level);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Game;
+
+/** The outcome of a three-way merge. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class MergeResult {
+
+	/**
+	 * The merged game, which shares no objects with the games merged. Where
+	 * there are conflicts, it holds our side of each.
+	 */
+	private final Game merged;
+
+	/** The conflicts found, in the order of the atlas and then the scenario. */
+	private final List<MergeConflict> conflicts;
+
+	/**
+	 * Test whether the merge completed without conflicts.
+	 *
+	 * @return True if there were no conflicts, false otherwise.
+	 */
+	public boolean isClean() {
+		return this.conflicts.isEmpty();
+	}
+}
@@ -0,0 +1,411 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.store.GameCodec;
+
+/**
+ * Merges two games derived from a common base, combining the changes made
+ * on each side.
+ *
+ * Areas are matched by ID. An area changed on only one side is taken from
+ * that side without its actors being compared, which is decided by
+ * comparing the areas' encodings exactly. An area changed on both sides is merged actor
+ * by actor, using the same matching as {@link Differ}: a base actor changed,
+ * moved or deleted on one side only takes that side's change, and actors
+ * inserted on either side are kept. Where both sides changed the same thing
+ * differently, a {@link MergeConflict} is reported and our side is kept, so
+ * the merged game is always complete and consistent.
+ *
+ * The scenario is merged level by level when neither side has added or
+ * removed worlds or levels, and is otherwise taken from whichever side
+ * changed it.
+ */
+public final class Merger {
+
+	// non-instantiable
+	private Merger() {}
+
+	/**
+	 * Merge two games derived from a common base. None of the games is
+	 * modified.
+	 *
+	 * @param  base   The common base.
+	 * @param  ours   Our version, which is preferred in conflicts.
+	 * @param  theirs Their version.
+	 *
+	 * @return        The merged game and any conflicts.
+	 */
+	public static MergeResult merge(Game base, Game ours, Game theirs) {
+
+		List<MergeConflict> conflicts = new ArrayList<>();
+		Map<String, Area> merged = new LinkedHashMap<>();
+		Map<Area, byte[]> encodings = new IdentityHashMap<>();
+
+		for (Area ourArea : ours.getAtlas().getAreas()) {
+
+			final String id = ourArea.getId();
+			Area baseArea = base.getAtlas().get(id);
+			Area theirArea = theirs.getAtlas().get(id);
+
+			if (baseArea == null) {
+				// Added by us, and perhaps by them
+				if (theirArea != null && Differ.same(theirArea, ourArea, encodings) == false) {
+					conflicts.add(MergeConflict.of(MergeConflict.Type.AREA, id));
+				}
+				merged.put(id, ourArea.copy());
+			}
+			else if (theirArea == null) {
+				// Removed by them
+				if (Differ.same(ourArea, baseArea, encodings) == false) {
+					conflicts.add(MergeConflict.of(MergeConflict.Type.AREA, id));
+					merged.put(id, ourArea.copy());
+				}
+			}
+			else {
+				merged.put(id, mergeArea(baseArea, ourArea, theirArea, encodings, conflicts));
+			}
+		}
+
+		for (Area theirArea : theirs.getAtlas().getAreas()) {
+
+			final String id = theirArea.getId();
+			Area baseArea = base.getAtlas().get(id);
+
+			if (ours.getAtlas().get(id) != null) {
+				continue;
+			}
+
+			if (baseArea == null) {
+				// Added by them only
+				merged.put(id, theirArea.copy());
+			}
+			else if (Differ.same(theirArea, baseArea, encodings) == false) {
+				// Removed by us, changed by them
+				conflicts.add(MergeConflict.of(MergeConflict.Type.AREA, id));
+			}
+		}
+
+		Game game = new Game();
+		game.setId(mergeValue(base.getId(), ours.getId(), theirs.getId(), conflicts,
+			MergeConflict.of(MergeConflict.Type.GAME_ID, null)));
+		game.getAtlas().addAll(merged.values());
+
+		List<World> worlds = mergeScenario(base, ours, theirs, conflicts);
+
+		for (World world : worlds) {
+			for (Level level : world.getLevels()) {
+				final Area startArea = level.getStartArea();
+				if (startArea == null) {
+					continue;
+				}
+				Area mergedArea = game.getAtlas().get(startArea.getId());
+				if (mergedArea == null) {
+					// A level starts in an area removed by the other side
+					conflicts.add(MergeConflict.of(MergeConflict.Type.AREA, startArea.getId()));
+					mergedArea = startArea.copy();
+					game.getAtlas().add(mergedArea);
+				}
+				level.setStartArea(mergedArea);
+			}
+		}
+
+		game.getScenario().getWorlds().addAll(worlds);
+
+		return new MergeResult(game, Collections.unmodifiableList(conflicts));
+	}
+
+	private static Area mergeArea(
+		Area base, Area ours, Area theirs, Map<Area, byte[]> encodings, List<MergeConflict> conflicts) {
+
+		if (Differ.same(theirs, base, encodings) || Differ.same(theirs, ours, encodings)) {
+			return ours.copy();
+		}
+		else if (Differ.same(ours, base, encodings)) {
+			return theirs.copy();
+		}
+
+		final String id = ours.getId();
+		final MergeConflict propertyConflict = MergeConflict.of(MergeConflict.Type.AREA_PROPERTIES, id);
+		List<MergeConflict> propertyConflicts = new ArrayList<>();
+
+		final String familiarName =
+			mergeValue(base.getFamiliarName(), ours.getFamiliarName(), theirs.getFamiliarName(), propertyConflicts,
+				propertyConflict);
+		final Area.Environment environment =
+			mergeValue(base.getEnvironment(), ours.getEnvironment(), theirs.getEnvironment(), propertyConflicts,
+				propertyConflict);
+
+		final byte[] baseHeader = GameCodec.encode(base.getHeader());
+		final byte[] ourHeader = GameCodec.encode(ours.getHeader());
+		final byte[] theirHeader = GameCodec.encode(theirs.getHeader());
+		AreaHeader header = ours.getHeader();
+
+		if (Arrays.equals(ourHeader, baseHeader)) {
+			header = theirs.getHeader();
+		}
+		else if (Arrays.equals(theirHeader, baseHeader) == false && Arrays.equals(theirHeader, ourHeader) == false) {
+			propertyConflicts.add(propertyConflict);
+		}
+
+		// Report each area at most once however many properties conflict
+		if (propertyConflicts.isEmpty() == false) {
+			conflicts.add(propertyConflict);
+		}
+
+		List<GeographyActor> geography = new ArrayList<>();
+		for (Actor actor : mergeActors(id, Layer.GEOGRAPHY, base.getGeography(), ours.getGeography(),
+			theirs.getGeography(), conflicts)) {
+			geography.add((GeographyActor) actor);
+		}
+
+		List<PopulationActor> population = new ArrayList<>();
+		for (Actor actor : mergeActors(id, Layer.POPULATION, base.getPopulation(), ours.getPopulation(),
+			theirs.getPopulation(), conflicts)) {
+			population.add((PopulationActor) actor);
+		}
+
+		return Area
+			.builder().id(id).familiarName(familiarName).environment(environment)
+			.header((header == null) ? null : header.copy()).geography(geography).population(population).build();
+	}
+
+	/**
+	 * Merge one list of actors. The result follows the order of our list,
+	 * with actors inserted by them placed after the last actor at or before
+	 * their X position, as the order of actors only matters between actors
+	 * at the same X position.
+	 */
+	private static List<Actor> mergeActors(
+		String areaId, Layer layer, List<? extends Actor> base, List<? extends Actor> ours,
+		List<? extends Actor> theirs, List<MergeConflict> conflicts) {
+
+		Differ.Matching ourMatching = Differ.match(base, ours);
+		Differ.Matching theirMatching = Differ.match(base, theirs);
+
+		// For each of our actors, the base actor it was matched with, if any
+		int[] ourBase = new int[ours.size()];
+		Arrays.fill(ourBase, -1);
+		for (int i = 0; i < base.size(); i++) {
+			if (ourMatching.matches[i] >= 0) {
+				ourBase[ourMatching.matches[i]] = i;
+			}
+		}
+
+		// Actors inserted identically on both sides are kept once
+		Map<Object, Integer> ourInsertions = new HashMap<>();
+		List<Actor> merged = new ArrayList<>();
+
+		for (int j = 0; j < ours.size(); j++) {
+
+			final int i = ourBase[j];
+
+			if (i < 0) {
+				ourInsertions.merge(Differ.content(ours.get(j)), 1, Integer::sum);
+				merged.add(ours.get(j).copy());
+				continue;
+			}
+
+			final int t = theirMatching.matches[i];
+			final boolean ourChange = ourMatching.types[i] != null;
+			final boolean theirChange = t < 0 || theirMatching.types[i] != null;
+
+			if (theirChange == false) {
+				merged.add(ours.get(j).copy());
+			}
+			else if (ourChange == false) {
+				if (t >= 0) {
+					merged.add(theirs.get(t).copy());
+				}
+			}
+			else {
+				if (t < 0 || Differ.content(ours.get(j)).equals(Differ.content(theirs.get(t))) == false) {
+					conflicts.add(MergeConflict
+						.ofActor(areaId, layer, i, base.get(i), ours.get(j), (t < 0) ? null : theirs.get(t)));
+				}
+				merged.add(ours.get(j).copy());
+			}
+		}
+
+		for (int i = 0; i < base.size(); i++) {
+			final int t = theirMatching.matches[i];
+			// Deleted by us but changed by them
+			if (ourMatching.matches[i] < 0 && t >= 0 && theirMatching.types[i] != null) {
+				conflicts.add(MergeConflict.ofActor(areaId, layer, i, base.get(i), null, theirs.get(t)));
+			}
+		}
+
+		for (int t = 0; t < theirs.size(); t++) {
+
+			if (theirMatching.matched[t]) {
+				continue;
+			}
+
+			final Object content = Differ.content(theirs.get(t));
+			final int count = ourInsertions.getOrDefault(content, 0);
+
+			if (count > 0) {
+				ourInsertions.put(content, count - 1);
+				continue;
+			}
+
+			final int x = theirs.get(t).getX();
+			int position = merged.size();
+			while (position > 0 && merged.get(position - 1).getX() > x) {
+				position -= 1;
+			}
+			merged.add(position, theirs.get(t).copy());
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Merge the scenario, returning new worlds whose levels refer to the
+	 * areas of whichever game they were taken from.
+	 */
+	private static List<World> mergeScenario(Game base, Game ours, Game theirs, List<MergeConflict> conflicts) {
+
+		List<World> baseWorlds = base.getScenario().getWorlds();
+		List<World> ourWorlds = ours.getScenario().getWorlds();
+		List<World> theirWorlds = theirs.getScenario().getWorlds();
+
+		final boolean sameShape = shape(ourWorlds).equals(shape(baseWorlds))
+			&& shape(theirWorlds).equals(shape(baseWorlds));
+
+		if (sameShape == false) {
+			if (sameScenario(theirWorlds, baseWorlds) || sameScenario(theirWorlds, ourWorlds)) {
+				return copy(ourWorlds);
+			}
+			else if (sameScenario(ourWorlds, baseWorlds)) {
+				return copy(theirWorlds);
+			}
+			conflicts.add(MergeConflict.ofScenario(-1, -1));
+			return copy(ourWorlds);
+		}
+
+		List<World> worlds = new ArrayList<>();
+
+		for (int w = 0; w < ourWorlds.size(); w++) {
+
+			World baseWorld = baseWorlds.get(w);
+			World ourWorld = ourWorlds.get(w);
+			World theirWorld = theirWorlds.get(w);
+
+			World world = new World();
+			world.setHidden1upCost(mergeValue(baseWorld.getHidden1upCost(), ourWorld.getHidden1upCost(),
+				theirWorld.getHidden1upCost(), conflicts, MergeConflict.ofScenario(w, -1)));
+
+			for (int l = 0; l < ourWorld.getLevels().size(); l++) {
+
+				Level baseLevel = baseWorld.getLevels().get(l);
+				Level ourLevel = ourWorld.getLevels().get(l);
+				Level theirLevel = theirWorld.getLevels().get(l);
+
+				final String ourStart = startAreaId(ourLevel);
+				final String theirStart = startAreaId(theirLevel);
+				final String start = mergeValue(startAreaId(baseLevel), ourStart, theirStart, conflicts,
+					MergeConflict.ofScenario(w, l));
+				final byte checkpoint = mergeValue(baseLevel.getCheckpoint(), ourLevel.getCheckpoint(),
+					theirLevel.getCheckpoint(), conflicts, MergeConflict.ofScenario(w, l));
+
+				// The start area is resolved against the merged atlas later
+				Area startArea = Objects.equals(start, ourStart) ? ourLevel.getStartArea() : theirLevel.getStartArea();
+				world.getLevels().add(new Level(startArea, checkpoint));
+			}
+
+			worlds.add(world);
+		}
+
+		return worlds;
+	}
+
+	private static <T> T mergeValue(T base, T ours, T theirs, List<MergeConflict> conflicts, MergeConflict conflict) {
+
+		if (Objects.equals(ours, base)) {
+			return theirs;
+		}
+		else if (Objects.equals(theirs, base) == false && Objects.equals(theirs, ours) == false) {
+			conflicts.add(conflict);
+		}
+
+		return ours;
+	}
+
+	private static List<Integer> shape(List<World> worlds) {
+
+		List<Integer> shape = new ArrayList<>();
+
+		for (World world : worlds) {
+			shape.add(world.getLevels().size());
+		}
+
+		return shape;
+	}
+
+	private static boolean sameScenario(List<World> a, List<World> b) {
+
+		if (shape(a).equals(shape(b)) == false) {
+			return false;
+		}
+
+		for (int w = 0; w < a.size(); w++) {
+			if (a.get(w).getHidden1upCost() != b.get(w).getHidden1upCost()) {
+				return false;
+			}
+			for (int l = 0; l < a.get(w).getLevels().size(); l++) {
+				Level levelA = a.get(w).getLevels().get(l);
+				Level levelB = b.get(w).getLevels().get(l);
+				if (Objects.equals(startAreaId(levelA), startAreaId(levelB)) == false
+					|| levelA.getCheckpoint() != levelB.getCheckpoint()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static String startAreaId(Level level) {
+		return (level.getStartArea() == null) ? null : level.getStartArea().getId();
+	}
+
+	private static List<World> copy(List<World> worlds) {
+
+		List<World> copies = new ArrayList<>();
+
+		for (World world : worlds) {
+			World copy = new World();
+			copy.setHidden1upCost(world.getHidden1upCost());
+			for (Level level : world.getLevels()) {
+				copy.getLevels().add(new Level(level.getStartArea(), level.getCheckpoint()));
+			}
+			copies.add(copy);
+		}
+
+		return copies;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/** A difference in a single world or level between two scenarios. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ScenarioChange {
+
+	/** The ways in which a scenario can differ. */
+	public enum Type {
+
+		/** The world is present only in the newer scenario. */
+		WORLD_ADDED,
+
+		/** The world is present only in the older scenario. */
+		WORLD_REMOVED,
+
+		/** The world's hidden 1-up cost differs. */
+		HIDDEN_1UP_COST,
+
+		/** The level is present only in the newer scenario. */
+		LEVEL_ADDED,
+
+		/** The level is present only in the older scenario. */
+		LEVEL_REMOVED,
+
+		/** The level's starting area differs. */
+		START_AREA,
+
+		/** The level's checkpoint differs. */
+		CHECKPOINT;
+	}
+
+	/** The way in which the scenario differs. */
+	private final Type type;
+
+	/** The zero-based index of the world. */
+	private final int world;
+
+	/** The zero-based index of the level, or -1 for a change to the world. */
+	private final int level;
+
+	/**
+	 * The older value: an area ID for a starting area, a number for a cost or
+	 * checkpoint, or <code>null</code> if there is none.
+	 */
+	private final String oldValue;
+
+	/** The newer value, in the same form as the older value. */
+	private final String newValue;
+}
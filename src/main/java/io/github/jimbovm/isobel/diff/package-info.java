@@ -0,0 +1,5 @@
+/**
+ * Structural comparison of games and areas, reporting differences in terms
+ * of the object model rather than of serialized text.
+ */
+package io.github.jimbovm.isobel.diff;
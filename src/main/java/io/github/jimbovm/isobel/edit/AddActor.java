@@ -0,0 +1,52 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/** Insert an actor into an area's geography or population. */
+@Getter
+@ToString(callSuper = true)
+public final class AddActor extends AreaEdit {
+
+	/** The position in the list at which to insert the actor. */
+	private final int index;
+
+	/** The actor to insert, which determines the list it is inserted into. */
+	private final Actor actor;
+
+	/**
+	 * Create an edit inserting an actor.
+	 *
+	 * @param areaId The ID of the area.
+	 * @param index  The position at which to insert the actor.
+	 * @param actor  The actor to insert.
+	 */
+	public AddActor(String areaId, int index, Actor actor) {
+		super(areaId);
+		this.index = index;
+		this.actor = actor;
+	}
+
+	@Override
+	public void apply(Game game) {
+
+		Area area = this.findArea(game);
+		Layer layer = Layer.of(this.actor);
+		List<Actor> actors = layer.actors(area);
+
+		checkIndex(area, layer, this.index, actors.size() + 1);
+		actors.add(this.index, this.actor);
+	}
+}
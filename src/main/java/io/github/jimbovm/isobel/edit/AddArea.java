@@ -0,0 +1,34 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/** Add an area to a game's atlas. */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class AddArea implements Edit {
+
+	/** The area to add, which becomes part of the game when applied. */
+	private final Area area;
+
+	@Override
+	public void apply(Game game) {
+
+		if (game.getAtlas().get(this.area.getId()) != null) {
+			throw new IllegalStateException(String.format("Area %s already in atlas", this.area.getId()));
+		}
+
+		game.getAtlas().add(this.area);
+	}
+}
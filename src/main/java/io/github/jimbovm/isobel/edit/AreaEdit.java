@@ -0,0 +1,60 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/** An edit to the content of a single area. */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public abstract class AreaEdit implements Edit {
+
+	/** The ID of the area to which the edit applies. */
+	private final String areaId;
+
+	/**
+	 * Find the area to which the edit applies.
+	 *
+	 * @param  game                  The game to search.
+	 *
+	 * @return                       The area.
+	 *
+	 * @throws IllegalStateException If the game has no such area.
+	 */
+	protected Area findArea(Game game) {
+
+		Area area = game.getAtlas().get(this.areaId);
+
+		if (area == null) {
+			throw new IllegalStateException(String.format("No area %s in atlas", this.areaId));
+		}
+
+		return area;
+	}
+
+	/**
+	 * Check that an actor index is within a list of actors.
+	 *
+	 * @param  area                  The area holding the list.
+	 * @param  layer                 The list.
+	 * @param  index                 The index to check.
+	 * @param  size                  The number of valid indices.
+	 *
+	 * @throws IllegalStateException If the index is out of range.
+	 */
+	static void checkIndex(Area area, Layer layer, int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IllegalStateException(
+				String.format("No %s actor %d in area %s", layer.name().toLowerCase(), index, area.getId()));
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * A single mutation of a {@link Game}. Edits refer to areas by ID and to
+ * actors by their position within an area's geography or population, rather
+ * than by reference, so an edit made to one game can be applied to another
+ * game in the same state, such as one read back from storage.
+ */
+public interface Edit {
+
+	/**
+	 * Apply the edit to a game.
+	 *
+	 * @param  game                  The game to modify.
+	 *
+	 * @throws IllegalStateException If the game is not in a state to which
+	 *                               the edit can be applied, for example if
+	 *                               an area it refers to does not exist.
+	 */
+	public void apply(Game game);
+}
@@ -0,0 +1,46 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import java.util.List;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+
+/** The list of actors within an area to which an edit refers. */
+public enum Layer {
+
+	/** The area's geography actors. */
+	GEOGRAPHY,
+
+	/** The area's population actors. */
+	POPULATION;
+
+	/**
+	 * Return the layer to which an actor belongs.
+	 *
+	 * @param  actor The actor.
+	 *
+	 * @return       The layer holding actors of the supplied actor's type.
+	 */
+	public static Layer of(Actor actor) {
+		return (actor instanceof PopulationActor) ? POPULATION : GEOGRAPHY;
+	}
+
+	/**
+	 * Return the list of actors making up this layer of an area.
+	 *
+	 * @param  area The area.
+	 *
+	 * @return      The area's geography or population list.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Actor> actors(Area area) {
+		return (List<Actor>) (List<?>) ((this == POPULATION) ? area.getPopulation() : area.getGeography());
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.YPlaceable;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * Move an actor within an area. The actor keeps its position within its
+ * list; for actors which are not {@link YPlaceable}, only the X position is
+ * changed.
+ */
+@Getter
+@ToString(callSuper = true)
+public final class MoveActor extends AreaEdit {
+
+	/** The list holding the actor. */
+	private final Layer layer;
+
+	/** The position of the actor in the list. */
+	private final int index;
+
+	/** The new absolute X position of the actor. */
+	private final int x;
+
+	/** The new absolute Y position of the actor, if it has one. */
+	private final int y;
+
+	/**
+	 * Create an edit moving an actor.
+	 *
+	 * @param areaId The ID of the area.
+	 * @param layer  The list holding the actor.
+	 * @param index  The position of the actor in the list.
+	 * @param x      The new X position.
+	 * @param y      The new Y position, ignored for actors with no Y position.
+	 */
+	public MoveActor(String areaId, Layer layer, int index, int x, int y) {
+		super(areaId);
+		this.layer = layer;
+		this.index = index;
+		this.x = x;
+		this.y = y;
+	}
+
+	@Override
+	public void apply(Game game) {
+
+		Area area = this.findArea(game);
+		List<Actor> actors = this.layer.actors(area);
+
+		checkIndex(area, this.layer, this.index, actors.size());
+
+		Actor actor = actors.get(this.index);
+		actor.setX(this.x);
+		if (actor instanceof YPlaceable placeable) {
+			placeable.setY(this.y);
+		}
+	}
+}
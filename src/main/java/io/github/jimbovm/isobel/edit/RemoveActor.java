@@ -0,0 +1,51 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/** Remove an actor from an area's geography or population. */
+@Getter
+@ToString(callSuper = true)
+public final class RemoveActor extends AreaEdit {
+
+	/** The list from which to remove the actor. */
+	private final Layer layer;
+
+	/** The position of the actor in the list. */
+	private final int index;
+
+	/**
+	 * Create an edit removing an actor.
+	 *
+	 * @param areaId The ID of the area.
+	 * @param layer  The list from which to remove the actor.
+	 * @param index  The position of the actor in the list.
+	 */
+	public RemoveActor(String areaId, Layer layer, int index) {
+		super(areaId);
+		this.layer = layer;
+		this.index = index;
+	}
+
+	@Override
+	public void apply(Game game) {
+
+		Area area = this.findArea(game);
+		List<Actor> actors = this.layer.actors(area);
+
+		checkIndex(area, this.layer, this.index, actors.size());
+		actors.remove(this.index);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Game;
+
+/** Replace the header of an area. */
+@Getter
+@ToString(callSuper = true)
+public final class SetHeader extends AreaEdit {
+
+	/** The new header, which becomes the area's header when applied. */
+	private final AreaHeader header;
+
+	/**
+	 * Create an edit replacing an area header.
+	 *
+	 * @param areaId The ID of the area.
+	 * @param header The new header.
+	 */
+	public SetHeader(String areaId, AreaHeader header) {
+		super(areaId);
+		this.header = header;
+	}
+
+	@Override
+	public void apply(Game game) {
+		this.findArea(game).setHeader(this.header);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.edit;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/** Change the area in which a level starts. */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class SetStartArea implements Edit {
+
+	/** The zero-based index of the world. */
+	private final int world;
+
+	/** The zero-based index of the level within the world. */
+	private final int level;
+
+	/** The ID of the new starting area. */
+	private final String areaId;
+
+	@Override
+	public void apply(Game game) {
+
+		List<World> worlds = game.getScenario().getWorlds();
+		if (this.world < 0 || this.world >= worlds.size()) {
+			throw new IllegalStateException(String.format("No world %d in scenario", this.world));
+		}
+
+		List<Level> levels = worlds.get(this.world).getLevels();
+		if (this.level < 0 || this.level >= levels.size()) {
+			throw new IllegalStateException(String.format("No level %d in world %d", this.level, this.world));
+		}
+
+		Area area = game.getAtlas().get(this.areaId);
+		if (area == null) {
+			throw new IllegalStateException(String.format("No area %s in atlas", this.areaId));
+		}
+
+		levels.get(this.level).setStartArea(area);
+	}
+}
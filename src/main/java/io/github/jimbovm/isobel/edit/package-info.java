@@ -0,0 +1,5 @@
+/**
+ * Discrete, replayable mutations of a game, such as adding or moving an
+ * actor, which can be recorded as they are made and applied again later.
+ */
+package io.github.jimbovm.isobel.edit;
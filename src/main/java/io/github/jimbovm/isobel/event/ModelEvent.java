@@ -0,0 +1,113 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.edit.Layer;
+
+/** A single change made to a game through an {@link ObservableGame}. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ModelEvent {
+
+	/** The kinds of change. */
+	public enum Type {
+
+		/** An actor was inserted at {@link #getIndex()}. */
+		ACTOR_INSERTED,
+
+		/** The actor at {@link #getIndex()} was removed. */
+		ACTOR_REMOVED,
+
+		/** One or more properties of the actor at {@link #getIndex()} changed. */
+		ACTOR_CHANGED,
+
+		/** The header field named by {@link #getProperty()} changed. */
+		HEADER_CHANGED,
+
+		/** An area was added to the atlas with the index number {@link #getIndex()}. */
+		AREA_ADDED,
+
+		/** An area with the index number {@link #getIndex()} was removed from the atlas. */
+		AREA_REMOVED,
+
+		/**
+		 * The content of an area changed in ways not described event by event,
+		 * as at the commit of a {@link Transaction}.
+		 */
+		AREA_CHANGED,
+
+		/** The index number of an area in the atlas changed. */
+		INDEX_CHANGED,
+
+		/** The starting area of a level changed. */
+		LEVEL_CHANGED;
+	}
+
+	/** The kind of change. */
+	private final Type type;
+
+	/** The area changed, or the new starting area of a level. */
+	private final Area area;
+
+	/** The list of actors changed, for actor events only. */
+	private final Layer layer;
+
+	/**
+	 * The position of the actor in its list, the index number of the area in
+	 * the atlas or, for level events, the index of the level in the scenario.
+	 */
+	private final int index;
+
+	/**
+	 * The name of the header field changed, for header events only, or the
+	 * world and level changed as <code>W-L</code>, for level events.
+	 */
+	private final String property;
+
+	/**
+	 * The previous value: a copy of the actor before it was changed, the
+	 * actor removed, the old value of a header field, the old index number of
+	 * an area or the old starting area of a level.
+	 */
+	private final Object oldValue;
+
+	/**
+	 * The new value: the actor changed or inserted, the new value of a header
+	 * field, the new index number of an area or the new starting area of a
+	 * level.
+	 */
+	private final Object newValue;
+
+	static ModelEvent actor(Type type, Area area, Layer layer, int index, Actor oldActor, Actor newActor) {
+		return new ModelEvent(type, area, layer, index, null, oldActor, newActor);
+	}
+
+	static ModelEvent header(Area area, String property, Object oldValue, Object newValue) {
+		return new ModelEvent(Type.HEADER_CHANGED, area, null, -1, property, oldValue, newValue);
+	}
+
+	static ModelEvent area(Type type, Area area, int index) {
+		return new ModelEvent(type, area, null, index, null, null, null);
+	}
+
+	static ModelEvent index(Area area, int oldIndex, int newIndex) {
+		return new ModelEvent(Type.INDEX_CHANGED, area, null, newIndex, null, oldIndex, newIndex);
+	}
+
+	static ModelEvent level(int index, int world, int level, Area oldArea, Area newArea) {
+		return new ModelEvent(Type.LEVEL_CHANGED, newArea, null, index, String.format("%d-%d", world + 1, level + 1),
+			oldArea, newArea);
+	}
+}
@@ -0,0 +1,22 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import java.util.List;
+
+/** A listener notified of changes made through an {@link ObservableGame}. */
+@FunctionalInterface
+public interface ModelListener {
+
+	/**
+	 * Called after a change or batch of changes has been made.
+	 *
+	 * @param events The events describing the changes, in the order in which
+	 *               they were made.
+	 */
+	public void changed(List<ModelEvent> events);
+}
@@ -0,0 +1,539 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+import io.github.jimbovm.isobel.diff.ActorChange;
+import io.github.jimbovm.isobel.diff.Differ;
+import io.github.jimbovm.isobel.edit.AreaEdit;
+import io.github.jimbovm.isobel.edit.Edit;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.store.AreaFingerprint;
+import io.github.jimbovm.isobel.store.Fingerprint;
+import io.github.jimbovm.isobel.store.GameCodec;
+
+/**
+ * A game whose changes are published to listeners as {@link ModelEvent}s.
+ *
+ * The model classes themselves emit nothing when changed, so changes must be
+ * made through this class for listeners to hear of them. Changes made inside
+ * {@link #batch(Runnable)} are delivered together once the outermost batch
+ * ends; otherwise each change is delivered as soon as it is made. Listeners
+ * are notified on an executor, which by default is the thread making the
+ * change.
+ *
+ * The game also keeps the {@link AreaFingerprint} of each area asked for up
+ * to date from the changes it publishes, so the fingerprint of an area
+ * edited through this class costs only the columns changed since it was
+ * last asked for. Such fingerprints may be passed to
+ * {@link Differ#diff(Game, Game, Function)}.
+ */
+public final class ObservableGame {
+
+	private static final Map<String, Function<AreaHeader, Object>> HEADER_FIELDS = new LinkedHashMap<>();
+
+	static {
+		HEADER_FIELDS.put("fill", AreaHeader::getFill);
+		HEADER_FIELDS.put("autowalk", AreaHeader::isAutowalk);
+		HEADER_FIELDS.put("ticks", AreaHeader::getTicks);
+		HEADER_FIELDS.put("startPosition", AreaHeader::getStartPosition);
+		HEADER_FIELDS.put("background", AreaHeader::getBackground);
+		HEADER_FIELDS.put("scenery", AreaHeader::getScenery);
+		HEADER_FIELDS.put("platform", AreaHeader::getPlatform);
+	}
+
+	/** The game being observed. */
+	@Getter
+	private final Game game;
+
+	/** The executor on which listeners are notified. */
+	@Getter
+	private final Executor executor;
+
+	private final List<ModelListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final List<ModelEvent> pending = new ArrayList<>();
+
+	/** The fingerprints of areas asked for, kept up to date as changes are published. */
+	private final Map<Area, AreaFingerprint> fingerprints = new HashMap<>();
+
+	private int depth = 0;
+
+	/**
+	 * Observe a game, notifying listeners on the thread making each change.
+	 *
+	 * @param game The game to observe.
+	 */
+	public ObservableGame(Game game) {
+		this(game, Runnable::run);
+	}
+
+	/**
+	 * Observe a game, notifying listeners on an executor.
+	 *
+	 * @param game     The game to observe.
+	 * @param executor The executor on which to notify listeners.
+	 */
+	public ObservableGame(Game game, Executor executor) {
+		this.game = game;
+		this.executor = executor;
+	}
+
+	/**
+	 * Add a listener to be notified of changes.
+	 *
+	 * @param listener The listener.
+	 */
+	public void addListener(ModelListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Stop notifying a listener of changes.
+	 *
+	 * @param listener The listener.
+	 */
+	public void removeListener(ModelListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Make a number of changes, delivering their events together afterwards.
+	 * Batches may be nested, in which case the events are delivered when the
+	 * outermost batch ends, even if it ends with an exception.
+	 *
+	 * @param changes The changes to make.
+	 */
+	public synchronized void batch(Runnable changes) {
+
+		this.depth += 1;
+
+		try {
+			changes.run();
+		}
+		finally {
+			this.depth -= 1;
+			if (this.depth == 0) {
+				this.flush();
+			}
+		}
+	}
+
+	/**
+	 * Return the fingerprint of an area in the game, within the game's
+	 * atlas.
+	 *
+	 * @param  area                  The area, which must be in the game.
+	 *
+	 * @return                       The fingerprint, equal to
+	 *                               {@link Fingerprint#of(Area, Atlas)}
+	 *                               provided the game has been changed only
+	 *                               through this class.
+	 *
+	 * @throws IllegalStateException If the area is not in the game.
+	 */
+	public synchronized Fingerprint fingerprint(Area area) {
+
+		this.checkArea(area);
+
+		return this.fingerprints.computeIfAbsent(area, (a) -> new AreaFingerprint(a, this.game.getAtlas())).get();
+	}
+
+	/**
+	 * Begin a transaction, in which any number of changes are made to
+	 * working copies of areas and applied to the game together on commit.
+	 *
+	 * @return A new transaction.
+	 */
+	public Transaction begin() {
+		return new Transaction(this);
+	}
+
+	/**
+	 * Insert an actor into an area.
+	 *
+	 * @param  area                  The area, which must be in the game.
+	 * @param  index                 The position at which to insert the actor.
+	 * @param  actor                 The actor, which determines the list it is
+	 *                               inserted into.
+	 *
+	 * @throws IllegalStateException If the area is not in the game or the
+	 *                               index is out of range.
+	 */
+	public synchronized void insertActor(Area area, int index, Actor actor) {
+
+		final Layer layer = Layer.of(actor);
+		List<Actor> actors = this.actors(area, layer, index, 1);
+
+		actors.add(index, actor);
+		this.publish(ModelEvent.actor(ModelEvent.Type.ACTOR_INSERTED, area, layer, index, null, actor));
+		this.done();
+	}
+
+	/**
+	 * Remove an actor from an area.
+	 *
+	 * @param  area                  The area, which must be in the game.
+	 * @param  layer                 The list holding the actor.
+	 * @param  index                 The position of the actor in the list.
+	 *
+	 * @return                       The actor removed.
+	 *
+	 * @throws IllegalStateException If the area is not in the game or the
+	 *                               index is out of range.
+	 */
+	public synchronized Actor removeActor(Area area, Layer layer, int index) {
+
+		final Actor actor = this.actors(area, layer, index, 0).remove(index);
+		this.publish(ModelEvent.actor(ModelEvent.Type.ACTOR_REMOVED, area, layer, index, actor, null));
+		this.done();
+
+		return actor;
+	}
+
+	/**
+	 * Change the properties of an actor in an area. An event is published
+	 * only if the change makes a difference to the actor.
+	 *
+	 * @param  area                  The area, which must be in the game.
+	 * @param  layer                 The list holding the actor.
+	 * @param  index                 The position of the actor in the list.
+	 * @param  change                The change to make to the actor.
+	 *
+	 * @throws IllegalStateException If the area is not in the game or the
+	 *                               index is out of range.
+	 */
+	public synchronized void changeActor(Area area, Layer layer, int index, Consumer<? super Actor> change) {
+
+		final Actor actor = this.actors(area, layer, index, 0).get(index);
+		final Actor before = actor.copy();
+
+		change.accept(actor);
+
+		if (Arrays.equals(GameCodec.encode(before), GameCodec.encode(actor)) == false) {
+			this.publish(ModelEvent.actor(ModelEvent.Type.ACTOR_CHANGED, area, layer, index, before, actor));
+		}
+
+		this.done();
+	}
+
+	/**
+	 * Change the header of an area, publishing an event for each field which
+	 * the change makes different.
+	 *
+	 * @param  area                  The area, which must be in the game.
+	 * @param  change                The change to make to the header.
+	 *
+	 * @throws IllegalStateException If the area is not in the game.
+	 */
+	public synchronized void changeHeader(Area area, Consumer<? super AreaHeader> change) {
+
+		this.checkArea(area);
+
+		final AreaHeader before = area.getHeader().copy();
+		change.accept(area.getHeader());
+
+		this.publishHeader(area, before, area.getHeader());
+		this.done();
+	}
+
+	/**
+	 * Add an area to the game's atlas.
+	 *
+	 * @param  area                  The area to add.
+	 *
+	 * @throws IllegalStateException If an area with the same ID is already in
+	 *                               the atlas.
+	 */
+	public synchronized void addArea(Area area) {
+
+		Atlas atlas = this.game.getAtlas();
+
+		if (atlas.get(area.getId()) != null) {
+			throw new IllegalStateException(String.format("Area %s already in atlas", area.getId()));
+		}
+
+		final Map<Area, Integer> indices = new HashMap<>(atlas.getIndexByArea());
+		atlas.add(area);
+
+		this.publish(ModelEvent.area(ModelEvent.Type.AREA_ADDED, area, atlas.getIndex(area)));
+		this.publishIndices(indices);
+		this.done();
+	}
+
+	/**
+	 * Remove an area from the game's atlas. Levels starting in the area are
+	 * left unchanged.
+	 *
+	 * @param  area                  The area to remove.
+	 *
+	 * @throws IllegalStateException If the area is not in the game.
+	 */
+	public synchronized void removeArea(Area area) {
+
+		this.checkArea(area);
+
+		Atlas atlas = this.game.getAtlas();
+		final Map<Area, Integer> indices = new HashMap<>(atlas.getIndexByArea());
+		atlas.remove(area);
+
+		this.publish(ModelEvent.area(ModelEvent.Type.AREA_REMOVED, area, indices.remove(area)));
+		this.publishIndices(indices);
+		this.done();
+	}
+
+	/**
+	 * Change the area in which a level starts.
+	 *
+	 * @param  world                 The zero-based index of the world.
+	 * @param  level                 The zero-based index of the level within
+	 *                               the world.
+	 * @param  area                  The new starting area, which must be in
+	 *                               the game.
+	 *
+	 * @throws IllegalStateException If there is no such level or the area is
+	 *                               not in the game.
+	 */
+	public synchronized void setStartArea(int world, int level, Area area) {
+
+		this.checkArea(area);
+
+		final List<Area> starts = this.startAreas();
+		List<World> worlds = this.game.getScenario().getWorlds();
+
+		if (world < 0 || world >= worlds.size() || level < 0 || level >= worlds.get(world).getLevels().size()) {
+			throw new IllegalStateException(String.format("No level %d-%d in scenario", world + 1, level + 1));
+		}
+
+		worlds.get(world).getLevels().get(level).setStartArea(area);
+		this.publishLevels(starts);
+		this.done();
+	}
+
+	/**
+	 * Apply an edit to the game, publishing events for the changes it makes.
+	 * The changes made by an edit to a single area are found by comparing the
+	 * area before and after; those made by other edits by comparing the
+	 * atlas and scenario.
+	 *
+	 * @param edit The edit to apply.
+	 */
+	public synchronized void apply(Edit edit) {
+
+		if (edit instanceof AreaEdit areaEdit) {
+
+			Area area = this.game.getAtlas().get(areaEdit.getAreaId());
+			final Area before = (area == null) ? null : area.copy();
+
+			edit.apply(this.game);
+
+			if (before != null) {
+				this.publishHeader(area, before.getHeader(), area.getHeader());
+				for (Layer layer : Layer.values()) {
+					this.publishActors(area, layer, Differ.diff(layer, layer.actors(before), layer.actors(area)));
+				}
+			}
+		}
+		else {
+
+			final Map<Area, Integer> indices = new HashMap<>(this.game.getAtlas().getIndexByArea());
+			final List<Area> starts = this.startAreas();
+
+			edit.apply(this.game);
+
+			for (Area area : this.game.getAtlas().getAreas()) {
+				if (indices.containsKey(area) == false) {
+					this.publish(
+						ModelEvent.area(ModelEvent.Type.AREA_ADDED, area, this.game.getAtlas().getIndex(area)));
+				}
+			}
+			for (Map.Entry<Area, Integer> entry : indices.entrySet()) {
+				if (this.game.getAtlas().getIndexByArea().containsKey(entry.getKey()) == false) {
+					this.publish(ModelEvent.area(ModelEvent.Type.AREA_REMOVED, entry.getKey(), entry.getValue()));
+				}
+			}
+			this.publishIndices(indices);
+			this.publishLevels(starts);
+		}
+
+		this.done();
+	}
+
+	private List<Actor> actors(Area area, Layer layer, int index, int extra) {
+
+		this.checkArea(area);
+
+		List<Actor> actors = layer.actors(area);
+
+		if (index < 0 || index >= actors.size() + extra) {
+			throw new IllegalStateException(
+				String.format("No %s actor %d in area %s", layer.name().toLowerCase(), index, area.getId()));
+		}
+
+		return actors;
+	}
+
+	void checkArea(Area area) {
+		if (this.game.getAtlas().getIndexByArea().containsKey(area) == false) {
+			throw new IllegalStateException(String.format("Area %s is not in the game", area.getId()));
+		}
+	}
+
+	List<Area> startAreas() {
+
+		List<Area> starts = new ArrayList<>();
+
+		for (World world : this.game.getScenario().getWorlds()) {
+			for (Level level : world.getLevels()) {
+				starts.add(level.getStartArea());
+			}
+		}
+
+		return starts;
+	}
+
+	private void publishHeader(Area area, AreaHeader before, AreaHeader after) {
+		for (Map.Entry<String, Function<AreaHeader, Object>> field : HEADER_FIELDS.entrySet()) {
+			final Object oldValue = (before == null) ? null : field.getValue().apply(before);
+			final Object newValue = (after == null) ? null : field.getValue().apply(after);
+			if (oldValue == null ? newValue != null : oldValue.equals(newValue) == false) {
+				this.publish(ModelEvent.header(area, field.getKey(), oldValue, newValue));
+			}
+		}
+	}
+
+	private void publishActors(Area area, Layer layer, List<ActorChange> changes) {
+		for (ActorChange change : changes) {
+			switch (change.getType()) {
+				case INSERTED:
+					this.publish(ModelEvent
+						.actor(ModelEvent.Type.ACTOR_INSERTED, area, layer, change.getNewIndex(), null,
+							change.getNewActor()));
+					break;
+				case DELETED:
+					this.publish(ModelEvent
+						.actor(ModelEvent.Type.ACTOR_REMOVED, area, layer, change.getOldIndex(), change.getOldActor(),
+							null));
+					break;
+				default:
+					this.publish(ModelEvent
+						.actor(ModelEvent.Type.ACTOR_CHANGED, area, layer, change.getNewIndex(), change.getOldActor(),
+							change.getNewActor()));
+			}
+		}
+	}
+
+	void publishIndices(Map<Area, Integer> before) {
+
+		Atlas atlas = this.game.getAtlas();
+
+		for (Area area : atlas.getAreas()) {
+			final Integer oldIndex = before.get(area);
+			if (oldIndex != null && oldIndex != atlas.getIndex(area)) {
+				this.publish(ModelEvent.index(area, oldIndex, atlas.getIndex(area)));
+			}
+		}
+	}
+
+	void publishLevels(List<Area> before) {
+
+		int index = 0;
+		List<World> worlds = this.game.getScenario().getWorlds();
+
+		for (int world = 0; world < worlds.size(); world++) {
+			List<Level> levels = worlds.get(world).getLevels();
+			for (int level = 0; level < levels.size(); level++, index++) {
+				final Area start = levels.get(level).getStartArea();
+				if (index < before.size() && before.get(index) != start) {
+					this.publish(ModelEvent.level(index, world, level, before.get(index), start));
+				}
+			}
+		}
+	}
+
+	void publish(ModelEvent event) {
+		this.account(event);
+		this.pending.add(event);
+	}
+
+	/** Account for a change in the fingerprints held. */
+	private void account(ModelEvent event) {
+
+		final AreaFingerprint fingerprint = this.fingerprints.get(event.getArea());
+
+		switch (event.getType()) {
+			case ACTOR_INSERTED:
+			case ACTOR_REMOVED:
+			case ACTOR_CHANGED:
+				if (fingerprint != null) {
+					if (event.getOldValue() != null) {
+						fingerprint.remove((Actor) event.getOldValue());
+					}
+					if (event.getNewValue() != null) {
+						fingerprint.add((Actor) event.getNewValue());
+					}
+				}
+				break;
+			case HEADER_CHANGED:
+				if (fingerprint != null) {
+					fingerprint.headerChanged();
+				}
+				break;
+			case AREA_CHANGED:
+				this.fingerprints.remove(event.getArea());
+				break;
+			case AREA_ADDED:
+			case AREA_REMOVED:
+			case INDEX_CHANGED:
+				// Exit pointers are fingerprinted by the index numbers of their destinations
+				this.fingerprints.clear();
+				break;
+			default:
+				break;
+		}
+	}
+
+	/** Deliver the events of a change at once, unless within a batch. */
+	void done() {
+		if (this.depth == 0) {
+			this.flush();
+		}
+	}
+
+	private void flush() {
+
+		if (this.pending.isEmpty()) {
+			return;
+		}
+
+		final List<ModelEvent> events = List.copyOf(this.pending);
+		this.pending.clear();
+
+		for (ModelListener listener : this.listeners) {
+			this.executor.execute(() -> listener.changed(events));
+		}
+	}
+}
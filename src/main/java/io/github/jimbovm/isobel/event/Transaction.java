@@ -0,0 +1,334 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A set of changes to an {@link ObservableGame} which are validated and
+ * applied together, or not at all.
+ *
+ * Areas are changed through working copies returned by {@link #edit(Area)},
+ * which may be changed freely and as often as needed without anything
+ * outside the transaction seeing the changes. On {@link #commit()}, the
+ * changes are validated once, against the bean constraints of the actors
+ * and the consistency of the atlas and scenario, and then copied into the
+ * game's own areas, so references to those areas held elsewhere stay valid.
+ * The atlas is re-indexed at most once, and listeners receive a single batch
+ * of events with one {@link ModelEvent.Type#AREA_CHANGED} event per changed
+ * area rather than one event per change, so that caches can re-encode each
+ * changed area once.
+ */
+public final class Transaction implements AutoCloseable {
+
+	private final ObservableGame owner;
+
+	/** The game's own areas, mapped to their working copies. */
+	private final Map<Area, Area> working = new LinkedHashMap<>();
+
+	private final List<Area> added = new ArrayList<>();
+
+	private final List<Area> removed = new ArrayList<>();
+
+	/** Levels, mapped to their new starting areas. */
+	private final Map<Level, Area> starts = new IdentityHashMap<>();
+
+	private boolean finished = false;
+
+	Transaction(ObservableGame owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * Return the working copy of an area, through which the area is changed.
+	 *
+	 * @param  area                  An area in the game, or added in this
+	 *                               transaction.
+	 *
+	 * @return                       The working copy, which is the same for
+	 *                               each call, or the area itself if it was
+	 *                               added in this transaction.
+	 *
+	 * @throws IllegalStateException If the area is not in the game or has been
+	 *                               removed in this transaction, or the
+	 *                               transaction is finished.
+	 */
+	public Area edit(Area area) {
+
+		this.checkOpen();
+
+		if (this.added.contains(area)) {
+			return area;
+		}
+		else if (this.removed.contains(area)) {
+			throw new IllegalStateException(String.format("Area %s has been removed", area.getId()));
+		}
+
+		this.owner.checkArea(area);
+
+		return this.working.computeIfAbsent(area, Area::copy);
+	}
+
+	/**
+	 * Add an area to the game.
+	 *
+	 * @param area The area to add.
+	 */
+	public void addArea(Area area) {
+		this.checkOpen();
+		this.added.add(area);
+	}
+
+	/**
+	 * Remove an area from the game, discarding any changes made to it.
+	 *
+	 * @param  area                  The area to remove.
+	 *
+	 * @throws IllegalStateException If the area is not in the game.
+	 */
+	public void removeArea(Area area) {
+
+		this.checkOpen();
+
+		if (this.added.remove(area)) {
+			return;
+		}
+
+		this.owner.checkArea(area);
+		this.working.remove(area);
+		this.removed.add(area);
+	}
+
+	/**
+	 * Change the area in which a level starts.
+	 *
+	 * @param  world                 The zero-based index of the world.
+	 * @param  level                 The zero-based index of the level within
+	 *                               the world.
+	 * @param  area                  The new starting area, which is in the game
+	 *                               or added in this transaction.
+	 *
+	 * @throws IllegalStateException If there is no such level.
+	 */
+	public void setStartArea(int world, int level, Area area) {
+
+		this.checkOpen();
+
+		List<World> worlds = this.owner.getGame().getScenario().getWorlds();
+
+		if (world < 0 || world >= worlds.size() || level < 0 || level >= worlds.get(world).getLevels().size()) {
+			throw new IllegalStateException(String.format("No level %d-%d in scenario", world + 1, level + 1));
+		}
+
+		this.starts.put(worlds.get(world).getLevels().get(level), area);
+	}
+
+	/**
+	 * Validate the changes and, if they are valid, apply them to the game and
+	 * notify listeners of the game with a single batch of events.
+	 *
+	 * @throws IllegalStateException If the changes are invalid, in which case
+	 *                               nothing is applied and the transaction
+	 *                               stays open, or the transaction is
+	 *                               finished.
+	 */
+	public void commit() {
+
+		synchronized (this.owner) {
+
+			this.checkOpen();
+			this.validate();
+
+			Atlas atlas = this.owner.getGame().getAtlas();
+			final Map<Area, Integer> indices = new HashMap<>(atlas.getIndexByArea());
+			final List<Area> levelStarts = this.owner.startAreas();
+
+			// Areas changing environment change index, so are added back
+			List<Area> moved = new ArrayList<>();
+			for (Map.Entry<Area, Area> entry : this.working.entrySet()) {
+				if (entry.getKey().getEnvironment() != entry.getValue().getEnvironment()) {
+					moved.add(entry.getKey());
+				}
+			}
+
+			List<Area> out = new ArrayList<>(this.removed);
+			out.addAll(moved);
+			if (out.isEmpty() == false) {
+				atlas.removeAll(out);
+			}
+
+			for (Map.Entry<Area, Area> entry : this.working.entrySet()) {
+				Area area = entry.getKey();
+				Area copy = entry.getValue();
+				area.setEnvironment(copy.getEnvironment());
+				area.setFamiliarName(copy.getFamiliarName());
+				// The working copy stays in the caller's hands, so its header is not shared
+				area.setHeader((copy.getHeader() == null) ? null : copy.getHeader().copy());
+				area.replaceActors(copy.getGeography(), copy.getPopulation());
+			}
+
+			List<Area> in = new ArrayList<>(this.added);
+			in.addAll(moved);
+			if (in.isEmpty() == false) {
+				atlas.addAll(in);
+			}
+
+			for (Map.Entry<Level, Area> entry : this.starts.entrySet()) {
+				entry.getKey().setStartArea(entry.getValue());
+			}
+
+			this.finished = true;
+
+			this.owner.batch(() -> {
+				for (Area area : this.removed) {
+					this.owner.publish(ModelEvent.area(ModelEvent.Type.AREA_REMOVED, area, indices.get(area)));
+				}
+				for (Area area : this.added) {
+					this.owner.publish(ModelEvent.area(ModelEvent.Type.AREA_ADDED, area, atlas.getIndex(area)));
+				}
+				for (Area area : this.working.keySet()) {
+					this.owner.publish(ModelEvent.area(ModelEvent.Type.AREA_CHANGED, area, atlas.getIndex(area)));
+				}
+				this.owner.publishIndices(indices);
+				this.owner.publishLevels(levelStarts);
+			});
+		}
+	}
+
+	/** Discard the changes, finishing the transaction. */
+	public void rollback() {
+		this.finished = true;
+		this.working.clear();
+		this.added.clear();
+		this.removed.clear();
+		this.starts.clear();
+	}
+
+	/** Discard the changes unless the transaction has been committed. */
+	@Override
+	public void close() {
+		if (this.finished == false) {
+			this.rollback();
+		}
+	}
+
+	private void checkOpen() {
+		if (this.finished) {
+			throw new IllegalStateException("Transaction already finished");
+		}
+	}
+
+	private void validate() {
+
+		Game game = this.owner.getGame();
+		List<String> errors = new ArrayList<>();
+
+		Set<String> ids = new HashSet<>();
+		for (Area area : game.getAtlas().getAreas()) {
+			if (this.removed.contains(area) == false) {
+				ids.add(area.getId());
+			}
+		}
+
+		for (Area area : this.added) {
+			if (ids.add(area.getId()) == false) {
+				errors.add(String.format("Area %s already in atlas", area.getId()));
+			}
+		}
+
+		for (Map.Entry<Area, Area> entry : this.working.entrySet()) {
+			if (entry.getKey().getId().equals(entry.getValue().getId()) == false) {
+				errors.add(String.format("Area %s can't change ID to %s", entry.getKey().getId(),
+					entry.getValue().getId()));
+			}
+		}
+
+		List<Area> changed = new ArrayList<>(this.working.values());
+		changed.addAll(this.added);
+
+		for (Area area : changed) {
+			validate(area, ids, errors);
+		}
+
+		// Areas left unchanged may still point to areas removed
+		for (Area area : game.getAtlas().getAreas()) {
+			if (this.removed.contains(area) == false && this.working.containsKey(area) == false) {
+				checkPointers(area, ids, errors);
+			}
+		}
+
+		List<World> worlds = game.getScenario().getWorlds();
+		for (int world = 0; world < worlds.size(); world++) {
+			List<Level> levels = worlds.get(world).getLevels();
+			for (int level = 0; level < levels.size(); level++) {
+				final Area start = this.starts.getOrDefault(levels.get(level), levels.get(level).getStartArea());
+				if (start != null && (this.removed.contains(start) || ids.contains(start.getId()) == false)) {
+					errors.add(String.format("Level %d-%d starts in area %s, which is not in the atlas", world + 1,
+						level + 1, start.getId()));
+				}
+			}
+		}
+
+		if (errors.isEmpty() == false) {
+			throw new IllegalStateException(String.join("; ", errors));
+		}
+	}
+
+	private static void validate(Area area, Set<String> ids, List<String> errors) {
+
+		Validator validator = ValidatorHolder.VALIDATOR;
+		List<Object> beans = new ArrayList<>(area.getGeography());
+		beans.addAll(area.getPopulation());
+
+		for (Object bean : beans) {
+			for (ConstraintViolation<Object> violation : validator.validate(bean)) {
+				errors.add(String.format("Area %s: %s %s %s", area.getId(), bean.getClass().getSimpleName(),
+					violation.getPropertyPath(), violation.getMessage()));
+			}
+		}
+
+		checkPointers(area, ids, errors);
+
+		if (area.getHeader() == null) {
+			errors.add(String.format("Area %s has no header", area.getId()));
+		}
+	}
+
+	private static void checkPointers(Area area, Set<String> ids, List<String> errors) {
+		for (PopulationActor actor : area.getPopulation()) {
+			if (actor instanceof ExitPointer pointer && ids.contains(pointer.getDestination()) == false) {
+				errors.add(String.format("Area %s: exit pointer to unknown area %s", area.getId(),
+					pointer.getDestination()));
+			}
+		}
+	}
+
+	/** Holds the validator, which is costly to create, until first needed. */
+	private static final class ValidatorHolder {
+
+		private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+	}
+}
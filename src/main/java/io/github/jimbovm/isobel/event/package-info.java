@@ -0,0 +1,6 @@
+/**
+ * An observable layer over the object model, through which changes to a
+ * game are made and published as events to editors, renderers, validators
+ * and caches, so that they can update incrementally.
+ */
+package io.github.jimbovm.isobel.event;
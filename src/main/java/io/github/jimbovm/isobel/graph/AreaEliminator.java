@@ -0,0 +1,103 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * Finds and removes areas that no level can reach in any world, to reclaim
+ * the space their data takes up in the image.
+ *
+ * An area is unreachable if it is neither the starting area of a level nor
+ * reachable from one through exit pointers active in the level's world, as
+ * worked out by a {@link ConnectivityGraph}. An unreachable area is still
+ * kept if an exit pointer in an area that is kept names it, since removing
+ * it would leave that pointer without a destination to encode. The atlas
+ * renumbers the remaining areas when they are removed, and exit pointers
+ * and the starting areas of levels refer to areas rather than to index
+ * numbers, so they encode the new index numbers when the game is next
+ * unparsed.
+ */
+public final class AreaEliminator {
+
+	// non-instantiable
+	private AreaEliminator() {}
+
+	/**
+	 * Find the unreachable areas of a game without removing them.
+	 *
+	 * @param  game The game.
+	 *
+	 * @return      A report of the areas that would be removed and the space
+	 *              that would be reclaimed.
+	 */
+	public static EliminationReport find(Game game) {
+
+		Atlas atlas = game.getAtlas();
+		ConnectivityGraph graph = new ConnectivityGraph(game);
+
+		List<Area> orphans = graph.orphans();
+		Set<Area> unreachable = Collections.newSetFromMap(new IdentityHashMap<>());
+		unreachable.addAll(orphans);
+
+		// Keep areas named by pointers in kept areas, until none is left to keep
+		List<Area> retained = new ArrayList<>();
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Area area : orphans) {
+				if (unreachable.contains(area) && unreachable.containsAll(graph.inbound(area)) == false) {
+					unreachable.remove(area);
+					retained.add(area);
+					changed = true;
+				}
+			}
+		}
+
+		List<Area> removed = new ArrayList<>();
+		int geographyBytes = 0;
+		int populationBytes = 0;
+
+		for (Area area : atlas.getAreas()) {
+			if (unreachable.contains(area)) {
+				removed.add(area);
+				geographyBytes += area.unparseGeography().length;
+				populationBytes += area.unparsePopulation(atlas).length;
+			}
+		}
+
+		retained.sort((first, second) -> Integer.compare(atlas.getIndex(first), atlas.getIndex(second)));
+
+		return new EliminationReport(removed, retained, geographyBytes, populationBytes);
+	}
+
+	/**
+	 * Remove the unreachable areas of a game from its atlas.
+	 *
+	 * @param  game The game.
+	 *
+	 * @return      A report of the areas removed and the space reclaimed.
+	 */
+	public static EliminationReport eliminate(Game game) {
+
+		EliminationReport report = find(game);
+
+		if (report.getRemoved().isEmpty() == false) {
+			game.getAtlas().removeAll(report.getRemoved());
+		}
+
+		return report;
+	}
+}
@@ -0,0 +1,473 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.ExitTable;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A directed graph of the areas of a game, with an edge from each area to
+ * every area to which one of its exit pointers leads.
+ *
+ * Areas are identified by their index numbers in the atlas, and the edges
+ * of each area are held in arrays of ints, each packing the index number of
+ * the area at the other end with the first world in which any pointer
+ * making up the edge is active, so that queries for a given world follow
+ * only the edges active in it. Pointers to areas not in the atlas are
+ * ignored.
+ *
+ * The graph is built once from the game and can then be kept up to date
+ * area by area: after the exit pointers of an area are changed, call
+ * {@link #update(Area)}, which takes time in proportion to the pointers and
+ * edges of that area. After areas are added to or removed from the atlas,
+ * which changes index numbers, call {@link #rebuild()}. The starting areas
+ * of levels are read from the scenario on each query, and need no update.
+ */
+public final class ConnectivityGraph {
+
+	private static final int WORLD_SHIFT = 8;
+
+	private static final int INDEX_MASK = (1 << WORLD_SHIFT) - 1;
+
+	private static final int[] NONE = new int[0];
+
+	/** The game whose areas are connected. */
+	@Getter
+	private final Game game;
+
+	/** Areas by index number, with <code>null</code> for unused numbers. */
+	private Area[] areas;
+
+	/** For each area, the packed edges to the areas to which it leads. */
+	private int[][] outbound;
+
+	/** For each area, the packed edges from the areas which lead to it. */
+	private int[][] inbound;
+
+	/**
+	 * Build the graph of a game.
+	 *
+	 * @param  game                  The game.
+	 *
+	 * @throws IllegalStateException If two areas in the atlas share an index
+	 *                               number.
+	 */
+	public ConnectivityGraph(Game game) {
+		this.game = game;
+		this.rebuild();
+	}
+
+	/**
+	 * Build the graph afresh, as after areas are added to or removed from the
+	 * atlas.
+	 *
+	 * @throws IllegalStateException If two areas in the atlas share an index
+	 *                               number.
+	 */
+	public void rebuild() {
+
+		Atlas atlas = this.game.getAtlas();
+
+		int capacity = 0;
+		for (Area area : atlas.getAreas()) {
+			capacity = Math.max(capacity, atlas.getIndex(area) + 1);
+		}
+
+		this.areas = new Area[capacity];
+		this.outbound = new int[capacity][];
+		this.inbound = new int[capacity][];
+		Arrays.fill(this.outbound, NONE);
+		Arrays.fill(this.inbound, NONE);
+
+		for (Area area : atlas.getAreas()) {
+			final int index = atlas.getIndex(area);
+			if (this.areas[index] != null) {
+				throw new IllegalStateException(String.format("Areas %s and %s share index %02X",
+					this.areas[index].getId(), area.getId(), index));
+			}
+			this.areas[index] = area;
+		}
+
+		for (int index = 0; index < capacity; index++) {
+			if (this.areas[index] != null) {
+				this.connect(index, this.edges(this.areas[index]));
+			}
+		}
+	}
+
+	/**
+	 * Bring the edges leading from an area up to date with its exit pointers.
+	 *
+	 * @param  area                  An area in the graph.
+	 *
+	 * @throws IllegalStateException If the area is not in the graph.
+	 */
+	public void update(Area area) {
+
+		final int index = this.indexOf(area);
+
+		for (int edge : this.outbound[index]) {
+			final int target = edge & INDEX_MASK;
+			this.inbound[target] = remove(this.inbound[target], index);
+		}
+
+		this.connect(index, this.edges(area));
+	}
+
+	/**
+	 * Return the areas reachable from the start of a level, in the level's
+	 * world.
+	 *
+	 * @param  world                 The zero-based index of the world.
+	 * @param  level                 The zero-based index of the level within
+	 *                               the world.
+	 *
+	 * @return                       The areas, the starting area included, in
+	 *                               order of index number.
+	 *
+	 * @throws IllegalStateException If there is no such level.
+	 */
+	public List<Area> reachable(int world, int level) {
+
+		List<World> worlds = this.game.getScenario().getWorlds();
+
+		if (world < 0 || world >= worlds.size() || level < 0 || level >= worlds.get(world).getLevels().size()) {
+			throw new IllegalStateException(String.format("No level %d-%d in scenario", world + 1, level + 1));
+		}
+
+		boolean[] reached = new boolean[this.areas.length];
+		this.search(this.indexOf(worlds.get(world).getLevels().get(level).getStartArea()), world, reached, null);
+
+		return this.toAreas(reached, true);
+	}
+
+	/**
+	 * Return the areas which cannot be reached from the start of any level in
+	 * its world.
+	 *
+	 * @return The areas, in order of index number.
+	 */
+	public List<Area> orphans() {
+		return this.toAreas(this.reachedFromLevels(), false);
+	}
+
+	/**
+	 * Return the areas with exit pointers leading to an area in any world.
+	 *
+	 * @param  area                  An area in the graph.
+	 *
+	 * @return                       The areas, in order of index number.
+	 *
+	 * @throws IllegalStateException If the area is not in the graph.
+	 */
+	public List<Area> inbound(Area area) {
+
+		boolean[] sources = new boolean[this.areas.length];
+
+		for (int edge : this.inbound[this.indexOf(area)]) {
+			sources[edge & INDEX_MASK] = true;
+		}
+
+		return this.toAreas(sources, true);
+	}
+
+	/**
+	 * Return the areas with exit pointers to which an area leads in any world.
+	 *
+	 * @param  area                  An area in the graph.
+	 *
+	 * @return                       The areas, in order of index number.
+	 *
+	 * @throws IllegalStateException If the area is not in the graph.
+	 */
+	public List<Area> outbound(Area area) {
+
+		boolean[] targets = new boolean[this.areas.length];
+
+		for (int edge : this.outbound[this.indexOf(area)]) {
+			targets[edge & INDEX_MASK] = true;
+		}
+
+		return this.toAreas(targets, true);
+	}
+
+	/**
+	 * Return the cycles of areas, each a set of areas from any of which every
+	 * other can be reached, following exit pointers active in any world.
+	 *
+	 * @return The cycles, each with at least two areas or an area leading to
+	 *         itself, in order of their lowest index number.
+	 */
+	public List<List<Area>> cycles() {
+
+		Tarjan tarjan = new Tarjan();
+
+		for (int index = 0; index < this.areas.length; index++) {
+			if (this.areas[index] != null && tarjan.order[index] == 0) {
+				tarjan.visit(index);
+			}
+		}
+
+		tarjan.cycles.sort((first, second) -> Integer.compare(first.get(0), second.get(0)));
+
+		List<List<Area>> cycles = new ArrayList<>(tarjan.cycles.size());
+		for (List<Integer> cycle : tarjan.cycles) {
+			List<Area> areas = new ArrayList<>(cycle.size());
+			for (int index : cycle) {
+				areas.add(this.areas[index]);
+			}
+			cycles.add(areas);
+		}
+
+		return cycles;
+	}
+
+	/**
+	 * Return a shortest route from one area to another through exit pointers
+	 * active in a world.
+	 *
+	 * @param  from                  The area to start from.
+	 * @param  to                    The area to reach.
+	 * @param  world                 The zero-based index of the world.
+	 *
+	 * @return                       The areas along the route, the first and
+	 *                               last included, or an empty list if there
+	 *                               is no route.
+	 *
+	 * @throws IllegalStateException If either area is not in the graph.
+	 */
+	public List<Area> shortestPath(Area from, Area to, int world) {
+
+		final int start = this.indexOf(from);
+		final int end = this.indexOf(to);
+
+		int[] previous = new int[this.areas.length];
+		Arrays.fill(previous, -1);
+		previous[start] = start;
+
+		this.search(start, world, new boolean[this.areas.length], previous);
+
+		if (previous[end] < 0) {
+			return List.of();
+		}
+
+		List<Area> path = new ArrayList<>();
+		for (int index = end; index != start; index = previous[index]) {
+			path.add(this.areas[index]);
+		}
+		path.add(from);
+
+		Collections.reverse(path);
+		return path;
+	}
+
+	private int indexOf(Area area) {
+
+		final Integer index = this.game.getAtlas().getIndexByArea().get(area);
+
+		if (index == null || index >= this.areas.length || this.areas[index] != area) {
+			throw new IllegalStateException(
+				String.format("Area %s not in graph", (area == null) ? null : area.getId()));
+		}
+
+		return index;
+	}
+
+	/** Return the packed edges leading from an area, one per destination. */
+	private int[] edges(Area area) {
+
+		Atlas atlas = this.game.getAtlas();
+		int[] edges = new int[area.getPopulation().size()];
+		int count = 0;
+
+		for (PopulationActor actor : area.getPopulation()) {
+
+			if (actor instanceof ExitPointer pointer) {
+
+				final Area destination = atlas.get(pointer.getDestination());
+				final int world = Math.max(pointer.getActiveFromWorld(), 0);
+				if (destination == null || world >= ExitTable.WORLDS) {
+					continue;
+				}
+
+				// Pointers to the same area make one edge, active from the first world of any
+				final int target = atlas.getIndex(destination);
+				int i = 0;
+				while (i < count && (edges[i] & INDEX_MASK) != target) {
+					i++;
+				}
+				if (i == count) {
+					edges[count++] = target | (world << WORLD_SHIFT);
+				}
+				else {
+					edges[i] = target | (Math.min(edges[i] >>> WORLD_SHIFT, world) << WORLD_SHIFT);
+				}
+			}
+		}
+
+		return (count == 0) ? NONE : Arrays.copyOf(edges, count);
+	}
+
+	private void connect(int index, int[] edges) {
+
+		this.outbound[index] = edges;
+
+		for (int edge : edges) {
+			final int target = edge & INDEX_MASK;
+			int[] sources = Arrays.copyOf(this.inbound[target], this.inbound[target].length + 1);
+			sources[sources.length - 1] = index | (edge & ~INDEX_MASK);
+			this.inbound[target] = sources;
+		}
+	}
+
+	private static int[] remove(int[] edges, int index) {
+
+		for (int i = 0; i < edges.length; i++) {
+			if ((edges[i] & INDEX_MASK) == index) {
+				int[] removed = new int[edges.length - 1];
+				System.arraycopy(edges, 0, removed, 0, i);
+				System.arraycopy(edges, i + 1, removed, i, removed.length - i);
+				return removed;
+			}
+		}
+
+		return edges;
+	}
+
+	/**
+	 * Mark the areas reachable from a starting area in a world, breadth
+	 * first, recording the area from which each was first reached if asked.
+	 */
+	private void search(int start, int world, boolean[] reached, int[] previous) {
+
+		int[] queue = new int[this.areas.length];
+		int head = 0;
+		int tail = 0;
+
+		reached[start] = true;
+		queue[tail++] = start;
+
+		while (head < tail) {
+			final int index = queue[head++];
+			for (int edge : this.outbound[index]) {
+				final int target = edge & INDEX_MASK;
+				if (reached[target] == false && (edge >>> WORLD_SHIFT) <= world) {
+					reached[target] = true;
+					if (previous != null) {
+						previous[target] = index;
+					}
+					queue[tail++] = target;
+				}
+			}
+		}
+	}
+
+	private boolean[] reachedFromLevels() {
+
+		boolean[] reached = new boolean[this.areas.length];
+		List<World> worlds = this.game.getScenario().getWorlds();
+
+		for (int world = 0; world < worlds.size(); world++) {
+			boolean[] inWorld = new boolean[this.areas.length];
+			for (Level level : worlds.get(world).getLevels()) {
+				final Integer start = this.game.getAtlas().getIndexByArea().get(level.getStartArea());
+				if (start != null && inWorld[start] == false) {
+					this.search(start, world, inWorld, null);
+				}
+			}
+			for (int index = 0; index < reached.length; index++) {
+				reached[index] |= inWorld[index];
+			}
+		}
+
+		return reached;
+	}
+
+	private List<Area> toAreas(boolean[] marks, boolean marked) {
+
+		List<Area> areas = new ArrayList<>();
+
+		for (int index = 0; index < this.areas.length; index++) {
+			if (this.areas[index] != null && marks[index] == marked) {
+				areas.add(this.areas[index]);
+			}
+		}
+
+		return areas;
+	}
+
+	/** Tarjan's algorithm for strongly connected components, over edges active in any world. */
+	private final class Tarjan {
+
+		private final int[] order = new int[ConnectivityGraph.this.areas.length];
+
+		private final int[] lowest = new int[ConnectivityGraph.this.areas.length];
+
+		private final boolean[] onStack = new boolean[ConnectivityGraph.this.areas.length];
+
+		private final int[] stack = new int[ConnectivityGraph.this.areas.length];
+
+		private final List<List<Integer>> cycles = new ArrayList<>();
+
+		private int depth = 0;
+
+		private int counter = 0;
+
+		void visit(int index) {
+
+			this.order[index] = ++this.counter;
+			this.lowest[index] = this.counter;
+			this.stack[this.depth++] = index;
+			this.onStack[index] = true;
+
+			boolean selfLoop = false;
+
+			for (int edge : ConnectivityGraph.this.outbound[index]) {
+				final int target = edge & INDEX_MASK;
+				if (target == index) {
+					selfLoop = true;
+				}
+				else if (this.order[target] == 0) {
+					this.visit(target);
+					this.lowest[index] = Math.min(this.lowest[index], this.lowest[target]);
+				}
+				else if (this.onStack[target]) {
+					this.lowest[index] = Math.min(this.lowest[index], this.order[target]);
+				}
+			}
+
+			if (this.lowest[index] == this.order[index]) {
+				List<Integer> component = new ArrayList<>();
+				int member;
+				do {
+					member = this.stack[--this.depth];
+					this.onStack[member] = false;
+					component.add(member);
+				}
+				while (member != index);
+
+				if (component.size() > 1 || selfLoop) {
+					component.sort(null);
+					this.cycles.add(component);
+				}
+			}
+		}
+	}
+}
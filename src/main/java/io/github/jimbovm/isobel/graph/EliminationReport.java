@@ -0,0 +1,49 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.graph;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+
+/** The outcome of finding or eliminating unreachable areas. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class EliminationReport {
+
+	/** The areas no level can reach, which are or would be removed. */
+	private final List<Area> removed;
+
+	/**
+	 * Areas no level can reach which are kept, as exit pointers in areas kept
+	 * still name them, although those pointers are never active while their
+	 * areas can be reached.
+	 */
+	private final List<Area> retained;
+
+	/** The size in bytes of the geography data of the removed areas. */
+	private final int geographyBytes;
+
+	/** The size in bytes of the population data of the removed areas. */
+	private final int populationBytes;
+
+	/**
+	 * Return the total space reclaimed.
+	 *
+	 * @return The size in bytes of the geography and population data of the
+	 *         removed areas.
+	 */
+	public int getReclaimedBytes() {
+		return this.geographyBytes + this.populationBytes;
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * The connectivity of the areas of a game, as formed by the starting areas
+ * of its levels and the exit pointers leading from area to area.
+ */
+package io.github.jimbovm.isobel.graph;
@@ -0,0 +1,396 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Functionality for reading and writing patches in the BPS format.
+ *
+ * A BPS patch is the string <code>BPS1</code>, followed by the sizes of the
+ * source and target and of any metadata, then a sequence of actions which
+ * build the target from start to end, and finally the CRC-32 checksums of the
+ * source, the target and the patch itself. Unlike IPS, a BPS patch can only
+ * be applied to the exact source it was made from.
+ *
+ * Changes are written as runs of bytes copied from the same position in the
+ * source and runs of new bytes, with repeated bytes written as a copy from
+ * the target overlapping the position being written.
+ */
+public final class BpsPatch {
+
+	/** The string with which every BPS patch begins. */
+	static final byte[] HEADER = "BPS1".getBytes(StandardCharsets.US_ASCII);
+
+	/** Copy bytes from the same position in the source. */
+	static final int SOURCE_READ = 0;
+
+	/** Copy bytes from the patch. */
+	static final int TARGET_READ = 1;
+
+	/** Copy bytes from any position in the source. */
+	static final int SOURCE_COPY = 2;
+
+	/** Copy bytes already written to the target. */
+	static final int TARGET_COPY = 3;
+
+	/** The smallest run of a repeated byte written as a copy from the target. */
+	private static final int MINIMUM_RUN = 4;
+
+	// non-instantiable
+	private BpsPatch() {}
+
+	/**
+	 * Write a BPS patch which transforms a source image into the same image
+	 * with a set of changes applied. The changes must lie within the source.
+	 *
+	 * @param  source                   The source image.
+	 * @param  changes                  Non-overlapping runs of bytes to be
+	 *                                  written over the source, keyed by their
+	 *                                  offset within the source.
+	 * @param  output                   The stream to write the patch to, which is
+	 *                                  not closed.
+	 *
+	 * @throws IOException              In the event of a problem writing to the
+	 *                                  stream.
+	 * @throws IllegalArgumentException If a change lies outside the source.
+	 */
+	public static void write(byte[] source, SortedMap<Integer, byte[]> changes, OutputStream output)
+		throws IOException {
+
+		CRC32 patchChecksum = new CRC32();
+		CheckedOutputStream patch = new CheckedOutputStream(output, patchChecksum);
+		Encoder encoder = new Encoder(patch);
+
+		patch.write(HEADER);
+		writeNumber(patch, source.length);
+		writeNumber(patch, source.length);
+		writeNumber(patch, 0);
+
+		for (Map.Entry<Integer, byte[]> change : changes.entrySet()) {
+
+			final int offset = change.getKey();
+			final byte[] data = change.getValue();
+
+			if (offset < encoder.position || offset + data.length > source.length) {
+				throw new IllegalArgumentException(
+					String.format("Change of %d bytes at %X lies outside the source", data.length, offset));
+			}
+
+			encoder.sourceRead(source, offset - encoder.position);
+
+			for (int i = 0; i < data.length; i++) {
+				if (data[i] == source[offset + i]) {
+					encoder.sourceRead(source, 1);
+				}
+				else {
+					int run = i + 1;
+					while (run < data.length && data[run] == data[i] && data[run] != source[offset + run]) {
+						run++;
+					}
+					encoder.targetRun(data[i], run - i);
+					i = run - 1;
+				}
+			}
+		}
+
+		encoder.sourceRead(source, source.length - encoder.position);
+		encoder.flush();
+
+		CRC32 sourceChecksum = new CRC32();
+		sourceChecksum.update(source);
+		writeChecksum(patch, sourceChecksum.getValue());
+		writeChecksum(patch, encoder.targetChecksum.getValue());
+		// The patch checksum covers everything before it
+		writeChecksum(output, patchChecksum.getValue());
+		output.flush();
+	}
+
+	/**
+	 * Read a BPS patch as a view of a base image with the patch applied.
+	 * The checksums of the base image and the patch are verified; the checksum
+	 * of the target is not, as that would require reading the whole view.
+	 *
+	 * @param  base        The image to which the patch applies, which is not
+	 *                     copied.
+	 * @param  patch       The contents of the patch, which is not copied.
+	 *
+	 * @return             A view of the patched image.
+	 *
+	 * @throws IOException If the patch is malformed or was not made from the
+	 *                     base image.
+	 */
+	public static PatchedImage read(byte[] base, byte[] patch) throws IOException {
+
+		final int footerSize = 12;
+
+		if (patch.length < HEADER.length + footerSize
+			|| Arrays.equals(patch, 0, HEADER.length, HEADER, 0, HEADER.length) == false) {
+			throw new IOException("Not a BPS patch");
+		}
+
+		ByteBuffer footer =
+			ByteBuffer.wrap(patch, patch.length - footerSize, footerSize).order(ByteOrder.LITTLE_ENDIAN);
+		final long sourceChecksum = footer.getInt() & 0xFFFFFFFFL;
+		footer.getInt();
+		final long patchChecksum = footer.getInt() & 0xFFFFFFFFL;
+
+		CRC32 checksum = new CRC32();
+		checksum.update(patch, 0, patch.length - 4);
+		if (checksum.getValue() != patchChecksum) {
+			throw new IOException("BPS patch is corrupt");
+		}
+
+		checksum.reset();
+		checksum.update(base);
+		if (checksum.getValue() != sourceChecksum) {
+			throw new IOException("BPS patch was not made from this image");
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(patch, HEADER.length, patch.length - HEADER.length - footerSize);
+
+		try {
+			if (readNumber(buffer) != base.length) {
+				throw new IOException("BPS patch was not made from this image");
+			}
+
+			final int targetSize = (int) readNumber(buffer);
+			final int metadataSize = (int) readNumber(buffer);
+			buffer.position(buffer.position() + metadataSize);
+
+			PatchedImage image = new PatchedImage(base, targetSize);
+			int position = 0;
+			int sourceRelativeOffset = 0;
+			int targetRelativeOffset = 0;
+
+			while (buffer.hasRemaining()) {
+
+				final long data = readNumber(buffer);
+				final int length = (int) (data >> 2) + 1;
+
+				if (position + length > targetSize) {
+					throw new IOException("BPS patch writes beyond the end of the target");
+				}
+
+				switch ((int) (data & 0b11)) {
+					case SOURCE_READ:
+						checkRange(position, length, base.length);
+						break;
+					case TARGET_READ:
+						checkRange(buffer.position(), length, buffer.limit());
+						image.copy(position, patch, buffer.position(), length);
+						buffer.position(buffer.position() + length);
+						break;
+					case SOURCE_COPY:
+						sourceRelativeOffset += readOffset(buffer);
+						checkRange(sourceRelativeOffset, length, base.length);
+						image.copyFromBase(position, sourceRelativeOffset, length);
+						sourceRelativeOffset += length;
+						break;
+					default:
+						targetRelativeOffset += readOffset(buffer);
+						checkRange(targetRelativeOffset, 1, position);
+						copyFromTarget(image, position, targetRelativeOffset, length);
+						targetRelativeOffset += length;
+						break;
+				}
+
+				position += length;
+			}
+
+			if (position != targetSize) {
+				throw new IOException("BPS patch ends before the end of the target");
+			}
+
+			return image;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("BPS patch ends unexpectedly");
+		}
+	}
+
+	private static void checkRange(int start, int length, int limit) throws IOException {
+		if (start < 0 || start + length > limit) {
+			throw new IOException("BPS patch refers to data out of range");
+		}
+	}
+
+	private static void copyFromTarget(PatchedImage image, int position, int from, int length) {
+
+		// The usual case of a run of one repeated byte needs no storage
+		if (from == position - 1) {
+			image.fill(position, image.get(from), length);
+			return;
+		}
+
+		// Otherwise, copy byte by byte, as the source may overlap the copy
+		byte[] copy = new byte[length];
+		for (int i = 0; i < length; i++) {
+			final int source = from + i;
+			copy[i] = (source < position) ? image.get(source) : copy[source - position];
+		}
+		image.copy(position, copy, 0, length);
+	}
+
+	/**
+	 * Read a number in the variable-length encoding used by BPS.
+	 *
+	 * @param  buffer The buffer to read from.
+	 *
+	 * @return        The number read.
+	 *
+	 * @see           #writeNumber(OutputStream, long)
+	 */
+	static long readNumber(ByteBuffer buffer) {
+
+		long number = 0;
+		long shift = 1;
+
+		while (true) {
+			final int bits = buffer.get() & 0xFF;
+			number += (bits & 0x7F) * shift;
+			if ((bits & 0x80) != 0) {
+				return number;
+			}
+			shift <<= 7;
+			number += shift;
+		}
+	}
+
+	private static int readOffset(ByteBuffer buffer) {
+		final long data = readNumber(buffer);
+		return (int) (((data & 1) != 0) ? -(data >> 1) : (data >> 1));
+	}
+
+	/**
+	 * Write a number in the variable-length encoding used by BPS, in which
+	 * each byte holds seven bits, least significant first, and the high bit
+	 * marks the last byte.
+	 *
+	 * @param  output      The stream to write to.
+	 * @param  number      The non-negative number to write.
+	 *
+	 * @throws IOException In the event of a problem writing to the stream.
+	 */
+	static void writeNumber(OutputStream output, long number) throws IOException {
+
+		while (true) {
+			final int bits = (int) (number & 0x7F);
+			number >>>= 7;
+			if (number == 0) {
+				output.write(0x80 | bits);
+				return;
+			}
+			output.write(bits);
+			number--;
+		}
+	}
+
+	private static void writeChecksum(OutputStream output, long checksum) throws IOException {
+		for (int i = 0; i < 4; i++) {
+			output.write((int) (checksum >>> (8 * i)));
+		}
+	}
+
+	/**
+	 * Builds the sequence of actions, merging adjacent actions of the same
+	 * kind and keeping track of the target as it is written.
+	 */
+	private static final class Encoder {
+
+		private final OutputStream patch;
+
+		private final CRC32 targetChecksum = new CRC32();
+
+		private final ByteArrayOutputStream literal = new ByteArrayOutputStream();
+
+		/** The number of bytes of the target described so far. */
+		private int position = 0;
+
+		private int pendingSourceRead = 0;
+
+		private long targetRelativeOffset = 0;
+
+		Encoder(OutputStream patch) {
+			this.patch = patch;
+		}
+
+		void sourceRead(byte[] source, int length) throws IOException {
+
+			if (length <= 0) {
+				return;
+			}
+
+			this.flushLiteral();
+			this.targetChecksum.update(source, this.position, length);
+			this.pendingSourceRead += length;
+			this.position += length;
+		}
+
+		void targetRun(byte value, int length) throws IOException {
+
+			this.flushSourceRead();
+
+			for (int i = 0; i < length; i++) {
+				this.targetChecksum.update(value);
+			}
+
+			if (length < MINIMUM_RUN) {
+				for (int i = 0; i < length; i++) {
+					this.literal.write(value);
+				}
+				this.position += length;
+				return;
+			}
+
+			// Write the value once, then copy it from one byte behind
+			this.literal.write(value);
+			this.flushLiteral();
+			this.position += 1;
+
+			final long copyOffset = this.position - 1;
+			final long delta = copyOffset - this.targetRelativeOffset;
+			writeNumber(this.patch, ((long) (length - 2) << 2) | TARGET_COPY);
+			writeNumber(this.patch, (Math.abs(delta) << 1) | (delta < 0 ? 1 : 0));
+			this.targetRelativeOffset = copyOffset + length - 1;
+			this.position += length - 1;
+		}
+
+		void flush() throws IOException {
+			this.flushSourceRead();
+			this.flushLiteral();
+		}
+
+		private void flushSourceRead() throws IOException {
+
+			if (this.pendingSourceRead > 0) {
+				writeNumber(this.patch, ((long) (this.pendingSourceRead - 1) << 2) | SOURCE_READ);
+				this.pendingSourceRead = 0;
+			}
+		}
+
+		private void flushLiteral() throws IOException {
+
+			if (this.literal.size() > 0) {
+				writeNumber(this.patch, ((long) (this.literal.size() - 1) << 2) | TARGET_READ);
+				this.literal.writeTo(this.patch);
+				this.literal.reset();
+			}
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Functionality for reading and writing patches in the IPS format.
+ *
+ * An IPS patch is the string <code>PATCH</code>, followed by any number of
+ * records and then the string <code>EOF</code>. Each record is a three-byte
+ * offset and a two-byte length followed by that many bytes of data, or, if
+ * the length is zero, a two-byte length and a single byte to be repeated
+ * that many times. All values are big-endian. The footer may be followed by
+ * a three-byte length to which the patched image is truncated.
+ */
+public final class IpsPatch {
+
+	/** The string with which every IPS patch begins. */
+	static final byte[] HEADER = "PATCH".getBytes(StandardCharsets.US_ASCII);
+
+	/** The string with which every IPS patch ends. */
+	static final byte[] FOOTER = "EOF".getBytes(StandardCharsets.US_ASCII);
+
+	/** The offset which can't begin a record, as it would be read as the footer. */
+	static final int FOOTER_OFFSET = 0x454F46;
+
+	/** The largest offset which fits in three bytes. */
+	static final int MAXIMUM_OFFSET = 0xFFFFFF;
+
+	/** The largest number of bytes in a single record. */
+	static final int MAXIMUM_LENGTH = 0xFFFF;
+
+	/**
+	 * The smallest run of unchanged bytes which ends a record, as records
+	 * separated by fewer bytes take up less space combined.
+	 */
+	private static final int MINIMUM_GAP = 6;
+
+	/** The smallest run of a repeated byte written as a run-length record. */
+	private static final int MINIMUM_RUN = 9;
+
+	// non-instantiable
+	private IpsPatch() {}
+
+	/**
+	 * Write an IPS patch which transforms a source image into the same image
+	 * with a set of changes applied. Only bytes which differ from the source
+	 * are written to the patch.
+	 *
+	 * @param  source                   The source image.
+	 * @param  changes                  Non-overlapping runs of bytes to be
+	 *                                  written over the source, keyed by their
+	 *                                  offset within the source.
+	 * @param  output                   The stream to write the patch to, which is
+	 *                                  not closed.
+	 *
+	 * @throws IOException              In the event of a problem writing to the
+	 *                                  stream.
+	 * @throws IllegalArgumentException If a change lies at an offset which can't
+	 *                                  be represented in an IPS patch.
+	 */
+	public static void write(byte[] source, SortedMap<Integer, byte[]> changes, OutputStream output)
+		throws IOException {
+
+		DataOutputStream patch = new DataOutputStream(output);
+		patch.write(HEADER);
+
+		for (Map.Entry<Integer, byte[]> change : changes.entrySet()) {
+
+			final int offset = change.getKey();
+			final byte[] data = change.getValue();
+
+			int start = nextDifference(source, offset, data, 0);
+
+			while (start < data.length) {
+
+				// Extend the record up to a long enough run of unchanged bytes
+				int end = start + 1;
+				int next = nextDifference(source, offset, data, end);
+				while (next < data.length && next - end < MINIMUM_GAP && next - start < MAXIMUM_LENGTH) {
+					end = next + 1;
+					next = nextDifference(source, offset, data, end);
+				}
+
+				writeRecords(patch, offset + start, data, start, end);
+				start = next;
+			}
+		}
+
+		patch.write(FOOTER);
+		patch.flush();
+	}
+
+	/**
+	 * Read an IPS patch as a view of a base image with the patch applied.
+	 * Where records overlap, later records take precedence.
+	 *
+	 * @param  base        The image to which the patch applies, which is not
+	 *                     copied.
+	 * @param  patch       The contents of the patch, which is not copied.
+	 *
+	 * @return             A view of the patched image.
+	 *
+	 * @throws IOException If the patch is malformed.
+	 */
+	public static PatchedImage read(byte[] base, byte[] patch) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.wrap(patch);
+		byte[] header = new byte[HEADER.length];
+		PatchedImage image = new PatchedImage(base, base.length);
+		int length = base.length;
+
+		try {
+			buffer.get(header);
+			if (Arrays.equals(header, HEADER) == false) {
+				throw new IOException("Not an IPS patch");
+			}
+
+			while (true) {
+
+				final int offset = readOffset(buffer);
+				if (offset == FOOTER_OFFSET) {
+					break;
+				}
+
+				int size = buffer.getShort() & 0xFFFF;
+
+				if (size == 0) {
+					size = buffer.getShort() & 0xFFFF;
+					image.fill(offset, buffer.get(), size);
+				}
+				else {
+					if (buffer.remaining() < size) {
+						throw new BufferUnderflowException();
+					}
+					image.copy(offset, patch, buffer.position(), size);
+					buffer.position(buffer.position() + size);
+				}
+
+				length = Math.max(length, offset + size);
+			}
+
+			if (buffer.remaining() >= 3) {
+				length = readOffset(buffer);
+			}
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("IPS patch ends unexpectedly");
+		}
+
+		image.setLength(length);
+
+		return image;
+	}
+
+	private static int readOffset(ByteBuffer buffer) {
+		return ((buffer.get() & 0xFF) << 16) | (buffer.getShort() & 0xFFFF);
+	}
+
+	private static int nextDifference(byte[] source, int offset, byte[] data, int from) {
+
+		int i = from;
+
+		while (i < data.length && offset + i < source.length && data[i] == source[offset + i]) {
+			i++;
+		}
+
+		return i;
+	}
+
+	private static void writeRecords(DataOutputStream patch, int offset, byte[] data, int start, int end)
+		throws IOException {
+
+		int literalStart = start;
+		int i = start;
+
+		while (i < end) {
+
+			int run = i + 1;
+			while (run < end && data[run] == data[i]) {
+				run++;
+			}
+
+			final boolean wholeRecord = (i == literalStart && run == end && run - i > 3);
+
+			if (run - i >= MINIMUM_RUN || wholeRecord) {
+				writeLiteral(patch, offset + (literalStart - start), data, literalStart, i);
+				writeRun(patch, offset + (i - start), data[i], run - i);
+				literalStart = run;
+			}
+
+			i = run;
+		}
+
+		writeLiteral(patch, offset + (literalStart - start), data, literalStart, end);
+	}
+
+	private static void writeOffset(DataOutputStream patch, int offset) throws IOException {
+
+		if (offset == FOOTER_OFFSET || offset > MAXIMUM_OFFSET) {
+			throw new IllegalArgumentException(
+				String.format("Cannot write a record at offset %06X to an IPS patch", offset));
+		}
+
+		patch.writeByte(offset >> 16);
+		patch.writeShort(offset);
+	}
+
+	private static void writeLiteral(DataOutputStream patch, int offset, byte[] data, int start, int end)
+		throws IOException {
+
+		if (end > start) {
+			writeOffset(patch, offset);
+			patch.writeShort(end - start);
+			patch.write(data, start, end - start);
+		}
+	}
+
+	private static void writeRun(DataOutputStream patch, int offset, byte value, int length) throws IOException {
+		writeOffset(patch, offset);
+		patch.writeShort(0);
+		patch.writeShort(length);
+		patch.writeByte(value);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import io.github.jimbovm.isobel.bytecode.game.GameParser;
+import io.github.jimbovm.isobel.bytecode.game.GameUnparser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * Exports a {@link Game} as a patch against the binary image it was parsed
+ * from, so that modified games can be distributed without distributing the
+ * original image.
+ *
+ * The patch is computed from the changes returned by a {@link GameUnparser}
+ * and written directly to a stream; no second image is built. An exporter
+ * should be kept for as long as the game is being edited, so that each new
+ * patch only requires the areas changed since the last one to be unparsed.
+ * Changed areas must be reported with {@link #invalidate(Area)}.
+ */
+public final class PatchExporter {
+
+	private final byte[] source;
+
+	private final int headerSize;
+
+	private final GameUnparser unparser;
+
+	/**
+	 * Create a new exporter for patches against the supplied image.
+	 *
+	 * @param source The original binary image, exactly as distributed; if it
+	 *               has an iNES header, patches include the header in their
+	 *               offsets. The array is not modified.
+	 */
+	public PatchExporter(byte[] source) {
+		this.source = source;
+		this.headerSize = source.length - GameParser.stripHeader(source).length;
+		this.unparser = new GameUnparser(source);
+	}
+
+	/**
+	 * Mark an area as changed since the last patch was written.
+	 *
+	 * @param area The area which has changed.
+	 */
+	public void invalidate(Area area) {
+		this.unparser.invalidate(area);
+	}
+
+	/** Mark every area as changed since the last patch was written. */
+	public void invalidateAll() {
+		this.unparser.invalidateAll();
+	}
+
+	/**
+	 * Compute the changes to the source image needed to represent a game.
+	 *
+	 * @param  game The game to export.
+	 *
+	 * @return      Non-overlapping runs of bytes to be written over the
+	 *              source, keyed by their offset within the source.
+	 */
+	public SortedMap<Integer, byte[]> changes(Game game) {
+
+		SortedMap<Integer, byte[]> changes = this.unparser.unparse(game);
+
+		if (this.headerSize == 0) {
+			return changes;
+		}
+
+		SortedMap<Integer, byte[]> shifted = new TreeMap<>();
+		for (Map.Entry<Integer, byte[]> change : changes.entrySet()) {
+			shifted.put(change.getKey() + this.headerSize, change.getValue());
+		}
+
+		return shifted;
+	}
+
+	/**
+	 * Write an IPS patch which transforms the source image into one holding
+	 * the supplied game.
+	 *
+	 * @param  game        The game to export.
+	 * @param  output      The stream to write the patch to, which is not
+	 *                     closed.
+	 *
+	 * @throws IOException In the event of a problem writing to the stream.
+	 */
+	public void writeIps(Game game, OutputStream output) throws IOException {
+		IpsPatch.write(this.source, this.changes(game), output);
+	}
+
+	/**
+	 * Write a BPS patch which transforms the source image into one holding
+	 * the supplied game.
+	 *
+	 * @param  game        The game to export.
+	 * @param  output      The stream to write the patch to, which is not
+	 *                     closed.
+	 *
+	 * @throws IOException In the event of a problem writing to the stream.
+	 */
+	public void writeBps(Game game, OutputStream output) throws IOException {
+		BpsPatch.write(this.source, this.changes(game), output);
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.github.jimbovm.isobel.bytecode.game.GameImage;
+
+/**
+ * A view of a base image as modified by a patch, which reads through the
+ * patch rather than applying it to a copy of the base image.
+ *
+ * The view holds a set of non-overlapping segments, each of which refers to
+ * a range of bytes within the patch or the base image, or to a single
+ * repeated byte. Bytes not covered by a segment are read from the same
+ * position in the base image. Neither the base image nor the patch is
+ * copied, so any number of patched images can share a single base image,
+ * each taking up little more memory than its patch.
+ */
+public final class PatchedImage implements GameImage {
+
+	private final byte[] base;
+
+	private int length;
+
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+	/**
+	 * Create a new view of a base image with no changes.
+	 *
+	 * @param base   The base image, which is not copied.
+	 * @param length The length of the patched image.
+	 */
+	PatchedImage(byte[] base, int length) {
+		this.base = base;
+		this.length = length;
+	}
+
+	/**
+	 * Create a view of a base image as modified by a patch, detecting the
+	 * format of the patch from its contents. The base image and patch are
+	 * not copied, and must not be modified while the view is in use.
+	 *
+	 * @param  base        The image to which the patch applies.
+	 * @param  patch       The contents of an IPS or BPS patch file.
+	 *
+	 * @return             A view of the patched image.
+	 *
+	 * @throws IOException If the patch is in an unknown format, is malformed
+	 *                     or does not apply to the base image.
+	 */
+	public static PatchedImage of(byte[] base, byte[] patch) throws IOException {
+
+		if (startsWith(patch, IpsPatch.HEADER)) {
+			return IpsPatch.read(base, patch);
+		}
+		else if (startsWith(patch, BpsPatch.HEADER)) {
+			return BpsPatch.read(base, patch);
+		}
+
+		throw new IOException("Patch is not in IPS or BPS format");
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+	}
+
+	@Override
+	public int length() {
+		return this.length;
+	}
+
+	@Override
+	public byte get(int offset) {
+
+		if (offset < 0 || offset >= this.length) {
+			throw new IndexOutOfBoundsException(offset);
+		}
+
+		Map.Entry<Integer, Segment> entry = this.segments.floorEntry(offset);
+
+		if (entry != null && offset < entry.getValue().end) {
+			return entry.getValue().get(offset);
+		}
+
+		// Bytes added beyond the end of the base image default to zero
+		return (offset < this.base.length) ? this.base[offset] : 0;
+	}
+
+	/**
+	 * Return the number of segments in which the view differs from the base
+	 * image, as a measure of its complexity.
+	 *
+	 * @return The number of segments.
+	 */
+	public int getSegmentCount() {
+		return this.segments.size();
+	}
+
+	void setLength(int length) {
+		this.length = length;
+	}
+
+	/**
+	 * Overlay a range of bytes from another array, such as the patch.
+	 *
+	 * @param start        The offset in the view at which the bytes appear.
+	 * @param source       The array holding the bytes, which is not copied.
+	 * @param sourceOffset The offset of the bytes within the array.
+	 * @param count        The number of bytes.
+	 */
+	void copy(int start, byte[] source, int sourceOffset, int count) {
+		if (count > 0) {
+			this.put(new Segment(start, start + count, source, sourceOffset, (byte) 0));
+		}
+	}
+
+	/**
+	 * Overlay a range of bytes from the base image.
+	 *
+	 * @param start        The offset in the view at which the bytes appear.
+	 * @param sourceOffset The offset of the bytes within the base image.
+	 * @param count        The number of bytes.
+	 */
+	void copyFromBase(int start, int sourceOffset, int count) {
+		// Bytes read from the same position need no segment
+		if (start != sourceOffset) {
+			this.copy(start, this.base, sourceOffset, count);
+		}
+	}
+
+	/**
+	 * Overlay a run of a single repeated byte.
+	 *
+	 * @param start The offset in the view at which the run begins.
+	 * @param value The repeated byte.
+	 * @param count The length of the run.
+	 */
+	void fill(int start, byte value, int count) {
+		if (count > 0) {
+			this.put(new Segment(start, start + count, null, 0, value));
+		}
+	}
+
+	private void put(Segment segment) {
+
+		// Later segments take precedence, so trim any they overlap
+		Map.Entry<Integer, Segment> lower = this.segments.lowerEntry(segment.start);
+		if (lower != null && lower.getValue().end > segment.start) {
+			Segment overlapped = lower.getValue();
+			this.segments.put(overlapped.start, overlapped.slice(overlapped.start, segment.start));
+			if (overlapped.end > segment.end) {
+				this.segments.put(segment.end, overlapped.slice(segment.end, overlapped.end));
+			}
+		}
+
+		Map.Entry<Integer, Segment> within = this.segments.ceilingEntry(segment.start);
+		while (within != null && within.getKey() < segment.end) {
+			Segment overlapped = this.segments.remove(within.getKey());
+			if (overlapped.end > segment.end) {
+				this.segments.put(segment.end, overlapped.slice(segment.end, overlapped.end));
+			}
+			within = this.segments.ceilingEntry(segment.start);
+		}
+
+		this.segments.put(segment.start, segment);
+	}
+
+	/**
+	 * A range of the view read from an array, or filled with a single value
+	 * if the array is <code>null</code>.
+	 */
+	private static final class Segment {
+
+		private final int start;
+
+		private final int end;
+
+		private final byte[] source;
+
+		private final int sourceOffset;
+
+		private final byte value;
+
+		Segment(int start, int end, byte[] source, int sourceOffset, byte value) {
+			this.start = start;
+			this.end = end;
+			this.source = source;
+			this.sourceOffset = sourceOffset;
+			this.value = value;
+		}
+
+		byte get(int offset) {
+			return (this.source == null) ? this.value : this.source[this.sourceOffset + offset - this.start];
+		}
+
+		Segment slice(int start, int end) {
+			return new Segment(start, end, this.source, this.sourceOffset + start - this.start, this.value);
+		}
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Functionality for distributing modified games as IPS and BPS patches
+ * against an original binary game image.
+ */
+package io.github.jimbovm.isobel.patch;
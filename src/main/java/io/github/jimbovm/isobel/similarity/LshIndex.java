@@ -0,0 +1,207 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.similarity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * An index of MinHash signatures which finds near-duplicates without
+ * comparing every pair, by locality-sensitive hashing.
+ *
+ * Each signature is divided into bands of consecutive entries, and each
+ * band is hashed into a bucket. Two signatures become candidates if they
+ * share a bucket in any band, which happens with high probability for
+ * similar signatures and low probability for dissimilar ones: with
+ * <var>b</var> bands of <var>r</var> rows, the similarity at which the
+ * probability is one half is roughly (1/<var>b</var>)<sup>1/<var>r</var></sup>.
+ * Only candidates are compared, so the cost of finding near-duplicates grows
+ * with the number of similar pairs rather than with the square of the
+ * number of signatures.
+ *
+ * @param <K> The type of key identifying each signature.
+ */
+public final class LshIndex<K> {
+
+	/** The number of bands into which each signature is divided. */
+	@Getter
+	private final int bands;
+
+	/** The number of signature entries in each band. */
+	@Getter
+	private final int rows;
+
+	private final List<K> keys = new ArrayList<>();
+
+	private final List<int[]> signatures = new ArrayList<>();
+
+	private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>();
+
+	/**
+	 * Create an empty index.
+	 *
+	 * @param bands The number of bands.
+	 * @param rows  The number of signature entries in each band. The product
+	 *              of the bands and rows must equal the signature length.
+	 */
+	public LshIndex(int bands, int rows) {
+
+		if (bands < 1 || rows < 1) {
+			throw new IllegalArgumentException("Bands and rows must be positive");
+		}
+
+		this.bands = bands;
+		this.rows = rows;
+
+		for (int band = 0; band < bands; band++) {
+			this.buckets.add(new HashMap<>());
+		}
+	}
+
+	/**
+	 * Add a signature to the index.
+	 *
+	 * @param key       The key identifying the signature.
+	 * @param signature The signature, of <code>bands * rows</code> entries.
+	 */
+	public synchronized void add(K key, int[] signature) {
+
+		this.checkLength(signature);
+
+		final int id = this.keys.size();
+		this.keys.add(key);
+		this.signatures.add(signature);
+
+		for (int band = 0; band < this.bands; band++) {
+			this.buckets.get(band).computeIfAbsent(this.bucket(signature, band), (k) -> new ArrayList<>(2)).add(id);
+		}
+	}
+
+	/**
+	 * Return the number of signatures in the index.
+	 *
+	 * @return The number of signatures.
+	 */
+	public synchronized int size() {
+		return this.keys.size();
+	}
+
+	/**
+	 * Find the signatures in the index similar to a signature.
+	 *
+	 * @param  signature The signature to look up.
+	 * @param  threshold The minimum estimated similarity, between 0 and 1.
+	 *
+	 * @return           The keys of similar signatures, in the order in which
+	 *                   they were added.
+	 */
+	public synchronized List<K> query(int[] signature, double threshold) {
+
+		this.checkLength(signature);
+
+		Set<Integer> candidates = new LinkedHashSet<>();
+
+		for (int band = 0; band < this.bands; band++) {
+			candidates.addAll(this.buckets.get(band).getOrDefault(this.bucket(signature, band), List.of()));
+		}
+
+		List<Integer> sorted = new ArrayList<>(candidates);
+		Collections.sort(sorted);
+		List<K> result = new ArrayList<>();
+
+		for (int id : sorted) {
+			if (MinHasher.similarity(signature, this.signatures.get(id)) >= threshold) {
+				result.add(this.keys.get(id));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find every pair of similar signatures in the index.
+	 *
+	 * @param  threshold The minimum estimated similarity, between 0 and 1.
+	 *
+	 * @return           The pairs found, each once, with the earlier added
+	 *                   signature first.
+	 */
+	public synchronized List<Match<K>> findNearDuplicates(double threshold) {
+
+		Set<Long> seen = new HashSet<>();
+		List<Match<K>> matches = new ArrayList<>();
+
+		for (Map<Long, List<Integer>> band : this.buckets) {
+			for (List<Integer> bucket : band.values()) {
+				for (int i = 0; i < bucket.size(); i++) {
+					for (int j = i + 1; j < bucket.size(); j++) {
+						final int a = bucket.get(i);
+						final int b = bucket.get(j);
+						if (seen.add(((long) a << 32) | b) == false) {
+							continue;
+						}
+						final double similarity = MinHasher.similarity(this.signatures.get(a), this.signatures.get(b));
+						if (similarity >= threshold) {
+							matches.add(new Match<>(this.keys.get(a), this.keys.get(b), similarity));
+						}
+					}
+				}
+			}
+		}
+
+		return matches;
+	}
+
+	private long bucket(int[] signature, int band) {
+
+		long hash = band;
+
+		for (int i = band * this.rows; i < (band + 1) * this.rows; i++) {
+			hash = hash * 0x100000001B3L + signature[i];
+		}
+
+		return hash;
+	}
+
+	private void checkLength(int[] signature) {
+		if (signature.length != this.bands * this.rows) {
+			throw new IllegalArgumentException(String
+				.format("Signature has %d entries, expected %d", signature.length, this.bands * this.rows));
+		}
+	}
+
+	/**
+	 * A pair of similar signatures.
+	 *
+	 * @param <K> The type of key identifying each signature.
+	 */
+	@Getter
+	@ToString
+	@AllArgsConstructor(access = AccessLevel.PACKAGE)
+	public static final class Match<K> {
+
+		/** The key of the signature added first. */
+		private final K first;
+
+		/** The key of the signature added second. */
+		private final K second;
+
+		/** The estimated similarity of the two. */
+		private final double similarity;
+	}
+}
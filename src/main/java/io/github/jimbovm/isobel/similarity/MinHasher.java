@@ -0,0 +1,222 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.store.Fingerprint;
+import io.github.jimbovm.isobel.store.GameCodec;
+
+/**
+ * Computes MinHash signatures of areas, from which the similarity of two
+ * areas can be estimated without comparing the areas themselves.
+ *
+ * An area is treated as two streams of commands, its geography and its
+ * population, each in the order in which they are unparsed. Each command is
+ * reduced to a token holding every property of the actor except that its X
+ * position is taken relative to the command before, so that a section of an
+ * area moved as a whole still produces the same tokens. The area's shingles
+ * are the runs of {@link #getShingleLength()} consecutive tokens in each
+ * stream, plus one for the header. The fraction of equal entries in two
+ * signatures estimates the Jaccard similarity of the two sets of shingles.
+ */
+public final class MinHasher {
+
+	/** The default number of consecutive commands in a shingle. */
+	public static final int DEFAULT_SHINGLE_LENGTH = 3;
+
+	/** The default number of hash functions, and so entries in a signature. */
+	public static final int DEFAULT_SIGNATURE_LENGTH = 128;
+
+	/** The number of consecutive commands in a shingle. */
+	@Getter
+	private final int shingleLength;
+
+	/** The number of entries in a signature. */
+	@Getter
+	private final int signatureLength;
+
+	/** The seed from which the hash functions are derived. */
+	@Getter
+	private final long seed;
+
+	private final long[] seeds;
+
+	/** Create a hasher with the default parameters. */
+	public MinHasher() {
+		this(DEFAULT_SHINGLE_LENGTH, DEFAULT_SIGNATURE_LENGTH, 0);
+	}
+
+	/**
+	 * Create a hasher. Signatures can only be compared if they were computed
+	 * with the same parameters.
+	 *
+	 * @param shingleLength   The number of consecutive commands in a shingle.
+	 * @param signatureLength The number of entries in a signature.
+	 * @param seed            The seed from which the hash functions are
+	 *                        derived.
+	 */
+	public MinHasher(int shingleLength, int signatureLength, long seed) {
+
+		if (shingleLength < 1 || signatureLength < 1) {
+			throw new IllegalArgumentException("Shingle and signature lengths must be positive");
+		}
+
+		this.shingleLength = shingleLength;
+		this.signatureLength = signatureLength;
+		this.seed = seed;
+		this.seeds = new long[signatureLength];
+
+		// SplitMix64, to derive independent seeds from one
+		long state = seed;
+		for (int i = 0; i < signatureLength; i++) {
+			state += 0x9E3779B97F4A7C15L;
+			this.seeds[i] = mix(state);
+		}
+	}
+
+	/**
+	 * Compute the signature of an area.
+	 *
+	 * @param  area The area.
+	 *
+	 * @return      The signature, of {@link #getSignatureLength()} entries.
+	 */
+	public int[] sign(Area area) {
+
+		int[] signature = new int[this.signatureLength];
+		Arrays.fill(signature, Integer.MAX_VALUE);
+
+		for (long shingle : this.shingles(area)) {
+			for (int i = 0; i < this.signatureLength; i++) {
+				final int hash = (int) (mix(shingle ^ this.seeds[i]) >>> 32);
+				if (hash < signature[i]) {
+					signature[i] = hash;
+				}
+			}
+		}
+
+		return signature;
+	}
+
+	/**
+	 * Compute the signature of every area in a game.
+	 *
+	 * @param  game The game.
+	 *
+	 * @return      Signatures keyed by area ID, in atlas order.
+	 */
+	public Map<String, int[]> sign(Game game) {
+
+		Map<String, int[]> signatures = new LinkedHashMap<>();
+
+		for (Area area : game.getAtlas().getAreas()) {
+			signatures.put(area.getId(), this.sign(area));
+		}
+
+		return signatures;
+	}
+
+	/**
+	 * Estimate the similarity of two areas from their signatures.
+	 *
+	 * @param  a The signature of one area.
+	 * @param  b The signature of the other area.
+	 *
+	 * @return   The estimated Jaccard similarity, between 0 and 1.
+	 */
+	public static double similarity(int[] a, int[] b) {
+
+		if (a.length != b.length) {
+			throw new IllegalArgumentException("Signatures are of different lengths");
+		}
+
+		int equal = 0;
+
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] == b[i]) {
+				equal += 1;
+			}
+		}
+
+		return (double) equal / a.length;
+	}
+
+	/**
+	 * Return the set of shingles of an area, each hashed to 64 bits.
+	 *
+	 * @param  area The area.
+	 *
+	 * @return      The hashed shingles.
+	 */
+	Set<Long> shingles(Area area) {
+
+		Set<Long> shingles = new HashSet<>();
+
+		shingles.add(Fingerprint.of(area.getHeader()).getLow());
+		this.addShingles(shingles, 1, area.getGeography());
+		this.addShingles(shingles, 2, area.getPopulation());
+
+		return shingles;
+	}
+
+	private void addShingles(Set<Long> shingles, int stream, List<? extends Actor> actors) {
+
+		List<? extends Actor> sorted = new ArrayList<>(actors);
+		// The unparser emits actors in a stable order of X position
+		sorted.sort(null);
+
+		long[] tokens = new long[sorted.size()];
+		int lastX = 0;
+
+		for (int i = 0; i < tokens.length; i++) {
+			final Actor actor = sorted.get(i);
+			tokens[i] = token(actor, actor.getX() - lastX);
+			lastX = actor.getX();
+		}
+
+		final int length = Math.min(this.shingleLength, tokens.length);
+
+		for (int start = 0; start + length <= tokens.length && length > 0; start++) {
+			long hash = stream;
+			for (int i = start; i < start + length; i++) {
+				hash = mix(hash * 31 + tokens[i]);
+			}
+			shingles.add(hash);
+		}
+	}
+
+	private static long token(Actor actor, int deltaX) {
+
+		Actor copy = actor.copy();
+		copy.setX(deltaX);
+		// Destinations are area IDs, which differ between games
+		if (copy instanceof ExitPointer pointer) {
+			pointer.setDestination(null);
+		}
+
+		return Fingerprint.of(GameCodec.encode(copy)).getLow();
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.similarity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.store.AtomicFiles;
+import io.github.jimbovm.isobel.store.GameCache;
+
+/**
+ * Signatures of the areas of games, stored on disk next to the games in a
+ * {@link GameCache} and keyed in the same way, by a hash of the image the
+ * game was parsed from, so that the areas of an image need only be signed
+ * once.
+ *
+ * Each file records the parameters of the {@link MinHasher} which produced
+ * it, and files produced with other parameters are ignored.
+ */
+@Log4j2
+public final class SignatureCache {
+
+	private static final String FILE_EXTENSION = ".ism";
+
+	private static final int MAGIC = 0x4953534D;
+
+	private static final byte VERSION = 1;
+
+	/** The directory in which signatures are stored, or <code>null</code>. */
+	@Getter
+	private final Path directory;
+
+	/** The hasher with which areas are signed. */
+	@Getter
+	private final MinHasher hasher;
+
+	/**
+	 * Create a new signature cache.
+	 *
+	 * @param directory The directory in which to store signatures, which is
+	 *                  created if necessary, or <code>null</code> to compute
+	 *                  signatures without storing them.
+	 * @param hasher    The hasher with which to sign areas.
+	 */
+	public SignatureCache(final Path directory, final MinHasher hasher) {
+		this.directory = directory;
+		this.hasher = hasher;
+	}
+
+	/**
+	 * Create a signature cache stored alongside a game cache.
+	 *
+	 * @param  cache  The game cache.
+	 * @param  hasher The hasher with which to sign areas.
+	 *
+	 * @return        A signature cache using the game cache's directory, which
+	 *                stores nothing if the game cache is held in memory only.
+	 */
+	public static SignatureCache of(final GameCache cache, final MinHasher hasher) {
+		return new SignatureCache(cache.getDirectory(), hasher);
+	}
+
+	/**
+	 * Return the stored signatures of the areas of a game.
+	 *
+	 * @param  key The key of the image the game was parsed from, as returned
+	 *             by {@link GameCache#key(byte[])}.
+	 *
+	 * @return     Signatures keyed by area ID, or <code>null</code> if none
+	 *             are stored with this cache's hasher parameters.
+	 */
+	public Map<String, int[]> get(final long key) {
+
+		if (this.directory == null) {
+			return null;
+		}
+
+		Path path = this.pathOf(key);
+
+		if (Files.isRegularFile(path) == false) {
+			return null;
+		}
+
+		try {
+			return this.read(Files.readAllBytes(path));
+		}
+		catch (IOException e) {
+			log.warn(String.format("Could not read signatures %s: %s", path, e.getMessage()));
+			return null;
+		}
+	}
+
+	/**
+	 * Return the signatures of the areas of a game, signing and storing them
+	 * if they are not already stored.
+	 *
+	 * @param  key  The key of the image the game was parsed from.
+	 * @param  game The game parsed from the image.
+	 *
+	 * @return      Signatures keyed by area ID, in atlas order.
+	 */
+	public Map<String, int[]> get(final long key, final Game game) {
+
+		Map<String, int[]> signatures = this.get(key);
+
+		if (signatures == null) {
+			signatures = this.hasher.sign(game);
+			this.put(key, signatures);
+		}
+
+		return signatures;
+	}
+
+	/**
+	 * Store the signatures of the areas of a game.
+	 *
+	 * @param key        The key of the image the game was parsed from.
+	 * @param signatures Signatures keyed by area ID, produced by this cache's
+	 *                   hasher.
+	 */
+	public void put(final long key, final Map<String, int[]> signatures) {
+
+		if (this.directory == null) {
+			return;
+		}
+
+		try {
+			Files.createDirectories(this.directory);
+			AtomicFiles.write(this.pathOf(key), this.write(signatures));
+		}
+		catch (IOException e) {
+			// Signatures not stored are computed again when next needed
+			log.warn(String.format("Could not write signatures %016x: %s", key, e.getMessage()));
+		}
+	}
+
+	private Path pathOf(final long key) {
+		return this.directory.resolve(String.format("%016x%s", key, FILE_EXTENSION));
+	}
+
+	private byte[] write(final Map<String, int[]> signatures) {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(this.hasher.getShingleLength());
+			out.writeInt(this.hasher.getSignatureLength());
+			out.writeLong(this.hasher.getSeed());
+			out.writeInt(signatures.size());
+			for (Map.Entry<String, int[]> entry : signatures.entrySet()) {
+				out.writeUTF(entry.getKey());
+				for (int value : entry.getValue()) {
+					out.writeInt(value);
+				}
+			}
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private Map<String, int[]> read(final byte[] data) throws IOException {
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+		if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+			throw new IOException("Not a signature file");
+		}
+
+		if (in.readInt() != this.hasher.getShingleLength() || in.readInt() != this.hasher.getSignatureLength()
+			|| in.readLong() != this.hasher.getSeed()) {
+			// Signed with other parameters, so not comparable
+			return null;
+		}
+
+		final int count = in.readInt();
+		Map<String, int[]> signatures = new LinkedHashMap<>();
+
+		for (int i = 0; i < count; i++) {
+			final String id = in.readUTF();
+			int[] signature = new int[this.hasher.getSignatureLength()];
+			for (int j = 0; j < signature.length; j++) {
+				signature[j] = in.readInt();
+			}
+			signatures.put(id, signature);
+		}
+
+		return signatures;
+	}
+}
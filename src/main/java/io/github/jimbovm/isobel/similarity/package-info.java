@@ -0,0 +1,5 @@
+/**
+ * Detection of similar areas across large collections of games, using
+ * MinHash signatures and locality-sensitive hashing.
+ */
+package io.github.jimbovm.isobel.similarity;
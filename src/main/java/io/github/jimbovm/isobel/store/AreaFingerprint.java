@@ -0,0 +1,164 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+
+/**
+ * The {@link Fingerprint} of an area, kept up to date as the area changes
+ * at a cost which depends on the columns changed rather than the whole area.
+ *
+ * The fingerprint of each actor list is held as a sum of the fingerprints of
+ * its columns of actors at the same X, so a change is accounted for by
+ * fingerprinting again only the columns it touches. To account for a change
+ * to an actor, call {@link #remove(Actor)} before the change and
+ * {@link #add(Actor)} after it; a change to the order of actors at the same X
+ * is accounted for the same way. Exit pointers are fingerprinted by the
+ * index number of their destination, so a new <code>AreaFingerprint</code>
+ * is needed whenever areas are added to or removed from the atlas. An
+ * {@link io.github.jimbovm.isobel.event.ObservableGame} does all of this for
+ * the areas changed through it.
+ */
+public final class AreaFingerprint {
+
+	/** The area being fingerprinted. */
+	@Getter
+	private final Area area;
+
+	private final Atlas atlas;
+
+	private Fingerprint header;
+
+	private final Layer geography;
+
+	private final Layer population;
+
+	/**
+	 * Fingerprint an area within a game.
+	 *
+	 * @param area  The area.
+	 * @param atlas The atlas of the game, or <code>null</code> to fingerprint
+	 *              the area on its own.
+	 */
+	public AreaFingerprint(Area area, Atlas atlas) {
+		this.area = area;
+		this.atlas = atlas;
+		this.header = Fingerprint.of(area.getHeader());
+		this.geography = new Layer(area::getGeography);
+		this.population = new Layer(area::getPopulation);
+	}
+
+	/**
+	 * Account for an actor added to the area.
+	 *
+	 * @param actor The actor added.
+	 */
+	public synchronized void add(Actor actor) {
+		this.layerOf(actor).changed(actor.getX());
+	}
+
+	/**
+	 * Account for an actor removed from the area.
+	 *
+	 * @param actor The actor removed, in the state it was in when added.
+	 */
+	public synchronized void remove(Actor actor) {
+		this.layerOf(actor).changed(actor.getX());
+	}
+
+	private Layer layerOf(Actor actor) {
+		return (actor instanceof PopulationActor) ? this.population : this.geography;
+	}
+
+	/** Account for a change to the area's header. */
+	public synchronized void headerChanged() {
+		this.header = Fingerprint.of(this.area.getHeader());
+	}
+
+	/**
+	 * Return the fingerprint of the area as it currently stands.
+	 *
+	 * @return The fingerprint, equal to {@link Fingerprint#of(Area, Atlas)}.
+	 */
+	public synchronized Fingerprint get() {
+		return Fingerprint.of(this.area.getEnvironment(), this.header, this.geography.get(),
+			this.population.get());
+	}
+
+	/** The fingerprint of one actor list, held column by column. */
+	private final class Layer {
+
+		private final Supplier<List<? extends Actor>> actors;
+
+		/** The fingerprint of each column with actors. */
+		private final Map<Integer, Fingerprint> columns = new HashMap<>();
+
+		/** The columns changed since the sum was last brought up to date. */
+		private final Set<Integer> changed = new HashSet<>();
+
+		private Fingerprint sum = Fingerprint.EMPTY;
+
+		Layer(Supplier<List<? extends Actor>> actors) {
+
+			this.actors = actors;
+
+			for (Actor actor : actors.get()) {
+				this.changed.add(actor.getX());
+			}
+		}
+
+		void changed(int x) {
+			this.changed.add(x);
+		}
+
+		Fingerprint get() {
+
+			if (this.changed.isEmpty()) {
+				return this.sum;
+			}
+
+			Map<Integer, List<Actor>> found = new HashMap<>();
+
+			// Only the actors of the columns changed are fingerprinted again
+			for (Actor actor : this.actors.get()) {
+				if (this.changed.contains(actor.getX())) {
+					found.computeIfAbsent(actor.getX(), x -> new ArrayList<>()).add(actor);
+				}
+			}
+
+			for (Integer x : this.changed) {
+				final Fingerprint before = this.columns.getOrDefault(x, Fingerprint.EMPTY);
+				final Fingerprint after =
+					Fingerprint.of(x, found.getOrDefault(x, List.of()), AreaFingerprint.this.atlas);
+				this.sum = this.sum.minus(before).plus(after);
+				if (after.equals(Fingerprint.EMPTY)) {
+					this.columns.remove(x);
+				}
+				else {
+					this.columns.put(x, after);
+				}
+			}
+
+			this.changed.clear();
+
+			return this.sum;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes files such that readers never see them partly written, as needed
+ * by projects, journals and caches shared between processes.
+ */
+public final class AtomicFiles {
+
+	// non-instantiable
+	private AtomicFiles() {}
+
+	/**
+	 * Write a file such that it either has its new content or, if writing is
+	 * interrupted, its old content, by writing to a temporary file in the same
+	 * directory which is flushed to disk and then moved into place.
+	 *
+	 * @param  path        The file to write, whose directory must exist.
+	 * @param  data        The new content of the file.
+	 *
+	 * @throws IOException If the file could not be written, in which case no
+	 *                     temporary file is left behind.
+	 */
+	public static void write(Path path, byte[] data) throws IOException {
+
+		Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.wrap(data);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,519 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.edit.AddActor;
+import io.github.jimbovm.isobel.edit.AddArea;
+import io.github.jimbovm.isobel.edit.Edit;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.edit.MoveActor;
+import io.github.jimbovm.isobel.edit.RemoveActor;
+import io.github.jimbovm.isobel.edit.SetHeader;
+import io.github.jimbovm.isobel.edit.SetStartArea;
+
+/**
+ * An append-only log of {@link Edit}s made to a game, backed by a snapshot
+ * of the game as it was when the log was started, so that the game can be
+ * saved at a cost proportional to the number of edits made rather than to
+ * its size, and recovered after a crash.
+ *
+ * The journal is a directory holding two files. The snapshot holds a game
+ * as written by {@link GameCodec}, and the journal file holds the edits made
+ * since, each as a record prefixed with its length and a CRC. Edits are
+ * buffered in memory and written and flushed to disk in batches, either when
+ * enough have accumulated or when {@link #sync()} is called. Once the
+ * journal grows long enough, it is compacted by writing a fresh snapshot and
+ * starting an empty journal.
+ *
+ * Both files carry a generation number, incremented on each compaction. A
+ * journal file whose generation does not match that of the snapshot was
+ * left behind by an interrupted compaction, and its edits are already part
+ * of the snapshot, so it is discarded on recovery. A record cut short or
+ * damaged by a crash ends the journal; it and anything after it are
+ * discarded.
+ */
+@Log4j2
+public final class EditJournal implements Closeable {
+
+	/** The name of the snapshot file within a journal directory. */
+	public static final String SNAPSHOT_FILE = "snapshot.isg";
+
+	/** The name of the journal file within a journal directory. */
+	public static final String JOURNAL_FILE = "journal.isj";
+
+	/** The four bytes with which a journal file begins ("ISBJ"). */
+	public static final int MAGIC = 0x4953424A;
+
+	/** The version of the journal format written by this class. */
+	public static final int VERSION = 1;
+
+	/** The default number of edits buffered before they are flushed to disk. */
+	public static final int DEFAULT_SYNC_INTERVAL = 32;
+
+	/** The default number of edits in the journal which triggers compaction. */
+	public static final int DEFAULT_COMPACTION_THRESHOLD = 4096;
+
+	/** The length of the journal file header: magic, version and generation. */
+	private static final int HEADER_LENGTH = 4 + 1 + 8;
+
+	/** The length of a record prefix: payload length and CRC. */
+	private static final int RECORD_PREFIX_LENGTH = 4 + 4;
+
+	private static final int TAG_ADD_ACTOR = 0x01;
+
+	private static final int TAG_REMOVE_ACTOR = 0x02;
+
+	private static final int TAG_MOVE_ACTOR = 0x03;
+
+	private static final int TAG_SET_HEADER = 0x04;
+
+	private static final int TAG_ADD_AREA = 0x05;
+
+	private static final int TAG_SET_START_AREA = 0x06;
+
+	/** The directory holding the journal. */
+	@Getter
+	private final Path directory;
+
+	/** The game, as modified by every edit applied so far. */
+	@Getter
+	private final Game game;
+
+	/** The generation of the current snapshot and journal file. */
+	@Getter
+	private long generation;
+
+	/** The number of edits made since the last snapshot. */
+	@Getter
+	private int editCount;
+
+	/** The number of edits buffered before they are flushed to disk. */
+	@Getter
+	@Setter
+	private int syncInterval = DEFAULT_SYNC_INTERVAL;
+
+	/** The number of edits in the journal which triggers compaction. */
+	@Getter
+	@Setter
+	private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+	private FileChannel channel;
+
+	/** Records not yet written to the journal file. */
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+	private int pendingCount = 0;
+
+	private EditJournal(Path directory, Game game, long generation, int editCount, FileChannel channel) {
+		this.directory = directory;
+		this.game = game;
+		this.generation = generation;
+		this.editCount = editCount;
+		this.channel = channel;
+	}
+
+	/**
+	 * Start a new journal for a game, writing a snapshot of it. Any journal
+	 * already in the directory is replaced.
+	 *
+	 * @param  directory   The directory to hold the journal, which is created
+	 *                     if it does not exist.
+	 * @param  game        The game, which is modified in place by edits applied
+	 *                     through the journal.
+	 *
+	 * @return             The journal.
+	 *
+	 * @throws IOException If the journal can't be written.
+	 */
+	public static EditJournal create(Path directory, Game game) throws IOException {
+
+		Files.createDirectories(directory);
+
+		final long generation = 0;
+		writeSnapshot(directory, game, generation);
+
+		return new EditJournal(directory, game, generation, 0, startJournal(directory, generation));
+	}
+
+	/**
+	 * Open an existing journal, recovering the game by reading the snapshot
+	 * and replaying the edits made since. Any incomplete or damaged record at
+	 * the end of the journal is discarded.
+	 *
+	 * @param  directory   The directory holding the journal.
+	 *
+	 * @return             The journal, holding the recovered game.
+	 *
+	 * @throws IOException If the snapshot can't be read, or an undamaged edit
+	 *                     can't be applied to the game.
+	 */
+	public static EditJournal open(Path directory) throws IOException {
+
+		DataInputStream snapshot = new DataInputStream(
+			new ByteArrayInputStream(Files.readAllBytes(directory.resolve(SNAPSHOT_FILE))));
+		final long generation = snapshot.readLong();
+		Game game = GameCodec.decode(snapshot.readAllBytes());
+
+		Path journalPath = directory.resolve(JOURNAL_FILE);
+		byte[] journal = Files.exists(journalPath) ? Files.readAllBytes(journalPath) : new byte[0];
+
+		if (isCurrentJournal(journal, generation) == false) {
+			log.warn(String.format("Discarding stale or unreadable journal in %s", directory));
+			return new EditJournal(directory, game, generation, 0, startJournal(directory, generation));
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(journal);
+		buffer.position(HEADER_LENGTH);
+
+		int editCount = 0;
+		byte[] payload;
+
+		while ((payload = readRecord(buffer)) != null) {
+			try {
+				readEdit(new DataInputStream(new ByteArrayInputStream(payload))).apply(game);
+			}
+			catch (IllegalStateException e) {
+				throw new IOException(String.format("Could not replay edit %d", editCount), e);
+			}
+			editCount += 1;
+		}
+
+		FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+
+		if (buffer.position() < journal.length) {
+			log.warn(String.format("Discarding %d bytes of incomplete journal in %s",
+				journal.length - buffer.position(), directory));
+			channel.truncate(buffer.position());
+			channel.force(true);
+		}
+
+		channel.position(buffer.position());
+
+		return new EditJournal(directory, game, generation, editCount, channel);
+	}
+
+	/**
+	 * Apply an edit to the game and record it in the journal. The edit is not
+	 * guaranteed to be on disk until the journal is next synced, which
+	 * happens once every {@link #getSyncInterval()} edits.
+	 *
+	 * @param  edit                  The edit to apply.
+	 *
+	 * @throws IOException           If the journal can't be written.
+	 * @throws IllegalStateException If the edit can't be applied, in which case
+	 *                               it is not recorded.
+	 */
+	public synchronized void apply(Edit edit) throws IOException {
+
+		this.checkOpen();
+
+		// Encode first, as the edit may hold objects it then hands to the game
+		final byte[] payload = encode(edit);
+
+		edit.apply(this.game);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		DataOutputStream out = new DataOutputStream(this.pending);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		out.write(payload);
+
+		this.pendingCount += 1;
+		this.editCount += 1;
+
+		if (this.pendingCount >= this.syncInterval) {
+			this.sync();
+		}
+	}
+
+	/**
+	 * Write any buffered edits to the journal file and flush them to disk,
+	 * compacting the journal if it has grown beyond the compaction
+	 * threshold.
+	 *
+	 * @throws IOException If the journal can't be written.
+	 */
+	public synchronized void sync() throws IOException {
+
+		this.checkOpen();
+
+		if (this.pendingCount > 0) {
+			ByteBuffer buffer = ByteBuffer.wrap(this.pending.toByteArray());
+			while (buffer.hasRemaining()) {
+				this.channel.write(buffer);
+			}
+			this.channel.force(false);
+			this.pending.reset();
+			this.pendingCount = 0;
+		}
+
+		if (this.editCount >= this.compactionThreshold) {
+			this.compact();
+		}
+	}
+
+	/**
+	 * Write a snapshot of the game as it currently stands and start an empty
+	 * journal.
+	 *
+	 * @throws IOException If the snapshot or journal can't be written.
+	 */
+	public synchronized void compact() throws IOException {
+
+		this.checkOpen();
+
+		final long generation = this.generation + 1;
+
+		// The new snapshot holds every edit, so buffered edits need not be written
+		writeSnapshot(this.directory, this.game, generation);
+		this.pending.reset();
+		this.pendingCount = 0;
+
+		this.channel.close();
+		this.channel = startJournal(this.directory, generation);
+		this.generation = generation;
+		this.editCount = 0;
+	}
+
+	/**
+	 * Sync the journal and close the journal file.
+	 *
+	 * @throws IOException If the journal can't be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		if (this.channel == null) {
+			return;
+		}
+
+		try {
+			this.sync();
+		}
+		finally {
+			this.channel.close();
+			this.channel = null;
+		}
+	}
+
+	private void checkOpen() {
+		if (this.channel == null) {
+			throw new IllegalStateException("Journal is closed");
+		}
+	}
+
+	private static void writeSnapshot(Path directory, Game game, long generation) throws IOException {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+		DataOutputStream out = new DataOutputStream(buffer);
+
+		out.writeLong(generation);
+		out.write(GameCodec.encode(game));
+
+		AtomicFiles.write(directory.resolve(SNAPSHOT_FILE), buffer.toByteArray());
+	}
+
+	/**
+	 * Replace the journal file with an empty journal of the given generation,
+	 * returning a channel positioned to append to it.
+	 */
+	private static FileChannel startJournal(Path directory, long generation) throws IOException {
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).put((byte) VERSION).putLong(generation);
+
+		Path path = directory.resolve(JOURNAL_FILE);
+		AtomicFiles.write(path, header.array());
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+		channel.position(HEADER_LENGTH);
+
+		return channel;
+	}
+
+	private static boolean isCurrentJournal(byte[] journal, long generation) {
+
+		if (journal.length < HEADER_LENGTH) {
+			return false;
+		}
+
+		ByteBuffer header = ByteBuffer.wrap(journal, 0, HEADER_LENGTH);
+
+		return header.getInt() == MAGIC && header.get() == VERSION && header.getLong() == generation;
+	}
+
+	/**
+	 * Read the payload of the record at the buffer's position, advancing past
+	 * it, or return <code>null</code> without advancing if there is no
+	 * complete, undamaged record there.
+	 */
+	private static byte[] readRecord(ByteBuffer buffer) {
+
+		if (buffer.remaining() < RECORD_PREFIX_LENGTH) {
+			return null;
+		}
+
+		final int start = buffer.position();
+		final int length = buffer.getInt(start);
+		final int expected = buffer.getInt(start + 4);
+
+		if (length < 0 || length > buffer.remaining() - RECORD_PREFIX_LENGTH) {
+			return null;
+		}
+
+		final int payloadStart = start + RECORD_PREFIX_LENGTH;
+		byte[] payload = Arrays.copyOfRange(buffer.array(), payloadStart, payloadStart + length);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		if ((int) crc.getValue() != expected) {
+			return null;
+		}
+
+		buffer.position(payloadStart + length);
+
+		return payload;
+	}
+
+	private static byte[] encode(Edit edit) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(32);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			writeEdit(out, edit);
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Write an edit.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  edit        The edit to write.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	static void writeEdit(DataOutput out, Edit edit) throws IOException {
+
+		if (edit instanceof AddActor addActor) {
+			out.writeByte(TAG_ADD_ACTOR);
+			GameCodec.writeString(out, addActor.getAreaId());
+			GameCodec.writeVarInt(out, addActor.getIndex());
+			GameCodec.writeActor(out, addActor.getActor());
+		}
+		else if (edit instanceof RemoveActor removeActor) {
+			out.writeByte(TAG_REMOVE_ACTOR);
+			GameCodec.writeString(out, removeActor.getAreaId());
+			GameCodec.writeEnum(out, removeActor.getLayer());
+			GameCodec.writeVarInt(out, removeActor.getIndex());
+		}
+		else if (edit instanceof MoveActor moveActor) {
+			out.writeByte(TAG_MOVE_ACTOR);
+			GameCodec.writeString(out, moveActor.getAreaId());
+			GameCodec.writeEnum(out, moveActor.getLayer());
+			GameCodec.writeVarInt(out, moveActor.getIndex());
+			GameCodec.writeVarInt(out, moveActor.getX());
+			GameCodec.writeVarInt(out, moveActor.getY());
+		}
+		else if (edit instanceof SetHeader setHeader) {
+			out.writeByte(TAG_SET_HEADER);
+			GameCodec.writeString(out, setHeader.getAreaId());
+			GameCodec.writeHeader(out, setHeader.getHeader());
+		}
+		else if (edit instanceof AddArea addArea) {
+			out.writeByte(TAG_ADD_AREA);
+			GameCodec.writeArea(out, addArea.getArea());
+		}
+		else if (edit instanceof SetStartArea setStartArea) {
+			out.writeByte(TAG_SET_START_AREA);
+			GameCodec.writeVarInt(out, setStartArea.getWorld());
+			GameCodec.writeVarInt(out, setStartArea.getLevel());
+			GameCodec.writeString(out, setStartArea.getAreaId());
+		}
+		else {
+			throw new IllegalArgumentException("Cannot journal edit of type " + edit.getClass().getName());
+		}
+	}
+
+	/**
+	 * Read an edit written by {@link #writeEdit(DataOutput, Edit)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The edit read.
+	 *
+	 * @throws IOException In the event of a problem with the input, or an
+	 *                     unknown edit tag.
+	 */
+	static Edit readEdit(DataInput in) throws IOException {
+
+		final int tag = in.readUnsignedByte();
+
+		switch (tag) {
+			case TAG_ADD_ACTOR: {
+				final String areaId = GameCodec.readString(in);
+				final int index = GameCodec.readVarInt(in);
+				return new AddActor(areaId, index, GameCodec.readActor(in));
+			}
+			case TAG_REMOVE_ACTOR: {
+				final String areaId = GameCodec.readString(in);
+				final Layer layer = GameCodec.readEnum(in, Layer.class);
+				return new RemoveActor(areaId, layer, GameCodec.readVarInt(in));
+			}
+			case TAG_MOVE_ACTOR: {
+				final String areaId = GameCodec.readString(in);
+				final Layer layer = GameCodec.readEnum(in, Layer.class);
+				final int index = GameCodec.readVarInt(in);
+				final int x = GameCodec.readVarInt(in);
+				return new MoveActor(areaId, layer, index, x, GameCodec.readVarInt(in));
+			}
+			case TAG_SET_HEADER: {
+				final String areaId = GameCodec.readString(in);
+				return new SetHeader(areaId, GameCodec.readHeader(in));
+			}
+			case TAG_ADD_AREA:
+				return new AddArea(GameCodec.readArea(in));
+			case TAG_SET_START_AREA: {
+				final int world = GameCodec.readVarInt(in);
+				final int level = GameCodec.readVarInt(in);
+				return new SetStartArea(world, level, GameCodec.readString(in));
+			}
+			default:
+				throw new IOException(String.format("Unknown edit tag 0x%02X", tag));
+		}
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A 128-bit fingerprint of game content, equal for any two objects which
+ * would produce the same game and independent of anything which would not.
+ *
+ * Fingerprints ignore familiar names and area IDs, which are often random.
+ * Within a game, areas are identified by their index number in the atlas
+ * instead, including the destinations of exit pointers and the starting
+ * areas of levels. A list of actors is fingerprinted in the order in which it
+ * is unparsed, which is sorted by X position. The sort is stable, so actors at
+ * the same X keep the order in which they are held, and that order decides the
+ * bytes written, the order in which the actors are drawn and which of several
+ * exit pointers takes effect. Each column of actors at the same X is therefore
+ * fingerprinted as a sequence, and the fingerprints of the columns, whose
+ * order is fixed by their X, are summed. This also makes list fingerprints
+ * cheap to keep up to date column by column: see {@link AreaFingerprint}.
+ *
+ * The 64 low bits may be used alone where a shorter key is enough. The
+ * fingerprint is not cryptographic and must not be relied upon where
+ * collisions could be engineered.
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class Fingerprint {
+
+	/** The fingerprint of an empty list of actors. */
+	public static final Fingerprint EMPTY = new Fingerprint(0, 0);
+
+	private static final byte TAG_HEADER = 1;
+
+	private static final byte TAG_AREA = 2;
+
+	private static final byte TAG_AREA_ENTRY = 3;
+
+	private static final byte TAG_GAME = 4;
+
+	private static final byte TAG_COLUMN = 5;
+
+	/** The high 64 bits. */
+	private final long high;
+
+	/** The low 64 bits. */
+	private final long low;
+
+	/**
+	 * Return the sum of this fingerprint and another, as used to add a column
+	 * of actors to a list fingerprint.
+	 *
+	 * @param  other The fingerprint to add.
+	 *
+	 * @return       The sum.
+	 */
+	public Fingerprint plus(Fingerprint other) {
+		return new Fingerprint(this.high + other.high, this.low + other.low);
+	}
+
+	/**
+	 * Return the difference between this fingerprint and another, as used to
+	 * remove a column of actors from a list fingerprint.
+	 *
+	 * @param  other The fingerprint to subtract.
+	 *
+	 * @return       The difference.
+	 */
+	public Fingerprint minus(Fingerprint other) {
+		return new Fingerprint(this.high - other.high, this.low - other.low);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", this.high, this.low);
+	}
+
+	/**
+	 * Fingerprint an arbitrary array of bytes.
+	 *
+	 * @param  data The bytes to fingerprint.
+	 *
+	 * @return      The fingerprint.
+	 */
+	public static Fingerprint of(byte[] data) {
+
+		// Two independently seeded FNV-1a style lanes, each finished with the
+		// MurmurHash3 finalizer so that sums of fingerprints stay well mixed
+		long high = 0x9E3779B97F4A7C15L;
+		long low = 0xCBF29CE484222325L;
+
+		for (byte b : data) {
+			high = (high ^ (b & 0xFF)) * 0xFF51AFD7ED558CCDL;
+			low = (low ^ (b & 0xFF)) * 0x100000001B3L;
+		}
+
+		return new Fingerprint(mix(high ^ data.length), mix(low ^ data.length));
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xFF51AFD7ED558CCDL;
+		value ^= value >>> 33;
+		value *= 0xC4CEB9FE1A85EC53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	/**
+	 * Fingerprint an actor on its own. The destination of an exit pointer is
+	 * fingerprinted by ID.
+	 *
+	 * @param  actor The actor.
+	 *
+	 * @return       The fingerprint.
+	 */
+	public static Fingerprint of(Actor actor) {
+		return of(actor, null);
+	}
+
+	/**
+	 * Fingerprint an actor within a game. The destination of an exit pointer
+	 * is fingerprinted by its index number in the atlas, if it is there.
+	 *
+	 * @param  actor The actor.
+	 * @param  atlas The atlas of the game, or <code>null</code>.
+	 *
+	 * @return       The fingerprint.
+	 */
+	public static Fingerprint of(Actor actor, Atlas atlas) {
+
+		if (actor instanceof ExitPointer pointer && atlas != null) {
+			Area destination = atlas.get(pointer.getDestination());
+			if (destination != null) {
+				actor = ExitPointer
+					.create(pointer.getX(), "#" + atlas.getIndex(destination), pointer.getStartPage(),
+						pointer.getActiveFromWorld());
+			}
+		}
+
+		return of(GameCodec.encode(actor));
+	}
+
+	/**
+	 * Fingerprint a list of actors in the order in which they are unparsed.
+	 *
+	 * @param  actors The actors.
+	 * @param  atlas  The atlas of the game, or <code>null</code>.
+	 *
+	 * @return        The fingerprint, which is {@link #EMPTY} for an empty
+	 *                list.
+	 */
+	public static Fingerprint of(List<? extends Actor> actors, Atlas atlas) {
+
+		Map<Integer, List<Actor>> columns = new HashMap<>();
+
+		for (Actor actor : actors) {
+			columns.computeIfAbsent(actor.getX(), x -> new ArrayList<>()).add(actor);
+		}
+
+		Fingerprint sum = EMPTY;
+
+		for (Map.Entry<Integer, List<Actor>> column : columns.entrySet()) {
+			sum = sum.plus(of(column.getKey(), column.getValue(), atlas));
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Fingerprint the actors of a list at one X position, which is the part
+	 * of the fingerprint of the list contributed by that column.
+	 *
+	 * @param  x      The X position.
+	 * @param  actors The actors at that position, in the order held.
+	 * @param  atlas  The atlas of the game, or <code>null</code>.
+	 *
+	 * @return        The fingerprint, which is {@link #EMPTY} if there are no
+	 *                actors.
+	 */
+	public static Fingerprint of(int x, List<? extends Actor> actors, Atlas atlas) {
+
+		if (actors.isEmpty()) {
+			return EMPTY;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + actors.size() * 16);
+		buffer.put(TAG_COLUMN).putInt(x).putInt(actors.size());
+
+		for (Actor actor : actors) {
+			put(buffer, of(actor, atlas));
+		}
+
+		return of(buffer.array());
+	}
+
+	/**
+	 * Fingerprint an area header.
+	 *
+	 * @param  header The header, which may be <code>null</code>.
+	 *
+	 * @return        The fingerprint.
+	 */
+	public static Fingerprint of(AreaHeader header) {
+
+		final byte[] encoded = GameCodec.encode(header);
+
+		return of(ByteBuffer.allocate(1 + encoded.length).put(TAG_HEADER).put(encoded).array());
+	}
+
+	/**
+	 * Fingerprint an area on its own, ignoring its ID and familiar name.
+	 *
+	 * @param  area The area.
+	 *
+	 * @return      The fingerprint.
+	 */
+	public static Fingerprint of(Area area) {
+		return of(area, null);
+	}
+
+	/**
+	 * Fingerprint an area within a game, ignoring its ID and familiar name.
+	 *
+	 * @param  area  The area.
+	 * @param  atlas The atlas of the game, or <code>null</code>.
+	 *
+	 * @return       The fingerprint.
+	 */
+	public static Fingerprint of(Area area, Atlas atlas) {
+		return of(area.getEnvironment(), of(area.getHeader()), of(area.getGeography(), atlas),
+			of(area.getPopulation(), atlas));
+	}
+
+	/**
+	 * Combine the fingerprints of an area's parts into the fingerprint of the
+	 * area, as returned by {@link #of(Area, Atlas)}.
+	 *
+	 * @param  environment The environment of the area.
+	 * @param  header      The fingerprint of the area's header.
+	 * @param  geography   The fingerprint of the area's geography.
+	 * @param  population  The fingerprint of the area's population.
+	 *
+	 * @return             The fingerprint of the area.
+	 */
+	public static Fingerprint of(
+		Area.Environment environment, Fingerprint header, Fingerprint geography, Fingerprint population) {
+
+		ByteBuffer buffer = ByteBuffer.allocate(2 + 3 * 16);
+		buffer.put(TAG_AREA).put((byte) ((environment == null) ? -1 : environment.ordinal()));
+		put(buffer, header);
+		put(buffer, geography);
+		put(buffer, population);
+
+		return of(buffer.array());
+	}
+
+	/**
+	 * Fingerprint a game, ignoring its ID and the IDs and familiar names of
+	 * its areas.
+	 *
+	 * @param  game The game.
+	 *
+	 * @return      The fingerprint.
+	 */
+	public static Fingerprint of(Game game) {
+
+		Atlas atlas = game.getAtlas();
+		Fingerprint areas = EMPTY;
+
+		for (Area area : atlas.getAreas()) {
+			// Each area is summed along with its index number
+			ByteBuffer entry = ByteBuffer.allocate(1 + 4 + 16);
+			entry.put(TAG_AREA_ENTRY).putInt(atlas.getIndex(area));
+			put(entry, of(area, atlas));
+			areas = areas.plus(of(entry.array()));
+		}
+
+		List<World> worlds = game.getScenario().getWorlds();
+		int levelCount = 0;
+		for (World world : worlds) {
+			levelCount += world.getLevels().size();
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 16 + 4 + worlds.size() * 5 + levelCount * 5);
+		buffer.put(TAG_GAME);
+		put(buffer, areas);
+		buffer.putInt(worlds.size());
+
+		for (World world : worlds) {
+			buffer.put(world.getHidden1upCost()).putInt(world.getLevels().size());
+			for (Level level : world.getLevels()) {
+				final Area start = level.getStartArea();
+				final Integer index = (start == null) ? null : atlas.getIndexByArea().get(start);
+				buffer.putInt((index == null) ? -1 : index).put(level.getCheckpoint());
+			}
+		}
+
+		return of(buffer.array());
+	}
+
+	private static void put(ByteBuffer buffer, Fingerprint fingerprint) {
+		buffer.putLong(fingerprint.high).putLong(fingerprint.low);
+	}
+}
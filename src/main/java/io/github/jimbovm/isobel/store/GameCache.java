@@ -0,0 +1,305 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * A cache of parsed games keyed by a hash of the content of the binary image
+ * they were parsed from, so that an image which has been seen before need not
+ * be decoded again.
+ *
+ * Games are held in the compact form written by {@link GameCodec}, both in
+ * an in-memory least-recently-used map whose total size is kept within a
+ * budget and, optionally, as one file per image in a directory on local disk.
+ * The name of each file includes the version of the encoding and of the
+ * parser which produced the game, so that games cached before either changed
+ * are parsed again rather than read.
+ * Because <code>Game</code>s are mutable, each lookup returns a freshly
+ * decoded instance which the caller is free to modify.
+ *
+ * A default cache is consulted by
+ * {@link io.github.jimbovm.isobel.common.Game#parse(String)}. Unless
+ * replaced with {@link #setDefault(GameCache)}, the default cache is held
+ * in memory only, or also on disk in the directory named by the
+ * <code>isobel.cache.dir</code> system property if it is set.
+ */
+@Log4j2
+public final class GameCache {
+
+	/** The default in-memory budget, in bytes of encoded game data. */
+	public static final long DEFAULT_MEMORY_BUDGET = 16 * 1024 * 1024;
+
+	/**
+	 * The version of the games parsed from images, which must be incremented
+	 * whenever a change to the parser changes the game parsed from any image.
+	 */
+	public static final int PARSER_VERSION = 1;
+
+	private static final String FILE_EXTENSION = ".isc";
+
+	private static GameCache defaultCache;
+
+	private static boolean defaultInitialized = false;
+
+	/** The directory in which cached games are stored, or <code>null</code>. */
+	@Getter
+	private final Path directory;
+
+	/** The maximum total size of the encoded games held in memory. */
+	@Getter
+	private final long memoryBudget;
+
+	/** The total size of the encoded games currently held in memory. */
+	@Getter
+	private long memoryUsed = 0;
+
+	private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+	/**
+	 * Create a new cache held in memory only.
+	 *
+	 * @param memoryBudget The maximum number of bytes of encoded game data to
+	 *                     hold in memory.
+	 */
+	public GameCache(final long memoryBudget) {
+		this(null, memoryBudget);
+	}
+
+	/**
+	 * Create a new cache held in memory and on disk.
+	 *
+	 * @param directory    The directory in which to store cached games, which is
+	 *                     created if it does not exist, or <code>null</code> to
+	 *                     hold games in memory only.
+	 * @param memoryBudget The maximum number of bytes of encoded game data to
+	 *                     hold in memory.
+	 */
+	public GameCache(final Path directory, final long memoryBudget) {
+		this.directory = directory;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Return the cache consulted when parsing games, creating it on first use.
+	 *
+	 * @return The default cache, or <code>null</code> if caching has been
+	 *         disabled.
+	 */
+	public static synchronized GameCache getDefault() {
+
+		if (defaultInitialized == false) {
+			final String directoryName = System.getProperty("isobel.cache.dir");
+			final Path directory = (directoryName == null) ? null : Path.of(directoryName);
+			defaultCache = new GameCache(directory, DEFAULT_MEMORY_BUDGET);
+			defaultInitialized = true;
+		}
+
+		return defaultCache;
+	}
+
+	/**
+	 * Replace the cache consulted when parsing games.
+	 *
+	 * @param cache The new default cache, or <code>null</code> to disable
+	 *              caching.
+	 */
+	public static synchronized void setDefault(GameCache cache) {
+		defaultCache = cache;
+		defaultInitialized = true;
+	}
+
+	/**
+	 * Compute the key under which a game parsed from a binary image is cached.
+	 * The key combines the CRC-32C and CRC-32 checksums of the image, giving a
+	 * 64-bit hash which is fast to compute and unlikely to collide across
+	 * large collections of images.
+	 *
+	 * @param  image The binary image.
+	 *
+	 * @return       The cache key for the image.
+	 */
+	public static long key(byte[] image) {
+
+		CRC32C crc32c = new CRC32C();
+		crc32c.update(image);
+		CRC32 crc32 = new CRC32();
+		crc32.update(image);
+
+		return (crc32c.getValue() << 32) | crc32.getValue();
+	}
+
+	/**
+	 * Look up a game in the cache, first in memory and then on disk.
+	 *
+	 * @param  key The key of the image from which the game was parsed.
+	 *
+	 * @return     A newly decoded copy of the cached game, or <code>null</code>
+	 *             if the cache holds no game for the key.
+	 */
+	public Game get(final long key) {
+
+		byte[] encoded;
+
+		synchronized (this) {
+			encoded = this.entries.get(key);
+		}
+
+		if (encoded == null) {
+			encoded = this.readFile(key);
+			if (encoded == null) {
+				return null;
+			}
+			this.putInMemory(key, encoded);
+		}
+
+		try {
+			return GameCodec.decode(encoded);
+		}
+		catch (IOException e) {
+			log.warn(String.format("Discarding unreadable cache entry %016x: %s", key, e.getMessage()));
+			this.remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Store a game in the cache.
+	 *
+	 * @param key  The key of the image from which the game was parsed.
+	 * @param game The parsed game. Later changes to the game do not affect the
+	 *             cached copy.
+	 */
+	public void put(final long key, Game game) {
+
+		final byte[] encoded = GameCodec.encode(game);
+
+		this.putInMemory(key, encoded);
+		this.writeFile(key, encoded);
+	}
+
+	/**
+	 * Remove a game from the cache, in memory and on disk.
+	 *
+	 * @param key The key of the image from which the game was parsed.
+	 */
+	public void remove(final long key) {
+
+		synchronized (this) {
+			byte[] removed = this.entries.remove(key);
+			if (removed != null) {
+				this.memoryUsed -= removed.length;
+			}
+		}
+
+		if (this.directory != null) {
+			try {
+				Files.deleteIfExists(this.pathOf(key));
+			}
+			catch (IOException e) {
+				log.warn(String.format("Could not delete cache entry %016x: %s", key, e.getMessage()));
+			}
+		}
+	}
+
+	/** Empty the in-memory part of the cache, leaving files on disk. */
+	public synchronized void clearMemory() {
+		this.entries.clear();
+		this.memoryUsed = 0;
+	}
+
+	/**
+	 * Return the number of games currently held in memory.
+	 *
+	 * @return The number of entries in the in-memory part of the cache.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	private synchronized void putInMemory(final long key, final byte[] encoded) {
+
+		// Never hold an entry that alone exceeds the budget
+		if (encoded.length > this.memoryBudget) {
+			return;
+		}
+
+		byte[] replaced = this.entries.put(key, encoded);
+		if (replaced != null) {
+			this.memoryUsed -= replaced.length;
+		}
+		this.memoryUsed += encoded.length;
+
+		// Evict least recently used entries until within budget
+		Iterator<Map.Entry<Long, byte[]>> eldest = this.entries.entrySet().iterator();
+		while (this.memoryUsed > this.memoryBudget && eldest.hasNext()) {
+			Map.Entry<Long, byte[]> entry = eldest.next();
+			this.memoryUsed -= entry.getValue().length;
+			eldest.remove();
+		}
+	}
+
+	private Path pathOf(final long key) {
+		return this.directory
+			.resolve(String.format("%016x-%d.%d%s", key, GameCodec.VERSION, PARSER_VERSION, FILE_EXTENSION));
+	}
+
+	private byte[] readFile(final long key) {
+
+		if (this.directory == null) {
+			return null;
+		}
+
+		Path path = this.pathOf(key);
+
+		if (Files.isRegularFile(path) == false) {
+			return null;
+		}
+
+		try {
+			final byte[] encoded = Files.readAllBytes(path);
+			// Only the current encoding is ever written, so anything else is not a game this parser produced
+			if (encoded.length <= Integer.BYTES || encoded[Integer.BYTES] != GameCodec.VERSION) {
+				log.warn(String.format("Ignoring cache entry %s in another encoding", path));
+				return null;
+			}
+			return encoded;
+		}
+		catch (IOException e) {
+			log.warn(String.format("Could not read cache entry %s: %s", path, e.getMessage()));
+			return null;
+		}
+	}
+
+	private void writeFile(final long key, final byte[] encoded) {
+
+		if (this.directory == null) {
+			return;
+		}
+
+		try {
+			Files.createDirectories(this.directory);
+			AtomicFiles.write(this.pathOf(key), encoded);
+		}
+		catch (IOException e) {
+			// A cache that can't be written to is not fatal
+			log.warn(String.format("Could not write cache entry %016x: %s", key, e.getMessage()));
+		}
+	}
+}
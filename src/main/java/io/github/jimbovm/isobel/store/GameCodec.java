@@ -0,0 +1,769 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.AnglePipe;
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.Castle;
+import io.github.jimbovm.isobel.actor.geography.Column;
+import io.github.jimbovm.isobel.actor.geography.ExtensiblePlatform;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.geography.FixedExtensible;
+import io.github.jimbovm.isobel.actor.geography.FixedStatic;
+import io.github.jimbovm.isobel.actor.geography.FullHeightRope;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.RawGeographyCommand;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.geography.ScaleRopeVertical;
+import io.github.jimbovm.isobel.actor.geography.SingletonObject;
+import io.github.jimbovm.isobel.actor.geography.Staircase;
+import io.github.jimbovm.isobel.actor.geography.UprightPipe;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.actor.population.RawPopulationCommand;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.Scenario;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A compact, lossless binary encoding of {@link Game}s, {@link Area}s and
+ * actors.
+ *
+ * Unlike game bytecode, this encoding preserves everything held by the
+ * object model, including area IDs and familiar names, the order of actors
+ * within each list and values which the original game could not represent.
+ * Unlike XML, it can be decoded without reflection and takes up a fraction
+ * of the space.
+ *
+ * Actors are written as a one-byte tag followed by their fields. Integers
+ * are written as zigzag-encoded variable-length quantities and enumerated
+ * values as their ordinal plus one, with zero reserved for <code>null</code>.
+ * Because ordinals are used, the format version must be incremented if any
+ * enum used by the model is reordered. It must also be incremented when tags
+ * are added, so that older readers reject newer data cleanly. Version 2 added
+ * raw geography and population commands; version 1 data, which has none, is
+ * still read.
+ */
+public final class GameCodec {
+
+	/** The four bytes with which an encoded game begins ("ISBL"). */
+	public static final int MAGIC = 0x4953424C;
+
+	/** The version of the encoding written by this class. */
+	public static final int VERSION = 2;
+
+	/** The oldest version of the encoding which this class can read. */
+	private static final int OLDEST_VERSION = 1;
+
+	private static final int TAG_ANGLE_PIPE = 0x00;
+
+	private static final int TAG_BACKGROUND_MODIFIER = 0x01;
+
+	private static final int TAG_CASTLE = 0x02;
+
+	private static final int TAG_COLUMN = 0x03;
+
+	private static final int TAG_EXTENSIBLE_PLATFORM = 0x04;
+
+	private static final int TAG_FILL_SCENERY_MODIFIER = 0x05;
+
+	private static final int TAG_FIXED_EXTENSIBLE = 0x06;
+
+	private static final int TAG_FIXED_STATIC = 0x07;
+
+	private static final int TAG_FULL_HEIGHT_ROPE = 0x08;
+
+	private static final int TAG_ROW = 0x09;
+
+	private static final int TAG_SCALE_ROPE_VERTICAL = 0x0A;
+
+	private static final int TAG_SINGLETON_OBJECT = 0x0B;
+
+	private static final int TAG_STAIRCASE = 0x0C;
+
+	private static final int TAG_UPRIGHT_PIPE = 0x0D;
+
+	private static final int TAG_RAW_GEOGRAPHY_COMMAND = 0x0E;
+
+	private static final int TAG_CHARACTER = 0x20;
+
+	private static final int TAG_EXIT_POINTER = 0x21;
+
+	private static final int TAG_RAW_POPULATION_COMMAND = 0x22;
+
+	// non-instantiable
+	private GameCodec() {}
+
+	/**
+	 * Encode a game to a byte array.
+	 *
+	 * @param  game The game to encode.
+	 *
+	 * @return      The encoded game, beginning with {@link #MAGIC} and
+	 *              {@link #VERSION}.
+	 */
+	public static byte[] encode(Game game) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			writeGame(out, game);
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Encode a single area to a byte array, without a magic number or
+	 * version. Two areas with the same encoding are identical in every
+	 * respect held by the model, so the encoding is suitable for hashing.
+	 *
+	 * @param  area The area to encode.
+	 *
+	 * @return      The encoded area.
+	 */
+	public static byte[] encode(Area area) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			writeArea(out, area);
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Decode a single area from a byte array written by
+	 * {@link #encode(Area)}.
+	 *
+	 * @param  data        The encoded area.
+	 *
+	 * @return             A new area equivalent to the one encoded.
+	 *
+	 * @throws IOException If the data is truncated or is not an encoded area.
+	 */
+	public static Area decodeArea(byte[] data) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			return readArea(in);
+		}
+	}
+
+	/**
+	 * Encode a single actor to a byte array. Two actors with the same encoding
+	 * are of the same type and identical in every property.
+	 *
+	 * @param  actor The actor to encode.
+	 *
+	 * @return       The encoded actor.
+	 */
+	public static byte[] encode(Actor actor) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			writeActor(out, actor);
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Decode a single actor from a byte array written by
+	 * {@link #encode(Actor)}.
+	 *
+	 * @param  data        The encoded actor.
+	 *
+	 * @return             A new actor equivalent to the one encoded.
+	 *
+	 * @throws IOException If the data is truncated or is not an encoded actor.
+	 */
+	public static Actor decodeActor(byte[] data) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			return readActor(in);
+		}
+	}
+
+	/**
+	 * Encode an area header to a byte array.
+	 *
+	 * @param  header The header to encode, which may be <code>null</code>.
+	 *
+	 * @return        The encoded header.
+	 */
+	public static byte[] encode(AreaHeader header) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(16);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+			writeHeader(out, header);
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Decode an area header from a byte array written by
+	 * {@link #encode(AreaHeader)}.
+	 *
+	 * @param  data        The encoded header.
+	 *
+	 * @return             A new header equivalent to the one encoded, or
+	 *                     <code>null</code>.
+	 *
+	 * @throws IOException If the data is truncated or is not an encoded header.
+	 */
+	public static AreaHeader decodeHeader(byte[] data) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			return readHeader(in);
+		}
+	}
+
+	/**
+	 * Decode a game from a byte array written by {@link #encode(Game)}.
+	 *
+	 * @param  data        The encoded game.
+	 *
+	 * @return             A new game equivalent to the one encoded.
+	 *
+	 * @throws IOException If the data is truncated, is not an encoded game or was
+	 *                     written by an incompatible version.
+	 */
+	public static Game decode(byte[] data) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			final int magic = in.readInt();
+			final int version = in.readUnsignedByte();
+			if (magic != MAGIC) {
+				throw new IOException(String.format("Not an encoded game (magic 0x%08X)", magic));
+			}
+			if (version < OLDEST_VERSION || version > VERSION) {
+				throw new IOException(String.format("Unsupported encoding version %d", version));
+			}
+			return readGame(in);
+		}
+	}
+
+	/**
+	 * Write a game, without the leading magic number and version.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  game        The game to write.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	public static void writeGame(DataOutput out, Game game) throws IOException {
+
+		writeString(out, game.getId());
+
+		List<Area> areas = game.getAtlas().getAreas();
+		Map<Area, Integer> positions = new HashMap<>();
+
+		writeVarInt(out, areas.size());
+		for (int i = 0; i < areas.size(); i++) {
+			positions.put(areas.get(i), i);
+			writeArea(out, areas.get(i));
+		}
+
+		List<World> worlds = game.getScenario().getWorlds();
+		writeVarInt(out, worlds.size());
+
+		for (World world : worlds) {
+			out.writeByte(world.getHidden1upCost());
+			writeVarInt(out, world.getLevels().size());
+			for (Level level : world.getLevels()) {
+				// Start areas are written as positions within the atlas
+				writeVarInt(out, positions.getOrDefault(level.getStartArea(), -1));
+				out.writeByte(level.getCheckpoint());
+			}
+		}
+	}
+
+	/**
+	 * Read a game written by {@link #writeGame(DataOutput, Game)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The game read.
+	 *
+	 * @throws IOException In the event of a problem with the input.
+	 */
+	public static Game readGame(DataInput in) throws IOException {
+
+		Game game = new Game();
+		game.setId(readString(in));
+
+		final int areaCount = readVarInt(in);
+		List<Area> areas = new ArrayList<>(areaCount);
+
+		for (int i = 0; i < areaCount; i++) {
+			areas.add(readArea(in));
+		}
+
+		Atlas atlas = new Atlas();
+		atlas.addAll(areas);
+		game.setAtlas(atlas);
+
+		final int worldCount = readVarInt(in);
+		Scenario scenario = new Scenario();
+
+		for (int i = 0; i < worldCount; i++) {
+			World world = new World();
+			world.setHidden1upCost(in.readByte());
+			final int levelCount = readVarInt(in);
+			for (int j = 0; j < levelCount; j++) {
+				final int position = readVarInt(in);
+				final byte checkpoint = in.readByte();
+				Area startArea = (position < 0) ? null : areas.get(position);
+				world.getLevels().add(new Level(startArea, checkpoint));
+			}
+			scenario.getWorlds().add(world);
+		}
+
+		game.setScenario(scenario);
+
+		return game;
+	}
+
+	/**
+	 * Write an area.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  area        The area to write.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	public static void writeArea(DataOutput out, Area area) throws IOException {
+
+		writeString(out, area.getId());
+		writeString(out, area.getFamiliarName());
+		writeEnum(out, area.getEnvironment());
+		writeHeader(out, area.getHeader());
+
+		writeVarInt(out, area.getGeography().size());
+		for (GeographyActor actor : area.getGeography()) {
+			writeActor(out, actor);
+		}
+
+		writeVarInt(out, area.getPopulation().size());
+		for (PopulationActor actor : area.getPopulation()) {
+			writeActor(out, actor);
+		}
+	}
+
+	/**
+	 * Read an area written by {@link #writeArea(DataOutput, Area)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The area read.
+	 *
+	 * @throws IOException In the event of a problem with the input.
+	 */
+	public static Area readArea(DataInput in) throws IOException {
+
+		final String id = readString(in);
+		final String familiarName = readString(in);
+		final Area.Environment environment = readEnum(in, Area.Environment.class);
+		final AreaHeader header = readHeader(in);
+
+		final int geographyCount = readVarInt(in);
+		List<GeographyActor> geography = new ArrayList<>(geographyCount);
+		for (int i = 0; i < geographyCount; i++) {
+			geography.add((GeographyActor) readActor(in));
+		}
+
+		final int populationCount = readVarInt(in);
+		List<PopulationActor> population = new ArrayList<>(populationCount);
+		for (int i = 0; i < populationCount; i++) {
+			population.add((PopulationActor) readActor(in));
+		}
+
+		// The builder avoids the default geography set up by the constructor
+		return Area
+			.builder().id(id).familiarName(familiarName).environment(environment).header(header)
+			.geography(geography).population(population).build();
+	}
+
+	/**
+	 * Write an area header.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  header      The header to write, which may be <code>null</code>.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	public static void writeHeader(DataOutput out, AreaHeader header) throws IOException {
+
+		out.writeBoolean(header != null);
+		if (header == null) {
+			return;
+		}
+
+		writeEnum(out, header.getFill());
+		out.writeBoolean(header.isAutowalk());
+		writeVarInt(out, header.getTicks());
+		writeEnum(out, header.getStartPosition());
+		writeEnum(out, header.getBackground());
+		writeEnum(out, header.getScenery());
+		writeEnum(out, header.getPlatform());
+	}
+
+	/**
+	 * Read an area header written by
+	 * {@link #writeHeader(DataOutput, AreaHeader)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The header read, or <code>null</code>.
+	 *
+	 * @throws IOException In the event of a problem with the input.
+	 */
+	public static AreaHeader readHeader(DataInput in) throws IOException {
+
+		if (in.readBoolean() == false) {
+			return null;
+		}
+
+		return AreaHeader
+			.builder().fill(readEnum(in, AreaHeader.Fill.class)).autowalk(in.readBoolean())
+			.ticks(readVarInt(in)).startPosition(readEnum(in, AreaHeader.StartPosition.class))
+			.background(readEnum(in, AreaHeader.Background.class))
+			.scenery(readEnum(in, AreaHeader.Scenery.class))
+			.platform(readEnum(in, AreaHeader.Platform.class)).build();
+	}
+
+	/**
+	 * Write a geography or population actor.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  actor       The actor to write.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	public static void writeActor(DataOutput out, Actor actor) throws IOException {
+
+		if (actor instanceof AnglePipe pipe) {
+			out.writeByte(TAG_ANGLE_PIPE);
+			writeVarInt(out, pipe.getX());
+			writeVarInt(out, pipe.getY());
+		}
+		else if (actor instanceof BackgroundModifier modifier) {
+			out.writeByte(TAG_BACKGROUND_MODIFIER);
+			writeVarInt(out, modifier.getX());
+			writeEnum(out, modifier.getBackground());
+		}
+		else if (actor instanceof Castle castle) {
+			out.writeByte(TAG_CASTLE);
+			writeVarInt(out, castle.getX());
+			writeEnum(out, castle.getSize());
+		}
+		else if (actor instanceof Column column) {
+			out.writeByte(TAG_COLUMN);
+			writeVarInt(out, column.getX());
+			writeVarInt(out, column.getY());
+			writeVarInt(out, column.getExtent());
+			writeEnum(out, column.getType());
+		}
+		else if (actor instanceof ExtensiblePlatform platform) {
+			out.writeByte(TAG_EXTENSIBLE_PLATFORM);
+			writeVarInt(out, platform.getX());
+			writeVarInt(out, platform.getY());
+			writeVarInt(out, platform.getExtent());
+		}
+		else if (actor instanceof FillSceneryModifier modifier) {
+			out.writeByte(TAG_FILL_SCENERY_MODIFIER);
+			writeVarInt(out, modifier.getX());
+			writeEnum(out, modifier.getFill());
+			writeEnum(out, modifier.getScenery());
+		}
+		else if (actor instanceof FixedExtensible extensible) {
+			out.writeByte(TAG_FIXED_EXTENSIBLE);
+			writeVarInt(out, extensible.getX());
+			writeVarInt(out, extensible.getExtent());
+			writeEnum(out, extensible.getType());
+		}
+		else if (actor instanceof FixedStatic fixedStatic) {
+			out.writeByte(TAG_FIXED_STATIC);
+			writeVarInt(out, fixedStatic.getX());
+			writeEnum(out, fixedStatic.getType());
+		}
+		else if (actor instanceof FullHeightRope rope) {
+			out.writeByte(TAG_FULL_HEIGHT_ROPE);
+			writeVarInt(out, rope.getX());
+		}
+		else if (actor instanceof Row row) {
+			out.writeByte(TAG_ROW);
+			writeVarInt(out, row.getX());
+			writeVarInt(out, row.getY());
+			writeVarInt(out, row.getExtent());
+			writeEnum(out, row.getType());
+		}
+		else if (actor instanceof ScaleRopeVertical rope) {
+			out.writeByte(TAG_SCALE_ROPE_VERTICAL);
+			writeVarInt(out, rope.getX());
+			writeVarInt(out, rope.getExtent());
+		}
+		else if (actor instanceof SingletonObject object) {
+			out.writeByte(TAG_SINGLETON_OBJECT);
+			writeVarInt(out, object.getX());
+			writeVarInt(out, object.getY());
+			writeEnum(out, object.getType());
+		}
+		else if (actor instanceof Staircase staircase) {
+			out.writeByte(TAG_STAIRCASE);
+			writeVarInt(out, staircase.getX());
+			writeVarInt(out, staircase.getExtent());
+		}
+		else if (actor instanceof UprightPipe pipe) {
+			out.writeByte(TAG_UPRIGHT_PIPE);
+			writeVarInt(out, pipe.getX());
+			writeVarInt(out, pipe.getY());
+			writeVarInt(out, pipe.getExtent());
+			out.writeBoolean(pipe.isEnterable());
+		}
+		else if (actor instanceof Character character) {
+			out.writeByte(TAG_CHARACTER);
+			writeVarInt(out, character.getX());
+			writeVarInt(out, character.getY());
+			writeEnum(out, character.getType());
+			out.writeBoolean(character.isHardModeOnly());
+		}
+		else if (actor instanceof ExitPointer pointer) {
+			out.writeByte(TAG_EXIT_POINTER);
+			writeVarInt(out, pointer.getX());
+			writeString(out, pointer.getDestination());
+			writeVarInt(out, pointer.getStartPage());
+			writeVarInt(out, pointer.getActiveFromWorld());
+		}
+		else if (actor instanceof RawGeographyCommand raw) {
+			out.writeByte(TAG_RAW_GEOGRAPHY_COMMAND);
+			writeVarInt(out, raw.getX());
+			writeCommand(out, raw.getCommand());
+		}
+		else if (actor instanceof RawPopulationCommand raw) {
+			out.writeByte(TAG_RAW_POPULATION_COMMAND);
+			writeVarInt(out, raw.getX());
+			writeCommand(out, raw.getCommand());
+		}
+		else {
+			throw new IllegalArgumentException("Cannot encode actor of type " + actor.getClass().getName());
+		}
+	}
+
+	/**
+	 * Read an actor written by {@link #writeActor(DataOutput, Actor)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The actor read.
+	 *
+	 * @throws IOException In the event of a problem with the input, or an
+	 *                     unknown actor tag.
+	 */
+	public static Actor readActor(DataInput in) throws IOException {
+
+		final int tag = in.readUnsignedByte();
+
+		switch (tag) {
+			case TAG_ANGLE_PIPE:
+				return AnglePipe.create(readVarInt(in), readVarInt(in));
+			case TAG_BACKGROUND_MODIFIER:
+				return BackgroundModifier.create(readVarInt(in), readEnum(in, AreaHeader.Background.class));
+			case TAG_CASTLE:
+				return Castle.create(readVarInt(in), readEnum(in, Castle.Size.class));
+			case TAG_COLUMN: {
+				final int x = readVarInt(in);
+				final int y = readVarInt(in);
+				final int extent = readVarInt(in);
+				return Column.create(x, y, readEnum(in, Column.Type.class), extent);
+			}
+			case TAG_EXTENSIBLE_PLATFORM:
+				return ExtensiblePlatform.create(readVarInt(in), readVarInt(in), readVarInt(in));
+			case TAG_FILL_SCENERY_MODIFIER:
+				return FillSceneryModifier
+					.create(readVarInt(in), readEnum(in, AreaHeader.Fill.class),
+						readEnum(in, AreaHeader.Scenery.class));
+			case TAG_FIXED_EXTENSIBLE: {
+				final int x = readVarInt(in);
+				final int extent = readVarInt(in);
+				return FixedExtensible.create(x, readEnum(in, FixedExtensible.Type.class), extent);
+			}
+			case TAG_FIXED_STATIC:
+				return FixedStatic.create(readVarInt(in), readEnum(in, FixedStatic.Type.class));
+			case TAG_FULL_HEIGHT_ROPE:
+				return FullHeightRope.create(readVarInt(in));
+			case TAG_ROW: {
+				final int x = readVarInt(in);
+				final int y = readVarInt(in);
+				final int extent = readVarInt(in);
+				return Row.create(x, y, readEnum(in, Row.Type.class), extent);
+			}
+			case TAG_SCALE_ROPE_VERTICAL: {
+				ScaleRopeVertical rope = new ScaleRopeVertical();
+				rope.setX(readVarInt(in));
+				rope.setExtent(readVarInt(in));
+				return rope;
+			}
+			case TAG_SINGLETON_OBJECT:
+				return SingletonObject
+					.create(readVarInt(in), readVarInt(in), readEnum(in, SingletonObject.Type.class));
+			case TAG_STAIRCASE:
+				return Staircase.create(readVarInt(in), readVarInt(in));
+			case TAG_UPRIGHT_PIPE:
+				return UprightPipe.create(readVarInt(in), readVarInt(in), readVarInt(in), in.readBoolean());
+			case TAG_CHARACTER:
+				return Character
+					.create(readVarInt(in), readVarInt(in), readEnum(in, Character.Type.class),
+						in.readBoolean());
+			case TAG_EXIT_POINTER:
+				return ExitPointer.create(readVarInt(in), readString(in), readVarInt(in), readVarInt(in));
+			case TAG_RAW_GEOGRAPHY_COMMAND:
+				return RawGeographyCommand.create(readVarInt(in), readCommand(in));
+			case TAG_RAW_POPULATION_COMMAND:
+				return RawPopulationCommand.create(readVarInt(in), readCommand(in));
+			default:
+				throw new IOException(String.format("Unknown actor tag 0x%02X", tag));
+		}
+	}
+
+	/**
+	 * Write an integer as a zigzag-encoded variable-length quantity of between
+	 * one and five bytes, seven bits per byte, least significant group first.
+	 *
+	 * @param  out         The output to write to.
+	 * @param  value       The value to write.
+	 *
+	 * @throws IOException In the event of a problem with the output.
+	 */
+	public static void writeVarInt(DataOutput out, final int value) throws IOException {
+
+		int zigzag = (value << 1) ^ (value >> 31);
+
+		while ((zigzag & ~0x7F) != 0) {
+			out.writeByte((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		out.writeByte(zigzag);
+	}
+
+	/**
+	 * Read an integer written by {@link #writeVarInt(DataOutput, int)}.
+	 *
+	 * @param  in          The input to read from.
+	 *
+	 * @return             The value read.
+	 *
+	 * @throws IOException In the event of a problem with the input, or a
+	 *                     malformed value.
+	 */
+	public static int readVarInt(DataInput in) throws IOException {
+
+		int zigzag = 0;
+
+		for (int shift = 0; shift < 35; shift += 7) {
+			final int b = in.readUnsignedByte();
+			zigzag |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+
+		throw new IOException("Malformed variable-length integer");
+	}
+
+	static void writeString(DataOutput out, String string) throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null) {
+			out.writeUTF(string);
+		}
+	}
+
+	static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	static void writeCommand(DataOutput out, byte[] command) throws IOException {
+		writeVarInt(out, command.length);
+		out.write(command);
+	}
+
+	static byte[] readCommand(DataInput in) throws IOException {
+
+		final int length = readVarInt(in);
+
+		// Commands are two or three bytes long
+		if (length < 2 || length > 3) {
+			throw new IOException(String.format("Invalid command length %d", length));
+		}
+
+		byte[] command = new byte[length];
+		in.readFully(command);
+		return command;
+	}
+
+	static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+		out.writeByte((value == null) ? 0 : value.ordinal() + 1);
+	}
+
+	static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+
+		final int value = in.readUnsignedByte();
+
+		if (value == 0) {
+			return null;
+		}
+
+		E[] constants = type.getEnumConstants();
+
+		if (value > constants.length) {
+			throw new IOException(String.format("Invalid %s ordinal %d", type.getSimpleName(), value - 1));
+		}
+
+		return constants[value - 1];
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A game stored as a directory, with a {@link ProjectManifest} describing
+ * the atlas and scenario and each area held as XML in a file of its own.
+ *
+ * Opening a project reads only the manifest; each area is read the first
+ * time it is asked for. Saving a project writes only those areas whose
+ * content has changed since they were read or last saved, followed by the
+ * manifest. Area files are named after a hash of their content and are
+ * never overwritten, so the manifest is the only file replaced on a save,
+ * and it is replaced atomically: a save interrupted part way leaves the
+ * project as it was before the save began. Files no longer referred to by
+ * the manifest are deleted once it has been replaced.
+ */
+@Log4j2
+public final class Project {
+
+	/** The name of the manifest file within a project directory. */
+	public static final String MANIFEST_FILE = "project.xml";
+
+	/** The name of the directory holding area files within a project directory. */
+	public static final String AREA_DIRECTORY = "areas";
+
+	private static JAXBContext context;
+
+	/** The directory holding the project. */
+	@Getter
+	private final Path directory;
+
+	private ProjectManifest manifest;
+
+	/** Manifest entries, keyed by area ID. */
+	private Map<String, ProjectManifest.AreaEntry> entries = new LinkedHashMap<>();
+
+	/** Areas read or saved so far, keyed by area ID. */
+	private final Map<String, Area> loaded = new HashMap<>();
+
+	/** Hashes of areas as they were when read or last saved, keyed by area ID. */
+	private final Map<String, Long> loadedHashes = new HashMap<>();
+
+	private Project(Path directory, ProjectManifest manifest) {
+		this.directory = directory;
+		this.setManifest(manifest);
+	}
+
+	private void setManifest(ProjectManifest manifest) {
+
+		this.manifest = manifest;
+		this.entries = new LinkedHashMap<>();
+
+		for (ProjectManifest.AreaEntry entry : manifest.getAreas()) {
+			this.entries.put(entry.getId(), entry);
+		}
+	}
+
+	private static synchronized JAXBContext getContext() throws IOException {
+
+		if (context == null) {
+			try {
+				context = JAXBContext.newInstance(ProjectManifest.class, Area.class);
+			}
+			catch (JAXBException e) {
+				throw new IOException("Could not set up XML binding", e);
+			}
+		}
+
+		return context;
+	}
+
+	/**
+	 * Open an existing project, reading only its manifest.
+	 *
+	 * @param  directory   The directory holding the project.
+	 *
+	 * @return             The project.
+	 *
+	 * @throws IOException If the manifest can't be read.
+	 */
+	public static Project open(Path directory) throws IOException {
+		ProjectManifest manifest = unmarshal(directory.resolve(MANIFEST_FILE), ProjectManifest.class);
+		return new Project(directory, manifest);
+	}
+
+	/**
+	 * Create a new project holding a game, writing every area.
+	 *
+	 * @param  directory   The directory to hold the project, which is created if
+	 *                     it does not exist.
+	 * @param  game        The game to store.
+	 *
+	 * @return             The project.
+	 *
+	 * @throws IOException If the project can't be written.
+	 */
+	public static Project create(Path directory, Game game) throws IOException {
+
+		Files.createDirectories(directory.resolve(AREA_DIRECTORY));
+		Project project = new Project(directory, new ProjectManifest());
+		project.save(game);
+
+		return project;
+	}
+
+	/**
+	 * Return the ID of the game held by the project.
+	 *
+	 * @return The game's ID.
+	 */
+	public synchronized String getId() {
+		return this.manifest.getId();
+	}
+
+	/**
+	 * Return the IDs of the project's areas in atlas order, without reading
+	 * them.
+	 *
+	 * @return An unmodifiable list of area IDs.
+	 */
+	public synchronized List<String> getAreaIds() {
+		return Collections.unmodifiableList(new ArrayList<>(this.entries.keySet()));
+	}
+
+	/**
+	 * Return the manifest entry for an area, which describes it without it
+	 * having to be read.
+	 *
+	 * @param  id The ID of the area.
+	 *
+	 * @return    The area's entry, or <code>null</code> if there is no such
+	 *            area.
+	 */
+	public synchronized ProjectManifest.AreaEntry getEntry(String id) {
+		return this.entries.get(id);
+	}
+
+	/**
+	 * Test whether an area has been read.
+	 *
+	 * @param  id The ID of the area.
+	 *
+	 * @return    True if the area has been read or saved, false otherwise.
+	 */
+	public synchronized boolean isLoaded(String id) {
+		return this.loaded.containsKey(id);
+	}
+
+	/**
+	 * Return an area, reading it if it has not been read already. The same
+	 * instance is returned each time, so changes made to it are picked up by
+	 * {@link #save()}.
+	 *
+	 * @param  id          The ID of the area.
+	 *
+	 * @return             The area, or <code>null</code> if there is no such
+	 *                     area.
+	 *
+	 * @throws IOException If the area can't be read.
+	 */
+	public synchronized Area getArea(String id) throws IOException {
+
+		Area area = this.loaded.get(id);
+
+		if (area == null) {
+
+			final ProjectManifest.AreaEntry entry = this.entries.get(id);
+			if (entry == null) {
+				return null;
+			}
+
+			area = unmarshal(this.directory.resolve(AREA_DIRECTORY).resolve(entry.getFile()), Area.class);
+			this.loaded.put(id, area);
+			this.loadedHashes.put(id, hash(area));
+		}
+
+		return area;
+	}
+
+	/**
+	 * Read every area and assemble the complete game.
+	 *
+	 * @return             The game held by the project.
+	 *
+	 * @throws IOException If an area can't be read.
+	 */
+	public synchronized Game load() throws IOException {
+
+		Game game = new Game();
+		game.setId(this.manifest.getId());
+
+		List<Area> areas = new ArrayList<>();
+		for (String id : this.entries.keySet()) {
+			areas.add(this.getArea(id));
+		}
+
+		Atlas atlas = game.getAtlas();
+		atlas.addAll(areas);
+
+		for (ProjectManifest.WorldEntry worldEntry : this.manifest.getWorlds()) {
+			World world = new World();
+			world.setHidden1upCost(worldEntry.getHidden1upCost());
+			for (ProjectManifest.LevelEntry levelEntry : worldEntry.getLevels()) {
+				final Area startArea = (levelEntry.getStartArea() == null) ? null : atlas.get(levelEntry.getStartArea());
+				world.getLevels().add(new Level(startArea, levelEntry.getCheckpoint()));
+			}
+			game.getScenario().getWorlds().add(world);
+		}
+
+		return game;
+	}
+
+	/**
+	 * Save changes to the areas which have been read, without changing which
+	 * areas make up the game or the scenario. Areas whose ID has changed, and
+	 * areas added to or removed from the game, are only saved by
+	 * {@link #save(Game)}.
+	 *
+	 * @return             The number of area files written.
+	 *
+	 * @throws IOException If the project can't be written.
+	 */
+	public synchronized int save() throws IOException {
+
+		ProjectManifest next = new ProjectManifest();
+		next.setId(this.manifest.getId());
+		next.setWorlds(this.manifest.getWorlds());
+
+		List<String> obsolete = new ArrayList<>();
+		int written = 0;
+
+		for (ProjectManifest.AreaEntry entry : this.entries.values()) {
+			final Area area = this.loaded.get(entry.getId());
+			if (area == null) {
+				next.getAreas().add(entry);
+			}
+			else {
+				written += this.saveArea(area, entry, next, obsolete);
+			}
+		}
+
+		this.commit(next, obsolete);
+
+		return written;
+	}
+
+	/**
+	 * Save a game, replacing the game previously held by the project. Only
+	 * areas whose content has changed are written.
+	 *
+	 * @param  game        The game to save.
+	 *
+	 * @return             The number of area files written.
+	 *
+	 * @throws IOException If the project can't be written.
+	 */
+	public synchronized int save(Game game) throws IOException {
+
+		ProjectManifest next = new ProjectManifest();
+		next.setId(game.getId());
+
+		Map<String, ProjectManifest.AreaEntry> removed = new HashMap<>(this.entries);
+		List<String> obsolete = new ArrayList<>();
+		int written = 0;
+
+		for (Area area : game.getAtlas().getAreas()) {
+			written += this.saveArea(area, removed.remove(area.getId()), next, obsolete);
+		}
+
+		for (ProjectManifest.AreaEntry entry : removed.values()) {
+			obsolete.add(entry.getFile());
+			this.loaded.remove(entry.getId());
+			this.loadedHashes.remove(entry.getId());
+		}
+
+		for (World world : game.getScenario().getWorlds()) {
+			ProjectManifest.WorldEntry worldEntry = new ProjectManifest.WorldEntry();
+			worldEntry.setHidden1upCost(world.getHidden1upCost());
+			for (Level level : world.getLevels()) {
+				final String startArea = (level.getStartArea() == null) ? null : level.getStartArea().getId();
+				worldEntry.getLevels().add(new ProjectManifest.LevelEntry(startArea, level.getCheckpoint()));
+			}
+			next.getWorlds().add(worldEntry);
+		}
+
+		this.commit(next, obsolete);
+
+		return written;
+	}
+
+	private int saveArea(
+		Area area, ProjectManifest.AreaEntry previous, ProjectManifest next, List<String> obsolete)
+		throws IOException {
+
+		final long hash = hash(area);
+		final Long loadedHash = this.loadedHashes.get(area.getId());
+		final boolean unchanged =
+			previous != null && (loadedHash == null ? previous.getHash() == hash : loadedHash == hash);
+
+		this.loaded.put(area.getId(), area);
+		this.loadedHashes.put(area.getId(), hash);
+
+		if (unchanged) {
+			next.getAreas().add(previous);
+			return 0;
+		}
+
+		final String file = String.format("%s-%016x.xml", area.getId(), hash);
+		AtomicFiles.write(this.directory.resolve(AREA_DIRECTORY).resolve(file), marshal(area));
+
+		if (previous != null && previous.getFile().equals(file) == false) {
+			obsolete.add(previous.getFile());
+		}
+
+		next
+			.getAreas()
+			.add(new ProjectManifest.AreaEntry(area.getId(), area.getEnvironment(), area.getFamiliarName(), file,
+				hash));
+
+		return 1;
+	}
+
+	private void commit(ProjectManifest next, List<String> obsolete) throws IOException {
+
+		// Replacing the manifest is what makes the save take effect
+		AtomicFiles.write(this.directory.resolve(MANIFEST_FILE), marshal(next));
+		this.setManifest(next);
+
+		for (String file : obsolete) {
+			try {
+				Files.deleteIfExists(this.directory.resolve(AREA_DIRECTORY).resolve(file));
+			}
+			catch (IOException e) {
+				// A leftover file wastes space but does no harm
+				log.warn(String.format("Could not delete obsolete area file %s: %s", file, e.getMessage()));
+			}
+		}
+	}
+
+	private static long hash(Area area) {
+		return GameCache.key(GameCodec.encode(area));
+	}
+
+	private static byte[] marshal(Object object) throws IOException {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		try {
+			Marshaller marshaller = getContext().createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			marshaller.marshal(object, buffer);
+		}
+		catch (JAXBException e) {
+			throw new IOException("Could not write XML", e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	private static <T> T unmarshal(Path path, Class<T> type) throws IOException {
+
+		try {
+			return type.cast(getContext().createUnmarshaller().unmarshal(path.toFile()));
+		}
+		catch (JAXBException e) {
+			throw new IOException(String.format("Could not read %s", path), e);
+		}
+	}
+}
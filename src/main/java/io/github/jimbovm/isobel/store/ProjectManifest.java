@@ -0,0 +1,128 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+
+/**
+ * The manifest of a {@link Project}, holding everything about a game except
+ * the contents of its areas: the order of areas in the atlas, the file in
+ * which each area is stored, and the structure of the scenario. Areas are
+ * referred to by ID, so the manifest can be read without reading any area.
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@XmlAccessorType(XmlAccessType.NONE)
+@XmlRootElement(name = "project")
+public final class ProjectManifest {
+
+	/** The ID of the game. */
+	@XmlAttribute(name = "id")
+	private String id;
+
+	/** The areas of the game, in atlas order. */
+	@XmlElementWrapper(name = "atlas")
+	@XmlElement(name = "area")
+	private List<AreaEntry> areas;
+
+	/** The worlds of the game's scenario. */
+	@XmlElementWrapper(name = "scenario")
+	@XmlElement(name = "world")
+	private List<WorldEntry> worlds;
+
+	{
+		this.areas = new ArrayList<>();
+		this.worlds = new ArrayList<>();
+	}
+
+	/** A reference to an area stored in its own file. */
+	@Getter
+	@Setter
+	@ToString
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@XmlAccessorType(XmlAccessType.NONE)
+	public static final class AreaEntry {
+
+		/** The immutable ID of the area. */
+		@XmlAttribute(name = "id")
+		private String id;
+
+		/** The environment type of the area. */
+		@XmlAttribute(name = "environment")
+		private Area.Environment environment;
+
+		/** The human-readable name of the area. */
+		@XmlAttribute(name = "familiarName")
+		private String familiarName;
+
+		/** The name of the file holding the area, relative to the area directory. */
+		@XmlAttribute(name = "file")
+		private String file;
+
+		/** A hash of the content of the area when it was saved. */
+		@XmlAttribute(name = "hash")
+		private long hash;
+	}
+
+	/** A world of the scenario. */
+	@Getter
+	@Setter
+	@ToString
+	@NoArgsConstructor
+	@XmlAccessorType(XmlAccessType.NONE)
+	public static final class WorldEntry {
+
+		/** The hidden 1-up cost of the world. */
+		@XmlAttribute(name = "hidden1upCost")
+		private byte hidden1upCost;
+
+		/** The levels of the world. */
+		@XmlElement(name = "level")
+		private List<LevelEntry> levels;
+
+		{
+			this.levels = new ArrayList<>();
+		}
+	}
+
+	/** A level of a world. */
+	@Getter
+	@Setter
+	@ToString
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@XmlAccessorType(XmlAccessType.NONE)
+	public static final class LevelEntry {
+
+		/** The ID of the level's starting area. */
+		@XmlAttribute(name = "startArea")
+		private String startArea;
+
+		/** The page at which the player resumes after losing a life. */
+		@XmlAttribute(name = "checkpoint")
+		private byte checkpoint;
+	}
+}
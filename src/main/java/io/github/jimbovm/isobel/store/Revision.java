@@ -0,0 +1,150 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A revision of a game held by a {@link VersionStore}: a manifest listing
+ * the hash of each area in atlas order, together with the scenario. Area
+ * content is held separately, once per distinct hash, so revisions which
+ * share areas share their storage.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class Revision {
+
+	/** The hash of the revision's manifest, which identifies it. */
+	private final String id;
+
+	/** The ID of the game. */
+	private final String gameId;
+
+	/** The hash of each area's content, keyed by area ID in atlas order. */
+	private final Map<String, String> areaHashes;
+
+	/** The worlds of the game's scenario, referring to areas by ID. */
+	private final List<ProjectManifest.WorldEntry> worlds;
+
+	/**
+	 * Compare this revision with another by area hash, without reading the
+	 * content of any area.
+	 *
+	 * @param  other The revision to compare with, taken to be the newer.
+	 *
+	 * @return       The differences between the two revisions.
+	 */
+	public Diff diff(Revision other) {
+
+		List<String> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		List<String> changed = new ArrayList<>();
+
+		for (Map.Entry<String, String> entry : other.areaHashes.entrySet()) {
+			final String hash = this.areaHashes.get(entry.getKey());
+			if (hash == null) {
+				added.add(entry.getKey());
+			}
+			else if (hash.equals(entry.getValue()) == false) {
+				changed.add(entry.getKey());
+			}
+		}
+
+		for (String id : this.areaHashes.keySet()) {
+			if (other.areaHashes.containsKey(id) == false) {
+				removed.add(id);
+			}
+		}
+
+		// The atlas order determines each area's index number
+		List<String> order = new ArrayList<>(this.areaHashes.keySet());
+		List<String> otherOrder = new ArrayList<>(other.areaHashes.keySet());
+		order.retainAll(other.areaHashes.keySet());
+		otherOrder.retainAll(this.areaHashes.keySet());
+		final boolean reordered = order.equals(otherOrder) == false;
+
+		final boolean scenarioChanged =
+			Objects.equals(this.gameId, other.gameId) == false || sameScenario(this.worlds, other.worlds) == false;
+
+		return new Diff(Collections.unmodifiableList(added), Collections.unmodifiableList(removed),
+			Collections.unmodifiableList(changed), reordered, scenarioChanged);
+	}
+
+	private static boolean sameScenario(List<ProjectManifest.WorldEntry> a, List<ProjectManifest.WorldEntry> b) {
+
+		if (a.size() != b.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < a.size(); i++) {
+			List<ProjectManifest.LevelEntry> levelsA = a.get(i).getLevels();
+			List<ProjectManifest.LevelEntry> levelsB = b.get(i).getLevels();
+			if (a.get(i).getHidden1upCost() != b.get(i).getHidden1upCost() || levelsA.size() != levelsB.size()) {
+				return false;
+			}
+			for (int j = 0; j < levelsA.size(); j++) {
+				if (Objects.equals(levelsA.get(j).getStartArea(), levelsB.get(j).getStartArea()) == false
+					|| levelsA.get(j).getCheckpoint() != levelsB.get(j).getCheckpoint()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Return the hashes of the revision's areas as an unmodifiable map.
+	 *
+	 * @return Area hashes keyed by area ID in atlas order.
+	 */
+	public Map<String, String> getAreaHashes() {
+		return Collections.unmodifiableMap(this.areaHashes);
+	}
+
+	/** The differences between two revisions. */
+	@Getter
+	@ToString
+	@AllArgsConstructor(access = AccessLevel.PACKAGE)
+	public static final class Diff {
+
+		/** The IDs of areas present only in the newer revision. */
+		private final List<String> added;
+
+		/** The IDs of areas present only in the older revision. */
+		private final List<String> removed;
+
+		/** The IDs of areas present in both revisions with different content. */
+		private final List<String> changed;
+
+		/** Whether areas present in both revisions appear in a different order. */
+		private final boolean reordered;
+
+		/** Whether the game ID or scenario differs. */
+		private final boolean scenarioChanged;
+
+		/**
+		 * Test whether the two revisions are identical.
+		 *
+		 * @return True if there are no differences, false otherwise.
+		 */
+		public boolean isEmpty() {
+			return this.added.isEmpty() && this.removed.isEmpty() && this.changed.isEmpty()
+				&& this.reordered == false && this.scenarioChanged == false;
+		}
+	}
+}
@@ -0,0 +1,365 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.Scenario;
+import io.github.jimbovm.isobel.common.World;
+
+/**
+ * A content-addressed history of revisions of games.
+ *
+ * Each area is stored once per distinct content, in a file named after the
+ * SHA-256 hash of its {@link GameCodec} encoding, under the
+ * <code>objects</code> directory. Each {@link Revision} is a small manifest
+ * of area hashes and the scenario, stored under the <code>revisions</code>
+ * directory and named after the hash of the manifest itself. An area which
+ * is unchanged between revisions is therefore stored only once, and two
+ * revisions can be compared by their manifests alone.
+ *
+ * Files are written atomically and never modified once written, so a store
+ * may be read while it is being written to.
+ */
+public final class VersionStore {
+
+	/** The four bytes with which a revision manifest begins ("ISBV"). */
+	public static final int MAGIC = 0x49534256;
+
+	/** The version of the manifest format written by this class. */
+	public static final int VERSION = 1;
+
+	/** The name of the directory holding area content. */
+	public static final String OBJECT_DIRECTORY = "objects";
+
+	/** The name of the directory holding revision manifests. */
+	public static final String REVISION_DIRECTORY = "revisions";
+
+	private static final int HASH_LENGTH = 32;
+
+	private static final HexFormat HEX = HexFormat.of();
+
+	/** The directory holding the store. */
+	@Getter
+	private final Path directory;
+
+	private VersionStore(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Open a version store, creating it if it does not exist.
+	 *
+	 * @param  directory   The directory holding the store.
+	 *
+	 * @return             The store.
+	 *
+	 * @throws IOException If the store's directories can't be created.
+	 */
+	public static VersionStore open(Path directory) throws IOException {
+
+		Files.createDirectories(directory.resolve(OBJECT_DIRECTORY));
+		Files.createDirectories(directory.resolve(REVISION_DIRECTORY));
+
+		return new VersionStore(directory);
+	}
+
+	/**
+	 * Store a revision of a game, writing only those areas whose content is
+	 * not already held by the store.
+	 *
+	 * @param  game        The game to store.
+	 *
+	 * @return             The revision, which is the same as that returned
+	 *                     when any identical game was stored before.
+	 *
+	 * @throws IOException If the revision can't be written.
+	 */
+	public Revision commit(Game game) throws IOException {
+
+		Map<String, String> areaHashes = new LinkedHashMap<>();
+
+		for (Area area : game.getAtlas().getAreas()) {
+			final byte[] data = GameCodec.encode(area);
+			final String hash = hash(data);
+			Path path = this.objectPath(hash);
+			if (Files.exists(path) == false) {
+				Files.createDirectories(path.getParent());
+				AtomicFiles.write(path, data);
+			}
+			areaHashes.put(area.getId(), hash);
+		}
+
+		List<ProjectManifest.WorldEntry> worlds = new ArrayList<>();
+
+		for (World world : game.getScenario().getWorlds()) {
+			ProjectManifest.WorldEntry worldEntry = new ProjectManifest.WorldEntry();
+			worldEntry.setHidden1upCost(world.getHidden1upCost());
+			for (Level level : world.getLevels()) {
+				final String startArea = (level.getStartArea() == null) ? null : level.getStartArea().getId();
+				worldEntry.getLevels().add(new ProjectManifest.LevelEntry(startArea, level.getCheckpoint()));
+			}
+			worlds.add(worldEntry);
+		}
+
+		final byte[] manifest = encodeManifest(game.getId(), areaHashes, worlds);
+		final String id = hash(manifest);
+		Path path = this.directory.resolve(REVISION_DIRECTORY).resolve(id);
+
+		if (Files.exists(path) == false) {
+			AtomicFiles.write(path, manifest);
+		}
+
+		return new Revision(id, game.getId(), areaHashes, worlds);
+	}
+
+	/**
+	 * Test whether the store holds a revision.
+	 *
+	 * @param  id The ID of the revision.
+	 *
+	 * @return    True if the revision is held, false otherwise.
+	 */
+	public boolean contains(String id) {
+		return Files.exists(this.directory.resolve(REVISION_DIRECTORY).resolve(id));
+	}
+
+	/**
+	 * Read a revision's manifest, without reading any area.
+	 *
+	 * @param  id          The ID of the revision.
+	 *
+	 * @return             The revision.
+	 *
+	 * @throws IOException If the revision does not exist or can't be read.
+	 */
+	public Revision getRevision(String id) throws IOException {
+
+		final byte[] manifest = Files.readAllBytes(this.directory.resolve(REVISION_DIRECTORY).resolve(id));
+
+		if (hash(manifest).equals(id) == false) {
+			throw new IOException(String.format("Revision %s is corrupt", id));
+		}
+
+		return decodeManifest(id, manifest);
+	}
+
+	/**
+	 * Read a single area of a revision.
+	 *
+	 * @param  hash        The hash of the area, as listed in a revision.
+	 *
+	 * @return             A newly decoded area.
+	 *
+	 * @throws IOException If the area does not exist or can't be read.
+	 */
+	public Area getArea(String hash) throws IOException {
+
+		final byte[] data = Files.readAllBytes(this.objectPath(hash));
+
+		if (hash(data).equals(hash) == false) {
+			throw new IOException(String.format("Area object %s is corrupt", hash));
+		}
+
+		return GameCodec.decodeArea(data);
+	}
+
+	/**
+	 * Read the complete game held by a revision, decoding every area.
+	 *
+	 * @param  revision    The revision to read.
+	 *
+	 * @return             A new game.
+	 *
+	 * @throws IOException If an area can't be read.
+	 */
+	public Game checkout(Revision revision) throws IOException {
+
+		Game game = new Game();
+		this.checkout(revision, null, game);
+
+		return game;
+	}
+
+	/**
+	 * Change a game from one revision to another in place, decoding only the
+	 * areas whose content differs between the two. Areas which are the same
+	 * in both revisions are kept, as the same instances.
+	 *
+	 * @param  target      The revision to change the game to.
+	 * @param  current     The revision the game is currently at, or
+	 *                     <code>null</code> to decode every area. The game must
+	 *                     not have been changed since this revision was
+	 *                     committed or checked out.
+	 * @param  game        The game to change.
+	 *
+	 * @return             The number of areas decoded.
+	 *
+	 * @throws IOException If an area can't be read, in which case the game is
+	 *                     left unchanged.
+	 */
+	public int checkout(Revision target, Revision current, Game game) throws IOException {
+
+		Map<String, Area> kept = new HashMap<>();
+
+		if (current != null) {
+			for (Area area : game.getAtlas().getAreas()) {
+				final String hash = current.getAreaHashes().get(area.getId());
+				if (hash != null && hash.equals(target.getAreaHashes().get(area.getId()))) {
+					kept.put(area.getId(), area);
+				}
+			}
+		}
+
+		List<Area> areas = new ArrayList<>();
+		int decoded = 0;
+
+		for (Map.Entry<String, String> entry : target.getAreaHashes().entrySet()) {
+			Area area = kept.get(entry.getKey());
+			if (area == null) {
+				area = this.getArea(entry.getValue());
+				decoded += 1;
+			}
+			areas.add(area);
+		}
+
+		Atlas atlas = new Atlas();
+		atlas.addAll(areas);
+
+		Scenario scenario = new Scenario();
+
+		for (ProjectManifest.WorldEntry worldEntry : target.getWorlds()) {
+			World world = new World();
+			world.setHidden1upCost(worldEntry.getHidden1upCost());
+			for (ProjectManifest.LevelEntry levelEntry : worldEntry.getLevels()) {
+				final String startId = levelEntry.getStartArea();
+				final Area startArea = (startId == null) ? null : atlas.get(startId);
+				world.getLevels().add(new Level(startArea, levelEntry.getCheckpoint()));
+			}
+			scenario.getWorlds().add(world);
+		}
+
+		game.setId(target.getGameId());
+		game.setAtlas(atlas);
+		game.setScenario(scenario);
+
+		return decoded;
+	}
+
+	private Path objectPath(String hash) {
+		// Fan out by the first byte to keep directories small
+		return this.directory.resolve(OBJECT_DIRECTORY).resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+	}
+
+	private static String hash(byte[] data) {
+
+		try {
+			return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] encodeManifest(
+		String gameId, Map<String, String> areaHashes, List<ProjectManifest.WorldEntry> worlds) {
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+
+		try (DataOutputStream out = new DataOutputStream(buffer)) {
+
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			GameCodec.writeString(out, gameId);
+
+			GameCodec.writeVarInt(out, areaHashes.size());
+			for (Map.Entry<String, String> entry : areaHashes.entrySet()) {
+				GameCodec.writeString(out, entry.getKey());
+				out.write(HEX.parseHex(entry.getValue()));
+			}
+
+			GameCodec.writeVarInt(out, worlds.size());
+			for (ProjectManifest.WorldEntry world : worlds) {
+				out.writeByte(world.getHidden1upCost());
+				GameCodec.writeVarInt(out, world.getLevels().size());
+				for (ProjectManifest.LevelEntry level : world.getLevels()) {
+					GameCodec.writeString(out, level.getStartArea());
+					out.writeByte(level.getCheckpoint());
+				}
+			}
+		}
+		catch (IOException e) {
+			// Writing to memory can't fail
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	private static Revision decodeManifest(String id, byte[] manifest) throws IOException {
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(manifest))) {
+
+			final int magic = in.readInt();
+			final int version = in.readUnsignedByte();
+			if (magic != MAGIC) {
+				throw new IOException(String.format("Not a revision manifest (magic 0x%08X)", magic));
+			}
+			if (version != VERSION) {
+				throw new IOException(String.format("Unsupported manifest version %d", version));
+			}
+
+			final String gameId = GameCodec.readString(in);
+
+			final int areaCount = GameCodec.readVarInt(in);
+			Map<String, String> areaHashes = new LinkedHashMap<>();
+			for (int i = 0; i < areaCount; i++) {
+				final String areaId = GameCodec.readString(in);
+				byte[] hash = new byte[HASH_LENGTH];
+				in.readFully(hash);
+				areaHashes.put(areaId, HEX.formatHex(hash));
+			}
+
+			final int worldCount = GameCodec.readVarInt(in);
+			List<ProjectManifest.WorldEntry> worlds = new ArrayList<>(worldCount);
+			for (int i = 0; i < worldCount; i++) {
+				ProjectManifest.WorldEntry world = new ProjectManifest.WorldEntry();
+				world.setHidden1upCost(in.readByte());
+				final int levelCount = GameCodec.readVarInt(in);
+				for (int j = 0; j < levelCount; j++) {
+					final String startArea = GameCodec.readString(in);
+					world.getLevels().add(new ProjectManifest.LevelEntry(startArea, in.readByte()));
+				}
+				worlds.add(world);
+			}
+
+			return new Revision(id, gameId, areaHashes, worlds);
+		}
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * Functionality for storing games and areas outside of the XML format,
+ * including a compact binary encoding, a cache of parsed game images, a
+ * project directory format storing each area in a file of its own, an edit
+ * journal, a content-addressed version store and content fingerprints.
+ */
+package io.github.jimbovm.isobel.store;
@@ -0,0 +1,31 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.transform;
+
+import io.github.jimbovm.isobel.actor.Actor;
+
+/**
+ * A transformation of a single actor, applied by a {@link BulkTransform}.
+ * Transforms may be called from several threads at once, so must not
+ * depend on shared mutable state.
+ *
+ * @param <T> The type of actor transformed.
+ */
+@FunctionalInterface
+public interface ActorTransform<T extends Actor> {
+
+	/**
+	 * Transform an actor.
+	 *
+	 * @param  actor A copy of the actor, which may be changed and returned.
+	 *
+	 * @return       The actor to take the place of the original, which must
+	 *               belong to the same layer, or <code>null</code> to remove
+	 *               the original.
+	 */
+	public Actor apply(T actor);
+}
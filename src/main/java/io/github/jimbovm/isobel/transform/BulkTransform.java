@@ -0,0 +1,312 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.transform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+
+/**
+ * A transform applied to every matching actor of every area in an atlas or a
+ * corpus of games, with the areas processed in parallel.
+ *
+ * Actors match if they are instances of the transform's type, lie within
+ * its range of X positions and satisfy its filter, and are in an area whose
+ * environment is one of the transform's environments. Each matching actor is
+ * copied and the copy passed to the {@link ActorTransform}, so the original
+ * is never changed by the transform itself. When applied in place, the new
+ * lists of actors for an area are only put into the area once every actor
+ * in it has been transformed, so an area in which the transform throws is
+ * left as it was, and other areas are unaffected. Areas with no matching
+ * actors are not changed and no new lists are allocated for them.
+ *
+ * Areas are transformed in the common fork-join pool. The same area must not
+ * be changed by anything else while a transform is being applied.
+ *
+ * @param <T> The type of actor transformed.
+ */
+public final class BulkTransform<T extends Actor> {
+
+	/** The type of actor transformed. */
+	@Getter
+	private final Class<T> type;
+
+	private final ActorTransform<? super T> transform;
+
+	private final Set<Area.Environment> environments = EnumSet.allOf(Area.Environment.class);
+
+	private int minX = 0;
+
+	private int maxX = Integer.MAX_VALUE;
+
+	private Predicate<? super T> filter = (actor) -> true;
+
+	private BulkTransform(Class<T> type, ActorTransform<? super T> transform) {
+		this.type = type;
+		this.transform = transform;
+	}
+
+	/**
+	 * Create a transform of every actor of a type.
+	 *
+	 * @param  <T>       The type of actor transformed.
+	 * @param  type      The type of actor transformed, which may be a class or
+	 *                   interface, such as {@link Actor} for every actor.
+	 * @param  transform The transform to apply to each actor.
+	 *
+	 * @return           A new bulk transform.
+	 */
+	public static <T extends Actor> BulkTransform<T> of(Class<T> type, ActorTransform<? super T> transform) {
+		return new BulkTransform<>(type, transform);
+	}
+
+	/**
+	 * Restrict the transform to areas with the supplied environments.
+	 *
+	 * @param  environments The environments of the areas to transform.
+	 *
+	 * @return              This transform.
+	 */
+	public BulkTransform<T> inEnvironments(Area.Environment... environments) {
+		this.environments.clear();
+		this.environments.addAll(List.of(environments));
+		return this;
+	}
+
+	/**
+	 * Restrict the transform to actors within a range of X positions.
+	 *
+	 * @param  minX The lowest X position, inclusive.
+	 * @param  maxX The highest X position, inclusive.
+	 *
+	 * @return      This transform.
+	 */
+	public BulkTransform<T> inRange(int minX, int maxX) {
+		this.minX = minX;
+		this.maxX = maxX;
+		return this;
+	}
+
+	/**
+	 * Restrict the transform to actors satisfying a filter, which must be safe
+	 * to call from several threads at once.
+	 *
+	 * @param  filter The filter.
+	 *
+	 * @return        This transform.
+	 */
+	public BulkTransform<T> where(Predicate<? super T> filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Apply the transform in place to every area of an atlas.
+	 *
+	 * @param  atlas The atlas.
+	 *
+	 * @return       The outcome.
+	 */
+	public TransformResult apply(Atlas atlas) {
+		return this.apply(atlas.getAreas());
+	}
+
+	/**
+	 * Apply the transform in place to every area of a corpus of games.
+	 *
+	 * @param  games The games.
+	 *
+	 * @return       The outcome, across all the games.
+	 */
+	public TransformResult applyAll(Collection<Game> games) {
+
+		List<Area> areas = new ArrayList<>();
+
+		for (Game game : games) {
+			areas.addAll(game.getAtlas().getAreas());
+		}
+
+		return this.apply(areas);
+	}
+
+	/**
+	 * Apply the transform to copies of the areas of an atlas, leaving the
+	 * atlas unchanged.
+	 *
+	 * @param  atlas                 The atlas.
+	 *
+	 * @return                       Each area within the transform's
+	 *                               environments, in atlas order, mapped to a
+	 *                               transformed copy. Exit pointers in the
+	 *                               copies refer to areas by ID as before.
+	 *
+	 * @throws IllegalStateException If the transform fails in any area.
+	 */
+	public Map<Area, Area> copy(Atlas atlas) {
+
+		List<Area> areas = this.eligible(atlas.getAreas());
+		List<Outcome> outcomes = areas.parallelStream().map((area) -> this.transform(area, true)).toList();
+		Map<Area, Area> copies = new LinkedHashMap<>();
+
+		for (Outcome outcome : outcomes) {
+			if (outcome.failure != null) {
+				throw new IllegalStateException(
+					String.format("Transform failed in area %s", outcome.area.getId()), outcome.failure);
+			}
+			Area area = outcome.area;
+			copies
+				.put(area,
+					Area
+						.builder().environment(area.getEnvironment()).id(area.getId())
+						.familiarName(area.getFamiliarName())
+						.header((area.getHeader() == null) ? null : area.getHeader().copy())
+						.geography(outcome.geography).population(outcome.population).build());
+		}
+
+		return copies;
+	}
+
+	private TransformResult apply(List<Area> all) {
+
+		List<Area> areas = this.eligible(all);
+		List<Outcome> outcomes = areas.parallelStream().map((area) -> this.transform(area, false)).toList();
+
+		int changed = 0;
+		int transformed = 0;
+		int removed = 0;
+		Map<Area, RuntimeException> failures = new IdentityHashMap<>();
+
+		for (Outcome outcome : outcomes) {
+			if (outcome.failure != null) {
+				failures.put(outcome.area, outcome.failure);
+				continue;
+			}
+			outcome.area.replaceActors(outcome.geography, outcome.population);
+			if (outcome.transformed > 0) {
+				changed += 1;
+			}
+			transformed += outcome.transformed;
+			removed += outcome.removed;
+		}
+
+		return new TransformResult(areas.size(), changed, transformed, removed, failures);
+	}
+
+	private List<Area> eligible(List<Area> areas) {
+
+		List<Area> eligible = new ArrayList<>(areas.size());
+
+		for (Area area : areas) {
+			if (this.environments.contains(area.getEnvironment())) {
+				eligible.add(area);
+			}
+		}
+
+		return eligible;
+	}
+
+	private Outcome transform(Area area, boolean copyAll) {
+
+		Outcome outcome = new Outcome(area, null, null, 0, 0, null);
+
+		try {
+			// Skip a layer none of whose actors can be of the type
+			if (copyAll || PopulationActor.class.isAssignableFrom(this.type) == false) {
+				outcome.geography = this.transform(area.getGeography(), GeographyActor.class, copyAll, outcome);
+			}
+			if (copyAll || GeographyActor.class.isAssignableFrom(this.type) == false) {
+				outcome.population = this.transform(area.getPopulation(), PopulationActor.class, copyAll, outcome);
+			}
+		}
+		catch (RuntimeException e) {
+			outcome.failure = e;
+		}
+
+		return outcome;
+	}
+
+	/**
+	 * Transform the matching actors of a list.
+	 *
+	 * @return The new list, or <code>null</code> if nothing matched and
+	 *         copying was not asked for.
+	 */
+	private <A extends Actor> List<A> transform(List<A> actors, Class<A> layer, boolean copyAll, Outcome outcome) {
+
+		List<A> result = copyAll ? new ArrayList<>(actors.size()) : null;
+
+		for (int i = 0; i < actors.size(); i++) {
+
+			final A actor = actors.get(i);
+
+			if (this.matches(actor) == false) {
+				if (result != null) {
+					result.add(copyAll ? layer.cast(actor.copy()) : actor);
+				}
+				continue;
+			}
+
+			if (result == null) {
+				result = new ArrayList<>(actors.subList(0, i));
+			}
+
+			final Actor replacement = this.transform.apply(this.type.cast(actor.copy()));
+			outcome.transformed += 1;
+
+			if (replacement == null) {
+				outcome.removed += 1;
+			}
+			else if (layer.isInstance(replacement)) {
+				result.add(layer.cast(replacement));
+			}
+			else {
+				throw new IllegalStateException(String.format("Transform replaced %s with %s, which is not a %s",
+					actor.getClass().getSimpleName(), replacement.getClass().getSimpleName(), layer.getSimpleName()));
+			}
+		}
+
+		return result;
+	}
+
+	private boolean matches(Actor actor) {
+		return this.type.isInstance(actor) && actor.getX() >= this.minX && actor.getX() <= this.maxX
+			&& this.filter.test(this.type.cast(actor));
+	}
+
+	/** The result of transforming one area, before it is applied. */
+	@AllArgsConstructor
+	private static final class Outcome {
+
+		private final Area area;
+
+		private List<GeographyActor> geography;
+
+		private List<PopulationActor> population;
+
+		private int transformed;
+
+		private int removed;
+
+		private RuntimeException failure;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.transform;
+
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import io.github.jimbovm.isobel.common.Area;
+
+/** The outcome of applying a {@link BulkTransform} in place. */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class TransformResult {
+
+	/** The number of areas within the environments transformed. */
+	private final int areas;
+
+	/** The number of areas changed. */
+	private final int changedAreas;
+
+	/** The number of actors passed to the transform. */
+	private final int transformedActors;
+
+	/** The number of actors removed by the transform. */
+	private final int removedActors;
+
+	/**
+	 * Areas in which the transform failed, each mapped to the exception
+	 * thrown. These areas are left as they were.
+	 */
+	private final Map<Area, RuntimeException> failures;
+
+	/**
+	 * Return whether the transform succeeded in every area.
+	 *
+	 * @return <code>true</code> if there were no failures.
+	 */
+	public boolean isComplete() {
+		return this.failures.isEmpty();
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Bulk transformation of actors across every area of an atlas or a corpus
+ * of games, run in parallel with each area transformed in isolation.
+ */
+package io.github.jimbovm.isobel.transform;
@@ -0,0 +1,199 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
+import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class CommandCursorTest extends TestSuite {
+
+	/** Where the stream starts in the buffer, to check offsets are not taken from zero. */
+	private static final int START = 4;
+
+	private static List<String> describe(List<? extends Actor> actors) {
+
+		List<String> described = new ArrayList<>();
+
+		for (Actor actor : actors) {
+			described.add(actor.getClass().getSimpleName() + "@" + actor.getX());
+		}
+
+		return described;
+	}
+
+	private static List<String> geography(byte[] buffer) throws IOException {
+		return describe(new GeographyParser(new ByteArrayInputStream(buffer, START, buffer.length - START)).parse());
+	}
+
+	private static byte[] place(byte[] bytecode, int room) {
+		byte[] buffer = new byte[START + bytecode.length + room];
+		System.arraycopy(bytecode, 0, buffer, START, bytecode.length);
+		return buffer;
+	}
+
+	private static void moveTo(CommandCursor<?> cursor, int x) {
+		while (cursor.next()) {
+			if (cursor.getX() == x) {
+				return;
+			}
+		}
+		throw new AssertionError(String.format("No command at %d", x));
+	}
+
+	@Test
+	void iterateGeography() throws IOException {
+
+		final byte[] buffer = place(buildGame().getAtlas().get("Overworld_1").unparseGeography(), 0);
+		CommandCursor<GeographyActor> cursor = CommandCursor.geography(buffer, START, buffer.length);
+
+		List<GeographyActor> decoded = new ArrayList<>();
+		int offset = START + 2;
+
+		while (cursor.next()) {
+			assertEquals(offset, cursor.getOffset());
+			assertEquals(cursor.getX() / 16, cursor.getPage());
+			decoded.add(cursor.decode());
+			offset += cursor.getLength();
+		}
+
+		assertEquals(geography(buffer), describe(decoded));
+		assertEquals(buffer.length - 1, cursor.getEnd());
+		assertEquals(0, cursor.getLength());
+		assertFalse(cursor.next());
+		assertThrows(IllegalStateException.class, () -> cursor.decode());
+		assertThrows(IllegalStateException.class, () -> cursor.delete());
+
+		assertThrows(IllegalArgumentException.class,
+			() -> CommandCursor.geography(buffer, START, buffer.length - 1));
+	}
+
+	@Test
+	void editGeography() throws IOException {
+
+		final byte[] buffer = place(buildGame().getAtlas().get("Overworld_1").unparseGeography(), 6);
+		final List<String> original = geography(buffer);
+
+		// Nudge an object along its page
+		CommandCursor<GeographyActor> cursor = CommandCursor.geography(buffer, START, buffer.length);
+		moveTo(cursor, 40);
+		Row row = assertInstanceOf(Row.class, cursor.decode());
+		row.setX(42);
+		cursor.set(row);
+		original.set(original.indexOf("Row@40"), "Row@42");
+		assertEquals(original, geography(buffer));
+
+		Row far = row.copy();
+		far.setX(60);
+		assertThrows(IllegalArgumentException.class, () -> cursor.set(far));
+
+		// Delete the command entering page 1, so the next command enters it instead
+		CommandCursor<GeographyActor> deleting = CommandCursor.geography(buffer, START, buffer.length);
+		moveTo(deleting, 16);
+		assertTrue(deleting.isNewPage());
+		final String deleted = describe(List.of(deleting.decode())).get(0);
+		deleting.delete();
+		assertTrue(deleting.next());
+		assertTrue(deleting.isNewPage());
+		assertEquals(1, deleting.getPage());
+		original.remove(deleted);
+		assertEquals(original, geography(buffer));
+
+		// Delete the only command on page 2, which must become a page skip
+		final int end = deleting.getEnd();
+		moveTo(deleting, 42);
+		deleting.delete();
+		assertTrue(deleting.next());
+		assertTrue(deleting.isPageSkip());
+		assertEquals(2, deleting.getPage());
+		assertThrows(IllegalStateException.class, () -> deleting.delete());
+		assertEquals(end, deleting.getEnd());
+		original.remove("Row@42");
+		assertEquals(original, geography(buffer));
+
+		// Insert on the same page before a command, then far ahead at the end
+		CommandCursor<GeographyActor> inserting = CommandCursor.geography(buffer, START, buffer.length);
+		moveTo(inserting, 50);
+		assertThrows(IllegalArgumentException.class, () -> inserting.insert(Row.create(5, 4, Row.Type.BRICK, 2)));
+		inserting.insert(Row.create(49, 4, Row.Type.BRICK, 2));
+		assertEquals(50, inserting.getX());
+		while (inserting.next()) {
+			// To the end marker
+		}
+		inserting.insert(Row.create(200, 4, Row.Type.BRICK, 2));
+		assertEquals(buffer.length - 3, inserting.getEnd());
+
+		original.add(original.indexOf("FixedExtensible@50"), "Row@49");
+		original.add("Row@200");
+		assertEquals(original, geography(buffer));
+
+		// Insert a command entering page 1 again, so the next command no longer does
+		CommandCursor<GeographyActor> restoring = CommandCursor.geography(buffer, START, buffer.length);
+		moveTo(restoring, 21);
+		assertTrue(restoring.isNewPage());
+		restoring.insert(Row.create(16, 4, Row.Type.BRICK, 1));
+		assertFalse(restoring.isNewPage());
+		assertEquals(1, restoring.getPage());
+		assertEquals(buffer.length - 1, restoring.getEnd());
+		assertThrows(IllegalStateException.class, () -> restoring.insert(Row.create(17, 4, Row.Type.BRICK, 2)));
+		original.add(original.indexOf(describe(List.of(restoring.decode())).get(0)), "Row@16");
+		assertEquals(original, geography(buffer));
+	}
+
+	@Test
+	void editPopulation() throws IOException {
+
+		Game game = buildGame();
+		final byte[] bytecode = game.getAtlas().get("Overworld_1").unparsePopulation(game.getAtlas());
+		final byte[] buffer = place(bytecode, 0);
+
+		CommandCursor<PopulationActor> cursor = CommandCursor.population(buffer, START, buffer.length,
+			game.getAtlas());
+		moveTo(cursor, 20);
+		Character goomba = assertInstanceOf(Character.class, cursor.decode());
+		assertEquals(Character.Type.GOOMBA, goomba.getType());
+		goomba.setType(Character.Type.RED_TROOPA);
+		cursor.set(goomba);
+
+		List<PopulationActor> population =
+			new PopulationParser(new ByteArrayInputStream(buffer, START, bytecode.length)).parse();
+		Character changed =
+			assertInstanceOf(Character.class, population.get(describe(population).indexOf("Character@20")));
+		assertEquals(Character.Type.RED_TROOPA, changed.getType());
+
+		// An exit pointer is three bytes, so cannot become a character in place
+		CommandCursor<PopulationActor> exit = CommandCursor.population(buffer, START, buffer.length,
+			game.getAtlas());
+		moveTo(exit, 16);
+		assertEquals(3, exit.getLength());
+		assertThrows(IllegalArgumentException.class,
+			() -> exit.set(Character.create(16, 10, Character.Type.GOOMBA, false)));
+
+		assertEquals(describe(population),
+			describe(new PopulationParser(new ByteArrayInputStream(buffer, START, bytecode.length)).parse()));
+	}
+}
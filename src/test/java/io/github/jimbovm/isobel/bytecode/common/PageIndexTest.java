@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.bytecode.geography.GeographyParser;
+import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class PageIndexTest extends TestSuite {
+
+	private static List<String> onPages(List<? extends Actor> actors, int from, int to) {
+
+		List<String> found = new ArrayList<>();
+
+		for (Actor actor : actors) {
+			if (actor.getX() >= from * 16 && actor.getX() < to * 16) {
+				found.add(actor.getClass().getSimpleName() + "@" + actor.getX());
+			}
+		}
+
+		return found;
+	}
+
+	@Test
+	void seekGeography() throws IOException {
+
+		Area area = buildGame().getAtlas().get("Overworld_1");
+		// Far enough ahead to need a page skip
+		area.getGeography().add(Row.create(200, 5, Row.Type.BRICK, 3));
+		final byte[] bytecode = area.unparseGeography();
+
+		GeographyParser parser = new GeographyParser(new ByteArrayInputStream(bytecode));
+		List<GeographyActor> geography = parser.parse();
+		PageIndex index = new GeographyParser(new ByteArrayInputStream(bytecode)).index();
+
+		assertEquals(parser.getPageIndex().toString(), index.toString());
+		assertEquals(13, index.getPages());
+		assertEquals(bytecode.length - 1, index.getEnd());
+		assertEquals(2, index.getOffset(0));
+		// The pages skipped share the entry of the page skipped to
+		assertEquals(index.getOffset(12), index.getOffset(5));
+		assertEquals(0, index.getSize(6, 12));
+
+		for (int page = 0; page < 15; page++) {
+			assertEquals(onPages(geography, page, page + 1), onPages(parser.parse(index, page, page + 1), 0, 64));
+		}
+		assertEquals(onPages(geography, 1, 3), onPages(parser.parse(index, 1, 3), 0, 64));
+		assertEquals(onPages(geography, 4, 13), onPages(parser.parse(index, 4, 13), 0, 64));
+
+		assertThrows(IllegalArgumentException.class, () -> parser.parse(index, 2, 1));
+		assertThrows(IllegalArgumentException.class, () -> index.getOffset(-1));
+	}
+
+	@Test
+	void seekPopulation() throws IOException {
+
+		Game game = buildGame();
+		Area area = game.getAtlas().get("Overworld_1");
+		final byte[] bytecode = area.unparsePopulation(game.getAtlas());
+
+		PopulationParser parser = new PopulationParser(new ByteArrayInputStream(bytecode));
+		List<PopulationActor> population = parser.parse();
+		PageIndex index = new PopulationParser(new ByteArrayInputStream(bytecode)).index();
+
+		assertEquals(parser.getPageIndex().toString(), index.toString());
+		assertEquals(3, index.getPages());
+		assertEquals(0, index.getCounter(1));
+		assertEquals(bytecode.length - 1, index.getOffset(3));
+
+		for (int page = 0; page < 4; page++) {
+			assertEquals(onPages(population, page, page + 1), onPages(parser.parse(index, page, page + 1), 0, 64));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CorpusTest {
+
+	@Test
+	void stripHeader() {
+
+		byte[] image = new byte[16 + 512 + 4];
+		image[0] = 'N';
+		image[1] = 'E';
+		image[2] = 'S';
+		image[3] = 0x1A;
+		image[16] = 1;
+		assertEquals(512 + 4, GameParser.stripHeader(image).length);
+		assertEquals(1, GameParser.stripHeader(image)[0]);
+
+		// with a trainer
+		image[6] = 0b00000100;
+		image[16 + 512] = 2;
+		assertArrayEquals(new byte[] { 2, 0, 0, 0 }, GameParser.stripHeader(image));
+
+		byte[] headerless = new byte[32];
+		assertSame(headerless, GameParser.stripHeader(headerless));
+	}
+
+	@Test
+	void isImage() {
+		assertTrue(Corpus.isImage(Path.of("hacks", "Hack.NES")));
+		assertTrue(Corpus.isImage(Path.of("smb.bin")));
+		assertFalse(Corpus.isImage(Path.of("readme.txt")));
+		assertFalse(Corpus.isImage(Path.of("nes")));
+	}
+
+	@Test
+	void reportUnparseableEntries(@TempDir Path directory) throws IOException {
+
+		Path archive = directory.resolve("hacks.zip");
+
+		try (OutputStream file = Files.newOutputStream(archive);
+			ZipOutputStream zip = new ZipOutputStream(file)) {
+			zip.putNextEntry(new ZipEntry("readme.txt"));
+			zip.write("Not an image".getBytes());
+			zip.putNextEntry(new ZipEntry("broken/empty.nes"));
+			zip.write(new byte[0x100]);
+			zip.closeEntry();
+		}
+
+		List<String> parsed = Collections.synchronizedList(new ArrayList<>());
+		List<String> failed = Collections.synchronizedList(new ArrayList<>());
+
+		Corpus.parseArchive(archive, (entry, game) -> parsed.add(entry), (entry, e) -> failed.add(entry));
+
+		assertTrue(parsed.isEmpty());
+		assertEquals(List.of("/broken/empty.nes"), failed);
+
+		// Scanning tolerates malformed area data, but not a damaged image
+		List<String> reported = Collections.synchronizedList(new ArrayList<>());
+		failed.clear();
+
+		Corpus.scanArchive(archive, (entry, game) -> parsed.add(entry), (entry, report) -> reported.add(entry),
+			(entry, e) -> failed.add(entry));
+
+		assertTrue(parsed.isEmpty());
+		assertTrue(reported.isEmpty());
+		assertEquals(List.of("/broken/empty.nes"), failed);
+	}
+}
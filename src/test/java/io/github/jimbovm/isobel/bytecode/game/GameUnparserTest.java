@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class GameUnparserTest extends TestSuite {
+
+	@Test
+	void unchangedGameLeavesImageUnchanged() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+
+		assertEquals(20, game.getScenario().getWorlds().get(2).getHidden1upCost());
+		assertArrayEquals(image, apply(image, new GameUnparser(image).unparse(game)));
+	}
+
+	@Test
+	void shrunkAreaStaysInPlace() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+		GameUnparser unparser = new GameUnparser(image);
+
+		Area area = game.getAtlas().get("Area_22");
+		area.getPopulation().clear();
+		unparser.invalidate(area);
+
+		final byte[] patched = apply(image, unparser.unparse(game));
+		Game result = Game.parse(patched);
+
+		assertTrue(result.getAtlas().get("Area_22").getPopulation().isEmpty());
+		assertEquals(1, result.getAtlas().get("Area_24").getPopulation().size());
+
+		// Only the changed population data differs from the original
+		int differences = 0;
+		for (int i = 0; i < image.length; i++) {
+			if (image[i] != patched[i]) {
+				differences++;
+			}
+		}
+		assertTrue(differences <= 3);
+	}
+
+	@Test
+	void grownAreaUsesFreedSpace() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+		GameUnparser unparser = new GameUnparser(image);
+
+		Area shrunk = game.getAtlas().get("Area_26");
+		shrunk.getGeography().clear();
+		unparser.invalidate(shrunk);
+
+		Area grown = game.getAtlas().get("Area_23");
+		grown.getGeography().add(Row.create(80, 6, Row.Type.COIN, 3));
+		unparser.invalidate(grown);
+
+		Game result = Game.parse(apply(image, unparser.unparse(game)));
+
+		assertEquals(
+			grown.getGeography().size(), result.getAtlas().get("Area_23").getGeography().size());
+		assertEquals(
+			shrunk.getGeography().size(), result.getAtlas().get("Area_26").getGeography().size());
+		assertEquals(
+			game.getAtlas().get("Area_27").getGeography().size(),
+			result.getAtlas().get("Area_27").getGeography().size());
+	}
+
+	@Test
+	void rejectGameWhichDoesNotFit() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+		GameUnparser unparser = new GameUnparser(image);
+
+		Area area = game.getAtlas().get("Area_20");
+		for (int i = 0; i < 8; i++) {
+			area.getGeography().add(Row.create(48 + 16 * i, 6, Row.Type.COIN, 3));
+		}
+		unparser.invalidate(area);
+
+		assertThrows(IllegalStateException.class, () -> unparser.unparse(game));
+	}
+
+	@Test
+	void scenarioChanges() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+		Area castle = game.getAtlas().get("Area_65");
+
+		Level level = game.getScenario().getWorlds().get(0).getLevels().get(0);
+		level.setStartArea(castle);
+		level.setCheckpoint((byte) 9);
+		game.getScenario().getWorlds().get(4).setHidden1upCost((byte) 99);
+
+		Game result = Game.parse(apply(image, new GameUnparser(image).unparse(game)));
+		Level resultLevel = result.getScenario().getWorlds().get(0).getLevels().get(0);
+
+		assertEquals("Area_65", resultLevel.getStartArea().getId());
+		assertEquals(9, resultLevel.getCheckpoint());
+		assertEquals(99, result.getScenario().getWorlds().get(4).getHidden1upCost());
+	}
+
+	@Test
+	void stalePopulationRefreshedWhenIndicesChange() {
+
+		final byte[] image = buildImage();
+		Game game = Game.parse(image);
+		GameUnparser unparser = new GameUnparser(image);
+		unparser.unparse(game);
+
+		// Removing an underwater area shifts the index of every other area
+		game.getAtlas().remove(game.getAtlas().get("Area_02"));
+		unparser.invalidate(game.getAtlas().get("Area_20"));
+
+		final SortedMap<Integer, byte[]> changes = unparser.unparse(game);
+		final byte[] patched = apply(image, changes);
+
+		assertEquals(2, patched[0x1D28 + 1]);
+	}
+}
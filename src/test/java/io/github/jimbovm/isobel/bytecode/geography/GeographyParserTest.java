@@ -0,0 +1,92 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.geography;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.FullHeightRope;
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.RawGeographyCommand;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Layer;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Outcome;
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.store.GameCodec;
+
+public class GeographyParserTest {
+
+	/** A header, an F-type command with an unused ID, a rope, and another unused command on the next page. */
+	private static final byte[] BYTECODE = { 0x10, 0x01, 0x1F, 0x50, 0x2F, 0x00, 0x3F, (byte) 0xE0, (byte) 0xFD };
+
+	private static final byte[] NO_POPULATION = { (byte) 0xFF };
+
+	@Test
+	void failOnUnknownCommand() {
+		assertThrows(IOException.class, () -> new GeographyParser(new ByteArrayInputStream(BYTECODE)).parse());
+		assertThrows(IllegalArgumentException.class,
+			() -> Area.parse(Area.Environment.OVERWORLD, BYTECODE, NO_POPULATION, "Area_21"));
+	}
+
+	@Test
+	void preserveUnknownCommands() throws IOException {
+
+		ParseReport report = new ParseReport();
+		Area area = Area.parse(Area.Environment.OVERWORLD, BYTECODE, NO_POPULATION, "Area_21", report);
+		List<GeographyActor> geography = area.getGeography();
+
+		assertEquals(3, geography.size());
+		assertInstanceOf(RawGeographyCommand.class, geography.get(0));
+		assertInstanceOf(FullHeightRope.class, geography.get(1));
+		assertEquals(19, assertInstanceOf(RawGeographyCommand.class, geography.get(2)).getX());
+
+		assertEquals(2, report.getRecovered());
+		ParseDiagnostic diagnostic = report.getDiagnostics().get(1);
+		assertEquals("Area_21", diagnostic.getArea());
+		assertEquals(Layer.GEOGRAPHY, diagnostic.getLayer());
+		assertEquals(6, diagnostic.getOffset());
+		assertEquals(Outcome.PRESERVED, diagnostic.getOutcome());
+		assertTrue(diagnostic.describe().contains("3F E0"));
+
+		// Everything after the header is written back exactly as read
+		byte[] unparsed = new GeographyUnparser(AreaHeader.parse(BYTECODE[0], BYTECODE[1])).unparse(geography);
+		assertArrayEquals(Arrays.copyOfRange(BYTECODE, 2, BYTECODE.length),
+			Arrays.copyOfRange(unparsed, 2, unparsed.length));
+
+		// Raw commands survive encoding
+		Area decoded = GameCodec.decodeArea(GameCodec.encode(area));
+		assertArrayEquals(new byte[] { 0x3F, (byte) 0x60 },
+			((RawGeographyCommand) decoded.getGeography().get(2)).getCommand());
+	}
+
+	@Test
+	void decodeCommandContainingEndMarker() throws IOException {
+
+		// A command whose second byte is the end marker, which the game reads as part of the command
+		byte[] bytecode = { 0x10, 0x01, 0x25, (byte) 0xFD, (byte) 0xFD };
+
+		ParseReport report = new ParseReport();
+		GeographyParser parser = new GeographyParser(new ByteArrayInputStream(bytecode));
+		parser.setReport(report);
+
+		assertEquals(1, parser.parse().size());
+		assertEquals(1, report.getDiagnostics().size());
+		assertEquals(Outcome.DECODED, report.getDiagnostics().get(0).getOutcome());
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.bytecode.population;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class LinkTableTest extends TestSuite {
+
+	@Test
+	void encodeLikeAtlasLookup() {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		LinkTable links = LinkTable.link(atlas);
+
+		assertTrue(links.isComplete());
+		assertSame(links, links.check());
+
+		for (Area area : atlas.getAreas()) {
+			assertArrayEquals(area.unparsePopulation(atlas), area.unparsePopulation(links));
+		}
+
+		ExitPointer pointer = (ExitPointer) atlas.get("Overworld_1").getPopulation().get(2);
+		assertEquals(0x40, links.resolve(pointer));
+		assertEquals("Area_40", LinkTable.areaName(0x40));
+
+		// Pointers added after linking need linking again
+		assertThrows(IllegalStateException.class, () -> links.resolve(ExitPointer.create(0, "Castle_1", 0, 0)));
+	}
+
+	@Test
+	void reportAllDangling() {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		atlas.get("Overworld_2").getPopulation().add(ExitPointer.create(16, "Missing_1", 0, 0));
+		atlas.get("Castle_1").getPopulation().add(ExitPointer.create(32, "Missing_2", 0, 0));
+
+		LinkTable links = LinkTable.link(atlas);
+
+		assertFalse(links.isComplete());
+		assertEquals(2, links.getDangling().size());
+		assertSame(atlas.get("Overworld_2"), links.getDangling().get(0).getArea());
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, links::check);
+		assertTrue(e.getMessage().contains("Area Overworld_2: exit pointer at 16 to unknown area Missing_1"));
+		assertTrue(e.getMessage().contains("Area Castle_1: exit pointer at 32 to unknown area Missing_2"));
+
+		// Encoding through the atlas reports the pointer rather than failing with a null
+		assertThrows(IllegalStateException.class, () -> atlas.get("Castle_1").unparsePopulation(atlas));
+	}
+}
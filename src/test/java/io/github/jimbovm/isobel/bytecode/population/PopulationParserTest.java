@@ -6,15 +6,27 @@
 
 package io.github.jimbovm.isobel.bytecode.population;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.List;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.converter.ConvertWith;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.actor.population.RawPopulationCommand;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic;
+import io.github.jimbovm.isobel.bytecode.common.ParseDiagnostic.Outcome;
+import io.github.jimbovm.isobel.bytecode.common.ParseReport;
+import io.github.jimbovm.isobel.common.Atlas;
 import io.github.jimbovm.isobel.test.BinaryIntegerConverter;
 
 public class PopulationParserTest {
@@ -57,4 +69,48 @@ public class PopulationParserTest {
 			parser.parse();
 		});
 	}
+
+	@Test
+	void preserveUnknownCharacters() throws IOException {
+
+		// A Goomba, then a character with an unused opcode on the next page
+		byte[] bytecode = { 0x25, 0x06, 0x45, (byte) 0x93, (byte) 0xFF };
+
+		assertThrows(IOException.class, () -> new PopulationParser(new ByteArrayInputStream(bytecode)).parse());
+
+		ParseReport report = new ParseReport();
+		PopulationParser parser = new PopulationParser(new ByteArrayInputStream(bytecode));
+		parser.setReport(report);
+		parser.setArea("Area_21");
+		List<PopulationActor> population = parser.parse();
+
+		assertEquals(2, population.size());
+		assertInstanceOf(Character.class, population.get(0));
+		RawPopulationCommand raw = assertInstanceOf(RawPopulationCommand.class, population.get(1));
+		assertEquals(20, raw.getX());
+
+		assertEquals(1, report.getDiagnostics().size());
+		ParseDiagnostic diagnostic = report.getDiagnostics("Area_21").get(0);
+		assertEquals(2, diagnostic.getOffset());
+		assertEquals(1, diagnostic.getPage());
+		assertEquals(Outcome.PRESERVED, diagnostic.getOutcome());
+		assertEquals(1, report.getRecovered());
+
+		assertArrayEquals(bytecode, new PopulationUnparser(new Atlas()).unparse(population));
+	}
+
+	@Test
+	void keepCommandsBeforeTruncation() throws IOException {
+
+		byte[] bytecode = { 0x25, 0x06, 0x0E };
+
+		ParseReport report = new ParseReport();
+		PopulationParser parser = new PopulationParser(new ByteArrayInputStream(bytecode));
+		parser.setReport(report);
+
+		assertEquals(1, parser.parse().size());
+		assertEquals(Outcome.TRUNCATED, report.getDiagnostics().get(0).getOutcome());
+		assertArrayEquals(new byte[] { 0x0E }, report.getDiagnostics().get(0).getCommand());
+		assertEquals(0, report.getRecovered());
+	}
 }
@@ -0,0 +1,158 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.AnglePipe;
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.Castle;
+import io.github.jimbovm.isobel.actor.geography.Column;
+import io.github.jimbovm.isobel.actor.geography.ExtensiblePlatform;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.geography.FixedExtensible;
+import io.github.jimbovm.isobel.actor.geography.FixedStatic;
+import io.github.jimbovm.isobel.actor.geography.FullHeightRope;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.geography.ScaleRopeVertical;
+import io.github.jimbovm.isobel.actor.geography.SingletonObject;
+import io.github.jimbovm.isobel.actor.geography.Staircase;
+import io.github.jimbovm.isobel.actor.geography.UprightPipe;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class CopyTest extends TestSuite {
+
+	private static Logger log = LogManager.getLogger();
+
+	@Test
+	void copyEveryActorType() {
+
+		ScaleRopeVertical rope = new ScaleRopeVertical();
+		rope.setX(12);
+		rope.setExtent(4);
+
+		List<Actor> actors =
+			List
+				.of(AnglePipe.create(1, 5), BackgroundModifier.create(2, AreaHeader.Background.NIGHT),
+					Castle.create(3, Castle.Size.LARGE), Column.create(4, 6, Column.Type.BLOCK, 3),
+					ExtensiblePlatform.create(5, 7, 4),
+					FillSceneryModifier.create(6, AreaHeader.Fill.FILL_ALL, AreaHeader.Scenery.CLOUDS),
+					FixedExtensible.create(7, FixedExtensible.Type.PIT, 3), FixedStatic.createAxe(8),
+					FullHeightRope.create(9), Row.create(10, 4, Row.Type.COIN, 5), rope,
+					SingletonObject.create(13, 2, SingletonObject.Type.BRICK_VINE), Staircase.create(14, 8),
+					UprightPipe.create(15, 6, 3, true), Character.create(16, 10, Character.Type.BOWSER, true),
+					ExitPointer.create(17, "Underground_1", 3, 4));
+
+		for (Actor actor : actors) {
+			Actor copy = actor.copy();
+			assertNotSame(actor, copy);
+			assertSame(actor.getClass(), copy.getClass());
+			assertArrayEquals(GameCodec.encode(actor), GameCodec.encode(copy));
+		}
+	}
+
+	@Test
+	void copyGame() {
+
+		Game game = buildGame();
+		Game copy = game.copy();
+
+		assertArrayEquals(GameCodec.encode(game), GameCodec.encode(copy));
+
+		for (Area area : game.getAtlas().getAreas()) {
+			Area areaCopy = copy.getAtlas().get(area.getId());
+			assertNotSame(area, areaCopy);
+			assertNotSame(area.getHeader(), areaCopy.getHeader());
+			assertEquals(game.getAtlas().getIndex(area), copy.getAtlas().getIndex(areaCopy));
+		}
+
+		// Levels start in the copied areas, not the originals
+		for (World world : copy.getScenario().getWorlds()) {
+			for (Level level : world.getLevels()) {
+				assertSame(copy.getAtlas().get(level.getStartArea().getId()), level.getStartArea());
+			}
+		}
+
+		copy.getAtlas().get("Overworld_1").getGeography().get(5).setX(99);
+		copy.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		copy.getScenario().getWorlds().get(0).getLevels().get(0).setCheckpoint((byte) 1);
+
+		assertEquals(40, game.getAtlas().get("Overworld_1").getGeography().get(5).getX());
+		assertEquals(300, game.getAtlas().get("Castle_1").getHeader().getTicks());
+		assertEquals(5, game.getScenario().getWorlds().get(0).getLevels().get(0).getCheckpoint());
+	}
+
+	/**
+	 * Compare the time taken to copy a game with a marshal and unmarshal
+	 * round trip. Timings depend on the machine, so this is only run on
+	 * request, with <code>-Disobel.benchmark=true</code>, and reports rather
+	 * than asserts.
+	 */
+	@Test
+	@Tag("benchmark")
+	@EnabledIfSystemProperty(named = "isobel.benchmark", matches = "true")
+	void benchmarkAgainstMarshalling() throws JAXBException {
+
+		Game game = Game.parse(buildImage());
+		JAXBContext context = JAXBContext.newInstance(Game.class);
+		Marshaller marshaller = context.createMarshaller();
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+
+		final int iterations = 200;
+		long marshalling = Long.MAX_VALUE;
+		long copying = Long.MAX_VALUE;
+
+		// Every result is used, so that none of the work can be optimised away
+		int areas = 0;
+
+		// Take the best of several rounds, the first of which warms up the JIT
+		for (int round = 0; round < 5; round++) {
+
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				marshaller.marshal(game, out);
+				Game unmarshalled = (Game) unmarshaller.unmarshal(new ByteArrayInputStream(out.toByteArray()));
+				areas += unmarshalled.getAtlas().getAreas().size();
+			}
+			marshalling = Math.min(marshalling, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				areas += game.copy().getAtlas().getAreas().size();
+			}
+			copying = Math.min(copying, System.nanoTime() - start);
+		}
+
+		log
+			.info(String
+				.format("Marshal/unmarshal %d us per game, copy %d us per game (%d areas)",
+					marshalling / iterations / 1000, copying / iterations / 1000, areas));
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class ExitTableTest extends TestSuite {
+
+	@Test
+	void resolvePerWorld() {
+
+		Game game = buildGame();
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		ExitPointer later = ExitPointer.create(48, "Castle_1", 3, 4);
+		overworld1.getPopulation().add(later);
+
+		ExitTable table = new ExitTable(overworld1);
+
+		assertNull(table.resolve(15, 0));
+		assertEquals("Underground_1", table.resolve(16, 0).getDestination());
+		assertEquals("Underground_1", table.resolve(100, 3).getDestination());
+		assertSame(later, table.resolve(48, 4));
+		assertSame(game.getAtlas().get("Castle_1"), table.resolve(100, 7, game.getAtlas()));
+		assertSame(game.getAtlas().get("Underground_1"), table.resolve(47, 7, game.getAtlas()));
+		assertEquals(2, table.getPointers().size());
+
+		assertThrows(IllegalArgumentException.class, () -> table.resolve(0, 8));
+	}
+
+	@Test
+	void updateIncrementally() {
+
+		Area area = new Area();
+		ExitTable table = new ExitTable(area);
+		assertFalse(table.add(Character.create(0, 0, Character.Type.GOOMBA, false)));
+
+		ExitPointer first = ExitPointer.create(32, "First", 0, 0);
+		ExitPointer second = ExitPointer.create(32, "Second", 0, 0);
+		assertTrue(table.add(first));
+		assertTrue(table.add(second));
+
+		// The later of two pointers at one position takes effect
+		assertSame(second, table.resolve(32, 0));
+
+		second.setActiveFromWorld(2);
+		assertTrue(table.update(second));
+		assertSame(first, table.resolve(32, 1));
+		assertSame(second, table.resolve(32, 2));
+
+		first.setX(64);
+		table.update(first);
+		assertSame(second, table.resolve(63, 7));
+		assertSame(first, table.resolve(64, 7));
+		assertNull(table.resolve(63, 0));
+		assertEquals(List.of(second, first), table.getPointers());
+
+		assertTrue(table.remove(first));
+		assertFalse(table.remove(first));
+		assertSame(second, table.resolve(64, 7));
+		assertNull(table.resolve(64, 0));
+	}
+}
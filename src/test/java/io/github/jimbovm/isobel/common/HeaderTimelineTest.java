@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.common.AreaHeader.Background;
+import io.github.jimbovm.isobel.common.AreaHeader.Fill;
+import io.github.jimbovm.isobel.common.AreaHeader.Scenery;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class HeaderTimelineTest extends TestSuite {
+
+	@Test
+	void lookUpState() {
+
+		Area overworld1 = buildGame().getAtlas().get("Overworld_1");
+		overworld1.getGeography().add(FillSceneryModifier.create(32, Fill.FILL_ALL, Scenery.CLOUDS));
+		// Of two modifiers at one position, the later in the list wins
+		overworld1.getGeography().add(BackgroundModifier.create(64, Background.DAY_SNOW));
+
+		HeaderTimeline timeline = new HeaderTimeline(overworld1);
+
+		assertEquals(Background.NONE, timeline.getBackground(63));
+		assertEquals(Background.DAY_SNOW, timeline.getBackground(64));
+		assertEquals(Background.DAY_SNOW, timeline.getBackground(1000));
+		assertEquals(Fill.FILL_2BF_0BC, timeline.getFill(31));
+		assertEquals(Fill.FILL_ALL, timeline.getFill(32));
+		assertEquals(Scenery.CLOUDS, timeline.getScenery(40));
+		assertEquals(32, timeline.nextChange(0));
+		assertEquals(64, timeline.nextChange(32));
+		assertEquals(-1, timeline.nextChange(64));
+
+		// Header changes are seen without an update
+		overworld1.getHeader().setBackground(Background.NIGHT);
+		assertEquals(Background.NIGHT, timeline.getBackground(0));
+	}
+
+	@Test
+	void updateIncrementally() {
+
+		Area area = new Area();
+		HeaderTimeline timeline = new HeaderTimeline(area);
+		assertFalse(timeline.add(Row.create(0, 0, Row.Type.BRICK, 1)));
+
+		BackgroundModifier night = BackgroundModifier.create(48, Background.NIGHT);
+		area.getGeography().add(night);
+		assertTrue(timeline.add(night));
+		assertFalse(timeline.add(night));
+		assertEquals(Background.NONE, timeline.getBackground(47));
+		assertEquals(Background.NIGHT, timeline.getBackground(48));
+
+		night.setX(16);
+		assertTrue(timeline.update(night));
+		assertEquals(Background.NIGHT, timeline.getBackground(16));
+		assertEquals(Background.NONE, timeline.getBackground(15));
+
+		night.setBackground(Background.DAY_SNOW);
+		assertEquals(Background.DAY_SNOW, timeline.getBackground(20));
+
+		area.getGeography().remove(night);
+		assertTrue(timeline.remove(night));
+		assertFalse(timeline.remove(night));
+		assertEquals(Background.NONE, timeline.getBackground(20));
+		assertEquals(-1, timeline.nextChange(0));
+	}
+}
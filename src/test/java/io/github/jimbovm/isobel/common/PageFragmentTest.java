@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.FillSceneryModifier;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.AreaHeader.Background;
+import io.github.jimbovm.isobel.common.AreaHeader.Scenery;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class PageFragmentTest extends TestSuite {
+
+	private static List<Integer> positions(List<? extends Actor> actors) {
+		return actors.stream().map(Actor::getX).toList();
+	}
+
+	@Test
+	void deleteKeepsLaterPointers() {
+
+		Area overworld1 = buildGame().getAtlas().get("Overworld_1");
+		overworld1.deletePages(1, 2);
+
+		assertEquals(List.of(3, 5, 24, 34, 48), positions(overworld1.getGeography()));
+		assertEquals(List.of(16, 20), positions(overworld1.getPopulation()));
+		assertEquals("Underground_1", ((ExitPointer) overworld1.getPopulation().get(0)).getDestination());
+
+		// Pointers only active in later worlds are kept as well
+		Area area = new Area();
+		area.getPopulation().add(ExitPointer.create(0, "First", 0, 0));
+		area.getPopulation().add(ExitPointer.create(20, "Second", 0, 3));
+		area.deletePages(1, 2);
+
+		assertEquals(List.of(0, 16), positions(area.getPopulation()));
+		assertEquals("Second", ((ExitPointer) area.getPopulation().get(1)).getDestination());
+		assertEquals(3, ((ExitPointer) area.getPopulation().get(1)).getActiveFromWorld());
+	}
+
+	@Test
+	void insertCarriesState() {
+
+		Game game = buildGame();
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		Area overworld2 = game.getAtlas().get("Overworld_2");
+
+		PageFragment fragment = overworld1.copyPages(4, 5);
+		assertEquals(1, fragment.getPages());
+		assertEquals(Background.NONE, fragment.getBackground());
+		assertEquals(List.of(0), positions(fragment.getGeography()));
+		assertEquals(1, fragment.getExits().size());
+
+		overworld2.insertPages(0, fragment);
+
+		// Entry and exit state around the inserted page, then the moved actors
+		assertEquals(List.of(0, 0, 16, 16, 19, 21, 37, 41), positions(overworld2.getGeography()));
+		assertEquals(Scenery.NONE, ((FillSceneryModifier) overworld2.getGeography().get(0)).getScenery());
+		assertEquals(Background.NIGHT, ((BackgroundModifier) overworld2.getGeography().get(1)).getBackground());
+		assertEquals(Background.NONE, ((BackgroundModifier) overworld2.getGeography().get(2)).getBackground());
+		assertEquals(Scenery.FENCES, ((FillSceneryModifier) overworld2.getGeography().get(3)).getScenery());
+		assertInstanceOf(ExitPointer.class, overworld2.getPopulation().get(0));
+		assertEquals(0, overworld2.getPopulation().get(0).getX());
+
+		// The fragment's own actors are untouched and can be inserted again
+		overworld2.insertPages(0, fragment);
+		assertEquals(0, fragment.getGeography().get(0).getX());
+		assertEquals(12, overworld2.getGeography().size());
+	}
+
+	@Test
+	void cutAndPaste() {
+
+		Area overworld1 = buildGame().getAtlas().get("Overworld_1");
+		List<Integer> geography = positions(overworld1.getGeography()).stream().sorted().toList();
+
+		PageFragment fragment = overworld1.cutPages(1, 2);
+		assertEquals(List.of(5, 9, 0), positions(fragment.getGeography()));
+		assertEquals(List.of(4, 0), positions(fragment.getPopulation()));
+
+		overworld1.insertPages(1, fragment);
+		assertEquals(geography, positions(overworld1.getGeography()).stream().sorted().toList());
+		assertEquals(List.of(20, 16, 32, 36), positions(overworld1.getPopulation()));
+
+		assertThrows(IllegalArgumentException.class, () -> overworld1.copyPages(2, 1));
+		assertThrows(IllegalArgumentException.class, () -> overworld1.insertPages(-1, fragment));
+	}
+
+	@Test
+	void undoPageOperations() {
+
+		Area overworld1 = buildGame().getAtlas().get("Overworld_1");
+		overworld1.makePersistent();
+		final byte[] original = GameCodec.encode(overworld1);
+
+		overworld1.deletePages(0, 1);
+		final byte[] deleted = GameCodec.encode(overworld1);
+		PageFragment fragment = overworld1.copyPages(1, 3);
+		overworld1.insertPages(0, fragment);
+
+		// Each page operation is one step, and moved actors are not changed in earlier versions
+		assertTrue(overworld1.undo());
+		assertArrayEquals(deleted, GameCodec.encode(overworld1));
+		assertTrue(overworld1.undo());
+		assertArrayEquals(original, GameCodec.encode(overworld1));
+		assertFalse(overworld1.undo());
+
+		assertTrue(overworld1.redo());
+		assertArrayEquals(deleted, GameCodec.encode(overworld1));
+	}
+}
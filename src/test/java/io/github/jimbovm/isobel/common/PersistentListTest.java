@@ -0,0 +1,208 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.GeographyActor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class PersistentListTest extends TestSuite {
+
+	@Test
+	void matchArrayList() {
+
+		Random random = new Random(1);
+		List<Integer> expected = new ArrayList<>();
+		PersistentList<Integer> list = new PersistentList<>(List.of());
+		List<List<Integer>> versions = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			versions.add(new ArrayList<>(expected));
+			final int operation = random.nextInt(3);
+			if (operation == 0 || expected.isEmpty()) {
+				final int index = random.nextInt(expected.size() + 1);
+				expected.add(index, i);
+				list.add(index, i);
+			}
+			else if (operation == 1) {
+				final int index = random.nextInt(expected.size());
+				assertEquals(expected.remove(index), list.remove(index));
+			}
+			else {
+				final int index = random.nextInt(expected.size());
+				assertEquals(expected.set(index, -i), list.set(index, -i));
+			}
+			assertEquals(expected, list);
+		}
+
+		// Every earlier version is still reachable
+		for (int i = versions.size() - 1; i >= 0; i--) {
+			assertTrue(list.getHistory().undo());
+			assertEquals(versions.get(i), list);
+		}
+		assertFalse(list.getHistory().undo());
+
+		for (int i = 1; i < versions.size(); i++) {
+			assertTrue(list.getHistory().redo());
+			assertEquals(versions.get(i), list);
+		}
+
+		assertThrows(IndexOutOfBoundsException.class, () -> list.get(list.size()));
+		assertThrows(IndexOutOfBoundsException.class, () -> list.add(list.size() + 1, 0));
+	}
+
+	@Test
+	void bulkChangesAreOneStep() {
+
+		PersistentList<Integer> list = new PersistentList<>(List.of(5, 3, 4, 1, 2));
+
+		Collections.sort(list);
+		assertEquals(List.of(1, 2, 3, 4, 5), list);
+		list.addAll(List.of(6, 7));
+		list.clear();
+		assertTrue(list.isEmpty());
+
+		list.getHistory().undo();
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), list);
+		list.getHistory().undo();
+		list.getHistory().undo();
+		assertEquals(List.of(5, 3, 4, 1, 2), list);
+		assertFalse(list.getHistory().canUndo());
+
+		list.setAll(List.of(8, 9));
+		assertEquals(List.of(8, 9), list);
+		list.getHistory().undo();
+		assertEquals(List.of(5, 3, 4, 1, 2), list);
+	}
+
+	@Test
+	void replaceAndIterate() {
+
+		Random random = new Random(2);
+		List<Integer> elements = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			elements.add(i);
+		}
+		PersistentList<Integer> list = new PersistentList<>(elements);
+		List<List<Integer>> versions = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			versions.add(new ArrayList<>(list));
+			// Replace a run of elements with a run of another length, keeping the elements either side
+			List<Integer> replacement = new ArrayList<>(list);
+			final int from = random.nextInt(replacement.size() + 1);
+			final int to = from + random.nextInt(Math.min(20, replacement.size() - from) + 1);
+			replacement.subList(from, to).clear();
+			for (int j = random.nextInt(20); j > 0; j--) {
+				replacement.add(from, 1000 + i);
+			}
+			list.setAll(replacement);
+			assertEquals(replacement, list);
+			assertEquals(replacement, new ArrayList<>(list));
+		}
+
+		for (int i = versions.size() - 1; i >= 0; i--) {
+			if (versions.get(i).equals(list) == false) {
+				assertTrue(list.getHistory().undo());
+			}
+			assertEquals(versions.get(i), list);
+		}
+
+		// Removing through the iterator carries on with the next element
+		list.getHistory().clear();
+		list.setAll(List.of(1, 2, 3, 4, 5));
+		list.removeIf(element -> element % 2 == 0);
+		assertEquals(List.of(1, 3, 5), list);
+
+		Iterator<Integer> iterator = list.iterator();
+		assertThrows(IllegalStateException.class, iterator::remove);
+		iterator.next();
+		list.add(6);
+		assertThrows(ConcurrentModificationException.class, iterator::next);
+	}
+
+	@Test
+	void groupChangesToSeveralLists() {
+
+		PersistentList<Integer> first = new PersistentList<>(List.of(1, 2));
+		PersistentList<Integer> second = new PersistentList<>(List.of(3), first.getHistory());
+
+		first.getHistory().group(() -> {
+			first.add(4);
+			second.clear();
+			first.getHistory().group(() -> first.remove(0));
+		});
+		assertEquals(List.of(2, 4), first);
+		assertTrue(second.isEmpty());
+
+		assertTrue(first.getHistory().undo());
+		assertEquals(List.of(1, 2), first);
+		assertEquals(List.of(3), second);
+		assertFalse(first.getHistory().canUndo());
+
+		assertTrue(first.getHistory().redo());
+		assertEquals(List.of(2, 4), first);
+		assertTrue(second.isEmpty());
+
+		// A group without changes records no step
+		first.getHistory().group(() -> { });
+		assertTrue(first.getHistory().undo());
+		assertFalse(first.getHistory().canUndo());
+	}
+
+	@Test
+	void undoAreaChanges() {
+
+		Area area = buildGame().getAtlas().get("Overworld_1");
+		final byte[] original = GameCodec.encode(area);
+
+		assertThrows(IllegalStateException.class, area::undo);
+		area.makePersistent();
+		assertTrue(area.isPersistent());
+
+		area.getGeography().add(Row.create(80, 6, Row.Type.COIN, 3));
+		area.getPopulation().remove(0);
+		GeographyActor moved = area.getGeography().get(5).copy();
+		moved.setX(44);
+		area.getGeography().set(5, moved);
+		final byte[] changed = GameCodec.encode(area);
+
+		assertTrue(area.undo());
+		assertTrue(area.undo());
+		assertEquals(3, area.getPopulation().size());
+		assertTrue(area.undo());
+		assertArrayEquals(original, GameCodec.encode(area));
+		assertFalse(area.undo());
+
+		assertTrue(area.redo());
+		assertTrue(area.redo());
+		assertTrue(area.redo());
+		assertArrayEquals(changed, GameCodec.encode(area));
+
+		// A new change discards what was undone
+		area.undo();
+		area.getPopulation().add(Character.create(60, 10, Character.Type.GOOMBA, false));
+		assertFalse(area.redo());
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.store.Fingerprint;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class DifferTest extends TestSuite {
+
+	@Test
+	void identicalGames() {
+		Game game = buildGame();
+		assertTrue(Differ.diff(game, game.copy()).isEmpty());
+	}
+
+	@Test
+	void skipByFingerprint() {
+
+		Game older = buildGame();
+		Game newer = older.copy();
+		newer.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		final String expected = Differ.diff(older, newer).toString();
+
+		Map<Area, Fingerprint> fingerprints = new IdentityHashMap<>();
+		for (Game game : List.of(older, newer)) {
+			for (Area area : game.getAtlas().getAreas()) {
+				fingerprints.put(area, Fingerprint.of(area, game.getAtlas()));
+			}
+		}
+
+		assertEquals(expected, Differ.diff(older, newer, fingerprints::get).toString());
+		assertEquals(expected, Differ.diff(older, newer, area -> null).toString());
+
+		// Equal fingerprints never hide a change, and unequal ones never make one up
+		assertEquals(expected, Differ.diff(older, newer, area -> Fingerprint.EMPTY).toString());
+		assertTrue(Differ.diff(older, older.copy(), area -> Fingerprint.of(area.getId().getBytes())).isEmpty());
+	}
+
+	@Test
+	void actorChanges() {
+
+		Game older = buildGame();
+		Game newer = older.copy();
+		Area area = newer.getAtlas().get("Overworld_1");
+
+		// Four default actors, then a brick vine, a brick row, a pit and a background modifier
+		((Row) area.getGeography().get(5)).setExtent(7);
+		area.getGeography().get(6).setX(45);
+		area.getGeography().remove(7);
+		area.getGeography().add(0, Row.create(70, 2, Row.Type.COIN, 3));
+		area.getPopulation().add(area.getPopulation().remove(0));
+
+		List<ActorChange> changes = Differ.diff(older, newer).getChangedAreas().get(0).getActorChanges();
+
+		assertEquals(4, changes.size());
+		assertEquals(ActorChange.Type.CHANGED, changes.get(0).getType());
+		assertEquals(5, changes.get(0).getOldIndex());
+		assertEquals(6, changes.get(0).getNewIndex());
+		assertEquals(ActorChange.Type.MOVED, changes.get(1).getType());
+		assertEquals(45, changes.get(1).getNewActor().getX());
+		assertEquals(ActorChange.Type.DELETED, changes.get(2).getType());
+		assertEquals(7, changes.get(2).getOldIndex());
+		assertEquals(ActorChange.Type.INSERTED, changes.get(3).getType());
+		assertEquals(Layer.GEOGRAPHY, changes.get(3).getLayer());
+		assertEquals(0, changes.get(3).getNewIndex());
+	}
+
+	@Test
+	void atlasAndHeaderChanges() {
+
+		Game older = buildGame();
+		Game newer = older.copy();
+
+		newer.getAtlas().remove(newer.getAtlas().get("Overworld_2"));
+		Area water = new Area();
+		water.setId("Water_1");
+		water.setEnvironment(Area.Environment.UNDERWATER);
+		newer.getAtlas().add(water);
+		newer.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		newer.getAtlas().get("Castle_1").getPopulation().add(Character.create(50, 8, Character.Type.GOOMBA, false));
+
+		GameDiff diff = Differ.diff(older, newer);
+
+		assertEquals(List.of("Water_1"), diff.getAddedAreas());
+		assertEquals(List.of("Overworld_2"), diff.getRemovedAreas());
+		assertEquals(1, diff.getChangedAreas().size());
+
+		AreaDiff castle = diff.getChangedAreas().get(0);
+		assertEquals("Castle_1", castle.getAreaId());
+		assertTrue(castle.isHeaderChanged());
+		assertFalse(castle.isEnvironmentChanged());
+		assertEquals(1, castle.getActorChanges().size());
+		assertEquals(Layer.POPULATION, castle.getActorChanges().get(0).getLayer());
+	}
+
+	@Test
+	void scenarioChanges() {
+
+		Game older = buildGame();
+		Game newer = older.copy();
+
+		newer.getScenario().getWorlds().get(1).getLevels().get(2).setStartArea(newer.getAtlas().get("Castle_1"));
+		newer.getScenario().getWorlds().get(1).getLevels().get(2).setCheckpoint((byte) 3);
+		newer.getScenario().getWorlds().get(3).setHidden1upCost((byte) 1);
+		newer.getScenario().getWorlds().get(4).getLevels().remove(3);
+		newer.getScenario().getWorlds().remove(7);
+
+		List<ScenarioChange> changes = Differ.diff(older, newer).getScenarioChanges();
+
+		assertEquals(5, changes.size());
+		assertEquals(ScenarioChange.Type.START_AREA, changes.get(0).getType());
+		assertEquals("Overworld_2", changes.get(0).getOldValue());
+		assertEquals("Castle_1", changes.get(0).getNewValue());
+		assertEquals(ScenarioChange.Type.CHECKPOINT, changes.get(1).getType());
+		assertEquals(ScenarioChange.Type.HIDDEN_1UP_COST, changes.get(2).getType());
+		assertEquals(ScenarioChange.Type.LEVEL_REMOVED, changes.get(3).getType());
+		assertEquals(ScenarioChange.Type.WORLD_REMOVED, changes.get(4).getType());
+		assertEquals(7, changes.get(4).getWorld());
+	}
+}
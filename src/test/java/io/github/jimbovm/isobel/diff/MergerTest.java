@@ -0,0 +1,137 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.diff;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class MergerTest extends TestSuite {
+
+	@Test
+	void unchanged() {
+
+		Game base = buildGame();
+		MergeResult result = Merger.merge(base, base.copy(), base.copy());
+
+		assertTrue(result.isClean());
+		assertArrayEquals(GameCodec.encode(base), GameCodec.encode(result.getMerged()));
+	}
+
+	@Test
+	void mergeNonOverlappingEdits() {
+
+		Game base = buildGame();
+		Game ours = base.copy();
+		Game theirs = base.copy();
+
+		// Both edit the same area, in different actors
+		ours.getAtlas().get("Overworld_1").getGeography().get(5).setX(41);
+		ours.getAtlas().get("Overworld_1").getPopulation().add(Character.create(60, 10, Character.Type.GOOMBA, false));
+		theirs.getAtlas().get("Overworld_1").getGeography().remove(7);
+		theirs.getAtlas().get("Overworld_1").getGeography().add(Row.create(30, 2, Row.Type.COIN, 3));
+		theirs.getAtlas().get("Overworld_1").getHeader().setTicks(300);
+
+		// Each edits a different area and the scenario
+		ours.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		theirs.getAtlas().remove(theirs.getAtlas().get("Overworld_2"));
+		theirs.getScenario().getWorlds().forEach((world) -> world.getLevels().get(2)
+			.setStartArea(theirs.getAtlas().get("Overworld_1")));
+		ours.getScenario().getWorlds().get(0).getLevels().get(0).setCheckpoint((byte) 1);
+
+		MergeResult result = Merger.merge(base, ours, theirs);
+		assertTrue(result.isClean(), result.getConflicts().toString());
+
+		Game merged = result.getMerged();
+		Area overworld = merged.getAtlas().get("Overworld_1");
+		assertEquals(8, overworld.getGeography().size());
+		assertEquals(41, overworld.getGeography().get(6).getX());
+		assertEquals(30, overworld.getGeography().get(5).getX());
+		assertEquals(4, overworld.getPopulation().size());
+		assertEquals(300, overworld.getHeader().getTicks());
+		assertEquals(200, merged.getAtlas().get("Castle_1").getHeader().getTicks());
+		assertNull(merged.getAtlas().get("Overworld_2"));
+		assertSame(overworld, merged.getScenario().getWorlds().get(3).getLevels().get(2).getStartArea());
+		assertEquals(1, merged.getScenario().getWorlds().get(0).getLevels().get(0).getCheckpoint());
+	}
+
+	@Test
+	void reportActorConflicts() {
+
+		Game base = buildGame();
+		Game ours = base.copy();
+		Game theirs = base.copy();
+
+		((Row) ours.getAtlas().get("Overworld_1").getGeography().get(5)).setExtent(2);
+		((Row) theirs.getAtlas().get("Overworld_1").getGeography().get(5)).setExtent(9);
+		ours.getAtlas().get("Overworld_1").getPopulation().remove(1);
+		theirs.getAtlas().get("Overworld_1").getPopulation().get(1).setX(38);
+
+		MergeResult result = Merger.merge(base, ours, theirs);
+
+		assertEquals(2, result.getConflicts().size());
+		MergeConflict row = result.getConflicts().get(0);
+		assertEquals(MergeConflict.Type.ACTOR, row.getType());
+		assertEquals(Layer.GEOGRAPHY, row.getLayer());
+		assertEquals(5, row.getBaseIndex());
+		assertEquals(9, ((Row) row.getTheirActor()).getExtent());
+		MergeConflict troopa = result.getConflicts().get(1);
+		assertEquals(Layer.POPULATION, troopa.getLayer());
+		assertNull(troopa.getOurActor());
+		assertNotNull(troopa.getTheirActor());
+
+		// Our side is kept
+		Area overworld = result.getMerged().getAtlas().get("Overworld_1");
+		assertEquals(2, ((Row) overworld.getGeography().get(5)).getExtent());
+		assertEquals(2, overworld.getPopulation().size());
+	}
+
+	@Test
+	void reportAreaConflicts() {
+
+		Game base = buildGame();
+		Game ours = base.copy();
+		Game theirs = base.copy();
+
+		ours.getAtlas().remove(ours.getAtlas().get("Castle_1"));
+		ours.getScenario().getWorlds().forEach((world) -> world.getLevels().remove(3));
+		theirs.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		ours.getAtlas().get("Underground_1").getHeader().setTicks(0);
+		theirs.getAtlas().get("Underground_1").getHeader().setTicks(200);
+		ours.getAtlas().get("Underground_1").getPopulation().clear();
+		theirs.getAtlas().get("Underground_1").getGeography().clear();
+
+		MergeResult result = Merger.merge(base, ours, theirs);
+
+		assertEquals(2, result.getConflicts().size());
+		assertEquals(MergeConflict.Type.AREA_PROPERTIES, result.getConflicts().get(0).getType());
+		assertEquals("Underground_1", result.getConflicts().get(0).getAreaId());
+		assertEquals(MergeConflict.Type.AREA, result.getConflicts().get(1).getType());
+		assertEquals("Castle_1", result.getConflicts().get(1).getAreaId());
+
+		Area underground = result.getMerged().getAtlas().get("Underground_1");
+		assertEquals(0, underground.getHeader().getTicks());
+		assertTrue(underground.getPopulation().isEmpty());
+		assertTrue(underground.getGeography().isEmpty());
+		assertNull(result.getMerged().getAtlas().get("Castle_1"));
+		assertEquals(3, result.getMerged().getScenario().getWorlds().get(0).getLevels().size());
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.diff.AreaDiff;
+import io.github.jimbovm.isobel.diff.Differ;
+import io.github.jimbovm.isobel.diff.GameDiff;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.edit.MoveActor;
+import io.github.jimbovm.isobel.edit.SetStartArea;
+import io.github.jimbovm.isobel.store.Fingerprint;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class ObservableGameTest extends TestSuite {
+
+	private static List<ModelEvent.Type> types(List<ModelEvent> events) {
+		return events.stream().map(ModelEvent::getType).toList();
+	}
+
+	@Test
+	void publishActorAndHeaderChanges() {
+
+		Game game = buildGame();
+		Area area = game.getAtlas().get("Overworld_1");
+		ObservableGame observable = new ObservableGame(game);
+		List<List<ModelEvent>> received = new ArrayList<>();
+		observable.addListener(received::add);
+
+		observable.insertActor(area, 0, Row.create(80, 6, Row.Type.COIN, 3));
+		observable.removeActor(area, Layer.POPULATION, 0);
+		observable.changeActor(area, Layer.GEOGRAPHY, 6, (actor) -> actor.setX(42));
+		observable.changeActor(area, Layer.GEOGRAPHY, 6, (actor) -> actor.setX(42));
+		observable.changeHeader(area, (header) -> {
+			header.setTicks(300);
+			header.setScenery(AreaHeader.Scenery.CLOUDS);
+		});
+
+		assertEquals(4, received.size());
+		assertEquals(List.of(ModelEvent.Type.ACTOR_INSERTED), types(received.get(0)));
+		assertEquals(List.of(ModelEvent.Type.ACTOR_REMOVED), types(received.get(1)));
+
+		ModelEvent changed = received.get(2).get(0);
+		assertEquals(ModelEvent.Type.ACTOR_CHANGED, changed.getType());
+		assertEquals(40, ((Row) changed.getOldValue()).getX());
+		assertSame(area.getGeography().get(6), changed.getNewValue());
+
+		List<ModelEvent> header = received.get(3);
+		assertEquals(List.of("ticks", "scenery"), header.stream().map(ModelEvent::getProperty).toList());
+		assertEquals(400, header.get(0).getOldValue());
+		assertEquals(300, header.get(0).getNewValue());
+
+		assertThrows(IllegalStateException.class, () -> observable.removeActor(area, Layer.POPULATION, 9));
+		assertThrows(IllegalStateException.class, () -> observable.changeHeader(new Area(), (h) -> h.setTicks(0)));
+	}
+
+	@Test
+	void batchAndExecutor() {
+
+		Game game = buildGame();
+		List<Runnable> tasks = new ArrayList<>();
+		ObservableGame observable = new ObservableGame(game, tasks::add);
+		List<List<ModelEvent>> received = new ArrayList<>();
+		observable.addListener(received::add);
+
+		observable.batch(() -> {
+			observable.removeArea(game.getAtlas().get("Overworld_1"));
+			observable.batch(() -> observable.setStartArea(0, 0, game.getAtlas().get("Overworld_2")));
+		});
+
+		// Nothing is delivered until the executor runs the notification
+		assertTrue(received.isEmpty());
+		assertEquals(1, tasks.size());
+		tasks.get(0).run();
+
+		assertEquals(1, received.size());
+		assertEquals(List.of(ModelEvent.Type.AREA_REMOVED, ModelEvent.Type.INDEX_CHANGED,
+			ModelEvent.Type.LEVEL_CHANGED), types(received.get(0)));
+		assertEquals(0x21, received.get(0).get(1).getOldValue());
+		assertEquals(0x20, received.get(0).get(1).getNewValue());
+		assertEquals("1-1", received.get(0).get(2).getProperty());
+	}
+
+	@Test
+	void publishEdits() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		List<ModelEvent> received = new ArrayList<>();
+		observable.addListener(received::addAll);
+
+		observable.apply(new MoveActor("Overworld_1", Layer.GEOGRAPHY, 5, 44, 4));
+		observable.apply(new SetStartArea(1, 2, "Castle_1"));
+
+		assertEquals(List.of(ModelEvent.Type.ACTOR_CHANGED, ModelEvent.Type.LEVEL_CHANGED), types(received));
+		assertEquals(44, ((Row) received.get(0).getNewValue()).getX());
+		assertEquals("2-3", received.get(1).getProperty());
+		assertSame(game.getAtlas().get("Castle_1"), received.get(1).getArea());
+	}
+
+	@Test
+	void keepFingerprints() {
+
+		Game game = buildGame();
+		final Game snapshot = game.copy();
+		ObservableGame observable = new ObservableGame(game);
+		Area area = game.getAtlas().get("Overworld_1");
+
+		assertEquals(Fingerprint.of(area, game.getAtlas()), observable.fingerprint(area));
+
+		observable.insertActor(area, 0, Row.create(80, 6, Row.Type.COIN, 3));
+		observable.removeActor(area, Layer.POPULATION, 0);
+		observable.changeActor(area, Layer.GEOGRAPHY, 6, (actor) -> actor.setX(42));
+		observable.changeHeader(area, (header) -> header.setTicks(300));
+		observable.apply(new MoveActor("Overworld_1", Layer.GEOGRAPHY, 5, 44, 4));
+		assertEquals(Fingerprint.of(area, game.getAtlas()), observable.fingerprint(area));
+
+		try (Transaction transaction = observable.begin()) {
+			transaction.edit(area).getGeography().remove(0);
+			transaction.commit();
+		}
+		assertEquals(Fingerprint.of(area, game.getAtlas()), observable.fingerprint(area));
+
+		observable.removeArea(game.getAtlas().get("Overworld_2"));
+		assertEquals(Fingerprint.of(area, game.getAtlas()), observable.fingerprint(area));
+
+		// Fingerprints taken of the snapshot once can be compared with those kept up to date
+		Map<Area, Fingerprint> before = new IdentityHashMap<>();
+		for (Area old : snapshot.getAtlas().getAreas()) {
+			before.put(old, Fingerprint.of(old, snapshot.getAtlas()));
+		}
+		GameDiff diff = Differ.diff(snapshot, game,
+			(a) -> before.containsKey(a) ? before.get(a) : observable.fingerprint(a));
+		assertEquals(List.of("Overworld_2"), diff.getRemovedAreas());
+		assertEquals(List.of("Overworld_1"), diff.getChangedAreas().stream().map(AreaDiff::getAreaId).toList());
+
+		assertThrows(IllegalStateException.class, () -> observable.fingerprint(new Area()));
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class TransactionTest extends TestSuite {
+
+	@Test
+	void commitScriptedEdit() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		List<List<ModelEvent>> received = new ArrayList<>();
+		observable.addListener(received::add);
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+
+		try (Transaction transaction = observable.begin()) {
+
+			for (Area area : game.getAtlas().getAreas()) {
+				Area working = transaction.edit(area);
+				List<Actor> actors = new ArrayList<>(working.getGeography());
+				actors.addAll(working.getPopulation());
+				for (Actor actor : actors) {
+					if (actor.getX() >= 20) {
+						actor.setX(actor.getX() + 16);
+					}
+				}
+				for (PopulationActor actor : working.getPopulation()) {
+					if (actor instanceof Character character && character.getType() == Character.Type.GOOMBA) {
+						character.setType(Character.Type.GREEN_TROOPA);
+					}
+				}
+			}
+
+			// Nothing changes until commit
+			assertEquals(40, overworld1.getGeography().get(5).getX());
+			transaction.commit();
+		}
+
+		assertEquals(56, overworld1.getGeography().get(5).getX());
+		assertEquals(Character.Type.GREEN_TROOPA, ((Character) overworld1.getPopulation().get(0)).getType());
+		assertSame(overworld1, game.getAtlas().get("Overworld_1"));
+
+		assertEquals(1, received.size());
+		assertEquals(4, received.get(0).size());
+		for (ModelEvent event : received.get(0)) {
+			assertEquals(ModelEvent.Type.AREA_CHANGED, event.getType());
+		}
+	}
+
+	@Test
+	void rejectInvalidChanges() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		final byte[] original = GameCodec.encode(game);
+		Transaction transaction = observable.begin();
+
+		Row row = Row.create(10, 20, Row.Type.BRICK, 3);
+		transaction.edit(game.getAtlas().get("Overworld_2")).getGeography().add(row);
+		transaction.removeArea(game.getAtlas().get("Castle_1"));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, transaction::commit);
+		assertTrue(e.getMessage().contains("Row y"));
+		assertTrue(e.getMessage().contains("Level 1-4 starts in area Castle_1"));
+		assertArrayEquals(original, GameCodec.encode(game));
+
+		// The transaction stays open to be fixed
+		row.setY(10);
+		for (int world = 0; world < 8; world++) {
+			transaction.setStartArea(world, 3, game.getAtlas().get("Overworld_2"));
+		}
+		transaction.commit();
+
+		assertEquals(3, game.getAtlas().getAreas().size());
+		assertThrows(IllegalStateException.class, transaction::commit);
+	}
+
+	@Test
+	void reindexOnce() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		List<ModelEvent> received = new ArrayList<>();
+		observable.addListener(received::addAll);
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+
+		Transaction transaction = observable.begin();
+		transaction.edit(overworld1).setEnvironment(Area.Environment.UNDERGROUND);
+		Area added = new Area();
+		added.setId("Added");
+		transaction.addArea(added);
+		transaction.commit();
+
+		assertEquals(0x41, game.getAtlas().getIndex(overworld1));
+		assertEquals(0x21, game.getAtlas().getIndex(added));
+		assertEquals(List.of(ModelEvent.Type.AREA_ADDED, ModelEvent.Type.AREA_CHANGED, ModelEvent.Type.INDEX_CHANGED,
+			ModelEvent.Type.INDEX_CHANGED), received.stream().map(ModelEvent::getType).toList());
+
+		// A closed transaction that was never committed changes nothing
+		try (Transaction discarded = observable.begin()) {
+			discarded.edit(overworld1).getGeography().clear();
+		}
+		assertEquals(8, overworld1.getGeography().size());
+	}
+
+	@Test
+	void rejectDanglingPointers() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		Transaction transaction = observable.begin();
+
+		// Overworld_1 is left unchanged but still points to the area removed
+		transaction.removeArea(game.getAtlas().get("Underground_1"));
+
+		IllegalStateException e = assertThrows(IllegalStateException.class, transaction::commit);
+		assertTrue(e.getMessage().contains("Area Overworld_1: exit pointer to unknown area Underground_1"));
+		assertEquals(4, game.getAtlas().getAreas().size());
+	}
+
+	@Test
+	void commitAsOneUndoStep() {
+
+		Game game = buildGame();
+		ObservableGame observable = new ObservableGame(game);
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		overworld1.makePersistent();
+		final byte[] original = GameCodec.encode(overworld1);
+
+		Transaction transaction = observable.begin();
+		Area working = transaction.edit(overworld1);
+		working.getGeography().add(Row.create(80, 6, Row.Type.COIN, 3));
+		working.getPopulation().remove(0);
+		transaction.commit();
+
+		assertNotSame(working.getHeader(), overworld1.getHeader());
+		assertTrue(overworld1.undo());
+		assertArrayEquals(original, GameCodec.encode(overworld1));
+		assertFalse(overworld1.undo());
+	}
+}
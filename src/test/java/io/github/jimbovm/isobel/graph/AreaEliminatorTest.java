@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.bytecode.population.PopulationParser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class AreaEliminatorTest extends TestSuite {
+
+	private static Area area(String id, Area.Environment environment, ExitPointer... pointers) {
+		Area area = new Area();
+		area.setId(id);
+		area.setEnvironment(environment);
+		area.getPopulation().addAll(List.of(pointers));
+		return area;
+	}
+
+	@Test
+	void eliminateAndRenumber() throws IOException {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		Area overworld1 = atlas.get("Overworld_1");
+
+		Area bonus = area("Bonus", Area.Environment.UNDERGROUND, ExitPointer.create(0, "Bonus", 0, 0));
+		Area deep = area("Deep", Area.Environment.UNDERGROUND);
+		atlas.addAll(List.of(bonus, deep));
+		overworld1.getPopulation().add(ExitPointer.create(48, "Deep", 1, 0));
+		assertEquals(0x42, atlas.getIndex(deep));
+
+		final int geographyBytes = bonus.unparseGeography().length;
+		final int populationBytes = bonus.unparsePopulation(atlas).length;
+
+		EliminationReport report = AreaEliminator.eliminate(game);
+
+		assertEquals(List.of(bonus), report.getRemoved());
+		assertEquals(List.of(), report.getRetained());
+		assertEquals(geographyBytes, report.getGeographyBytes());
+		assertEquals(geographyBytes + populationBytes, report.getReclaimedBytes());
+		assertNull(atlas.get("Bonus"));
+
+		// The pointer to the renumbered area encodes its new index
+		assertEquals(0x41, atlas.getIndex(deep));
+		PopulationParser parser = new PopulationParser(new ByteArrayInputStream(overworld1.unparsePopulation(atlas)));
+		assertEquals("Area_41", ((ExitPointer) parser.parse().get(3)).getDestination());
+	}
+
+	@Test
+	void retainNamedAreas() {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		Area overworld2 = atlas.get("Overworld_2");
+
+		// Overworld_2 only starts a level in world 1, and names Secret from world 5
+		for (int world = 1; world < 8; world++) {
+			game.getScenario().getWorlds().get(world).getLevels().get(2).setStartArea(atlas.get("Overworld_1"));
+		}
+		overworld2.getPopulation().add(ExitPointer.create(16, "Secret", 0, 4));
+		Area secret = area("Secret", Area.Environment.OVERWORLD, ExitPointer.create(0, "Hidden", 0, 0));
+		Area hidden = area("Hidden", Area.Environment.CASTLE);
+		atlas.addAll(List.of(secret, hidden));
+
+		EliminationReport report = AreaEliminator.find(game);
+
+		assertEquals(List.of(secret, hidden), report.getRetained());
+		assertEquals(List.of(), report.getRemoved());
+		assertEquals(0, report.getReclaimedBytes());
+
+		// Once nothing names it, the chain of areas can go
+		overworld2.getPopulation().clear();
+		report = AreaEliminator.eliminate(game);
+		assertEquals(List.of(secret, hidden), report.getRemoved());
+		assertSame(overworld2, atlas.get("Overworld_2"));
+		assertEquals(4, atlas.getAreas().size());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class ConnectivityGraphTest extends TestSuite {
+
+	@Test
+	void queryGraph() {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		Area overworld1 = atlas.get("Overworld_1");
+		Area overworld2 = atlas.get("Overworld_2");
+		Area underground1 = atlas.get("Underground_1");
+		Area castle1 = atlas.get("Castle_1");
+
+		ConnectivityGraph graph = new ConnectivityGraph(game);
+
+		assertEquals(List.of(overworld1, underground1), graph.reachable(0, 0));
+		assertEquals(List.of(overworld2), graph.reachable(0, 2));
+		assertEquals(List.of(), graph.orphans());
+		assertEquals(List.of(underground1), graph.inbound(overworld1));
+		assertEquals(List.of(overworld1), graph.outbound(underground1));
+		assertEquals(List.of(List.of(overworld1, underground1)), graph.cycles());
+		assertEquals(List.of(underground1, overworld1), graph.shortestPath(underground1, overworld1, 0));
+		assertEquals(List.of(), graph.shortestPath(overworld1, castle1, 0));
+
+		assertThrows(IllegalStateException.class, () -> graph.reachable(8, 0));
+		assertThrows(IllegalStateException.class, () -> graph.inbound(new Area()));
+	}
+
+	@Test
+	void updateIncrementally() {
+
+		Game game = buildGame();
+		Atlas atlas = game.getAtlas();
+		Area overworld1 = atlas.get("Overworld_1");
+		Area underground1 = atlas.get("Underground_1");
+		Area castle1 = atlas.get("Castle_1");
+
+		Area bonus = new Area();
+		bonus.setId("Bonus");
+		bonus.setEnvironment(Area.Environment.UNDERGROUND);
+		bonus.getPopulation().add(ExitPointer.create(0, "Bonus", 0, 0));
+		atlas.add(bonus);
+
+		ConnectivityGraph graph = new ConnectivityGraph(game);
+		assertEquals(List.of(bonus), graph.orphans());
+		assertEquals(2, graph.cycles().size());
+
+		// A pointer active only from world 5 reaches the bonus area there
+		underground1.getPopulation().add(ExitPointer.create(32, "Bonus", 0, 4));
+		graph.update(underground1);
+
+		assertEquals(List.of(), graph.orphans());
+		assertEquals(List.of(underground1, bonus), graph.inbound(bonus));
+		assertEquals(List.of(), graph.shortestPath(overworld1, bonus, 3));
+		assertEquals(List.of(overworld1, underground1, bonus), graph.shortestPath(overworld1, bonus, 4));
+
+		underground1.getPopulation().remove(1);
+		graph.update(underground1);
+		assertEquals(List.of(bonus), graph.orphans());
+		assertEquals(List.of(bonus), graph.inbound(bonus));
+
+		// Removing an area changes index numbers, so needs a rebuild
+		atlas.remove(castle1);
+		graph.rebuild();
+		assertEquals(List.of(bonus), graph.orphans());
+	}
+}
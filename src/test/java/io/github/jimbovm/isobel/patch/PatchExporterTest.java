@@ -0,0 +1,194 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class PatchExporterTest extends TestSuite {
+
+	private static byte[] applyIps(byte[] source, byte[] patch) {
+
+		byte[] target = Arrays.copyOf(source, source.length);
+		ByteBuffer buffer = ByteBuffer.wrap(patch, 5, patch.length - 5);
+
+		while (true) {
+			final int offset = ((buffer.get() & 0xFF) << 16) | (buffer.getShort() & 0xFFFF);
+			if (offset == IpsPatch.FOOTER_OFFSET) {
+				return target;
+			}
+			final int length = buffer.getShort() & 0xFFFF;
+			if (length == 0) {
+				Arrays.fill(target, offset, offset + (buffer.getShort() & 0xFFFF), buffer.get());
+			}
+			else {
+				buffer.get(target, offset, length);
+			}
+		}
+	}
+
+	private static long readNumber(ByteBuffer buffer) {
+
+		long number = 0;
+		long shift = 1;
+
+		while (true) {
+			final int b = buffer.get() & 0xFF;
+			number += (b & 0x7F) * shift;
+			if ((b & 0x80) != 0) {
+				return number;
+			}
+			shift <<= 7;
+			number += shift;
+		}
+	}
+
+	private static byte[] applyBps(byte[] source, byte[] patch) {
+
+		ByteBuffer buffer = ByteBuffer.wrap(patch, 4, patch.length - 16).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(source.length, readNumber(buffer));
+		byte[] target = new byte[(int) readNumber(buffer)];
+		final int metadataSize = (int) readNumber(buffer);
+		buffer.position(buffer.position() + metadataSize);
+
+		int position = 0;
+		int sourceRelative = 0;
+		int targetRelative = 0;
+
+		while (buffer.hasRemaining()) {
+			final long data = readNumber(buffer);
+			final int length = (int) (data >> 2) + 1;
+			switch ((int) (data & 3)) {
+				case BpsPatch.SOURCE_READ:
+					System.arraycopy(source, position, target, position, length);
+					break;
+				case BpsPatch.TARGET_READ:
+					buffer.get(target, position, length);
+					break;
+				case BpsPatch.SOURCE_COPY: {
+					final long offset = readNumber(buffer);
+					sourceRelative += ((offset & 1) != 0 ? -1 : 1) * (int) (offset >> 1);
+					System.arraycopy(source, sourceRelative, target, position, length);
+					sourceRelative += length;
+					break;
+				}
+				default: {
+					final long offset = readNumber(buffer);
+					targetRelative += ((offset & 1) != 0 ? -1 : 1) * (int) (offset >> 1);
+					for (int i = 0; i < length; i++) {
+						target[position + i] = target[targetRelative++];
+					}
+				}
+			}
+			position += length;
+		}
+
+		ByteBuffer footer = ByteBuffer.wrap(patch, patch.length - 12, 12).order(ByteOrder.LITTLE_ENDIAN);
+		CRC32 checksum = new CRC32();
+		checksum.update(source);
+		assertEquals(checksum.getValue(), footer.getInt() & 0xFFFFFFFFL);
+		checksum.reset();
+		checksum.update(target);
+		assertEquals(checksum.getValue(), footer.getInt() & 0xFFFFFFFFL);
+		checksum.reset();
+		checksum.update(patch, 0, patch.length - 4);
+		assertEquals(checksum.getValue(), footer.getInt() & 0xFFFFFFFFL);
+
+		return target;
+	}
+
+	private static byte[] withHeader(byte[] image) {
+		byte[] headed = new byte[16 + image.length];
+		headed[0] = 'N';
+		headed[1] = 'E';
+		headed[2] = 'S';
+		headed[3] = 0x1A;
+		System.arraycopy(image, 0, headed, 16, image.length);
+		return headed;
+	}
+
+	@Test
+	void unchangedGameHasEmptyPatch() throws IOException {
+
+		final byte[] image = buildImage();
+		PatchExporter exporter = new PatchExporter(image);
+		ByteArrayOutputStream ips = new ByteArrayOutputStream();
+		exporter.writeIps(Game.parse(image), ips);
+
+		assertEquals(IpsPatch.HEADER.length + IpsPatch.FOOTER.length, ips.size());
+	}
+
+	@Test
+	void patchesReproduceEditedGame() throws IOException {
+
+		for (byte[] image : new byte[][] { buildImage(), withHeader(buildImage()) }) {
+
+			Game game = Game.parse(image);
+			PatchExporter exporter = new PatchExporter(image);
+
+			Area area = game.getAtlas().get("Area_22");
+			area.getPopulation().clear();
+			area.getHeader().setTicks(300);
+			exporter.invalidate(area);
+			game.getScenario().getWorlds().get(3).setHidden1upCost((byte) 77);
+
+			ByteArrayOutputStream ips = new ByteArrayOutputStream();
+			exporter.writeIps(game, ips);
+			ByteArrayOutputStream bps = new ByteArrayOutputStream();
+			exporter.writeBps(game, bps);
+
+			final byte[] fromIps = applyIps(image, ips.toByteArray());
+			final byte[] fromBps = applyBps(image, bps.toByteArray());
+			assertArrayEquals(fromIps, fromBps);
+
+			Game result = Game.parse(fromIps);
+			assertTrue(result.getAtlas().get("Area_22").getPopulation().isEmpty());
+			assertEquals(300, result.getAtlas().get("Area_22").getHeader().getTicks());
+			assertEquals(77, result.getScenario().getWorlds().get(3).getHidden1upCost());
+		}
+	}
+
+	@Test
+	void runsAreCompressed() throws IOException {
+
+		final byte[] source = new byte[0x1000];
+		SortedMap<Integer, byte[]> changes = new TreeMap<>();
+		byte[] run = new byte[0x200];
+		Arrays.fill(run, (byte) 0xEA);
+		run[0x100] = 1;
+		changes.put(0x400, run);
+
+		ByteArrayOutputStream ips = new ByteArrayOutputStream();
+		IpsPatch.write(source, changes, ips);
+		ByteArrayOutputStream bps = new ByteArrayOutputStream();
+		BpsPatch.write(source, changes, bps);
+
+		byte[] expected = Arrays.copyOf(source, source.length);
+		System.arraycopy(run, 0, expected, 0x400, run.length);
+
+		assertTrue(ips.size() < 40);
+		assertTrue(bps.size() < 40);
+		assertArrayEquals(expected, applyIps(source, ips.toByteArray()));
+		assertArrayEquals(expected, applyBps(source, bps.toByteArray()));
+	}
+}
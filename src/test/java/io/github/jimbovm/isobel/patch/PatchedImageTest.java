@@ -0,0 +1,133 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.patch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.bytecode.game.GameImage;
+import io.github.jimbovm.isobel.bytecode.game.GameParser;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class PatchedImageTest extends TestSuite {
+
+	private static Game editedGame(byte[] image) {
+
+		Game game = Game.parse(image);
+		Area area = game.getAtlas().get("Area_24");
+		area.getPopulation().clear();
+		area.getHeader().setTicks(200);
+
+		return game;
+	}
+
+	@Test
+	void readThroughPatches() throws IOException {
+
+		final byte[] base = buildImage();
+		final Game game = editedGame(base);
+		final byte[] expected = apply(base, new PatchExporter(base).changes(game));
+
+		ByteArrayOutputStream ips = new ByteArrayOutputStream();
+		new PatchExporter(base).writeIps(game, ips);
+		ByteArrayOutputStream bps = new ByteArrayOutputStream();
+		new PatchExporter(base).writeBps(game, bps);
+
+		for (byte[] patch : new byte[][] { ips.toByteArray(), bps.toByteArray() }) {
+
+			PatchedImage image = PatchedImage.of(base, patch);
+			assertEquals(base.length, image.length());
+			assertArrayEquals(expected, image.read(0, image.length()));
+
+			Game parsed = Game.parse(base, patch);
+			assertTrue(parsed.getAtlas().get("Area_24").getPopulation().isEmpty());
+			assertEquals(200, parsed.getAtlas().get("Area_24").getHeader().getTicks());
+		}
+	}
+
+	@Test
+	void skipHeader() {
+
+		final byte[] data = { 1, 2, 3, 4, 5, 3 };
+		final GameImage image = GameImage.wrap(data);
+		assertSame(image, image.skip(0));
+
+		for (GameImage view : new GameImage[] { image.skip(2), new PatchedImage(data, data.length).skip(2) }) {
+			assertEquals(4, view.length());
+			assertEquals(3, view.get(0));
+			assertArrayEquals(new byte[] { 3, 4, 5, 3 }, view.read(-1, 10));
+			assertArrayEquals(new byte[0], view.read(3, 1));
+			assertEquals(0, view.indexOf((byte) 3, -5));
+			assertEquals(3, view.indexOf((byte) 3, 1));
+			assertEquals(-1, view.indexOf((byte) 1, 0));
+			assertEquals(-1, view.indexOf((byte) 3, Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	void laterRecordsTakePrecedence() throws IOException {
+
+		final byte[] base = new byte[32];
+		ByteArrayOutputStream patch = new ByteArrayOutputStream();
+		patch.write(IpsPatch.HEADER);
+		// Eight bytes of 1 from offset 4, then 2 and 3 from offset 6
+		patch.write(new byte[] { 0, 0, 4, 0, 0, 0, 8, 1 });
+		patch.write(new byte[] { 0, 0, 6, 0, 2, 2, 3 });
+		// One byte past the end of the base image
+		patch.write(new byte[] { 0, 0, 32, 0, 1, 9 });
+		patch.write(IpsPatch.FOOTER);
+
+		PatchedImage image = PatchedImage.of(base, patch.toByteArray());
+
+		assertEquals(33, image.length());
+		assertArrayEquals(new byte[] { 0, 1, 1, 2, 3, 1, 1, 1, 1, 0 }, image.read(3, 13));
+		assertEquals(9, image.get(32));
+		assertEquals(4, image.getSegmentCount());
+	}
+
+	@Test
+	void truncation() throws IOException {
+
+		ByteArrayOutputStream patch = new ByteArrayOutputStream();
+		patch.write(IpsPatch.HEADER);
+		patch.write(IpsPatch.FOOTER);
+		patch.write(new byte[] { 0, 0, 16 });
+
+		assertEquals(16, PatchedImage.of(new byte[32], patch.toByteArray()).length());
+	}
+
+	@Test
+	void rejectBadPatches() throws IOException {
+
+		final byte[] base = buildImage();
+		ByteArrayOutputStream bps = new ByteArrayOutputStream();
+		new PatchExporter(base).writeBps(editedGame(base), bps);
+
+		byte[] otherBase = Arrays.copyOf(base, base.length);
+		otherBase[0] = 1;
+		assertThrows(IOException.class, () -> GameParser.create(otherBase, bps.toByteArray()));
+
+		byte[] corrupt = bps.toByteArray();
+		corrupt[8] ^= 1;
+		assertThrows(IOException.class, () -> PatchedImage.of(base, corrupt));
+
+		byte[] truncated = Arrays.copyOf(IpsPatch.HEADER, IpsPatch.HEADER.length + 2);
+		assertThrows(IOException.class, () -> PatchedImage.of(base, truncated));
+		assertThrows(IOException.class, () -> PatchedImage.of(base, new byte[] { 1, 2, 3 }));
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class MinHasherTest extends TestSuite {
+
+	/** Build an area of random rows and characters. */
+	private static Area randomArea(Random random) {
+
+		Area area = new Area();
+		area.getGeography().clear();
+		int x = 0;
+
+		for (int i = 0; i < 40; i++) {
+			x += 1 + random.nextInt(8);
+			area.getGeography().add(Row.create(x, random.nextInt(12),
+				Row.Type.values()[random.nextInt(Row.Type.values().length)], 1 + random.nextInt(8)));
+			if (random.nextInt(4) == 0) {
+				area.getPopulation().add(Character.create(x, 10, Character.Type.GOOMBA, random.nextBoolean()));
+			}
+		}
+
+		return area;
+	}
+
+	/** Copy an area, changing one of its actors. */
+	private static Area nearCopy(Area area, int index) throws IOException {
+
+		Area copy = GameCodec.decodeArea(GameCodec.encode(area));
+		Actor actor = copy.getGeography().get(index);
+		actor.setX(actor.getX() + 1);
+
+		return copy;
+	}
+
+	@Test
+	void estimateSimilarity() throws IOException {
+
+		MinHasher hasher = new MinHasher();
+		Random random = new Random(1);
+		Area area = randomArea(random);
+
+		assertArrayEquals(hasher.sign(area), hasher.sign(GameCodec.decodeArea(GameCodec.encode(area))));
+		assertTrue(MinHasher.similarity(hasher.sign(area), hasher.sign(nearCopy(area, 20))) > 0.7);
+		assertTrue(MinHasher.similarity(hasher.sign(area), hasher.sign(randomArea(random))) < 0.2);
+	}
+
+	@Test
+	void ignoreShift() throws IOException {
+
+		MinHasher hasher = new MinHasher();
+		Area area = randomArea(new Random(2));
+		Area shifted = GameCodec.decodeArea(GameCodec.encode(area));
+
+		// Only the shingles including the first actor of each stream change
+		for (Actor actor : shifted.getGeography()) {
+			actor.setX(actor.getX() + 16);
+		}
+		for (Actor actor : shifted.getPopulation()) {
+			actor.setX(actor.getX() + 16);
+		}
+
+		assertTrue(MinHasher.similarity(hasher.sign(area), hasher.sign(shifted)) > 0.8);
+	}
+
+	@Test
+	void findNearDuplicates() throws IOException {
+
+		MinHasher hasher = new MinHasher();
+		LshIndex<Integer> index = new LshIndex<>(16, 8);
+		Random random = new Random(3);
+		List<Area> areas = new ArrayList<>();
+
+		for (int i = 0; i < 500; i++) {
+			areas.add(randomArea(random));
+		}
+		for (int i = 0; i < 10; i++) {
+			areas.add(nearCopy(areas.get(i * 7), random.nextInt(40)));
+		}
+		for (int i = 0; i < areas.size(); i++) {
+			index.add(i, hasher.sign(areas.get(i)));
+		}
+
+		Set<String> found = new HashSet<>();
+		for (LshIndex.Match<Integer> match : index.findNearDuplicates(0.5)) {
+			found.add(match.getFirst() + "~" + match.getSecond());
+		}
+
+		Set<String> expected = new HashSet<>();
+		for (int i = 0; i < 10; i++) {
+			expected.add((i * 7) + "~" + (500 + i));
+		}
+
+		assertEquals(expected, found);
+		assertEquals(List.of(14, 502), index.query(hasher.sign(areas.get(14)), 0.5));
+	}
+
+	@Test
+	void persistSignatures(@TempDir Path directory) {
+
+		Game game = buildGame();
+		SignatureCache cache = new SignatureCache(directory, new MinHasher());
+		Map<String, int[]> signatures = cache.get(42, game);
+
+		assertEquals(game.getAtlas().getAreas().size(), signatures.size());
+
+		Map<String, int[]> stored = new SignatureCache(directory, new MinHasher()).get(42);
+		assertEquals(signatures.keySet(), stored.keySet());
+		for (String id : signatures.keySet()) {
+			assertArrayEquals(signatures.get(id), stored.get(id));
+		}
+
+		assertNull(new SignatureCache(directory, new MinHasher(2, 128, 0)).get(42));
+		assertNull(cache.get(43));
+	}
+}
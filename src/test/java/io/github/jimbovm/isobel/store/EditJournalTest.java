@@ -0,0 +1,166 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.edit.AddActor;
+import io.github.jimbovm.isobel.edit.AddArea;
+import io.github.jimbovm.isobel.edit.Edit;
+import io.github.jimbovm.isobel.edit.Layer;
+import io.github.jimbovm.isobel.edit.MoveActor;
+import io.github.jimbovm.isobel.edit.RemoveActor;
+import io.github.jimbovm.isobel.edit.SetHeader;
+import io.github.jimbovm.isobel.edit.SetStartArea;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class EditJournalTest extends TestSuite {
+
+	private static List<Edit> buildEdits() {
+
+		Area area =
+			Area
+				.builder().id("Water_1").familiarName("Water 1").environment(Area.Environment.UNDERWATER)
+				.header(AreaHeader.builder().ticks(300).fill(AreaHeader.Fill.FILL_NONE).build())
+				.geography(new ArrayList<>()).population(new ArrayList<>()).build();
+
+		return List
+			.of(new AddActor("Overworld_2", 0, Character.create(24, 10, Character.Type.GOOMBA, false)),
+				new AddActor("Overworld_1", 1, Row.create(30, 5, Row.Type.COIN, 3)),
+				new MoveActor("Overworld_1", Layer.GEOGRAPHY, 1, 31, 6),
+				new RemoveActor("Overworld_1", Layer.POPULATION, 0),
+				new SetHeader("Castle_1", AreaHeader.builder().ticks(200).autowalk(true).build()),
+				new AddArea(area),
+				new SetStartArea(2, 1, "Water_1"));
+	}
+
+	@Test
+	void recoverEdits(@TempDir Path directory) throws IOException {
+
+		Game game = buildGame();
+		Game expected = GameCodec.decode(GameCodec.encode(game));
+		buildEdits().forEach((edit) -> edit.apply(expected));
+
+		EditJournal journal = EditJournal.create(directory, game);
+		for (Edit edit : buildEdits()) {
+			journal.apply(edit);
+		}
+		assertArrayEquals(GameCodec.encode(expected), GameCodec.encode(journal.getGame()));
+		journal.close();
+
+		EditJournal recovered = EditJournal.open(directory);
+		assertEquals(7, recovered.getEditCount());
+		assertArrayEquals(GameCodec.encode(expected), GameCodec.encode(recovered.getGame()));
+		recovered.close();
+	}
+
+	@Test
+	void discardIncompleteRecord(@TempDir Path directory) throws IOException {
+
+		Game game = buildGame();
+		Game expected = GameCodec.decode(GameCodec.encode(game));
+
+		EditJournal journal = EditJournal.create(directory, game);
+		journal.setSyncInterval(1);
+		List<Edit> edits = buildEdits();
+		journal.apply(edits.get(0));
+		journal.apply(edits.get(1));
+
+		// Simulate a crash part way through writing a record
+		Path path = directory.resolve(EditJournal.JOURNAL_FILE);
+		final long length = Files.size(path);
+		Files.write(path, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+		edits.get(0).apply(expected);
+		edits.get(1).apply(expected);
+
+		EditJournal recovered = EditJournal.open(directory);
+		assertEquals(2, recovered.getEditCount());
+		assertEquals(length, Files.size(path));
+		assertArrayEquals(GameCodec.encode(expected), GameCodec.encode(recovered.getGame()));
+
+		// Edits after recovery follow the last complete record
+		recovered.apply(edits.get(2));
+		recovered.close();
+		edits.get(2).apply(expected);
+		assertArrayEquals(GameCodec.encode(expected), GameCodec.encode(EditJournal.open(directory).getGame()));
+	}
+
+	@Test
+	void compact(@TempDir Path directory) throws IOException {
+
+		EditJournal journal = EditJournal.create(directory, buildGame());
+		journal.setSyncInterval(2);
+		journal.setCompactionThreshold(4);
+
+		for (Edit edit : buildEdits()) {
+			journal.apply(edit);
+		}
+		journal.close();
+
+		assertEquals(1, journal.getGeneration());
+		assertEquals(3, journal.getEditCount());
+
+		EditJournal recovered = EditJournal.open(directory);
+		assertEquals(1, recovered.getGeneration());
+		assertEquals(3, recovered.getEditCount());
+		assertArrayEquals(GameCodec.encode(journal.getGame()), GameCodec.encode(recovered.getGame()));
+	}
+
+	@Test
+	void discardStaleJournal(@TempDir Path directory) throws IOException {
+
+		EditJournal journal = EditJournal.create(directory, buildGame());
+		journal.apply(buildEdits().get(0));
+		journal.sync();
+
+		// Simulate a crash after the snapshot but before the journal is replaced
+		Path path = directory.resolve(EditJournal.JOURNAL_FILE);
+		Path stale = directory.resolve("stale");
+		Files.copy(path, stale);
+		journal.compact();
+		journal.close();
+		Files.move(stale, path, StandardCopyOption.REPLACE_EXISTING);
+
+		EditJournal recovered = EditJournal.open(directory);
+		assertEquals(0, recovered.getEditCount());
+		assertArrayEquals(GameCodec.encode(journal.getGame()), GameCodec.encode(recovered.getGame()));
+	}
+
+	@Test
+	void rejectInvalidEdit(@TempDir Path directory) throws IOException {
+
+		EditJournal journal = EditJournal.create(directory, buildGame());
+
+		assertThrows(IllegalStateException.class,
+			() -> journal.apply(new RemoveActor("Castle_1", Layer.POPULATION, 5)));
+		assertThrows(IllegalStateException.class,
+			() -> journal.apply(new MoveActor("Nowhere", Layer.GEOGRAPHY, 0, 1, 1)));
+		assertEquals(0, journal.getEditCount());
+		journal.close();
+
+		assertThrows(IllegalStateException.class, () -> journal.sync());
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.actor.population.PopulationActor;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class FingerprintTest extends TestSuite {
+
+	/** Copy a game, giving every area a new ID and familiar name. */
+	private static Game rename(Game game) throws IOException {
+
+		Game copy = GameCodec.decode(GameCodec.encode(game));
+		List<Area> areas = new ArrayList<>(copy.getAtlas().getAreas());
+
+		for (Area area : areas) {
+			for (PopulationActor actor : area.getPopulation()) {
+				if (actor instanceof ExitPointer pointer) {
+					pointer.setDestination("Renamed_" + pointer.getDestination());
+				}
+			}
+			area.setId("Renamed_" + area.getId());
+			area.setFamiliarName("Renamed");
+		}
+
+		Atlas atlas = new Atlas();
+		atlas.addAll(areas);
+		copy.setAtlas(atlas);
+		copy.setId("Renamed");
+
+		return copy;
+	}
+
+	@Test
+	void ignoreNames() throws IOException {
+
+		Game game = buildGame();
+		Game renamed = rename(game);
+
+		assertEquals(Fingerprint.of(game), Fingerprint.of(renamed));
+		assertEquals(Fingerprint.of(game.getAtlas().get("Underground_1"), game.getAtlas()),
+			Fingerprint.of(renamed.getAtlas().get("Renamed_Underground_1"), renamed.getAtlas()));
+		assertNotEquals(Fingerprint.of(game.getAtlas().get("Underground_1")),
+			Fingerprint.of(renamed.getAtlas().get("Renamed_Underground_1")));
+	}
+
+	@Test
+	void followUnparsedOrder() throws IOException {
+
+		Area area = buildGame().getAtlas().get("Overworld_1");
+		final Fingerprint fingerprint = Fingerprint.of(area);
+
+		// Actors at different X are unparsed in order of position whatever their order in the list
+		Collections.reverse(area.getGeography());
+		assertEquals(fingerprint, Fingerprint.of(area));
+
+		area.getGeography().get(0).setX(area.getGeography().get(0).getX() + 1);
+		assertNotEquals(fingerprint, Fingerprint.of(area));
+
+		// Actors at the same X are unparsed in the order held
+		area.getGeography().add(Row.create(90, 3, Row.Type.COIN, 4));
+		area.getGeography().add(Row.create(90, 7, Row.Type.BRICK, 2));
+		final Fingerprint stacked = Fingerprint.of(area);
+		Collections.swap(area.getGeography(), area.getGeography().size() - 2, area.getGeography().size() - 1);
+		assertNotEquals(stacked, Fingerprint.of(area));
+	}
+
+	@Test
+	void distinguishContent() throws IOException {
+
+		Game game = buildGame();
+		final Fingerprint fingerprint = Fingerprint.of(game);
+
+		game.getScenario().getWorlds().get(2).getLevels().get(1).setCheckpoint((byte) 0);
+		assertNotEquals(fingerprint, Fingerprint.of(game));
+
+		Game other = buildGame();
+		other.getAtlas().get("Castle_1").getHeader().setAutowalk(true);
+		assertNotEquals(fingerprint, Fingerprint.of(other));
+		assertNotEquals(Fingerprint.of(buildGame().getAtlas().get("Castle_1").getHeader()),
+			Fingerprint.of(other.getAtlas().get("Castle_1").getHeader()));
+	}
+
+	@Test
+	void updateIncrementally() throws IOException {
+
+		Game game = buildGame();
+		Area area = game.getAtlas().get("Overworld_1");
+		AreaFingerprint fingerprint = new AreaFingerprint(area, game.getAtlas());
+
+		Row row = Row.create(70, 3, Row.Type.COIN, 4);
+		area.getGeography().add(row);
+		fingerprint.add(row);
+
+		Actor removed = area.getPopulation().remove(0);
+		fingerprint.remove(removed);
+
+		Character character = (Character) area.getPopulation().get(0);
+		fingerprint.remove(character);
+		character.setY(4);
+		fingerprint.add(character);
+
+		Row below = Row.create(70, 9, Row.Type.BRICK, 2);
+		area.getGeography().add(below);
+		fingerprint.add(below);
+		assertEquals(Fingerprint.of(area, game.getAtlas()), fingerprint.get());
+
+		// Reordering a column is a change to it
+		Collections.swap(area.getGeography(), area.getGeography().size() - 2, area.getGeography().size() - 1);
+		fingerprint.remove(below);
+		fingerprint.add(below);
+
+		area.getHeader().setBackground(AreaHeader.Background.NIGHT);
+		fingerprint.headerChanged();
+
+		assertEquals(Fingerprint.of(area, game.getAtlas()), fingerprint.get());
+		assertEquals(32, fingerprint.get().toString().length());
+	}
+}
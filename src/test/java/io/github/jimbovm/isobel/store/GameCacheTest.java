@@ -0,0 +1,110 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class GameCacheTest extends TestSuite {
+
+	@Test
+	void keyDependsOnContent() {
+		byte[] image = new byte[0x8000];
+		final long key = GameCache.key(image);
+		image[0x1234] = 1;
+		assertNotEquals(key, GameCache.key(image));
+	}
+
+	@Test
+	void lookupReturnsCopy() {
+
+		GameCache cache = new GameCache(GameCache.DEFAULT_MEMORY_BUDGET);
+		Game game = buildGame();
+		cache.put(1L, game);
+
+		Game first = cache.get(1L);
+		first.getAtlas().get("Overworld_1").getGeography().clear();
+		Game second = cache.get(1L);
+
+		assertNotSame(first, second);
+		assertEquals(8, second.getAtlas().get("Overworld_1").getGeography().size());
+		assertNull(cache.get(2L));
+	}
+
+	@Test
+	void evictLeastRecentlyUsed() {
+
+		final int size = GameCodec.encode(buildGame()).length;
+		GameCache cache = new GameCache(size * 2);
+
+		cache.put(1L, buildGame());
+		cache.put(2L, buildGame());
+		// Touch the first entry so the second becomes least recently used
+		cache.get(1L);
+		cache.put(3L, buildGame());
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.getMemoryUsed() <= cache.getMemoryBudget());
+		assertNotNull(cache.get(1L));
+		assertNull(cache.get(2L));
+		assertNotNull(cache.get(3L));
+	}
+
+	@Test
+	void persistToDisk(@TempDir Path directory) {
+
+		GameCache writer = new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET);
+		writer.put(42L, buildGame());
+
+		GameCache reader = new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET);
+		Game game = reader.get(42L);
+
+		assertNotNull(game);
+		assertEquals("Test_Game", game.getId());
+		assertEquals(1, reader.size());
+
+		reader.remove(42L);
+		assertNull(new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET).get(42L));
+	}
+
+	@Test
+	void missOtherVersions(@TempDir Path directory) throws IOException {
+
+		new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET).put(42L, buildGame());
+
+		Path entry;
+		try (Stream<Path> files = Files.list(directory)) {
+			entry = files.findFirst().orElseThrow();
+		}
+		assertTrue(entry.getFileName().toString().contains(GameCodec.VERSION + "." + GameCache.PARSER_VERSION));
+
+		// An entry from before versions were part of the name
+		final byte[] encoded = GameCodec.encode(buildGame());
+		Files.write(directory.resolve(String.format("%016x.isc", 7L)), encoded);
+		assertNull(new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET).get(7L));
+
+		// An entry in an older encoding, which the codec alone would still read
+		encoded[Integer.BYTES] = 1;
+		Files.write(entry, encoded);
+		assertNull(new GameCache(directory, GameCache.DEFAULT_MEMORY_BUDGET).get(42L));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class GameCodecTest extends TestSuite {
+
+	@Test
+	void roundTrip() throws IOException {
+
+		Game game = buildGame();
+		byte[] encoded = GameCodec.encode(game);
+		Game decoded = GameCodec.decode(encoded);
+
+		assertEquals("Test_Game", decoded.getId());
+		assertEquals(4, decoded.getAtlas().getAreas().size());
+
+		Area overworld = decoded.getAtlas().get("Overworld_1");
+		assertEquals("Overworld 1", overworld.getFamiliarName());
+		assertEquals(8, overworld.getGeography().size());
+		assertEquals(3, overworld.getPopulation().size());
+
+		Row row = (Row) overworld.getGeography().get(5);
+		assertEquals(40, row.getX());
+		assertEquals(4, row.getY());
+		assertEquals(5, row.getExtent());
+		assertEquals(Row.Type.BRICK, row.getType());
+
+		ExitPointer pointer = (ExitPointer) overworld.getPopulation().get(2);
+		assertEquals("Underground_1", pointer.getDestination());
+		assertEquals(2, pointer.getStartPage());
+
+		assertEquals(300, decoded.getAtlas().get("Castle_1").getHeader().getTicks());
+		assertEquals(0x40, decoded.getAtlas().getIndex(decoded.getAtlas().get("Underground_1")));
+
+		// Start areas must refer to the areas within the decoded atlas
+		assertSame(overworld, decoded.getScenario().getWorlds().get(3).getLevels().get(0).getStartArea());
+		assertEquals(80, decoded.getScenario().getWorlds().get(7).getHidden1upCost());
+
+		// The encoding is canonical, so a second pass gives identical bytes
+		assertArrayEquals(encoded, GameCodec.encode(decoded));
+	}
+
+	@Test
+	void compactness() {
+		assertTrue(GameCodec.encode(buildGame()).length < 512);
+	}
+
+	@Test
+	void rejectBadMagic() {
+		byte[] encoded = GameCodec.encode(buildGame());
+		encoded[0] = 0;
+		assertThrows(IOException.class, () -> GameCodec.decode(encoded));
+	}
+
+	@Test
+	void readOlderVersions() throws IOException {
+
+		final byte[] encoded = GameCodec.encode(buildGame());
+		final byte[] current = encoded.clone();
+		assertEquals(GameCodec.VERSION, encoded[4]);
+
+		// Version 1 differs only in lacking raw commands, which this game has none of
+		encoded[4] = 1;
+		assertArrayEquals(current, GameCodec.encode(GameCodec.decode(encoded)));
+
+		encoded[4] = (byte) (GameCodec.VERSION + 1);
+		IOException e = assertThrows(IOException.class, () -> GameCodec.decode(encoded));
+		assertTrue(e.getMessage().contains("Unsupported encoding version"));
+	}
+}
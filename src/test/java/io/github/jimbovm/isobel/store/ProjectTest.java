@@ -0,0 +1,114 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class ProjectTest extends TestSuite {
+
+	private static long countAreaFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory.resolve(Project.AREA_DIRECTORY))) {
+			return files.count();
+		}
+	}
+
+	@Test
+	void roundTrip(@TempDir Path directory) throws IOException {
+
+		Game game = buildGame();
+		Project.create(directory, game);
+
+		Project project = Project.open(directory);
+		assertEquals("Test_Game", project.getId());
+		assertEquals(List.of("Overworld_1", "Overworld_2", "Underground_1", "Castle_1"), project.getAreaIds());
+		assertEquals(Area.Environment.CASTLE, project.getEntry("Castle_1").getEnvironment());
+		assertFalse(project.isLoaded("Overworld_1"));
+
+		assertArrayEquals(GameCodec.encode(game), GameCodec.encode(project.load()));
+		assertEquals(4, countAreaFiles(directory));
+	}
+
+	@Test
+	void loadAreasOnDemand(@TempDir Path directory) throws IOException {
+
+		Project.create(directory, buildGame());
+		Project project = Project.open(directory);
+
+		Area area = project.getArea("Underground_1");
+		assertTrue(project.isLoaded("Underground_1"));
+		assertFalse(project.isLoaded("Overworld_1"));
+		assertSame(area, project.getArea("Underground_1"));
+		assertNull(project.getArea("Nowhere"));
+	}
+
+	@Test
+	void saveOnlyChangedAreas(@TempDir Path directory) throws IOException {
+
+		Game game = buildGame();
+		Project project = Project.create(directory, game);
+		assertEquals(0, project.save(game));
+
+		game.getAtlas().get("Overworld_2").getPopulation().add(Character.create(30, 10, Character.Type.GOOMBA, false));
+		game.getScenario().getWorlds().get(0).getLevels().get(0).setCheckpoint((byte) 2);
+		assertEquals(1, project.save(game));
+		assertEquals(4, countAreaFiles(directory));
+
+		Game reloaded = Project.open(directory).load();
+		assertEquals(1, reloaded.getAtlas().get("Overworld_2").getPopulation().size());
+		assertEquals(2, reloaded.getScenario().getWorlds().get(0).getLevels().get(0).getCheckpoint());
+	}
+
+	@Test
+	void saveLoadedAreas(@TempDir Path directory) throws IOException {
+
+		Project.create(directory, buildGame());
+		Project project = Project.open(directory);
+
+		project.getArea("Castle_1").getHeader().setTicks(200);
+		project.getArea("Overworld_1");
+		assertEquals(1, project.save());
+		assertFalse(project.isLoaded("Overworld_2"));
+
+		Game reloaded = Project.open(directory).load();
+		assertEquals(200, reloaded.getAtlas().get("Castle_1").getHeader().getTicks());
+		assertEquals(4, reloaded.getScenario().getWorlds().get(0).getLevels().size());
+	}
+
+	@Test
+	void removeArea(@TempDir Path directory) throws IOException {
+
+		Game game = buildGame();
+		Project project = Project.create(directory, game);
+
+		Area area = game.getAtlas().get("Overworld_2");
+		game.getAtlas().remove(area);
+		game.getScenario().getWorlds().forEach((world) -> world.getLevels().removeIf((level) -> level.getStartArea() == area));
+		project.save(game);
+
+		assertEquals(3, countAreaFiles(directory));
+		assertEquals(List.of("Overworld_1", "Underground_1", "Castle_1"), Project.open(directory).getAreaIds());
+	}
+}
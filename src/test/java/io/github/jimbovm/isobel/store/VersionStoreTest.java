@@ -0,0 +1,119 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class VersionStoreTest extends TestSuite {
+
+	private static long countObjects(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory.resolve(VersionStore.OBJECT_DIRECTORY))) {
+			return files.filter(Files::isRegularFile).count();
+		}
+	}
+
+	@Test
+	void shareUnchangedAreas(@TempDir Path directory) throws IOException {
+
+		VersionStore store = VersionStore.open(directory);
+		Game game = buildGame();
+
+		Revision first = store.commit(game);
+		assertEquals(4, countObjects(directory));
+		assertEquals(first.getId(), store.commit(game).getId());
+
+		game.getAtlas().get("Castle_1").getHeader().setTicks(200);
+		Revision second = store.commit(game);
+		assertEquals(5, countObjects(directory));
+
+		assertArrayEquals(GameCodec.encode(game), GameCodec.encode(store.checkout(second)));
+		assertEquals(300, store.checkout(first).getAtlas().get("Castle_1").getHeader().getTicks());
+	}
+
+	@Test
+	void diff(@TempDir Path directory) throws IOException {
+
+		VersionStore store = VersionStore.open(directory);
+		Game game = buildGame();
+		Revision first = store.commit(game);
+
+		game.getAtlas().get("Overworld_2").getPopulation().add(Character.create(30, 10, Character.Type.GOOMBA, false));
+		game.getAtlas().remove(game.getAtlas().get("Castle_1"));
+		game.getScenario().getWorlds().forEach((world) -> world.getLevels().remove(3));
+		Area water = new Area();
+		water.setId("Water_1");
+		water.setEnvironment(Area.Environment.UNDERWATER);
+		game.getAtlas().add(water);
+		Revision second = store.getRevision(store.commit(game).getId());
+
+		Revision.Diff diff = first.diff(second);
+		assertEquals(List.of("Water_1"), diff.getAdded());
+		assertEquals(List.of("Castle_1"), diff.getRemoved());
+		assertEquals(List.of("Overworld_2"), diff.getChanged());
+		assertFalse(diff.isReordered());
+		assertTrue(diff.isScenarioChanged());
+		assertTrue(first.diff(store.getRevision(first.getId())).isEmpty());
+	}
+
+	@Test
+	void checkoutDecodesOnlyDifferences(@TempDir Path directory) throws IOException {
+
+		VersionStore store = VersionStore.open(directory);
+		Game game = buildGame();
+		Revision first = store.commit(game);
+		game.getAtlas().get("Overworld_1").getPopulation().remove(0);
+		game.getScenario().getWorlds().get(1).getLevels().get(0).setCheckpoint((byte) 1);
+		Revision second = store.commit(game);
+
+		Game working = store.checkout(second);
+		Area underground = working.getAtlas().get("Underground_1");
+		Area overworld = working.getAtlas().get("Overworld_1");
+
+		assertEquals(1, store.checkout(first, second, working));
+		assertSame(underground, working.getAtlas().get("Underground_1"));
+		assertNotSame(overworld, working.getAtlas().get("Overworld_1"));
+		assertSame(working.getAtlas().get("Underground_1"),
+			working.getScenario().getWorlds().get(0).getLevels().get(1).getStartArea());
+		assertEquals(3, working.getAtlas().get("Overworld_1").getPopulation().size());
+		assertEquals(5, working.getScenario().getWorlds().get(1).getLevels().get(0).getCheckpoint());
+		assertArrayEquals(GameCodec.encode(store.checkout(first)), GameCodec.encode(working));
+	}
+
+	@Test
+	void detectCorruption(@TempDir Path directory) throws IOException {
+
+		VersionStore store = VersionStore.open(directory);
+		Revision revision = store.commit(buildGame());
+		Path path = directory.resolve(VersionStore.REVISION_DIRECTORY).resolve(revision.getId());
+		byte[] manifest = Files.readAllBytes(path);
+		manifest[manifest.length - 1] ^= 1;
+		Files.write(path, manifest);
+
+		assertTrue(store.contains(revision.getId()));
+		assertThrows(IOException.class, () -> store.getRevision(revision.getId()));
+	}
+}
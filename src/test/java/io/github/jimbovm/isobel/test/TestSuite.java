@@ -12,10 +12,29 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import io.github.jimbovm.isobel.actor.geography.BackgroundModifier;
+import io.github.jimbovm.isobel.actor.geography.Column;
+import io.github.jimbovm.isobel.actor.geography.FixedExtensible;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.geography.SingletonObject;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.AreaHeader;
+import io.github.jimbovm.isobel.common.Atlas;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.common.Level;
+import io.github.jimbovm.isobel.common.World;
+
 public abstract class TestSuite {
 
 	private static Logger log = LogManager.getLogger();
@@ -42,4 +61,166 @@ public abstract class TestSuite {
 		return Files.readAllBytes(path);
 	}
 
+
+	/**
+	 * Build a small game of four areas, the first overworld area having an
+	 * exit pointer into the underground area, and a scenario of eight
+	 * worlds of four levels each.
+	 */
+	public static Game buildGame() {
+
+		Area overworld1 = new Area();
+		overworld1.setId("Overworld_1");
+		overworld1.setFamiliarName("Overworld 1");
+		overworld1.getGeography().add(SingletonObject.create(16, 7, SingletonObject.Type.BRICK_VINE));
+		overworld1.getGeography().add(Row.create(40, 4, Row.Type.BRICK, 5));
+		overworld1.getGeography().add(FixedExtensible.create(50, FixedExtensible.Type.PIT, 2));
+		overworld1.getGeography().add(BackgroundModifier.create(64, AreaHeader.Background.NIGHT));
+		overworld1.getPopulation().add(Character.create(20, 10, Character.Type.GOOMBA, false));
+		overworld1.getPopulation().add(Character.create(36, 10, Character.Type.GREEN_TROOPA, true));
+		overworld1.getPopulation().add(ExitPointer.create(16, "Underground_1", 2, 0));
+
+		Area overworld2 = new Area();
+		overworld2.setId("Overworld_2");
+		overworld2.getHeader().setScenery(AreaHeader.Scenery.FENCES);
+
+		Area underground1 = new Area();
+		underground1.setId("Underground_1");
+		underground1.setEnvironment(Area.Environment.UNDERGROUND);
+		underground1.getGeography().add(Column.create(2, 3, Column.Type.BRICK, 8));
+		underground1.getPopulation().add(ExitPointer.create(8, "Overworld_1", 5, 0));
+
+		Area castle1 = new Area();
+		castle1.setId("Castle_1");
+		castle1.setEnvironment(Area.Environment.CASTLE);
+		castle1.getHeader().setTicks(300);
+		castle1.getPopulation().add(Character.create(40, 8, Character.Type.BOWSER, false));
+
+		Game game = new Game();
+		game.setId("Test_Game");
+		Atlas atlas = game.getAtlas();
+		atlas.addAll(List.of(overworld1, overworld2, underground1, castle1));
+
+		for (int i = 0; i < 8; i++) {
+			World world = new World();
+			world.setHidden1upCost((byte) (10 * (i + 1)));
+			world.getLevels().add(new Level(overworld1, (byte) 5));
+			world.getLevels().add(new Level(underground1, (byte) 6));
+			world.getLevels().add(new Level(overworld2, (byte) 7));
+			world.getLevels().add(new Level(castle1, (byte) 8));
+			game.getScenario().getWorlds().add(world);
+		}
+
+		return game;
+	}
+
+	/**
+	 * Apply changes to a copy of a binary image.
+	 *
+	 * @param  image   The image.
+	 * @param  changes Bytes to write, keyed by the offset at which to write
+	 *                 them.
+	 *
+	 * @return         The changed copy.
+	 */
+	public static byte[] apply(byte[] image, SortedMap<Integer, byte[]> changes) {
+
+		byte[] target = Arrays.copyOf(image, image.length);
+
+		for (Map.Entry<Integer, byte[]> change : changes.entrySet()) {
+			System.arraycopy(change.getValue(), 0, target, change.getKey(), change.getValue().length);
+		}
+
+		return target;
+	}
+
+	/**
+	 * Build a synthetic binary image in the layout of the original game, with
+	 * 34 small areas and a scenario of 36 levels, four of which start in an
+	 * autowalk area. The first overworld area has an exit pointer into the
+	 * first underground area.
+	 */
+	public static byte[] buildImage() {
+
+		byte[] image = new byte[0x8000];
+		final int[] counts = { 3, 22, 3, 6 };
+		final int[] levelsPerWorld = { 5, 5, 4, 5, 4, 4, 5, 4 };
+
+		Atlas atlas = new Atlas();
+		List<Area> areas = new ArrayList<>();
+
+		for (Area.Environment environment : Area.Environment.values()) {
+			for (int i = 0; i < counts[environment.getId()]; i++) {
+				Area area = new Area();
+				area.setEnvironment(environment);
+				area.setId(String.format("Area_%02X", (environment.getId() << 5) | i));
+				area.getGeography().add(Row.create(32 + i, 4, Row.Type.BRICK, 1 + (i % 4)));
+				if (i % 2 == 0) {
+					area.getPopulation().add(Character.create(40, 10, Character.Type.GOOMBA, false));
+				}
+				// Overworld areas 0x30 to 0x33 are the autowalk intros
+				area.getHeader().setAutowalk(environment == Area.Environment.OVERWORLD && i >= 16 && i < 20);
+				areas.add(area);
+			}
+		}
+
+		atlas.addAll(areas);
+		atlas.get("Area_20").getPopulation().add(ExitPointer.create(16, "Area_40", 2, 0));
+
+		// As in the original, population tables are not in environment order
+		final byte[] geographyOffsets = { 0x00, 0x03, 0x19, 0x1C };
+		final byte[] populationOffsets = { 0x1F, 0x06, 0x1C, 0x00 };
+		System.arraycopy(geographyOffsets, 0, image, 0x1D28, 4);
+		System.arraycopy(populationOffsets, 0, image, 0x1CE0, 4);
+
+		int address = 0x1D70;
+
+		for (Area area : atlas.getAreas()) {
+
+			final int index = atlas.getIndex(area);
+
+			final byte[] geography = area.unparseGeography();
+			final int geographyPosition = geographyOffsets[index >> 5] + (index & 0x1F);
+			System.arraycopy(geography, 0, image, address, geography.length);
+			image[0x1D2C + geographyPosition] = (byte) address;
+			image[0x1D4E + geographyPosition] = (byte) ((0x8000 | address) >> 8);
+			address += geography.length;
+
+			final byte[] population = area.unparsePopulation(atlas);
+			final int populationPosition = populationOffsets[index >> 5] + (index & 0x1F);
+			System.arraycopy(population, 0, image, address, population.length);
+			image[0x1CE4 + populationPosition] = (byte) address;
+			image[0x1D06 + populationPosition] = (byte) ((0x8000 | address) >> 8);
+			address += population.length;
+		}
+
+		int level = 0;
+		int autowalk = 0;
+
+		for (int world = 0; world < 8; world++) {
+
+			image[0x1CB4 + world] = (byte) level;
+
+			for (int i = 0; i < levelsPerWorld[world]; i++) {
+				if (i == levelsPerWorld[world] - 1) {
+					image[0x1CBC + level] = (byte) (0x60 + (world % 6));
+				}
+				else if (i == 1 && (world == 0 || world == 1 || world == 3 || world == 6)) {
+					image[0x1CBC + level] = (byte) (0x30 + autowalk++);
+				}
+				else {
+					image[0x1CBC + level] = (byte) (0x20 + (level % 16));
+				}
+				level++;
+			}
+
+			image[0x32C2 + world] = (byte) (10 * (world + 1));
+		}
+
+		for (int i = 0; i < 16; i++) {
+			image[0x11BD + i] = (byte) (0x10 * (i % 8) + 3);
+		}
+
+		return image;
+	}
 }
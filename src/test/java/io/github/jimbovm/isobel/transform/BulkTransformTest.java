@@ -0,0 +1,165 @@
+/*
+ * SPDX-License-Identifier: MIT-0
+ *
+ * This file is part of Isobel (https://github.com/jimbovm/isobel).
+ */
+
+package io.github.jimbovm.isobel.transform;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.jimbovm.isobel.actor.Actor;
+import io.github.jimbovm.isobel.actor.geography.Row;
+import io.github.jimbovm.isobel.actor.population.Character;
+import io.github.jimbovm.isobel.actor.population.ExitPointer;
+import io.github.jimbovm.isobel.common.Area;
+import io.github.jimbovm.isobel.common.Game;
+import io.github.jimbovm.isobel.store.GameCodec;
+import io.github.jimbovm.isobel.test.TestSuite;
+
+public class BulkTransformTest extends TestSuite {
+
+	@Test
+	void remapCharactersAcrossCorpus() {
+
+		List<Game> games = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			games.add(buildGame());
+		}
+
+		TransformResult result = BulkTransform.of(Character.class, (character) -> {
+			character.setType(Character.Type.GREEN_TROOPA);
+			return character;
+		}).where((character) -> character.getType() == Character.Type.GOOMBA).applyAll(games);
+
+		assertTrue(result.isComplete());
+		assertEquals(256, result.getAreas());
+		assertEquals(64, result.getChangedAreas());
+		assertEquals(64, result.getTransformedActors());
+
+		for (Game game : games) {
+			Area overworld1 = game.getAtlas().get("Overworld_1");
+			assertEquals(Character.Type.GREEN_TROOPA, ((Character) overworld1.getPopulation().get(0)).getType());
+			assertEquals(Character.Type.BOWSER,
+				((Character) game.getAtlas().get("Castle_1").getPopulation().get(0)).getType());
+		}
+	}
+
+	@Test
+	void filterByEnvironmentAndRange() {
+
+		Game game = buildGame();
+
+		// Move exit pointers, only those in overworld areas
+		TransformResult result = BulkTransform.of(ExitPointer.class, (pointer) -> {
+			pointer.setX(pointer.getX() + 4);
+			return pointer;
+		}).inEnvironments(Area.Environment.OVERWORLD).apply(game.getAtlas());
+
+		assertEquals(2, result.getAreas());
+		assertEquals(1, result.getTransformedActors());
+		assertEquals(20, game.getAtlas().get("Overworld_1").getPopulation().get(2).getX());
+		assertEquals(8, game.getAtlas().get("Underground_1").getPopulation().get(0).getX());
+
+		// Rescale extents of rows between X 32 and 48, visiting every actor type
+		result = BulkTransform.of(Actor.class, (actor) -> {
+			if (actor instanceof Row row) {
+				row.setExtent(row.getExtent() * 2);
+			}
+			return actor;
+		}).inRange(32, 48).apply(game.getAtlas());
+
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		assertEquals(10, ((Row) overworld1.getGeography().get(5)).getExtent());
+		assertEquals(3, result.getTransformedActors());
+		assertEquals(2, result.getChangedAreas());
+	}
+
+	@Test
+	void removeAndIsolateFailures() {
+
+		Game game = buildGame();
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		Area castle1 = game.getAtlas().get("Castle_1");
+
+		TransformResult result = BulkTransform.of(Character.class, (character) -> {
+			if (character.getType() == Character.Type.BOWSER) {
+				throw new IllegalArgumentException("Bowser stays");
+			}
+			return null;
+		}).apply(game.getAtlas());
+
+		assertFalse(result.isComplete());
+		assertSame(IllegalArgumentException.class, result.getFailures().get(castle1).getClass());
+		assertEquals(2, result.getRemovedActors());
+		assertEquals(1, overworld1.getPopulation().size());
+		assertEquals(1, castle1.getPopulation().size());
+
+		// A replacement in the wrong layer fails the area, which is unchanged
+		game = buildGame();
+		final byte[] original = GameCodec.encode(game);
+		result = BulkTransform.of(Character.class, (character) -> Row.create(0, 0, Row.Type.BRICK, 1))
+			.apply(game.getAtlas());
+		assertEquals(2, result.getFailures().size());
+		assertArrayEquals(original, GameCodec.encode(game));
+	}
+
+	@Test
+	void copyLeavesOriginal() {
+
+		Game game = buildGame();
+		final byte[] original = GameCodec.encode(game);
+
+		Map<Area, Area> copies = BulkTransform.of(Character.class, (character) -> {
+			character.setX(character.getX() + 1);
+			return character;
+		}).inEnvironments(Area.Environment.OVERWORLD, Area.Environment.CASTLE).copy(game.getAtlas());
+
+		assertArrayEquals(original, GameCodec.encode(game));
+		assertEquals(3, copies.size());
+
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		Area copy = copies.get(overworld1);
+		assertEquals("Overworld_1", copy.getId());
+		assertEquals(8, copy.getGeography().size());
+		assertNotSame(overworld1.getGeography().get(5), copy.getGeography().get(5));
+		assertEquals(21, copy.getPopulation().get(0).getX());
+		assertEquals(16, copy.getPopulation().get(2).getX());
+
+		assertThrows(IllegalStateException.class, () -> BulkTransform.of(Actor.class, (actor) -> {
+			throw new IllegalArgumentException();
+		}).copy(game.getAtlas()));
+	}
+
+	@Test
+	void applyAsOneUndoStep() {
+
+		Game game = buildGame();
+		Area overworld1 = game.getAtlas().get("Overworld_1");
+		overworld1.makePersistent();
+		final byte[] original = GameCodec.encode(overworld1);
+
+		// Both actor lists change, but the area changes in one step
+		BulkTransform.of(Actor.class, (actor) -> {
+			actor.setX(actor.getX() + 1);
+			return actor;
+		}).apply(game.getAtlas());
+
+		assertEquals(4, overworld1.getGeography().get(0).getX());
+		assertTrue(overworld1.undo());
+		assertArrayEquals(original, GameCodec.encode(overworld1));
+		assertFalse(overworld1.undo());
+	}
+}